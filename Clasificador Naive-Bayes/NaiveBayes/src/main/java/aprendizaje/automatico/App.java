@@ -1,13 +1,41 @@
 package aprendizaje.automatico;
 
-/**
- * Hello world!
- *
- */
-public class App 
-{
-    public static void main( String[] args )
-    {
-        System.out.println( "Hello World!" );
+import weka.classifiers.Evaluation;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.io.File;
+import java.util.Random;
+
+public class App {
+    public static void main(String[] args) {
+        try {
+            // Cargar el conjunto de datos (el mismo que usan los demás módulos)
+            String dataPath = args.length > 0 && !args[0].startsWith("-") ? args[0] : "../../ev/data/weather.nominal.arff";
+            // Opciones de Weka desde la línea de comandos (p. ej. "-num-slots 0")
+            String[] options = args.length > 0 && !args[0].startsWith("-")
+                    ? java.util.Arrays.copyOfRange(args, 1, args.length) : args.clone();
+            // Con "-binary <fichero>" los datos se leen del formato binario por columnas
+            String binaryPath = Utils.getOption("binary", options);
+            NaiveBayes naiveBayes = new NaiveBayes();
+            naiveBayes.setOptions(options);
+
+            // Sin -binary, el ARFF se analiza en paralelo con tantos hilos como
+            // -num-slots; la clase es el último atributo
+            ColumnStore columns = binaryPath.length() != 0 ? ColumnarFile.open(new File(binaryPath))
+                    : ParallelArffLoader.load(new File(dataPath), naiveBayes.getNumExecutionSlots());
+            Instances data = columns.toInstances();
+
+            naiveBayes.buildClassifier(data);
+            System.out.println(naiveBayes);
+
+            // Validación cruzada con 10 particiones
+            Evaluation evaluation = new Evaluation(data);
+            evaluation.crossValidateModel(naiveBayes, data, 10, new Random(1));
+            System.out.println(evaluation.toSummaryString("Validación cruzada (10 particiones)", false));
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
     }
 }
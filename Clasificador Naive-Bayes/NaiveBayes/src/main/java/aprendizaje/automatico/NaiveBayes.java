@@ -0,0 +1,532 @@
+package aprendizaje.automatico;
+
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.UpdateableClassifier;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.Utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Clasificador Naive Bayes para atributos nominales.
+ *
+ * El modelo son recuentos en arrays de long: cuántas veces aparece cada clase
+ * y, para cada atributo, cuántas veces aparece cada par (valor, clase). Las
+ * probabilidades se estiman con la corrección de Laplace, igual que
+ * {@code weka.classifiers.bayes.NaiveBayes} con atributos nominales:
+ * <pre>
+ *   P(c)     = (n(c) + 1) / (n + numClases)
+ *   P(v | c) = (n(v, c) + 1) / (n(c con valor conocido) + numValores)
+ * </pre>
+ * Los valores ausentes no cuentan ni puntúan y las filas sin clase se ignoran.
+ * Todas las filas pesan 1.
+ *
+ * Los logaritmos de esas probabilidades se precalculan en una tabla con una
+ * fila de numClases posiciones por (atributo, valor), de modo que puntuar una
+ * instancia es sumar una fila por atributo. {@link #distributionsForInstances}
+ * copia antes los valores del lote en un array de int y acumula atributo a
+ * atributo sobre un único array de puntuaciones.
+ *
+ * Implementa {@link UpdateableClassifier}: cada {@link #updateClassifier} suma
+ * una fila a los recuentos. Con -num-slots distinto de 1, buildClassifier
+ * reparte las filas entre varios hilos, cada uno con sus propias tablas de
+ * recuentos, y las suma al final; el modelo es el mismo que en secuencial.
+ *
+ * Por la misma razón se puede entrenar por partes (un modelo por partición de
+ * los datos, incluso en procesos distintos) y juntarlas con {@link #merge}.
+ * {@link #writeStatistics} y {@link #readStatistics} guardan y leen solo los
+ * recuentos, en binario, para pasarlos entre procesos; {@link NaiveBayesShards}
+ * lo hace desde la línea de comandos.
+ */
+public class NaiveBayes extends AbstractClassifier implements UpdateableClassifier {
+
+    /** Filas que cuenta cada tarea en el entrenamiento paralelo. */
+    static final int PARALLEL_CHUNK = 4096;
+
+    /** Cabecera del formato de {@link #writeStatistics}: "NBST" y versión. */
+    static final int STATISTICS_MAGIC = 0x4E425354;
+    static final int STATISTICS_VERSION = 1;
+
+    private Instances m_header;
+    private int m_numClasses;
+    private int[] m_numValues;     // Valores de cada atributo (0 para la clase)
+    private int[] m_offset;        // Primera fila de la tabla de cada atributo (en unidades de numClasses)
+    private long[] m_classCounts;  // n(c)
+    private long[] m_valueCounts;  // n(v, c) en [(m_offset[i] + v) * numClasses + c]
+    private long[] m_knownCounts;  // n(c con valor conocido) en [i * numClasses + c]
+    private long m_numInstances;
+
+    // Logaritmos precalculados; se rehacen tras entrenar o actualizar
+    private transient volatile LogTables m_logTables;
+
+    private int m_numExecutionSlots = 1;
+    private transient ForkJoinPool m_pool;
+
+    @Override
+    public void buildClassifier(Instances data) throws Exception {
+        int numRows = initStructure(data);
+
+        Counts counts = new Counts(numRows);
+        ForkJoinPool pool = getPool();
+        int n = data.numInstances();
+        if (pool == null || n < 2 * PARALLEL_CHUNK) {
+            counts.addAll(data, 0, n);
+        } else {
+            // Cada tarea cuenta su bloque en tablas propias; al sumarlas el resultado no depende del reparto
+            int numChunks = (n + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+            counts = pool.submit(() -> IntStream.range(0, numChunks).parallel()
+                    .mapToObj(c -> {
+                        Counts local = new Counts(numRows);
+                        local.addAll(data, c * PARALLEL_CHUNK, Math.min(n, (c + 1) * PARALLEL_CHUNK));
+                        return local;
+                    })
+                    .reduce(Counts::merge)).join().get();
+        }
+        m_classCounts = counts.classCounts;
+        m_valueCounts = counts.valueCounts;
+        m_knownCounts = counts.knownCounts;
+        m_numInstances = counts.numInstances;
+        invalidate();
+    }
+
+    /**
+     * Toma la cabecera de data y calcula la disposición de las tablas.
+     *
+     * @return número de filas (valores de todos los atributos) de la tabla n(v, c)
+     */
+    private int initStructure(Instances data) throws Exception {
+        if (data.classIndex() < 0 || !data.classAttribute().isNominal()) {
+            throw new Exception("Naive Bayes necesita un atributo de clase nominal.");
+        }
+        int numAttributes = data.numAttributes();
+        m_header = new Instances(data, 0);
+        m_numClasses = data.numClasses();
+        m_numValues = new int[numAttributes];
+        m_offset = new int[numAttributes];
+        int rows = 0;
+        for (int i = 0; i < numAttributes; i++) {
+            if (i == data.classIndex()) {
+                continue;
+            }
+            if (!data.attribute(i).isNominal()) {
+                throw new Exception("Naive Bayes solo admite atributos nominales: " + data.attribute(i).name());
+            }
+            m_offset[i] = rows;
+            m_numValues[i] = data.attribute(i).numValues();
+            rows += m_numValues[i];
+        }
+        return rows;
+    }
+
+    /**
+     * Suma una instancia a los recuentos. Hay que llamar antes a
+     * {@link #buildClassifier}, aunque sea solo con la cabecera.
+     */
+    @Override
+    public void updateClassifier(Instance instance) throws Exception {
+        if (m_header == null) {
+            throw new Exception("Hay que llamar a buildClassifier antes de updateClassifier.");
+        }
+        if (add(instance, m_classCounts, m_valueCounts, m_knownCounts)) {
+            m_numInstances++;
+        }
+        invalidate();
+    }
+
+    /**
+     * Suma al modelo los recuentos de other, entrenado con la misma cabecera.
+     * Como los recuentos son estadísticos suficientes, entrenar por partes y
+     * combinarlas da exactamente el mismo modelo que entrenar con todas las
+     * filas a la vez, sea cual sea el reparto. other no se modifica.
+     */
+    public void merge(NaiveBayes other) throws Exception {
+        if (m_header == null || other.m_header == null) {
+            throw new Exception("Solo se pueden combinar modelos entrenados.");
+        }
+        if (m_header.classIndex() != other.m_header.classIndex() || !m_header.equalHeaders(other.m_header)) {
+            throw new Exception("Los modelos no tienen la misma cabecera: " + m_header.equalHeadersMsg(other.m_header));
+        }
+        sum(m_classCounts, other.m_classCounts);
+        sum(m_valueCounts, other.m_valueCounts);
+        sum(m_knownCounts, other.m_knownCounts);
+        m_numInstances += other.m_numInstances;
+        invalidate();
+    }
+
+    /**
+     * Escribe los estadísticos suficientes del modelo (la cabecera y los
+     * recuentos) en un formato binario compacto que lee {@link #readStatistics}.
+     * Los recuentos van como enteros de longitud variable (7 bits por byte), de
+     * modo que los pequeños y los ceros, que son la mayoría, ocupan un byte;
+     * n(c con valor conocido) no se guarda porque se obtiene sumando n(v, c).
+     * No cierra out.
+     */
+    public void writeStatistics(OutputStream out) throws IOException {
+        if (m_header == null) {
+            throw new IOException("El modelo no está entrenado.");
+        }
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(STATISTICS_MAGIC);
+        data.writeByte(STATISTICS_VERSION);
+        byte[] header = m_header.toString().getBytes(StandardCharsets.UTF_8);
+        data.writeInt(header.length);
+        data.write(header);
+        data.writeInt(m_header.classIndex());
+        writeVarLong(data, m_numInstances);
+        for (long count : m_classCounts) {
+            writeVarLong(data, count);
+        }
+        for (long count : m_valueCounts) {
+            writeVarLong(data, count);
+        }
+        data.flush();
+    }
+
+    /**
+     * Lee un modelo escrito con {@link #writeStatistics}. Las opciones (como
+     * -num-slots) no forman parte de los estadísticos y quedan por defecto. No
+     * lee más bytes de los del modelo, así que in puede contener varios seguidos.
+     */
+    public static NaiveBayes readStatistics(InputStream in) throws Exception {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != STATISTICS_MAGIC) {
+            throw new IOException("No es un fichero de estadísticos de Naive Bayes.");
+        }
+        int version = data.readUnsignedByte();
+        if (version != STATISTICS_VERSION) {
+            throw new IOException("Versión de estadísticos no soportada: " + version);
+        }
+        byte[] text = new byte[data.readInt()];
+        data.readFully(text);
+        Instances header = new Instances(new StringReader(new String(text, StandardCharsets.UTF_8)));
+        header.setClassIndex(data.readInt());
+
+        NaiveBayes model = new NaiveBayes();
+        int numRows = model.initStructure(header);
+        Counts counts = model.new Counts(numRows);
+        counts.numInstances = readVarLong(data);
+        for (int c = 0; c < counts.classCounts.length; c++) {
+            counts.classCounts[c] = readVarLong(data);
+        }
+        for (int k = 0; k < counts.valueCounts.length; k++) {
+            counts.valueCounts[k] = readVarLong(data);
+        }
+        int numClasses = model.m_numClasses;
+        for (int i = 0; i < model.m_numValues.length; i++) {
+            for (int v = 0; v < model.m_numValues[i]; v++) {
+                int row = (model.m_offset[i] + v) * numClasses;
+                for (int c = 0; c < numClasses; c++) {
+                    counts.knownCounts[i * numClasses + c] += counts.valueCounts[row + c];
+                }
+            }
+        }
+        model.m_classCounts = counts.classCounts;
+        model.m_valueCounts = counts.valueCounts;
+        model.m_knownCounts = counts.knownCounts;
+        model.m_numInstances = counts.numInstances;
+        return model;
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Recuento mal codificado.");
+    }
+
+    /**
+     * Tablas de recuentos de un entrenamiento (o de una parte de él).
+     */
+    private final class Counts {
+        final long[] classCounts = new long[m_numClasses];
+        final long[] valueCounts;
+        final long[] knownCounts = new long[m_numValues.length * m_numClasses];
+        long numInstances;
+
+        Counts(int numRows) {
+            valueCounts = new long[numRows * m_numClasses];
+        }
+
+        void addAll(Instances data, int from, int to) {
+            for (int r = from; r < to; r++) {
+                if (add(data.instance(r), classCounts, valueCounts, knownCounts)) {
+                    numInstances++;
+                }
+            }
+        }
+
+        Counts merge(Counts other) {
+            sum(classCounts, other.classCounts);
+            sum(valueCounts, other.valueCounts);
+            sum(knownCounts, other.knownCounts);
+            numInstances += other.numInstances;
+            return this;
+        }
+    }
+
+    private static void sum(long[] into, long[] from) {
+        for (int k = 0; k < into.length; k++) {
+            into[k] += from[k];
+        }
+    }
+
+    /**
+     * @return false si la instancia no tiene clase y no se ha contado
+     */
+    private boolean add(Instance instance, long[] classCounts, long[] valueCounts, long[] knownCounts) {
+        if (instance.classIsMissing()) {
+            return false;
+        }
+        int c = (int) instance.classValue();
+        classCounts[c]++;
+        for (int i = 0; i < m_numValues.length; i++) {
+            if (m_numValues[i] == 0 || instance.isMissing(i)) {
+                continue;
+            }
+            int v = (int) instance.value(i);
+            valueCounts[(m_offset[i] + v) * m_numClasses + c]++;
+            knownCounts[i * m_numClasses + c]++;
+        }
+        return true;
+    }
+
+    private void invalidate() {
+        m_logTables = null;
+    }
+
+    /**
+     * log P(c) y log P(v | c), con la misma disposición que los recuentos.
+     */
+    private static final class LogTables {
+        final double[] prior;
+        final double[] likelihood;
+
+        LogTables(double[] prior, double[] likelihood) {
+            this.prior = prior;
+            this.likelihood = likelihood;
+        }
+    }
+
+    /**
+     * Calcula (si hace falta) los logaritmos de las probabilidades a partir de los recuentos.
+     */
+    private LogTables logTables() {
+        LogTables tables = m_logTables;
+        if (tables == null) {
+            synchronized (this) {
+                tables = m_logTables;
+                if (tables == null) {
+                    double[] prior = new double[m_numClasses];
+                    for (int c = 0; c < m_numClasses; c++) {
+                        prior[c] = Math.log((m_classCounts[c] + 1.0) / (m_numInstances + m_numClasses));
+                    }
+                    double[] likelihood = new double[m_valueCounts.length];
+                    for (int i = 0; i < m_numValues.length; i++) {
+                        for (int v = 0; v < m_numValues[i]; v++) {
+                            int row = (m_offset[i] + v) * m_numClasses;
+                            for (int c = 0; c < m_numClasses; c++) {
+                                likelihood[row + c] = Math.log((m_valueCounts[row + c] + 1.0)
+                                        / (m_knownCounts[i * m_numClasses + c] + m_numValues[i]));
+                            }
+                        }
+                    }
+                    tables = new LogTables(prior, likelihood);
+                    m_logTables = tables;
+                }
+            }
+        }
+        return tables;
+    }
+
+    @Override
+    public double[] distributionForInstance(Instance instance) throws Exception {
+        LogTables tables = logTables();
+        double[] logLikelihood = tables.likelihood;
+        double[] dist = tables.prior.clone();
+        for (int i = 0; i < m_numValues.length; i++) {
+            if (m_numValues[i] == 0 || instance.isMissing(i)) {
+                continue;
+            }
+            int row = (m_offset[i] + (int) instance.value(i)) * m_numClasses;
+            for (int c = 0; c < m_numClasses; c++) {
+                dist[c] += logLikelihood[row + c];
+            }
+        }
+        normalize(dist, 0, m_numClasses);
+        return dist;
+    }
+
+    /**
+     * Puntúa el lote atributo a atributo: primero copia los valores de cada
+     * atributo a un array de int (-1 si faltan) y después suma la fila de la
+     * tabla de cada valor a las puntuaciones de todas las instancias.
+     */
+    @Override
+    public double[][] distributionsForInstances(Instances instances) throws Exception {
+        LogTables tables = logTables();
+        double[] logLikelihood = tables.likelihood;
+        int n = instances.numInstances();
+        int k = m_numClasses;
+        double[] scores = new double[n * k];
+        for (int r = 0; r < n; r++) {
+            System.arraycopy(tables.prior, 0, scores, r * k, k);
+        }
+        int[] codes = new int[n];
+        for (int i = 0; i < m_numValues.length; i++) {
+            if (m_numValues[i] == 0) {
+                continue;
+            }
+            for (int r = 0; r < n; r++) {
+                Instance instance = instances.instance(r);
+                codes[r] = instance.isMissing(i) ? -1 : (m_offset[i] + (int) instance.value(i)) * k;
+            }
+            for (int r = 0, base = 0; r < n; r++, base += k) {
+                int row = codes[r];
+                if (row < 0) {
+                    continue;
+                }
+                for (int c = 0; c < k; c++) {
+                    scores[base + c] += logLikelihood[row + c];
+                }
+            }
+        }
+        double[][] dist = new double[n][];
+        for (int r = 0; r < n; r++) {
+            normalize(scores, r * k, k);
+            dist[r] = new double[k];
+            System.arraycopy(scores, r * k, dist[r], 0, k);
+        }
+        return dist;
+    }
+
+    @Override
+    public boolean implementsMoreEfficientBatchPrediction() {
+        return true;
+    }
+
+    /**
+     * Convierte los logaritmos de scores[from, from + length) en probabilidades que suman 1.
+     */
+    private static void normalize(double[] scores, int from, int length) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int c = from; c < from + length; c++) {
+            max = Math.max(max, scores[c]);
+        }
+        double sum = 0;
+        for (int c = from; c < from + length; c++) {
+            scores[c] = Math.exp(scores[c] - max);
+            sum += scores[c];
+        }
+        for (int c = from; c < from + length; c++) {
+            scores[c] /= sum;
+        }
+    }
+
+    private ForkJoinPool getPool() {
+        m_pool = ExecutionSlots.pool(m_pool, m_numExecutionSlots);
+        return m_pool;
+    }
+
+
+    /**
+     * @return una descripción de este clasificador
+     */
+    public String globalInfo() {
+        return "Naive Bayes para atributos nominales con corrección de Laplace.";
+    }
+
+    @Override
+    public Enumeration<Option> listOptions() {
+        Vector<Option> newVector = new Vector<>();
+        newVector.addElement(new Option("\tNúmero de hilos para contar las instancias.\n"
+                + "\t(por defecto 1 - sin paralelismo)\n"
+                + "\t(0 para usar todos los núcleos)", "num-slots", 1, "-num-slots <num>"));
+        newVector.addAll(Collections.list(super.listOptions()));
+        return newVector.elements();
+    }
+
+    @Override
+    public void setOptions(String[] options) throws Exception {
+        String numSlots = Utils.getOption("num-slots", options);
+        setNumExecutionSlots(numSlots.length() != 0 ? Integer.parseInt(numSlots) : 1);
+        super.setOptions(options);
+        Utils.checkForRemainingOptions(options);
+    }
+
+    @Override
+    public String[] getOptions() {
+        Vector<String> options = new Vector<>();
+        options.add("-num-slots");
+        options.add("" + getNumExecutionSlots());
+        Collections.addAll(options, super.getOptions());
+        return options.toArray(new String[0]);
+    }
+
+    public String numExecutionSlotsTipText() {
+        return "Número de hilos para contar las instancias (1 = secuencial, 0 = todos los núcleos).";
+    }
+
+    public int getNumExecutionSlots() {
+        return m_numExecutionSlots;
+    }
+
+    public void setNumExecutionSlots(int numSlots) {
+        m_numExecutionSlots = numSlots;
+    }
+
+    @Override
+    public String toString() {
+        if (m_header == null) {
+            return "Naive Bayes: sin entrenar.";
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("Naive Bayes (").append(m_numInstances).append(" instancias)\n");
+        sb.append("-----------------------------------\n");
+        sb.append("Recuentos por clase:\n");
+        for (int c = 0; c < m_numClasses; c++) {
+            sb.append("\t").append(m_header.classAttribute().value(c)).append(": ").append(m_classCounts[c]).append("\n");
+        }
+        for (int i = 0; i < m_numValues.length; i++) {
+            if (m_numValues[i] == 0) {
+                continue;
+            }
+            sb.append(m_header.attribute(i).name()).append(":\n");
+            for (int v = 0; v < m_numValues[i]; v++) {
+                sb.append("\t").append(m_header.attribute(i).value(v)).append(":");
+                int row = (m_offset[i] + v) * m_numClasses;
+                for (int c = 0; c < m_numClasses; c++) {
+                    sb.append(" ").append(m_valueCounts[row + c]);
+                }
+                sb.append("\n");
+            }
+        }
+        return sb.toString();
+    }
+}
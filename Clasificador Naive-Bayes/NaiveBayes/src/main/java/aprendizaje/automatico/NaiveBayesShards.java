@@ -0,0 +1,81 @@
+package aprendizaje.automatico;
+
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.converters.ArffLoader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Entrenamiento de {@link NaiveBayes} por partes desde la línea de comandos,
+ * al estilo map/reduce: cada proceso entrena con una partición y guarda sus
+ * recuentos, y después se combinan todos en un único modelo.
+ * <pre>
+ *   train &lt;datos.arff&gt; &lt;parte.nbs&gt;               entrena con un ARFF fila a fila
+ *   merge &lt;modelo.nbs&gt; &lt;parte.nbs&gt; [&lt;parte.nbs&gt; ...]  suma los recuentos de las partes
+ *   print &lt;modelo.nbs&gt;                            muestra los recuentos
+ * </pre>
+ * Los ARFF de todas las particiones deben tener la misma cabecera; la clase es
+ * el último atributo. train lee el fichero con {@link ArffLoader} sin cargarlo
+ * entero en memoria.
+ */
+public class NaiveBayesShards {
+
+    public static void main(String[] args) {
+        try {
+            if (args.length >= 3 && args[0].equals("train")) {
+                write(train(new File(args[1])), new File(args[2]));
+            } else if (args.length >= 3 && args[0].equals("merge")) {
+                NaiveBayes model = read(new File(args[2]));
+                for (int k = 3; k < args.length; k++) {
+                    model.merge(read(new File(args[k])));
+                }
+                write(model, new File(args[1]));
+            } else if (args.length == 2 && args[0].equals("print")) {
+                System.out.println(read(new File(args[1])));
+            } else {
+                System.err.println("Uso: NaiveBayesShards train <datos.arff> <parte.nbs>\n"
+                        + "       NaiveBayesShards merge <modelo.nbs> <parte.nbs> [<parte.nbs> ...]\n"
+                        + "       NaiveBayesShards print <modelo.nbs>");
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Entrena con un ARFF leyendo una instancia cada vez.
+     */
+    static NaiveBayes train(File arff) throws Exception {
+        ArffLoader loader = new ArffLoader();
+        loader.setFile(arff);
+        Instances structure = loader.getStructure();
+        structure.setClassIndex(structure.numAttributes() - 1);
+
+        NaiveBayes model = new NaiveBayes();
+        model.buildClassifier(structure);
+        Instance instance;
+        while ((instance = loader.getNextInstance(structure)) != null) {
+            model.updateClassifier(instance);
+        }
+        return model;
+    }
+
+    static NaiveBayes read(File file) throws Exception {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return NaiveBayes.readStatistics(in);
+        }
+    }
+
+    static void write(NaiveBayes model, File file) throws Exception {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            model.writeStatistics(out);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package aprendizaje.automatico;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.Utils;
+import weka.core.converters.ConverterUtils.DataSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * {@link NaiveBayes} da las mismas distribuciones que el NaiveBayes de Weka, y
+ * entrenar por partes (o en paralelo) y combinarlas da el mismo modelo que
+ * entrenar con todas las filas a la vez.
+ */
+public class NaiveBayesTest extends TestCase {
+
+    public NaiveBayesTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(NaiveBayesTest.class);
+    }
+
+    /**
+     * Datos nominales aleatorios con valores ausentes y algunas filas sin clase.
+     */
+    private static Instances randomData(int numInstances, long seed) {
+        Random random = new Random(seed);
+        int[] arity = {2, 3, 5, 4};
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        for (int i = 0; i < arity.length; i++) {
+            List<String> values = new ArrayList<>();
+            for (int v = 0; v < arity[i]; v++) {
+                values.add("v" + v);
+            }
+            attributes.add(new Attribute(i == arity.length - 1 ? "clase" : "a" + i, values));
+        }
+        Instances data = new Instances("aleatorio", attributes, numInstances);
+        data.setClassIndex(arity.length - 1);
+        for (int r = 0; r < numInstances; r++) {
+            double[] values = new double[arity.length];
+            for (int i = 0; i < arity.length; i++) {
+                values[i] = random.nextInt(10) == 0 ? Utils.missingValue() : random.nextInt(arity[i]);
+            }
+            data.add(new DenseInstance(1.0, values));
+        }
+        return data;
+    }
+
+    private static NaiveBayes train(Instances data) throws Exception {
+        NaiveBayes model = new NaiveBayes();
+        model.buildClassifier(data);
+        return model;
+    }
+
+    private static byte[] statistics(NaiveBayes model) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        model.writeStatistics(out);
+        return out.toByteArray();
+    }
+
+    private static void assertSameModel(NaiveBayes expected, NaiveBayes actual, Instances data) throws Exception {
+        assertEquals(expected.toString(), actual.toString());
+        assertTrue(Arrays.equals(statistics(expected), statistics(actual)));
+        double[][] expectedDist = expected.distributionsForInstances(data);
+        double[][] actualDist = actual.distributionsForInstances(data);
+        for (int r = 0; r < data.numInstances(); r++) {
+            assertTrue("fila " + r, Arrays.equals(expectedDist[r], actualDist[r]));
+        }
+    }
+
+    private static void assertSameAsWeka(String message, Instances train, Instances test) throws Exception {
+        NaiveBayes model = train(train);
+        weka.classifiers.bayes.NaiveBayes weka = new weka.classifiers.bayes.NaiveBayes();
+        weka.buildClassifier(train);
+        double[][] batch = model.distributionsForInstances(test);
+        for (int r = 0; r < test.numInstances(); r++) {
+            double[] expected = weka.distributionForInstance(test.instance(r));
+            double[] actual = model.distributionForInstance(test.instance(r));
+            for (int c = 0; c < expected.length; c++) {
+                assertEquals(message + ", fila " + r, expected[c], actual[c], 1e-9);
+                assertEquals(message + ", fila " + r + " (lote)", actual[c], batch[r][c], 1e-12);
+            }
+        }
+    }
+
+    public void testMatchesWekaNaiveBayes() throws Exception {
+        for (String path : new String[] {"../../ev/data/weather.nominal.arff", "../../ev/data/weather.nominal2.arff"}) {
+            Instances data = new DataSource(path).getDataSet();
+            data.setClassIndex(data.numAttributes() - 1);
+            assertSameAsWeka(path, data, data);
+        }
+        // Con valores ausentes y filas sin clase, y probando con otras filas
+        assertSameAsWeka("aleatorio", randomData(2000, 6), randomData(500, 7));
+    }
+
+    /**
+     * Con varios bloques de {@link NaiveBayes#PARALLEL_CHUNK} filas, contar en
+     * paralelo da las mismas tablas que en secuencial.
+     */
+    public void testParallelCountsMatchSequential() throws Exception {
+        Instances data = randomData(3 * NaiveBayes.PARALLEL_CHUNK + 123, 8);
+        NaiveBayes sequential = train(data);
+        for (int numSlots : new int[] {3, 0}) {
+            NaiveBayes parallel = new NaiveBayes();
+            parallel.setOptions(new String[] {"-num-slots", "" + numSlots});
+            parallel.buildClassifier(data);
+            assertSameModel(sequential, parallel, data);
+        }
+    }
+
+    public void testShardedThenMergedEqualsSinglePass() throws Exception {
+        Instances data = randomData(5000, 1);
+        NaiveBayes single = train(data);
+
+        // Tres particiones de distinto tamaño, la última vacía
+        int[] bounds = {0, 700, 4100, 5000, 5000};
+        NaiveBayes merged = null;
+        for (int s = 0; s + 1 < bounds.length; s++) {
+            NaiveBayes shard = train(new Instances(data, bounds[s], bounds[s + 1] - bounds[s]));
+            if (merged == null) {
+                merged = shard;
+            } else {
+                merged.merge(shard);
+            }
+        }
+        assertSameModel(single, merged, data);
+    }
+
+    public void testMergeThroughSerializedStatistics() throws Exception {
+        Instances data = randomData(3000, 2);
+        NaiveBayes single = train(data);
+
+        // Cada "proceso" entrena con las filas de su resto y escribe sus recuentos en el mismo flujo
+        int numShards = 4;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int s = 0; s < numShards; s++) {
+            Instances shard = new Instances(data, 0);
+            for (int r = s; r < data.numInstances(); r += numShards) {
+                shard.add(data.instance(r));
+            }
+            train(shard).writeStatistics(out);
+        }
+
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        NaiveBayes merged = NaiveBayes.readStatistics(in);
+        for (int s = 1; s < numShards; s++) {
+            merged.merge(NaiveBayes.readStatistics(in));
+        }
+        assertEquals(0, in.available());
+        assertSameModel(single, merged, data);
+    }
+
+    public void testMergeWithUpdateableAndParallelTraining() throws Exception {
+        Instances data = randomData(20000, 3);
+        NaiveBayes single = train(data);
+
+        NaiveBayes parallel = new NaiveBayes();
+        parallel.setNumExecutionSlots(4);
+        parallel.buildClassifier(new Instances(data, 0, 12000));
+        NaiveBayes streamed = train(new Instances(data, 0));
+        for (int r = 12000; r < data.numInstances(); r++) {
+            streamed.updateClassifier(data.instance(r));
+        }
+        parallel.merge(streamed);
+        assertSameModel(single, parallel, data);
+    }
+
+    public void testMergeRejectsDifferentHeaders() throws Exception {
+        NaiveBayes model = train(randomData(100, 4));
+        Instances other = randomData(100, 5);
+        other.renameAttribute(0, "otro");
+        try {
+            model.merge(train(other));
+            fail("Se esperaba una excepción al combinar cabeceras distintas");
+        } catch (Exception expected) {
+            // correcto
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package aprendizaje.automatico;
+
+import weka.clusterers.AbstractClusterer;
+import weka.core.Capabilities;
+import weka.core.Capabilities.Capability;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.SelectedTag;
+import weka.core.Tag;
+import weka.core.Utils;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Clustering jerárquico aglomerativo con enlace simple, completo, medio o de
+ * Ward.
+ *
+ * Las distancias entre todos los pares de instancias se guardan en una
+ * {@link DistanceMatrix} condensada de float y el árbol se construye con
+ * {@link NearestNeighborChain} en O(n²), actualizando la matriz con la fórmula
+ * de Lance-Williams tras cada fusión.
+ *
+ * La distancia (-distance) es la euclídea sobre los atributos numéricos
+ * normalizados a [0, 1], la de Hamming sobre los nominales o, por defecto, la
+ * mixta de {@code weka.core.EuclideanDistance}, con los nominales 0 si
+ * coinciden y 1 si no. La matriz se calcula por bloques, en paralelo con
+ * -num-slots distinto de 1, y va a un fichero mapeado en memoria si no cabe en
+ * el heap o si se indica -spill-dir. {@link #computeDistances} y
+ * {@link #buildClusterer(Instances, DistanceMatrix)} permiten calcularla una
+ * vez y probar varios enlaces.
+ *
+ * El árbol se corta en -N grupos. Una instancia nueva va al grupo más cercano
+ * según el mismo enlace: la distancia mínima, máxima o media a sus instancias
+ * o, con Ward, el menor aumento de la suma de cuadrados al añadirla.
+ */
+public class AgglomerativeClusterer extends AbstractClusterer {
+
+    public static final int SINGLE = 0;
+    public static final int COMPLETE = 1;
+    public static final int AVERAGE = 2;
+    public static final int WARD = 3;
+
+    public static final Tag[] TAGS_LINK = {
+            new Tag(SINGLE, "SINGLE", "Enlace simple"),
+            new Tag(COMPLETE, "COMPLETE", "Enlace completo"),
+            new Tag(AVERAGE, "AVERAGE", "Enlace medio"),
+            new Tag(WARD, "WARD", "Ward")
+    };
+
+    public static final int EUCLIDEAN = 0;
+    public static final int HAMMING = 1;
+    public static final int MIXED = 2;
+
+    public static final Tag[] TAGS_DISTANCE = {
+            new Tag(EUCLIDEAN, "EUCLIDEAN", "Euclídea (atributos numéricos)"),
+            new Tag(HAMMING, "HAMMING", "Hamming (atributos nominales)"),
+            new Tag(MIXED, "MIXED", "Euclídea con nominales 0/1 (todos los atributos)")
+    };
+
+    private int m_numClusters = 2;
+    private int m_linkType = SINGLE;
+    private int m_distanceType = MIXED;
+    private String m_spillDirectory = "";
+
+    private int m_numExecutionSlots = 1;
+    private transient ForkJoinPool m_pool;
+
+    private Points m_points;
+    private Dendrogram m_dendrogram;
+    private int[] m_assignments;      // Grupo de cada instancia de entrenamiento
+    private int[] m_clusterSizes;
+    private double[] m_clusterSquares; // Suma de d² entre pares de instancias de cada grupo (para Ward)
+
+    @Override
+    public void buildClusterer(Instances data) throws Exception {
+        try (DistanceMatrix distances = computeDistances(data)) {
+            cluster(distances);
+        }
+    }
+
+    /**
+     * Calcula la matriz de distancias de data con las opciones actuales
+     * (distancia, hilos y directorio). Puede usarse después con
+     * {@link #buildClusterer(Instances, DistanceMatrix)} para varios enlaces o
+     * números de grupos sin volver a calcularla; hay que cerrarla al terminar.
+     */
+    public DistanceMatrix computeDistances(Instances data) throws Exception {
+        getCapabilities().testWithFail(data);
+        m_points = new Points(data, m_distanceType);
+        return DistanceMatrix.compute(m_points, getPool(), spillDirectory());
+    }
+
+    /**
+     * Agrupa data a partir de una matriz ya calculada con
+     * {@link #computeDistances} sobre los mismos datos y con la misma
+     * distancia. La matriz no se modifica: el algoritmo trabaja sobre una copia.
+     */
+    public void buildClusterer(Instances data, DistanceMatrix distances) throws Exception {
+        getCapabilities().testWithFail(data);
+        if (distances.size() != data.numInstances() || distances.distanceType() != m_distanceType) {
+            throw new Exception("La matriz de distancias no corresponde a estos datos o a esta distancia.");
+        }
+        m_points = new Points(data, m_distanceType);
+        try (DistanceMatrix working = distances.copy()) {
+            cluster(working);
+        }
+    }
+
+    private void cluster(DistanceMatrix distances) {
+        m_dendrogram = NearestNeighborChain.cluster(distances, m_linkType);
+
+        int numClusters = Math.min(m_numClusters, Math.max(1, m_points.numPoints()));
+        m_assignments = m_dendrogram.cut(numClusters);
+        m_clusterSizes = new int[numClusters];
+        for (int cluster : m_assignments) {
+            m_clusterSizes[cluster]++;
+        }
+        // Con Ward, cada fusión de altura h suma h² / 2 a Σpares d² / n del grupo que
+        // forma, así que no hace falta recorrer otra vez los pares
+        m_clusterSquares = new double[numClusters];
+        if (m_linkType == WARD) {
+            int merges = Math.max(0, m_points.numPoints() - numClusters);
+            for (int m = 0; m < merges; m++) {
+                double height = m_dendrogram.height(m);
+                m_clusterSquares[m_assignments[m_dendrogram.left(m)]] += height * height / 2;
+            }
+            for (int c = 0; c < numClusters; c++) {
+                m_clusterSquares[c] *= m_clusterSizes[c];
+            }
+        }
+    }
+
+    private File spillDirectory() {
+        return m_spillDirectory.length() == 0 ? null : new File(m_spillDirectory);
+    }
+
+    private ForkJoinPool getPool() {
+        m_pool = ExecutionSlots.pool(m_pool, m_numExecutionSlots);
+        return m_pool;
+    }
+
+
+    @Override
+    public int clusterInstance(Instance instance) throws Exception {
+        int numClusters = m_clusterSizes.length;
+        double[] x = new double[m_points.dimension()];
+        m_points.encode(instance, x, 0);
+        double[] link = new double[numClusters];
+        if (m_linkType == SINGLE) {
+            Arrays.fill(link, Double.POSITIVE_INFINITY);
+        }
+        for (int p = 0; p < m_points.numPoints(); p++) {
+            double d = m_points.distance(x, p);
+            int cluster = m_assignments[p];
+            switch (m_linkType) {
+                case SINGLE:
+                    link[cluster] = Math.min(link[cluster], d);
+                    break;
+                case COMPLETE:
+                    link[cluster] = Math.max(link[cluster], d);
+                    break;
+                default:
+                    link[cluster] += m_linkType == WARD ? d * d : d;
+            }
+        }
+        for (int c = 0; c < numClusters; c++) {
+            double size = m_clusterSizes[c];
+            if (m_linkType == AVERAGE) {
+                link[c] /= size;
+            } else if (m_linkType == WARD) {
+                // n / (n + 1) * ||x - centroide||², con ||x - centroide||² = Σd²/n - Σpares d²/n²
+                link[c] = size / (size + 1) * (link[c] / size - m_clusterSquares[c] / (size * size));
+            }
+        }
+        return Utils.minIndex(link);
+    }
+
+    /**
+     * Árbol del último entrenamiento.
+     */
+    Dendrogram dendrogram() {
+        return m_dendrogram;
+    }
+
+    @Override
+    public int numberOfClusters() throws Exception {
+        return m_clusterSizes.length;
+    }
+
+    @Override
+    public Capabilities getCapabilities() {
+        Capabilities result = super.getCapabilities();
+        result.disableAll();
+        result.enable(Capability.NO_CLASS);
+        result.enable(Capability.NOMINAL_ATTRIBUTES);
+        result.enable(Capability.NUMERIC_ATTRIBUTES);
+        result.enable(Capability.DATE_ATTRIBUTES);
+        result.enable(Capability.MISSING_VALUES);
+        return result;
+    }
+
+    /**
+     * @return una descripción de este clusterer
+     */
+    public String globalInfo() {
+        return "Clustering jerárquico aglomerativo (enlace simple, completo, medio o de Ward) "
+                + "con el algoritmo de la cadena de vecinos más cercanos.";
+    }
+
+    @Override
+    public Enumeration<Option> listOptions() {
+        Vector<Option> newVector = new Vector<>();
+        newVector.addElement(new Option("\tNúmero de grupos.\n"
+                + "\t(por defecto 2)", "N", 1, "-N <num>"));
+        newVector.addElement(new Option("\tEnlace: SINGLE, COMPLETE, AVERAGE o WARD.\n"
+                + "\t(por defecto SINGLE)", "L", 1, "-L <enlace>"));
+        newVector.addElement(new Option("\tDistancia: EUCLIDEAN, HAMMING o MIXED.\n"
+                + "\t(por defecto MIXED)", "distance", 1, "-distance <distancia>"));
+        newVector.addElement(new Option("\tDirectorio donde guardar la matriz de distancias en un fichero\n"
+                + "\tmapeado en memoria.\n"
+                + "\t(por defecto solo si no cabe en el heap, en java.io.tmpdir)", "spill-dir", 1, "-spill-dir <dir>"));
+        newVector.addElement(new Option("\tNúmero de hilos para calcular la matriz de distancias.\n"
+                + "\t(por defecto 1 - sin paralelismo)\n"
+                + "\t(0 para usar todos los núcleos)", "num-slots", 1, "-num-slots <num>"));
+        newVector.addAll(Collections.list(super.listOptions()));
+        return newVector.elements();
+    }
+
+    @Override
+    public void setOptions(String[] options) throws Exception {
+        String numClusters = Utils.getOption('N', options);
+        setNumClusters(numClusters.length() != 0 ? Integer.parseInt(numClusters) : 2);
+        String linkType = Utils.getOption('L', options);
+        setLinkType(new SelectedTag(linkType.length() != 0 ? linkType.toUpperCase() : "SINGLE", TAGS_LINK));
+        String distanceType = Utils.getOption("distance", options);
+        setDistanceType(new SelectedTag(distanceType.length() != 0 ? distanceType.toUpperCase() : "MIXED", TAGS_DISTANCE));
+        setSpillDirectory(Utils.getOption("spill-dir", options));
+        String numSlots = Utils.getOption("num-slots", options);
+        setNumExecutionSlots(numSlots.length() != 0 ? Integer.parseInt(numSlots) : 1);
+        super.setOptions(options);
+        Utils.checkForRemainingOptions(options);
+    }
+
+    @Override
+    public String[] getOptions() {
+        Vector<String> options = new Vector<>();
+        options.add("-N");
+        options.add("" + getNumClusters());
+        options.add("-L");
+        options.add(getLinkType().getSelectedTag().getIDStr());
+        options.add("-distance");
+        options.add(getDistanceType().getSelectedTag().getIDStr());
+        if (m_spillDirectory.length() != 0) {
+            options.add("-spill-dir");
+            options.add(m_spillDirectory);
+        }
+        options.add("-num-slots");
+        options.add("" + getNumExecutionSlots());
+        Collections.addAll(options, super.getOptions());
+        return options.toArray(new String[0]);
+    }
+
+    public String numClustersTipText() {
+        return "Número de grupos en que se corta el árbol.";
+    }
+
+    public int getNumClusters() {
+        return m_numClusters;
+    }
+
+    public void setNumClusters(int numClusters) throws Exception {
+        if (numClusters < 1) {
+            throw new Exception("El número de grupos debe ser al menos 1.");
+        }
+        m_numClusters = numClusters;
+    }
+
+    public String linkTypeTipText() {
+        return "Distancia entre grupos: mínima (SINGLE), máxima (COMPLETE), media (AVERAGE) o "
+                + "aumento de la suma de cuadrados (WARD).";
+    }
+
+    public SelectedTag getLinkType() {
+        return new SelectedTag(m_linkType, TAGS_LINK);
+    }
+
+    public void setLinkType(SelectedTag linkType) {
+        if (linkType.getTags() == TAGS_LINK) {
+            m_linkType = linkType.getSelectedTag().getID();
+        }
+    }
+
+    public String distanceTypeTipText() {
+        return "Distancia entre instancias: euclídea sobre los numéricos (EUCLIDEAN), Hamming sobre los "
+                + "nominales (HAMMING) o euclídea sobre todos con los nominales 0/1 (MIXED).";
+    }
+
+    public SelectedTag getDistanceType() {
+        return new SelectedTag(m_distanceType, TAGS_DISTANCE);
+    }
+
+    public void setDistanceType(SelectedTag distanceType) {
+        if (distanceType.getTags() == TAGS_DISTANCE) {
+            m_distanceType = distanceType.getSelectedTag().getID();
+        }
+    }
+
+    public String spillDirectoryTipText() {
+        return "Directorio para guardar la matriz de distancias en un fichero mapeado en memoria "
+                + "(vacío: solo si no cabe en el heap, en java.io.tmpdir).";
+    }
+
+    public String getSpillDirectory() {
+        return m_spillDirectory;
+    }
+
+    public void setSpillDirectory(String spillDirectory) {
+        m_spillDirectory = spillDirectory;
+    }
+
+    public String numExecutionSlotsTipText() {
+        return "Número de hilos para calcular la matriz de distancias (1 = secuencial, 0 = todos los núcleos).";
+    }
+
+    public int getNumExecutionSlots() {
+        return m_numExecutionSlots;
+    }
+
+    public void setNumExecutionSlots(int numSlots) {
+        m_numExecutionSlots = numSlots;
+    }
+
+    @Override
+    public String toString() {
+        if (m_dendrogram == null) {
+            return "Clustering aglomerativo: sin entrenar.";
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("Clustering aglomerativo (enlace ").append(TAGS_LINK[m_linkType].getIDStr())
+                .append(", distancia ").append(TAGS_DISTANCE[m_distanceType].getIDStr()).append(")\n");
+        sb.append("-----------------------------------\n");
+        int n = m_points.numPoints();
+        for (int c = 0; c < m_clusterSizes.length; c++) {
+            sb.append("Grupo ").append(c).append(": ").append(m_clusterSizes[c]).append(" instancias (")
+                    .append(Math.round(100.0 * m_clusterSizes[c] / n)).append("%)\n");
+        }
+        int numMerges = m_dendrogram.numMerges();
+        if (numMerges > 0) {
+            sb.append("Alturas de las últimas fusiones:");
+            for (int m = Math.max(0, numMerges - 10); m < numMerges; m++) {
+                sb.append(" ").append(Utils.doubleToString(m_dendrogram.height(m), 4));
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+}
@@ -1,13 +1,42 @@
 package aprendizaje.automatico;
 
-/**
- * Hello world!
- *
- */
-public class App 
-{
-    public static void main( String[] args )
-    {
-        System.out.println( "Hello World!" );
+import weka.core.Instances;
+import weka.core.SelectedTag;
+import weka.core.Tag;
+import weka.core.Utils;
+import weka.core.converters.ConverterUtils.DataSource;
+
+public class App {
+    public static void main(String[] args) {
+        try {
+            // Cargar el conjunto de datos (el mismo que usan los demás módulos)
+            String dataPath = args.length > 0 && !args[0].startsWith("-") ? args[0] : "../../ev/data/weather.nominal.arff";
+            DataSource source = new DataSource(dataPath);
+            Instances data = source.getDataSet();
+
+            // Opciones de Weka desde la línea de comandos (p. ej. "-N 3 -L WARD")
+            String[] options = args.length > 0 && !args[0].startsWith("-")
+                    ? java.util.Arrays.copyOfRange(args, 1, args.length) : args;
+
+            AgglomerativeClusterer clusterer = new AgglomerativeClusterer();
+            if (Utils.getOptionPos('L', options) >= 0) {
+                clusterer.setOptions(options.clone());
+                clusterer.buildClusterer(data);
+                System.out.println(clusterer);
+            } else {
+                // Un clustering por cada enlace, calculando la matriz de distancias una sola vez
+                clusterer.setOptions(options.clone());
+                try (DistanceMatrix distances = clusterer.computeDistances(data)) {
+                    for (Tag linkType : AgglomerativeClusterer.TAGS_LINK) {
+                        clusterer.setLinkType(new SelectedTag(linkType.getID(), AgglomerativeClusterer.TAGS_LINK));
+                        clusterer.buildClusterer(data, distances);
+                        System.out.println(clusterer);
+                    }
+                }
+            }
+
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
     }
 }
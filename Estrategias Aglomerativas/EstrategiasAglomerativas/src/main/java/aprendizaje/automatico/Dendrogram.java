@@ -0,0 +1,125 @@
+package aprendizaje.automatico;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Resultado de un clustering aglomerativo: las n - 1 fusiones, ordenadas por
+ * altura. Cada fusión se identifica por dos puntos, uno de cada grupo que se
+ * une, así que cortar el árbol en k grupos es unir con union-find los puntos
+ * de las n - k primeras fusiones.
+ */
+class Dendrogram implements Serializable {
+
+    private final int numPoints;
+    private int[] left;
+    private int[] right;
+    private double[] height;
+    private int[] size;          // Puntos del grupo resultante
+    private int numMerges;
+
+    Dendrogram(int numPoints) {
+        this.numPoints = numPoints;
+        int capacity = Math.max(0, numPoints - 1);
+        left = new int[capacity];
+        right = new int[capacity];
+        height = new double[capacity];
+        size = new int[capacity];
+    }
+
+    void add(int a, int b, double mergeHeight, int mergedSize) {
+        left[numMerges] = a;
+        right[numMerges] = b;
+        height[numMerges] = mergeHeight;
+        size[numMerges] = mergedSize;
+        numMerges++;
+    }
+
+    /**
+     * Ordena las fusiones por altura. El orden es estable, así que con alturas
+     * iguales una fusión sigue detrás de las que forman sus grupos.
+     */
+    void sort() {
+        Integer[] order = new Integer[numMerges];
+        for (int m = 0; m < numMerges; m++) {
+            order[m] = m;
+        }
+        Arrays.sort(order, (m1, m2) -> Double.compare(height[m1], height[m2]));
+        int[] sortedLeft = new int[numMerges];
+        int[] sortedRight = new int[numMerges];
+        double[] sortedHeight = new double[numMerges];
+        int[] sortedSize = new int[numMerges];
+        for (int m = 0; m < numMerges; m++) {
+            sortedLeft[m] = left[order[m]];
+            sortedRight[m] = right[order[m]];
+            sortedHeight[m] = height[order[m]];
+            sortedSize[m] = size[order[m]];
+        }
+        left = sortedLeft;
+        right = sortedRight;
+        height = sortedHeight;
+        size = sortedSize;
+    }
+
+    int numPoints() {
+        return numPoints;
+    }
+
+    int numMerges() {
+        return numMerges;
+    }
+
+    /**
+     * Un punto de cada uno de los dos grupos que une la fusión.
+     */
+    int left(int merge) {
+        return left[merge];
+    }
+
+    int right(int merge) {
+        return right[merge];
+    }
+
+    double height(int merge) {
+        return height[merge];
+    }
+
+    int size(int merge) {
+        return size[merge];
+    }
+
+    /**
+     * Grupo de cada punto al cortar el árbol en numClusters grupos, numerados
+     * en el orden en que aparece su primer punto.
+     */
+    int[] cut(int numClusters) {
+        int[] parent = new int[numPoints];
+        for (int p = 0; p < numPoints; p++) {
+            parent[p] = p;
+        }
+        int merges = Math.min(numMerges, Math.max(0, numPoints - numClusters));
+        for (int m = 0; m < merges; m++) {
+            parent[find(parent, left[m])] = find(parent, right[m]);
+        }
+        int[] label = new int[numPoints];
+        int[] rootLabel = new int[numPoints];
+        Arrays.fill(rootLabel, -1);
+        int numLabels = 0;
+        for (int p = 0; p < numPoints; p++) {
+            int root = find(parent, p);
+            if (rootLabel[root] < 0) {
+                rootLabel[root] = numLabels++;
+            }
+            label[p] = rootLabel[root];
+        }
+        return label;
+    }
+
+    private static int find(int[] parent, int p) {
+        while (parent[p] != p) {
+            parent[p] = parent[parent[p]];
+            p = parent[p];
+        }
+        return p;
+    }
+}
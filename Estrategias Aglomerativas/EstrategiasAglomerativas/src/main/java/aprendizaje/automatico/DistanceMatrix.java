@@ -0,0 +1,253 @@
+package aprendizaje.automatico;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Matriz de distancias simétrica guardada en forma condensada: solo el
+ * triángulo superior sin la diagonal, fila a fila, en n * (n - 1) / 2 float.
+ * La distancia entre i y j (i &lt; j) está en
+ * {@code i * n - i * (i + 1) / 2 + j - i - 1}, así que la fila de i a partir de
+ * i + 1 es contigua.
+ *
+ * Si cabe en el heap se guarda en un float[]; si no, o si se indica un
+ * directorio, en un fichero temporal mapeado en memoria por segmentos, con lo
+ * que el límite pasa a ser el disco y no el heap ni el tamaño de un array.
+ * {@link #close} borra el fichero.
+ *
+ * Una matriz calculada con {@link AgglomerativeClusterer#computeDistances}
+ * puede usarse con varios enlaces: {@link AgglomerativeClusterer#buildClusterer(weka.core.Instances, DistanceMatrix)}
+ * trabaja sobre una copia y la deja intacta.
+ */
+public abstract class DistanceMatrix implements Closeable {
+
+    /** Mayor longitud de un array en la JVM. */
+    static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    /** Filas (y columnas) de cada bloque del cálculo por bloques. */
+    static final int TILE = 128;
+
+    private final int size;
+    private final int distanceType;
+
+    DistanceMatrix(int size, int distanceType) {
+        this.size = size;
+        this.distanceType = distanceType;
+    }
+
+    /**
+     * Matriz sin rellenar. Va al heap salvo que spillDirectory no sea null o
+     * que no quepa; en ese caso se mapea un fichero temporal en spillDirectory
+     * (o en java.io.tmpdir).
+     */
+    static DistanceMatrix allocate(int size, int distanceType, File spillDirectory) throws IOException {
+        long length = length(size);
+        if (spillDirectory == null && length <= MAX_ARRAY_LENGTH && fitsOnHeap(length * Float.BYTES)) {
+            return new Heap(size, distanceType, new float[(int) length]);
+        }
+        File directory = spillDirectory != null ? spillDirectory : new File(System.getProperty("java.io.tmpdir"));
+        return new Mapped(size, distanceType, directory);
+    }
+
+    /**
+     * Deja un margen para el resto del clustering y para una copia de trabajo.
+     */
+    private static boolean fitsOnHeap(long bytes) {
+        Runtime runtime = Runtime.getRuntime();
+        long available = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        return bytes < available / 2;
+    }
+
+    /**
+     * Matriz con las distancias entre todos los pares de puntos.
+     *
+     * El triángulo se recorre por bloques de {@link #TILE} x {@link #TILE}
+     * pares, de modo que los puntos de un bloque siguen en caché mientras se
+     * calculan sus distancias, y cada bloque escribe trozos contiguos de las
+     * filas de la matriz. Con pool distinto de null los bloques se reparten
+     * entre sus hilos; como no se solapan, no hace falta sincronizar.
+     */
+    static DistanceMatrix compute(Points points, ForkJoinPool pool, File spillDirectory) throws IOException {
+        int n = points.numPoints();
+        DistanceMatrix matrix = allocate(n, points.distanceType(), spillDirectory);
+        int numBlocks = (n + TILE - 1) / TILE;
+        int numTiles = numBlocks * (numBlocks + 1) / 2;
+        int[] tileRow = new int[numTiles];
+        int[] tileColumn = new int[numTiles];
+        for (int i = 0, t = 0; i < numBlocks; i++) {
+            for (int j = i; j < numBlocks; j++, t++) {
+                tileRow[t] = i;
+                tileColumn[t] = j;
+            }
+        }
+        if (pool == null) {
+            for (int t = 0; t < numTiles; t++) {
+                matrix.computeTile(points, tileRow[t] * TILE, tileColumn[t] * TILE);
+            }
+        } else {
+            pool.submit(() -> IntStream.range(0, numTiles).parallel()
+                    .forEach(t -> matrix.computeTile(points, tileRow[t] * TILE, tileColumn[t] * TILE))).join();
+        }
+        return matrix;
+    }
+
+    private void computeTile(Points points, int rowStart, int columnStart) {
+        int rowEnd = Math.min(size, rowStart + TILE);
+        int columnEnd = Math.min(size, columnStart + TILE);
+        for (int i = rowStart; i < rowEnd; i++) {
+            int from = Math.max(columnStart, i + 1);
+            long index = index(i, from) - from;           // (i, j) está en index + j
+            for (int j = from; j < columnEnd; j++) {
+                set(index + j, (float) points.distance(i, j));
+            }
+        }
+    }
+
+    static long length(int size) {
+        return (long) size * (size - 1) / 2;
+    }
+
+    /**
+     * @return número de puntos
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return la distancia con que se calculó (EUCLIDEAN, HAMMING o MIXED de {@link AgglomerativeClusterer})
+     */
+    public int distanceType() {
+        return distanceType;
+    }
+
+    /**
+     * Posición del par (i, j), con i &lt; j, en la forma condensada.
+     */
+    long index(int i, int j) {
+        return (long) i * size - (long) i * (i + 1) / 2 + j - i - 1;
+    }
+
+    float get(int i, int j) {
+        return get(i < j ? index(i, j) : index(j, i));
+    }
+
+    void set(int i, int j, float distance) {
+        set(i < j ? index(i, j) : index(j, i), distance);
+    }
+
+    /**
+     * Distancia en la posición indicada de la forma condensada, para recorrer
+     * filas sin calcular cada índice.
+     */
+    abstract float get(long index);
+
+    abstract void set(long index, float distance);
+
+    /**
+     * Copia de trabajo con el mismo almacenamiento (heap o fichero).
+     */
+    abstract DistanceMatrix copy() throws IOException;
+
+    /**
+     * No hace nada en el heap; con fichero, lo borra.
+     */
+    @Override
+    public void close() throws IOException {
+    }
+
+    private static final class Heap extends DistanceMatrix {
+
+        private final float[] distances;
+
+        Heap(int size, int distanceType, float[] distances) {
+            super(size, distanceType);
+            this.distances = distances;
+        }
+
+        @Override
+        float get(long index) {
+            return distances[(int) index];
+        }
+
+        @Override
+        void set(long index, float distance) {
+            distances[(int) index] = distance;
+        }
+
+        @Override
+        DistanceMatrix copy() {
+            return new Heap(size(), distanceType(), distances.clone());
+        }
+    }
+
+    private static final class Mapped extends DistanceMatrix {
+
+        /** Cada segmento mapeado tiene 2^28 float (1 GB). */
+        private static final int SEGMENT_SHIFT = 28;
+        private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+        private final File directory;
+        private final File file;
+        private FloatBuffer[] segments;
+
+        Mapped(int size, int distanceType, File directory) throws IOException {
+            super(size, distanceType);
+            this.directory = directory;
+            long length = length(size);
+            file = File.createTempFile("distancias", ".bin", directory);
+            file.deleteOnExit();
+            int numSegments = (int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+            segments = new FloatBuffer[numSegments];
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(length * Float.BYTES);
+                FileChannel channel = raf.getChannel();
+                for (int s = 0; s < numSegments; s++) {
+                    long start = (long) s << SEGMENT_SHIFT;
+                    long count = Math.min(length - start, 1L << SEGMENT_SHIFT);
+                    // El mapeo sigue siendo válido después de cerrar el canal
+                    segments[s] = channel.map(FileChannel.MapMode.READ_WRITE, start * Float.BYTES, count * Float.BYTES)
+                            .order(ByteOrder.nativeOrder()).asFloatBuffer();
+                }
+            }
+        }
+
+        @Override
+        float get(long index) {
+            return segments[(int) (index >>> SEGMENT_SHIFT)].get((int) (index & SEGMENT_MASK));
+        }
+
+        @Override
+        void set(long index, float distance) {
+            segments[(int) (index >>> SEGMENT_SHIFT)].put((int) (index & SEGMENT_MASK), distance);
+        }
+
+        @Override
+        DistanceMatrix copy() throws IOException {
+            Mapped copy = new Mapped(size(), distanceType(), directory);
+            for (int s = 0; s < segments.length; s++) {
+                FloatBuffer source = segments[s].duplicate();
+                source.clear();
+                FloatBuffer target = copy.segments[s].duplicate();
+                target.clear();
+                target.put(source);
+            }
+            return copy;
+        }
+
+        @Override
+        public void close() {
+            // El espacio se libera cuando el recolector descarta los mapeos. Si el
+            // sistema no deja borrar un fichero mapeado, lo hará deleteOnExit
+            segments = null;
+            file.delete();
+        }
+    }
+}
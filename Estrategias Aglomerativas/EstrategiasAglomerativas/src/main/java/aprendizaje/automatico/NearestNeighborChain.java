@@ -0,0 +1,126 @@
+package aprendizaje.automatico;
+
+import java.util.Arrays;
+
+import static aprendizaje.automatico.AgglomerativeClusterer.AVERAGE;
+import static aprendizaje.automatico.AgglomerativeClusterer.COMPLETE;
+import static aprendizaje.automatico.AgglomerativeClusterer.SINGLE;
+import static aprendizaje.automatico.AgglomerativeClusterer.WARD;
+
+/**
+ * Algoritmo de la cadena de vecinos más cercanos para el clustering
+ * aglomerativo.
+ *
+ * Parte de un grupo cualquiera y va añadiendo a la cadena el vecino más
+ * cercano del último, hasta que dos grupos son vecinos mutuos; entonces los
+ * une y sigue con lo que queda de cadena. Con enlaces reducibles (simple,
+ * completo, medio y Ward) la cadena sigue siendo válida tras cada fusión, así
+ * que el coste es O(n²) en lugar del O(n³) de buscar cada vez el par más
+ * cercano. Las distancias al grupo nuevo se calculan con la fórmula de
+ * Lance-Williams sobre la misma matriz; el grupo ocupa la fila del mayor de
+ * los dos índices.
+ */
+final class NearestNeighborChain {
+
+    private NearestNeighborChain() {
+    }
+
+    /**
+     * Agrupa los puntos de la matriz. La matriz se modifica: al terminar no
+     * contiene las distancias originales.
+     */
+    static Dendrogram cluster(DistanceMatrix distances, int linkage) {
+        int n = distances.size();
+        Dendrogram dendrogram = new Dendrogram(n);
+        if (linkage == WARD) {
+            // Ward se actualiza sobre distancias al cuadrado
+            for (long k = 0; k < DistanceMatrix.length(n); k++) {
+                float d = distances.get(k);
+                distances.set(k, d * d);
+            }
+        }
+
+        // Grupos activos (el índice de la fila de cada uno), en orden creciente
+        int[] active = new int[n];
+        int numActive = n;
+        int[] size = new int[n];
+        for (int p = 0; p < n; p++) {
+            active[p] = p;
+            size[p] = 1;
+        }
+        int[] chain = new int[n];
+        int length = 0;
+        for (int step = 0; step < n - 1; step++) {
+            if (length == 0) {
+                chain[length++] = active[0];
+            }
+
+            int a;
+            int b;
+            float distance;
+            while (true) {
+                a = chain[length - 1];
+                // Con empates se prefiere el anterior de la cadena, para que termine
+                int previous = length > 1 ? chain[length - 2] : -1;
+                b = previous;
+                distance = previous >= 0 ? distances.get(a, previous) : Float.POSITIVE_INFINITY;
+                long rowStart = distances.index(a, a + 1) - a - 1;   // (a, x) está en rowStart + x
+                for (int k = 0; k < numActive; k++) {
+                    int x = active[k];
+                    if (x == a) {
+                        continue;
+                    }
+                    float d = distances.get(x < a ? distances.index(x, a) : rowStart + x);
+                    if (d < distance || b < 0) {
+                        distance = d;
+                        b = x;
+                    }
+                }
+                if (b == previous) {
+                    break;
+                }
+                chain[length++] = b;
+            }
+            length -= 2;
+
+            int kept = Math.max(a, b);
+            int removed = Math.min(a, b);
+            int sizeA = size[a];
+            int sizeB = size[b];
+            for (int k = 0; k < numActive; k++) {
+                int x = active[k];
+                if (x == a || x == b) {
+                    continue;
+                }
+                double updated = lanceWilliams(linkage, distances.get(x, a), distances.get(x, b), distance,
+                        sizeA, sizeB, size[x]);
+                distances.set(x, kept, (float) updated);
+            }
+            int position = Arrays.binarySearch(active, 0, numActive, removed);
+            System.arraycopy(active, position + 1, active, position, numActive - position - 1);
+            numActive--;
+            size[kept] = sizeA + sizeB;
+            dendrogram.add(a, b, linkage == WARD ? Math.sqrt(distance) : distance, sizeA + sizeB);
+        }
+        dendrogram.sort();
+        return dendrogram;
+    }
+
+    /**
+     * Distancia de x al grupo que une a y b.
+     */
+    static double lanceWilliams(int linkage, double dxa, double dxb, double dab, int sizeA, int sizeB, int sizeX) {
+        switch (linkage) {
+            case SINGLE:
+                return Math.min(dxa, dxb);
+            case COMPLETE:
+                return Math.max(dxa, dxb);
+            case AVERAGE:
+                return (sizeA * dxa + sizeB * dxb) / (sizeA + sizeB);
+            case WARD:
+                return ((sizeA + sizeX) * dxa + (sizeB + sizeX) * dxb - sizeX * dab) / (sizeA + sizeB + sizeX);
+            default:
+                throw new IllegalArgumentException("Enlace desconocido: " + linkage);
+        }
+    }
+}
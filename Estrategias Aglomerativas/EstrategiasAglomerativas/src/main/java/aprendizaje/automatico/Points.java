@@ -0,0 +1,152 @@
+package aprendizaje.automatico;
+
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.io.Serializable;
+
+import static aprendizaje.automatico.AgglomerativeClusterer.EUCLIDEAN;
+import static aprendizaje.automatico.AgglomerativeClusterer.HAMMING;
+
+/**
+ * Instancias copiadas a un único double[] fila a fila, para calcular
+ * distancias sin pasar por {@link Instance}.
+ *
+ * Los atributos numéricos se normalizan a [0, 1] con el mínimo y el máximo de
+ * los datos de entrenamiento y los nominales se guardan como índice del valor;
+ * los ausentes son NaN. Hay tres distancias:
+ * <ul>
+ * <li>EUCLIDEAN: euclídea sobre los atributos numéricos; los nominales no cuentan.</li>
+ * <li>HAMMING: número de atributos nominales en que difieren; los numéricos no cuentan.</li>
+ * <li>MIXED: la de {@code weka.core.EuclideanDistance}, euclídea sobre todos
+ * los atributos con los nominales aportando 0 si coinciden y 1 si no.</li>
+ * </ul>
+ * Con valores ausentes se supone la mayor diferencia posible, como en Weka.
+ */
+class Points implements Serializable {
+
+    private final int numPoints;
+    private final int dimension;
+    private final int distanceType;
+    private final int[] numericAttributes;   // Atributos que usa la distancia, de cada tipo
+    private final int[] nominalAttributes;
+    private final double[] values;     // Punto p en [p * dimension, (p + 1) * dimension)
+    private final boolean[] nominal;
+    private final double[] minimum;
+    private final double[] range;      // 0 si el atributo es constante
+
+    Points(Instances data, int distanceType) {
+        numPoints = data.numInstances();
+        dimension = data.numAttributes();
+        this.distanceType = distanceType;
+        values = new double[numPoints * dimension];
+        nominal = new boolean[dimension];
+        minimum = new double[dimension];
+        range = new double[dimension];
+        for (int i = 0; i < dimension; i++) {
+            nominal[i] = data.attribute(i).isNominal();
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            if (!nominal[i]) {
+                for (int p = 0; p < numPoints; p++) {
+                    Instance instance = data.instance(p);
+                    if (!instance.isMissing(i)) {
+                        min = Math.min(min, instance.value(i));
+                        max = Math.max(max, instance.value(i));
+                    }
+                }
+            }
+            minimum[i] = min <= max ? min : 0;
+            range[i] = min < max ? max - min : 0;
+        }
+        int numNumeric = 0;
+        for (int i = 0; i < dimension; i++) {
+            if (!nominal[i]) {
+                numNumeric++;
+            }
+        }
+        numericAttributes = new int[distanceType == HAMMING ? 0 : numNumeric];
+        nominalAttributes = new int[distanceType == EUCLIDEAN ? 0 : dimension - numNumeric];
+        for (int i = 0, a = 0, b = 0; i < dimension; i++) {
+            if (!nominal[i] && distanceType != HAMMING) {
+                numericAttributes[a++] = i;
+            } else if (nominal[i] && distanceType != EUCLIDEAN) {
+                nominalAttributes[b++] = i;
+            }
+        }
+        for (int p = 0; p < numPoints; p++) {
+            encode(data.instance(p), values, p * dimension);
+        }
+    }
+
+    /**
+     * Copia la instancia a to[offset, offset + dimension) normalizada igual que los puntos.
+     */
+    void encode(Instance instance, double[] to, int offset) {
+        for (int i = 0; i < dimension; i++) {
+            double value = instance.value(i);
+            if (Double.isNaN(value) || nominal[i]) {
+                to[offset + i] = value;
+            } else {
+                to[offset + i] = range[i] == 0 ? 0 : (value - minimum[i]) / range[i];
+            }
+        }
+    }
+
+    int numPoints() {
+        return numPoints;
+    }
+
+    int dimension() {
+        return dimension;
+    }
+
+    int distanceType() {
+        return distanceType;
+    }
+
+    /**
+     * Distancia entre los puntos p y q.
+     */
+    double distance(int p, int q) {
+        return distance(values, p * dimension, values, q * dimension);
+    }
+
+    /**
+     * Distancia entre un punto ya codificado con {@link #encode} y el punto q.
+     */
+    double distance(double[] x, int q) {
+        return distance(x, 0, values, q * dimension);
+    }
+
+    private double distance(double[] x, int xOffset, double[] y, int yOffset) {
+        double mismatches = 0;
+        for (int i : nominalAttributes) {
+            // NaN nunca es igual: ausente cuenta como distinto
+            if (x[xOffset + i] != y[yOffset + i]) {
+                mismatches++;
+            }
+        }
+        if (distanceType == HAMMING) {
+            return mismatches;
+        }
+        double sum = mismatches;
+        for (int i : numericAttributes) {
+            double a = x[xOffset + i];
+            double b = y[yOffset + i];
+            double diff;
+            if (Double.isNaN(a) || Double.isNaN(b)) {
+                if (Double.isNaN(a) && Double.isNaN(b)) {
+                    diff = 1;
+                } else {
+                    double known = Double.isNaN(a) ? b : a;
+                    diff = Math.max(known, 1 - known);
+                }
+            } else {
+                diff = a - b;
+            }
+            sum += diff * diff;
+        }
+        return Math.sqrt(sum);
+    }
+}
@@ -0,0 +1,206 @@
+package aprendizaje.automatico;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.SelectedTag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * {@link NearestNeighborChain} da las mismas alturas de fusión que la
+ * aglomeración directa en O(n³): unir en cada paso los dos grupos más
+ * cercanos según la definición del enlace, sin Lance-Williams. Una matriz
+ * calculada una vez sirve para todos los enlaces sin cambiar el resultado.
+ */
+public class AgglomerativeClustererTest extends TestCase {
+
+    private static final String[] LINKS = {"SINGLE", "COMPLETE", "AVERAGE", "WARD"};
+
+    public AgglomerativeClustererTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(AgglomerativeClustererTest.class);
+    }
+
+    /**
+     * Puntos gaussianos alrededor de cinco centros, sin distancias repetidas.
+     */
+    private static Instances randomData(int numInstances, int numAttributes, long seed) {
+        Random random = new Random(seed);
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        for (int i = 0; i < numAttributes; i++) {
+            attributes.add(new Attribute("x" + i));
+        }
+        Instances data = new Instances("aleatorio", attributes, numInstances);
+        double[][] centers = new double[5][numAttributes];
+        for (double[] center : centers) {
+            for (int i = 0; i < numAttributes; i++) {
+                center[i] = 10 * random.nextDouble();
+            }
+        }
+        for (int r = 0; r < numInstances; r++) {
+            double[] center = centers[random.nextInt(centers.length)];
+            double[] row = new double[numAttributes];
+            for (int i = 0; i < numAttributes; i++) {
+                row[i] = center[i] + random.nextGaussian();
+            }
+            data.add(new DenseInstance(1.0, row));
+        }
+        return data;
+    }
+
+    /**
+     * Distancia entre dos grupos según el enlace, a partir de las distancias
+     * entre sus puntos. Con Ward es sqrt(2 nA nB / (nA + nB)) por la distancia
+     * entre centroides, que para dos puntos es su distancia.
+     */
+    private static double link(int linkage, List<Integer> a, List<Integer> b, double[][] d) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = 0;
+        double sum = 0;
+        for (int p : a) {
+            for (int q : b) {
+                min = Math.min(min, d[p][q]);
+                max = Math.max(max, d[p][q]);
+                sum += linkage == AgglomerativeClusterer.WARD ? d[p][q] * d[p][q] : d[p][q];
+            }
+        }
+        double sizeA = a.size();
+        double sizeB = b.size();
+        switch (linkage) {
+            case AgglomerativeClusterer.SINGLE:
+                return min;
+            case AgglomerativeClusterer.COMPLETE:
+                return max;
+            case AgglomerativeClusterer.AVERAGE:
+                return sum / (sizeA * sizeB);
+            default:
+                // ||cA - cB||² = Σ d²(a, b) / (nA nB) - Σpares d²(a, a') / nA² - Σpares d²(b, b') / nB²
+                double centroids = sum / (sizeA * sizeB) - within(a, d) / (sizeA * sizeA) - within(b, d) / (sizeB * sizeB);
+                return Math.sqrt(Math.max(0, 2 * sizeA * sizeB / (sizeA + sizeB) * centroids));
+        }
+    }
+
+    private static double within(List<Integer> cluster, double[][] d) {
+        double sum = 0;
+        for (int i = 0; i < cluster.size(); i++) {
+            for (int j = i + 1; j < cluster.size(); j++) {
+                sum += d[cluster.get(i)][cluster.get(j)] * d[cluster.get(i)][cluster.get(j)];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Alturas de las n - 1 fusiones, en orden, uniendo cada vez el par de
+     * grupos más cercano.
+     */
+    private static double[] naiveHeights(Points points, int linkage) {
+        int n = points.numPoints();
+        double[][] d = new double[n][n];
+        for (int p = 0; p < n; p++) {
+            for (int q = 0; q < n; q++) {
+                d[p][q] = points.distance(p, q);
+            }
+        }
+        List<List<Integer>> clusters = new ArrayList<>();
+        for (int p = 0; p < n; p++) {
+            clusters.add(new ArrayList<>(Arrays.asList(p)));
+        }
+        double[] heights = new double[n - 1];
+        for (int m = 0; m < n - 1; m++) {
+            double best = Double.POSITIVE_INFINITY;
+            int bestA = -1;
+            int bestB = -1;
+            for (int a = 0; a < clusters.size(); a++) {
+                for (int b = a + 1; b < clusters.size(); b++) {
+                    double distance = link(linkage, clusters.get(a), clusters.get(b), d);
+                    if (distance < best) {
+                        best = distance;
+                        bestA = a;
+                        bestB = b;
+                    }
+                }
+            }
+            clusters.get(bestA).addAll(clusters.remove(bestB));
+            heights[m] = best;
+        }
+        return heights;
+    }
+
+    public void testMergeHeightsMatchNaive() throws Exception {
+        for (int n : new int[] {2, 3, 40, 150}) {
+            Instances data = randomData(n, 3, n);
+            Points points = new Points(data, AgglomerativeClusterer.EUCLIDEAN);
+            for (int linkage = 0; linkage < LINKS.length; linkage++) {
+                double[] expected = naiveHeights(points, linkage);
+                Dendrogram dendrogram;
+                try (DistanceMatrix distances = DistanceMatrix.compute(points, null, null)) {
+                    dendrogram = NearestNeighborChain.cluster(distances, linkage);
+                }
+                assertEquals(n - 1, dendrogram.numMerges());
+                for (int m = 0; m < n - 1; m++) {
+                    // La matriz guarda float
+                    assertEquals(LINKS[linkage] + ", n = " + n + ", fusión " + m,
+                            expected[m], dendrogram.height(m), 1e-5 * Math.max(1, expected[m]));
+                }
+            }
+        }
+    }
+
+    private static AgglomerativeClusterer clusterer(int linkage, int distanceType, int numSlots) {
+        AgglomerativeClusterer clusterer = new AgglomerativeClusterer();
+        clusterer.setLinkType(new SelectedTag(linkage, AgglomerativeClusterer.TAGS_LINK));
+        clusterer.setDistanceType(new SelectedTag(distanceType, AgglomerativeClusterer.TAGS_DISTANCE));
+        clusterer.setNumExecutionSlots(numSlots);
+        return clusterer;
+    }
+
+    private static void assertSameDendrogram(String message, Dendrogram expected, Dendrogram actual) {
+        assertEquals(message, expected.numMerges(), actual.numMerges());
+        for (int m = 0; m < expected.numMerges(); m++) {
+            assertEquals(message + ", fusión " + m, expected.left(m), actual.left(m));
+            assertEquals(message + ", fusión " + m, expected.right(m), actual.right(m));
+            assertEquals(message + ", fusión " + m, expected.height(m), actual.height(m));
+            assertEquals(message + ", fusión " + m, expected.size(m), actual.size(m));
+        }
+    }
+
+    /**
+     * Una matriz de {@link AgglomerativeClusterer#computeDistances}, calculada
+     * en paralelo, da con cada enlace el mismo árbol que entrenar desde cero y
+     * no cambia al usarla.
+     */
+    public void testReusedMatrixMatchesFreshBuilds() throws Exception {
+        Instances data = DistanceMatrixTest.randomData(300, 3);
+        for (int distanceType = 0; distanceType < AgglomerativeClusterer.TAGS_DISTANCE.length; distanceType++) {
+            AgglomerativeClusterer reused = clusterer(AgglomerativeClusterer.SINGLE, distanceType, 3);
+            try (DistanceMatrix distances = reused.computeDistances(data)) {
+                float[] before = new float[(int) DistanceMatrix.length(distances.size())];
+                for (int k = 0; k < before.length; k++) {
+                    before[k] = distances.get(k);
+                }
+                for (int linkage = 0; linkage < LINKS.length; linkage++) {
+                    AgglomerativeClusterer fresh = clusterer(linkage, distanceType, 1);
+                    fresh.buildClusterer(data);
+                    reused.setLinkType(new SelectedTag(linkage, AgglomerativeClusterer.TAGS_LINK));
+                    reused.buildClusterer(data, distances);
+                    assertSameDendrogram(LINKS[linkage] + ", distancia " + distanceType,
+                            fresh.dendrogram(), reused.dendrogram());
+                }
+                for (int k = 0; k < before.length; k++) {
+                    assertEquals(before[k], distances.get(k));
+                }
+            }
+        }
+    }
+}
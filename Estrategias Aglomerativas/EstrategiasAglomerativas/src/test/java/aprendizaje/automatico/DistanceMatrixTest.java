@@ -0,0 +1,112 @@
+package aprendizaje.automatico;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * La matriz de distancias calculada en paralelo o en un fichero mapeado es
+ * igual, posición a posición, a la secuencial en el heap, con las tres
+ * distancias; y {@link DistanceMatrix#close} borra el fichero.
+ */
+public class DistanceMatrixTest extends TestCase {
+
+    private static final String[] DISTANCES = {"EUCLIDEAN", "HAMMING", "MIXED"};
+
+    public DistanceMatrixTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(DistanceMatrixTest.class);
+    }
+
+    /**
+     * Tres atributos numéricos y tres nominales, con un 2 % de ausentes. Con
+     * más de {@link DistanceMatrix#TILE} filas hay varios bloques.
+     */
+    static Instances randomData(int numInstances, long seed) {
+        Random random = new Random(seed);
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            attributes.add(new Attribute("x" + i));
+        }
+        for (int i = 0; i < 3; i++) {
+            attributes.add(new Attribute("n" + i, Arrays.asList("a", "b", "c", "d")));
+        }
+        Instances data = new Instances("aleatorio", attributes, numInstances);
+        for (int r = 0; r < numInstances; r++) {
+            double[] row = new double[6];
+            for (int i = 0; i < 6; i++) {
+                if (random.nextDouble() < 0.02) {
+                    row[i] = Utils.missingValue();
+                } else {
+                    row[i] = i < 3 ? 5 * random.nextGaussian() : random.nextInt(4);
+                }
+            }
+            data.add(new DenseInstance(1.0, row));
+        }
+        return data;
+    }
+
+    private static void assertSameEntries(String message, DistanceMatrix expected, DistanceMatrix actual) {
+        assertEquals(message, expected.size(), actual.size());
+        assertEquals(message, expected.distanceType(), actual.distanceType());
+        for (long k = 0; k < DistanceMatrix.length(expected.size()); k++) {
+            assertEquals(message + ", posición " + k, expected.get(k), actual.get(k));
+        }
+    }
+
+    public void testParallelAndSpilledMatchSequential() throws Exception {
+        Instances data = randomData(3 * DistanceMatrix.TILE + 5, 1);
+        File directory = Files.createTempDirectory("distancias").toFile();
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            for (int distanceType = 0; distanceType < DISTANCES.length; distanceType++) {
+                Points points = new Points(data, distanceType);
+                try (DistanceMatrix sequential = DistanceMatrix.compute(points, null, null);
+                     DistanceMatrix parallel = DistanceMatrix.compute(points, pool, null);
+                     DistanceMatrix spilled = DistanceMatrix.compute(points, null, directory);
+                     DistanceMatrix spilledParallel = DistanceMatrix.compute(points, pool, directory)) {
+                    for (long k = 0; k < DistanceMatrix.length(data.numInstances()); k++) {
+                        assertFalse(Float.isNaN(sequential.get(k)));
+                    }
+                    assertSameEntries(DISTANCES[distanceType] + " en paralelo", sequential, parallel);
+                    assertSameEntries(DISTANCES[distanceType] + " en fichero", sequential, spilled);
+                    assertSameEntries(DISTANCES[distanceType] + " en fichero y en paralelo", sequential, spilledParallel);
+                }
+            }
+        } finally {
+            pool.shutdown();
+            directory.delete();
+        }
+    }
+
+    public void testCloseDeletesSpillFile() throws Exception {
+        Instances data = randomData(50, 2);
+        File directory = Files.createTempDirectory("distancias").toFile();
+        try {
+            DistanceMatrix matrix = DistanceMatrix.compute(new Points(data, AgglomerativeClusterer.MIXED), null, directory);
+            assertEquals(1, directory.list().length);
+            DistanceMatrix copy = matrix.copy();
+            assertEquals(2, directory.list().length);
+            assertSameEntries("copia", matrix, copy);
+            copy.close();
+            matrix.close();
+            assertEquals(0, directory.list().length);
+        } finally {
+            directory.delete();
+        }
+    }
+}
@@ -1,24 +1,31 @@
 package aprendizaje.automatico;
 
 import weka.classifiers.rules.JRip;
-import weka.core.Instances;
-import weka.core.converters.ConverterUtils.DataSource;
+import weka.core.Utils;
+
+import java.io.File;
 
 public class App {
     public static void main(String[] args) {
         try {
-            // Load the dataset
-            DataSource source = new DataSource("../../ev/data/weather.nominal.arff");
-            Instances data = source.getDataSet();
-
-            // Set the class index
-            if (data.classIndex() == -1) {
-                data.setClassIndex(data.numAttributes() - 1);
-            }
-
             // Create a new Foil classifier
             Foil foil = new Foil();
 
+            // With "-binary <file>" train from the columnar binary format, without Instances
+            String binaryPath = Utils.getOption("binary", args);
+            // Remaining Weka options (e.g. "-num-slots 0")
+            foil.setOptions(args);
+
+            NominalColumns data;
+            if (binaryPath.length() != 0) {
+                data = ColumnarFile.open(new File(binaryPath));
+            } else {
+                // Load the dataset column by column, parsing @data in parallel
+                // (the class is the last attribute)
+                data = ParallelArffLoader.load(new File("../../ev/data/weather.nominal.arff"),
+                        foil.getNumExecutionSlots());
+            }
+
             // Build the classifier
             foil.buildClassifier(data);
 
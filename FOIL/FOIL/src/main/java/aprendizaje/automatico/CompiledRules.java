@@ -0,0 +1,127 @@
+package aprendizaje.automatico;
+
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.io.Serializable;
+
+/**
+ * Forma compilada de la lista de reglas de {@link Foil} para predecir.
+ *
+ * Los literales de todas las reglas se guardan seguidos en dos arrays
+ * (atributo y valor) y ruleStart[k] indica dónde empiezan los de la regla k,
+ * de modo que evaluar una instancia no recorre listas ni crea objetos. Es
+ * inmutable y puede usarse desde varios hilos.
+ */
+final class CompiledRules implements Serializable {
+
+    /** Filas que se copian de una vez en {@link #classify(Instances)}. */
+    static final int BLOCK_ROWS = 4096;
+
+    private final int[] ruleStart;        // Literales de la regla k: [ruleStart[k], ruleStart[k + 1])
+    private final int[] literalAttribute;
+    private final int[] literalValue;
+    private final int[] ruleClass;
+    private final int defaultClass;
+    private final int[] attributes;       // Atributos que aparecen en algún literal
+    private final int[] literalSlot;      // Posición en attributes del atributo de cada literal
+
+    /**
+     * @param ruleStart posición del primer literal de cada regla, más una final con el total
+     */
+    CompiledRules(int[] ruleStart, int[] literalAttribute, int[] literalValue, int[] ruleClass, int defaultClass) {
+        this.ruleStart = ruleStart;
+        this.literalAttribute = literalAttribute;
+        this.literalValue = literalValue;
+        this.ruleClass = ruleClass;
+        this.defaultClass = defaultClass;
+
+        int numAttributes = 0;
+        for (int a : literalAttribute) {
+            numAttributes = Math.max(numAttributes, a + 1);
+        }
+        boolean[] used = new boolean[numAttributes];
+        int numUsed = 0;
+        for (int a : literalAttribute) {
+            if (!used[a]) {
+                used[a] = true;
+                numUsed++;
+            }
+        }
+        attributes = new int[numUsed];
+        numUsed = 0;
+        for (int a = 0; a < numAttributes; a++) {
+            if (used[a]) attributes[numUsed++] = a;
+        }
+        int[] slot = new int[numAttributes];
+        for (int u = 0; u < attributes.length; u++) {
+            slot[attributes[u]] = u;
+        }
+        literalSlot = new int[literalAttribute.length];
+        for (int l = 0; l < literalAttribute.length; l++) {
+            literalSlot[l] = slot[literalAttribute[l]];
+        }
+    }
+
+    /**
+     * Clase de la primera regla que cubre la instancia, o la clase por defecto.
+     */
+    int classify(Instance instance) {
+        for (int k = 0; k < ruleClass.length; k++) {
+            int l = ruleStart[k];
+            int end = ruleStart[k + 1];
+            // Un valor ausente (NaN) se lee como 0, igual que en CoverageIndex
+            while (l < end && (int) instance.value(literalAttribute[l]) == literalValue[l]) {
+                l++;
+            }
+            if (l == end) {
+                return ruleClass[k];
+            }
+        }
+        return defaultClass;
+    }
+
+    /**
+     * Clase predicha para cada fila de data. Copia los valores de los atributos
+     * que usan las reglas, por bloques de {@link #BLOCK_ROWS} filas, a un único
+     * buffer de int fila a fila y evalúa las reglas sobre él, sin volver a pasar
+     * por las instancias. El buffer no depende del tamaño del lote.
+     */
+    int[] classify(Instances data) {
+        int n = data.numInstances();
+        int width = attributes.length;
+        int[] codes = new int[Math.min(n, BLOCK_ROWS) * width];
+        int[] prediction = new int[n];
+        for (int first = 0; first < n; first += BLOCK_ROWS) {
+            int rows = Math.min(BLOCK_ROWS, n - first);
+            for (int r = 0, base = 0; r < rows; r++, base += width) {
+                Instance instance = data.instance(first + r);
+                for (int u = 0; u < width; u++) {
+                    // Un valor ausente (NaN) se lee como 0, igual que en CoverageIndex
+                    codes[base + u] = (int) instance.value(attributes[u]);
+                }
+            }
+            for (int r = 0, base = 0; r < rows; r++, base += width) {
+                prediction[first + r] = classify(codes, base);
+            }
+        }
+        return prediction;
+    }
+
+    /**
+     * Clase de la primera regla que cubre la fila que empieza en codes[base].
+     */
+    private int classify(int[] codes, int base) {
+        for (int k = 0; k < ruleClass.length; k++) {
+            int l = ruleStart[k];
+            int end = ruleStart[k + 1];
+            while (l < end && codes[base + literalSlot[l]] == literalValue[l]) {
+                l++;
+            }
+            if (l == end) {
+                return ruleClass[k];
+            }
+        }
+        return defaultClass;
+    }
+}
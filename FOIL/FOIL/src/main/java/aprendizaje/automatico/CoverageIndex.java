@@ -0,0 +1,215 @@
+package aprendizaje.automatico;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Índice de cobertura para FOIL. Numera las filas de entrenamiento y guarda,
+ * para cada par (atributo, valor), un mapa de bits en long[] con las filas que
+ * tienen ese valor. Un conjunto de filas (p. ej. los positivos cubiertos por la
+ * regla) es otro mapa de bits, así que p' y n' de un literal son el número de
+ * bits a 1 del AND de dos mapas, y añadir un literal a la regla es un AND en
+ * el sitio: ninguna de las dos cosas crea objetos.
+ *
+ * Se construye una sola vez por entrenamiento y no cambia: los ejemplos de cada
+ * clase, los que quedan por cubrir o los que cubre una regla son mapas de bits
+ * sobre las mismas filas, sin copiar instancias. Ocupa un bit por fila y valor.
+ */
+class CoverageIndex {
+
+    /** log2(k) para k &lt; 2^16. */
+    private static final double[] LOG2 = new double[1 << 16];
+
+    static {
+        for (int k = 0; k < LOG2.length; k++) {
+            LOG2[k] = Math.log(k) / Math.log(2);
+        }
+    }
+
+    private final int numWords;
+    private final int classIndex;
+    private final int numRows;
+    private final int[] numValues;  // Valores de cada atributo nominal (0 para los no nominales)
+    private final long[][][] masks; // masks[atributo][valor] -> filas con ese valor
+
+    /**
+     * Construye el índice sobre las filas de data, numeradas en orden. La clase
+     * también se indexa, de modo que {@link #classRows} no recorre los datos.
+     */
+    CoverageIndex(Instances data) {
+        this(data.numInstances(), data.classIndex(), nominalValues(data));
+
+        for (int row = 0; row < numRows; row++) {
+            Instance instance = data.instance(row);
+            for (int i = 0; i < numValues.length; i++) {
+                if (numValues[i] == 0) {
+                    continue;
+                }
+                // Un valor ausente (NaN) se lee como 0, igual que con (int) instance.value(i)
+                set(i, (int) instance.value(i), row);
+            }
+        }
+    }
+
+    /**
+     * Construye el índice recorriendo cada columna de principio a fin.
+     */
+    CoverageIndex(NominalColumns data) {
+        this(data.numRows(), data.classIndex(), nominalValues(data));
+
+        for (int i = 0; i < numValues.length; i++) {
+            if (numValues[i] == 0) {
+                continue;
+            }
+            for (int row = 0; row < numRows; row++) {
+                int value = data.value(i, row);
+                // Un valor ausente se lee como 0, igual que (int) NaN con Instances
+                set(i, value < 0 ? 0 : value, row);
+            }
+        }
+    }
+
+    private CoverageIndex(int numRows, int classIndex, int[] numValues) {
+        this.numRows = numRows;
+        this.classIndex = classIndex;
+        this.numValues = numValues;
+        numWords = (numRows + Long.SIZE - 1) / Long.SIZE;
+        masks = new long[numValues.length][][];
+        for (int i = 0; i < numValues.length; i++) {
+            masks[i] = new long[numValues[i]][numWords];
+        }
+    }
+
+    private static int[] nominalValues(Instances data) {
+        int[] numValues = new int[data.numAttributes()];
+        for (int i = 0; i < numValues.length; i++) {
+            Attribute attribute = data.attribute(i);
+            numValues[i] = attribute.isNominal() ? attribute.numValues() : 0;
+        }
+        return numValues;
+    }
+
+    private static int[] nominalValues(NominalColumns data) {
+        int[] numValues = new int[data.numAttributes()];
+        for (int i = 0; i < numValues.length; i++) {
+            numValues[i] = data.numValues(i);
+        }
+        return numValues;
+    }
+
+    private void set(int attributeIndex, int value, int row) {
+        if (value >= 0 && value < numValues[attributeIndex]) {
+            masks[attributeIndex][value][row >>> 6] |= 1L << row;
+        }
+    }
+
+    int numRows() {
+        return numRows;
+    }
+
+    /**
+     * log2(k), con el mismo valor que Math.log(k) / Math.log(2). Los recuentos
+     * pequeños, que son la mayoría, salen de una tabla compartida de tamaño
+     * fijo, para no guardar un double por fila.
+     */
+    double log2(int k) {
+        return k < LOG2.length ? LOG2[k] : Math.log(k) / Math.log(2);
+    }
+
+    int numAttributes() {
+        return numValues.length;
+    }
+
+    int classIndex() {
+        return classIndex;
+    }
+
+    int numValues(int attributeIndex) {
+        return numValues[attributeIndex];
+    }
+
+    /**
+     * Mapa de bits nuevo con las filas [from, to) a 1.
+     */
+    long[] rows(int from, int to) {
+        long[] bits = new long[numWords];
+        for (int row = from; row < to; row++) {
+            bits[row >>> 6] |= 1L << row;
+        }
+        return bits;
+    }
+
+    /**
+     * Número de filas de rows que tienen el valor indicado: |rows AND máscara|.
+     */
+    int countCovered(long[] rows, int attributeIndex, int attributeValue) {
+        long[] mask = masks[attributeIndex][attributeValue];
+        int count = 0;
+        for (int w = 0; w < numWords; w++) {
+            count += Long.bitCount(rows[w] & mask[w]);
+        }
+        return count;
+    }
+
+    /**
+     * Deja en rows solo las filas que tienen el valor indicado.
+     */
+    void retainCovered(long[] rows, int attributeIndex, int attributeValue) {
+        long[] mask = masks[attributeIndex][attributeValue];
+        for (int w = 0; w < numWords; w++) {
+            rows[w] &= mask[w];
+        }
+    }
+
+    /**
+     * Mapa de bits nuevo con las filas de la clase indicada.
+     */
+    long[] classRows(int classValue) {
+        return masks[classIndex][classValue].clone();
+    }
+
+    /**
+     * Mapa de bits nuevo con las filas que no son de la clase indicada.
+     */
+    long[] otherClassRows(int classValue) {
+        long[] bits = rows(0, numRows);
+        removeAll(bits, masks[classIndex][classValue]);
+        return bits;
+    }
+
+    /**
+     * Deja en rows solo las filas que están en kept.
+     */
+    static void retainAll(long[] rows, long[] kept) {
+        for (int w = 0; w < rows.length; w++) {
+            rows[w] &= kept[w];
+        }
+    }
+
+    /**
+     * Quita de rows las filas que están en removed.
+     */
+    static void removeAll(long[] rows, long[] removed) {
+        for (int w = 0; w < rows.length; w++) {
+            rows[w] &= ~removed[w];
+        }
+    }
+
+    static boolean isEmpty(long[] rows) {
+        for (long word : rows) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int cardinality(long[] rows) {
+        int count = 0;
+        for (long word : rows) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
@@ -2,30 +2,62 @@ package aprendizaje.automatico;
 
 import weka.classifiers.AbstractClassifier;
 import weka.core.Instances;
+import weka.core.Option;
+import weka.core.Utils;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.List;
-import weka.core.Attribute;
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 import weka.core.Instance;
 
+/**
+ * Clasificador FOIL para atributos nominales: aprende, para cada clase, una
+ * lista de reglas conjuntivas añadiendo en cada paso el literal de mayor
+ * ganancia.
+ *
+ * Con -num-slots distinto de 1, los literales de cada atributo se puntúan en
+ * hilos distintos; el desempate es el mismo que en la búsqueda secuencial, así
+ * que las reglas aprendidas son idénticas.
+ *
+ * Tras entrenar, las reglas se compilan en arrays planos ({@link CompiledRules})
+ * con los que se predice, también por lotes con {@link #distributionsForInstances}.
+ */
 public class Foil extends AbstractClassifier {
 
     private List<Rule> rules;
     private int m_DefaultClass;
+    private CompiledRules m_compiled; // Reglas en arrays planos para predecir
+    private int m_numExecutionSlots = 1;
+    private boolean m_gainBound = true; // Saltarse los literales cuya cota no supera la mejor ganancia
+    // Se reconstruye bajo demanda; no forma parte del modelo serializado
+    private transient ForkJoinPool m_pool;
 
     @Override
     public double[] distributionForInstance(Instance instance) {
         double[] dist = new double[instance.numClasses()];
-        for (Rule rule : rules) {
-            if (rule.covers(instance)) {
-                dist[rule.classValue] = 1.0;
-                return dist;
-            }
+        dist[m_compiled.classify(instance)] = 1.0;
+        return dist;
+    }
+
+    @Override
+    public double[][] distributionsForInstances(Instances instances) {
+        int[] prediction = m_compiled.classify(instances);
+        double[][] dist = new double[prediction.length][instances.numClasses()];
+        for (int r = 0; r < prediction.length; r++) {
+            dist[r][prediction[r]] = 1.0;
         }
-        dist[m_DefaultClass] = 1.0;
         return dist;
     }
 
+    @Override
+    public boolean implementsMoreEfficientBatchPrediction() {
+        return true;
+    }
+
     private class Rule {
         private List<Literal> literals;
         private int classValue;
@@ -39,15 +71,6 @@ public class Foil extends AbstractClassifier {
             literals.add(literal);
         }
 
-        public boolean covers(Instance instance) {
-            for (Literal literal : literals) {
-                if (!literal.covers(instance)) {
-                    return false;
-                }
-            }
-            return true;
-        }
-
         @Override
         public String toString() {
             StringBuilder sb = new StringBuilder();
@@ -62,7 +85,7 @@ public class Foil extends AbstractClassifier {
         }
     }
 
-    private class Literal {
+    static class Literal {
         private int attributeIndex;
         private int attributeValue;
 
@@ -71,10 +94,6 @@ public class Foil extends AbstractClassifier {
             this.attributeValue = attributeValue;
         }
 
-        public boolean covers(Instance instance) {
-            return (int) instance.value(attributeIndex) == attributeValue;
-        }
-
         @Override
         public String toString() {
             return "att" + attributeIndex + " = " + attributeValue;
@@ -83,26 +102,46 @@ public class Foil extends AbstractClassifier {
 
     @Override
     public void buildClassifier(Instances instances) throws Exception {
+        // Índice único sobre los datos; los subconjuntos son mapas de bits sobre sus filas
+        buildClassifier(new CoverageIndex(instances));
+    }
+
+    /**
+     * Entrena sobre una vista por columnas, sin pasar por {@code Instances}. Las
+     * reglas son las mismas que con los datos equivalentes en {@code Instances}.
+     */
+    public void buildClassifier(NominalColumns columns) throws Exception {
+        if (columns.classIndex() < 0 || columns.numValues(columns.classIndex()) == 0) {
+            throw new Exception("FOIL necesita un atributo de clase nominal.");
+        }
+        buildClassifier(new CoverageIndex(columns));
+    }
+
+    private void buildClassifier(CoverageIndex index) {
         rules = new ArrayList<>();
-        Instances trainingData = new Instances(instances);
-        int classIndex = trainingData.classIndex();
-        Attribute classAttribute = trainingData.attribute(classIndex);
+        long[] remaining = index.rows(0, index.numRows());
+        int numClasses = index.numValues(index.classIndex());
 
-        for (int i = 0; i < classAttribute.numValues(); i++) {
-            Instances positiveInstances = getInstancesByClass(trainingData, i);
-            Instances negativeInstances = getInstancesByClassNot(trainingData, i);
+        for (int i = 0; i < numClasses; i++) {
+            long[] positiveRows = index.classRows(i);
+            long[] negativeRows = index.otherClassRows(i);
+            CoverageIndex.retainAll(positiveRows, remaining);
+            CoverageIndex.retainAll(negativeRows, remaining);
 
-            while (!positiveInstances.isEmpty()) {
-                Rule rule = buildRule(positiveInstances, negativeInstances, i);
+            while (!CoverageIndex.isEmpty(positiveRows)) {
+                Rule rule = buildRule(index, positiveRows, negativeRows, i);
                 rules.add(rule);
-                trainingData = removeCoveredInstances(trainingData, rule);
-                positiveInstances = removeCoveredInstances(positiveInstances, rule);
+                long[] covered = coveredRows(index, rule);
+                CoverageIndex.removeAll(remaining, covered);
+                CoverageIndex.removeAll(positiveRows, covered);
             }
         }
 
-        double[] classCounts = new double[trainingData.numClasses()];
-        for (Instance instance : trainingData) {
-            classCounts[(int) instance.classValue()]++;
+        double[] classCounts = new double[numClasses];
+        for (int i = 0; i < numClasses; i++) {
+            long[] classRows = index.classRows(i);
+            CoverageIndex.retainAll(classRows, remaining);
+            classCounts[i] = CoverageIndex.cardinality(classRows);
         }
         int maxIndex = 0;
         for (int i = 1; i < classCounts.length; i++) {
@@ -111,104 +150,237 @@ public class Foil extends AbstractClassifier {
             }
         }
         m_DefaultClass = maxIndex;
+        m_compiled = compileRules();
+    }
+
+    /**
+     * Aplana la lista de reglas en arrays de atributos, valores y posiciones.
+     */
+    private CompiledRules compileRules() {
+        int numLiterals = 0;
+        for (Rule rule : rules) {
+            numLiterals += rule.literals.size();
+        }
+        int[] ruleStart = new int[rules.size() + 1];
+        int[] literalAttribute = new int[numLiterals];
+        int[] literalValue = new int[numLiterals];
+        int[] ruleClass = new int[rules.size()];
+        int l = 0;
+        for (int k = 0; k < rules.size(); k++) {
+            Rule rule = rules.get(k);
+            ruleStart[k] = l;
+            ruleClass[k] = rule.classValue;
+            for (Literal literal : rule.literals) {
+                literalAttribute[l] = literal.attributeIndex;
+                literalValue[l] = literal.attributeValue;
+                l++;
+            }
+        }
+        ruleStart[rules.size()] = l;
+        return new CompiledRules(ruleStart, literalAttribute, literalValue, ruleClass, m_DefaultClass);
     }
 
-    private Rule buildRule(Instances positiveInstances, Instances negativeInstances, int classValue) {
+    private Rule buildRule(CoverageIndex index, long[] positiveRows, long[] negativeRows, int classValue) {
         Rule rule = new Rule(classValue);
-        Instances coveredPositive = new Instances(positiveInstances);
-        Instances coveredNegative = new Instances(negativeInstances);
+        long[] coveredPositive = positiveRows.clone();
+        long[] coveredNegative = negativeRows.clone();
+        int p = CoverageIndex.cardinality(coveredPositive);
+        int n = CoverageIndex.cardinality(coveredNegative);
 
-        while (!coveredNegative.isEmpty()) {
-            Literal bestLiteral = findBestLiteral(coveredPositive, coveredNegative);
+        while (n > 0) {
+            Literal bestLiteral = findBestLiteral(index, coveredPositive, coveredNegative, p, n);
             if (bestLiteral == null) {
                 break;
             }
+            int p_prime = index.countCovered(coveredPositive, bestLiteral.attributeIndex, bestLiteral.attributeValue);
+            int n_prime = index.countCovered(coveredNegative, bestLiteral.attributeIndex, bestLiteral.attributeValue);
+            // Si el literal no cambia la cobertura, volvería a elegirse indefinidamente
+            if (p_prime == p && n_prime == n) {
+                break;
+            }
             rule.addLiteral(bestLiteral);
-            coveredPositive = getCoveredInstances(coveredPositive, bestLiteral);
-            coveredNegative = getCoveredInstances(coveredNegative, bestLiteral);
+            index.retainCovered(coveredPositive, bestLiteral.attributeIndex, bestLiteral.attributeValue);
+            index.retainCovered(coveredNegative, bestLiteral.attributeIndex, bestLiteral.attributeValue);
+            p = p_prime;
+            n = n_prime;
         }
         return rule;
     }
 
-    private Literal findBestLiteral(Instances positiveInstances, Instances negativeInstances) {
+    /**
+     * Literal de mayor ganancia para los positivos y negativos cubiertos, o null
+     * si ninguno cubre algún positivo. Visible en el paquete para los benchmarks.
+     */
+    Literal findBestLiteral(CoverageIndex index, long[] coveredPositive, long[] coveredNegative, int p, int n) {
+        int numAttributes = index.numAttributes();
+        double[] attributeGain = new double[numAttributes];
+        int[] attributeValue = new int[numAttributes];
+        // Fija durante todo el paso: se calcula una vez y no por literal
+        double initialInfo = index.log2(p + 1) - index.log2(p + n + 1);
+        ForkJoinPool pool = getPool();
+
+        if (pool == null) {
+            // En secuencial, la mejor ganancia de los atributos anteriores también sirve para podar
+            double maxGain = -1;
+            for (int i = 0; i < numAttributes; i++) {
+                scoreAttribute(index, coveredPositive, coveredNegative, p, initialInfo, maxGain, i, attributeGain, attributeValue);
+                if (attributeValue[i] >= 0 && attributeGain[i] > maxGain) {
+                    maxGain = attributeGain[i];
+                }
+            }
+        } else {
+            // Cada tarea escribe solo la posición de su atributo y poda solo con sus propios valores,
+            // así el resultado no depende del orden en que terminen las tareas
+            pool.submit(() -> IntStream.range(0, numAttributes).parallel().forEach(i ->
+                    scoreAttribute(index, coveredPositive, coveredNegative, p, initialInfo, -1, i,
+                            attributeGain, attributeValue))).join();
+        }
+
+        // Recorrer los atributos en orden con '>' estricto elige el mismo literal
+        // que la búsqueda secuencial: el primero (atributo, valor) de mayor ganancia.
         Literal bestLiteral = null;
         double maxGain = -1;
-
-        for (int i = 0; i < positiveInstances.numAttributes(); i++) {
-            if (i == positiveInstances.classIndex()) {
-                continue;
+        for (int i = 0; i < numAttributes; i++) {
+            if (attributeValue[i] >= 0 && attributeGain[i] > maxGain) {
+                maxGain = attributeGain[i];
+                bestLiteral = new Literal(i, attributeValue[i]);
             }
-            Attribute attribute = positiveInstances.attribute(i);
-            for (int j = 0; j < attribute.numValues(); j++) {
-                Literal literal = new Literal(i, j);
-                double gain = calculateGain(positiveInstances, negativeInstances, literal);
+        }
+        return bestLiteral;
+    }
+
+    /**
+     * Guarda en bestGain[i] y bestValue[i] el mejor literal del atributo i
+     * (bestValue[i] = -1 si ninguno supera la ganancia inicial de -1).
+     *
+     * Como newInfo <= 0, la ganancia de un literal no pasa de p' * (0 - initialInfo),
+     * y p' no pasa de los positivos que aún no han caído en otro valor del atributo.
+     * Los literales cuya cota no supera la mejor ganancia conocida (la del propio
+     * atributo o floor) no pueden ganar con '>' estricto y no se evalúan, salvo
+     * con -no-gain-bound.
+     *
+     * @param floor ganancia que ya alcanza un atributo anterior, o -1
+     */
+    private void scoreAttribute(CoverageIndex index, long[] coveredPositive, long[] coveredNegative, int p,
+                                double initialInfo, double floor, int i, double[] bestGain, int[] bestValue) {
+        double maxGain = -1;
+        int value = -1;
+        if (i != index.classIndex()) {
+            // Cada fila tiene un único valor (el ausente cuenta como 0): los p' del atributo suman p
+            int unseenPositive = p;
+            for (int j = 0; j < index.numValues(i); j++) {
+                double threshold = m_gainBound ? Math.max(maxGain, floor) : Double.NEGATIVE_INFINITY;
+                if (unseenPositive * (0.0 - initialInfo) <= threshold) {
+                    break;
+                }
+                int p_prime = index.countCovered(coveredPositive, i, j);
+                unseenPositive -= p_prime;
+                if (p_prime == 0 || p_prime * (0.0 - initialInfo) <= threshold) {
+                    continue;
+                }
+                int n_prime = index.countCovered(coveredNegative, i, j);
+                double gain = calculateGain(index, p_prime, n_prime, initialInfo);
                 if (gain > maxGain) {
                     maxGain = gain;
-                    bestLiteral = literal;
+                    value = j;
                 }
             }
         }
-        return bestLiteral;
+        bestGain[i] = maxGain;
+        bestValue[i] = value;
     }
 
-    private double calculateGain(Instances positiveInstances, Instances negativeInstances, Literal literal) {
-        int p = positiveInstances.size();
-        int n = negativeInstances.size();
-
-        Instances coveredPositive = getCoveredInstances(positiveInstances, literal);
-        Instances coveredNegative = getCoveredInstances(negativeInstances, literal);
+    private ForkJoinPool getPool() {
+        m_pool = ExecutionSlots.pool(m_pool, m_numExecutionSlots);
+        return m_pool;
+    }
 
-        int p_prime = coveredPositive.size();
-        int n_prime = coveredNegative.size();
 
+    private double calculateGain(CoverageIndex index, int p_prime, int n_prime, double initialInfo) {
         if (p_prime == 0) {
             return -1;
         }
 
-        double initialInfo = Math.log(p + 1) / Math.log(2) - Math.log(p + n + 1) / Math.log(2);
-        double newInfo = Math.log(p_prime + 1) / Math.log(2) - Math.log(p_prime + n_prime + 1) / Math.log(2);
+        double newInfo = index.log2(p_prime + 1) - index.log2(p_prime + n_prime + 1);
 
         return p_prime * (newInfo - initialInfo);
     }
 
-    private Instances getInstancesByClass(Instances instances, int classValue) {
-        Instances result = new Instances(instances, 0);
-        for (Instance instance : instances) {
-            if ((int) instance.classValue() == classValue) {
-                result.add(instance);
-            }
+    /**
+     * Filas del índice que cubre la regla.
+     */
+    private long[] coveredRows(CoverageIndex index, Rule rule) {
+        long[] covered = index.rows(0, index.numRows());
+        for (Literal literal : rule.literals) {
+            index.retainCovered(covered, literal.attributeIndex, literal.attributeValue);
         }
-        return result;
+        return covered;
     }
 
-    private Instances getInstancesByClassNot(Instances instances, int classValue) {
-        Instances result = new Instances(instances, 0);
-        for (Instance instance : instances) {
-            if ((int) instance.classValue() != classValue) {
-                result.add(instance);
-            }
-        }
-        return result;
+    /**
+     * @return una descripción de este clasificador
+     */
+    public String globalInfo() {
+        return "Aprendizaje de reglas con FOIL para atributos nominales.";
     }
 
-    private Instances getCoveredInstances(Instances instances, Literal literal) {
-        Instances result = new Instances(instances, 0);
-        for (Instance instance : instances) {
-            if (literal.covers(instance)) {
-                result.add(instance);
-            }
-        }
-        return result;
+    @Override
+    public Enumeration<Option> listOptions() {
+        Vector<Option> newVector = new Vector<>();
+        newVector.addElement(new Option("\tNúmero de hilos para puntuar los literales.\n"
+                + "\t(por defecto 1 - sin paralelismo)\n"
+                + "\t(0 para usar todos los núcleos)", "num-slots", 1, "-num-slots <num>"));
+        newVector.addElement(new Option("\tEvaluar todos los literales, sin saltarse los que por su cota\n"
+                + "\tno pueden superar la mejor ganancia (las reglas son las mismas).", "no-gain-bound", 0,
+                "-no-gain-bound"));
+        newVector.addAll(Collections.list(super.listOptions()));
+        return newVector.elements();
     }
 
-    private Instances removeCoveredInstances(Instances instances, Rule rule) {
-        Instances result = new Instances(instances, 0);
-        for (Instance instance : instances) {
-            if (!rule.covers(instance)) {
-                result.add(instance);
-            }
+    @Override
+    public void setOptions(String[] options) throws Exception {
+        String numSlots = Utils.getOption("num-slots", options);
+        setNumExecutionSlots(numSlots.length() != 0 ? Integer.parseInt(numSlots) : 1);
+        setGainBound(!Utils.getFlag("no-gain-bound", options));
+        super.setOptions(options);
+        Utils.checkForRemainingOptions(options);
+    }
+
+    @Override
+    public String[] getOptions() {
+        Vector<String> options = new Vector<>();
+        options.add("-num-slots");
+        options.add("" + getNumExecutionSlots());
+        if (!getGainBound()) {
+            options.add("-no-gain-bound");
         }
-        return result;
+        Collections.addAll(options, super.getOptions());
+        return options.toArray(new String[0]);
+    }
+
+    public String numExecutionSlotsTipText() {
+        return "Número de hilos para puntuar los literales (1 = secuencial, 0 = todos los núcleos).";
+    }
+
+    public int getNumExecutionSlots() {
+        return m_numExecutionSlots;
+    }
+
+    public void setNumExecutionSlots(int numSlots) {
+        m_numExecutionSlots = numSlots;
+    }
+
+    public String gainBoundTipText() {
+        return "Saltarse los literales cuya cota de ganancia no supera la mejor encontrada "
+                + "(no cambia las reglas, solo el tiempo).";
+    }
+
+    public boolean getGainBound() {
+        return m_gainBound;
+    }
+
+    public void setGainBound(boolean gainBound) {
+        m_gainBound = gainBound;
     }
 
     @Override
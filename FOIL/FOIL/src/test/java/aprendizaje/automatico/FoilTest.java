@@ -0,0 +1,130 @@
+package aprendizaje.automatico;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * {@link Foil} aprende las mismas reglas con cualquier número de hilos y
+ * tanto si se salta los literales por su cota de ganancia como si no, y
+ * predice lo mismo por lotes que instancia a instancia.
+ */
+public class FoilTest extends TestCase {
+
+    public FoilTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(FoilTest.class);
+    }
+
+    /**
+     * Datos nominales aleatorios con una clase de numClasses valores que sigue
+     * una disyunción de conjunciones sobre los primeros atributos, un 5% de
+     * ruido y algunos valores ausentes.
+     */
+    private static Instances randomData(int numInstances, int numClasses, long seed) {
+        Random random = new Random(seed);
+        int[] arity = {3, 4, 2, 5, 3, 3, 4, 2};
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        for (int i = 0; i < arity.length; i++) {
+            List<String> values = new ArrayList<>();
+            for (int v = 0; v < arity[i]; v++) {
+                values.add("v" + v);
+            }
+            attributes.add(new Attribute("a" + i, values));
+        }
+        List<String> classes = new ArrayList<>();
+        for (int c = 0; c < numClasses; c++) {
+            classes.add("c" + c);
+        }
+        attributes.add(new Attribute("clase", classes));
+        Instances data = new Instances("aleatorio", attributes, numInstances);
+        data.setClassIndex(arity.length);
+        for (int r = 0; r < numInstances; r++) {
+            double[] values = new double[arity.length + 1];
+            for (int i = 0; i < arity.length; i++) {
+                values[i] = random.nextInt(arity[i]);
+            }
+            int c;
+            if (values[0] == 0 && values[1] == 1) {
+                c = 0;
+            } else if (values[2] == 1 || values[3] == 4) {
+                c = 1 % numClasses;
+            } else {
+                c = numClasses - 1;
+            }
+            if (random.nextInt(20) == 0) {
+                c = random.nextInt(numClasses);
+            }
+            values[arity.length] = c;
+            for (int i = 0; i < arity.length; i++) {
+                if (random.nextInt(50) == 0) {
+                    values[i] = Utils.missingValue();
+                }
+            }
+            data.add(new DenseInstance(1.0, values));
+        }
+        return data;
+    }
+
+    private static Foil train(Instances data, String... options) throws Exception {
+        Foil model = new Foil();
+        model.setOptions(options.clone());
+        model.buildClassifier(data);
+        return model;
+    }
+
+    private static void assertSameModel(String message, Foil expected, Foil actual, Instances data) throws Exception {
+        assertEquals(message, expected.toString(), actual.toString());
+        double[][] expectedDist = expected.distributionsForInstances(data);
+        double[][] actualDist = actual.distributionsForInstances(data);
+        for (int r = 0; r < data.numInstances(); r++) {
+            assertTrue(message + ", fila " + r, Arrays.equals(expectedDist[r], actualDist[r]));
+        }
+    }
+
+    public void testParallelRulesEqualSequential() throws Exception {
+        for (int numClasses = 2; numClasses <= 3; numClasses++) {
+            Instances data = randomData(3000, numClasses, numClasses);
+            Foil sequential = train(data, "-num-slots", "1");
+            for (String numSlots : new String[] {"2", "4"}) {
+                assertSameModel(numClasses + " clases, " + numSlots + " hilos", sequential,
+                        train(data, "-num-slots", numSlots), data);
+            }
+        }
+    }
+
+    public void testGainBoundDoesNotChangeRules() throws Exception {
+        for (int numClasses = 2; numClasses <= 3; numClasses++) {
+            Instances data = randomData(3000, numClasses, numClasses);
+            for (String numSlots : new String[] {"1", "4"}) {
+                assertSameModel(numClasses + " clases, " + numSlots + " hilos",
+                        train(data, "-num-slots", numSlots, "-no-gain-bound"),
+                        train(data, "-num-slots", numSlots), data);
+            }
+        }
+    }
+
+    public void testBatchPredictionMatchesSingle() throws Exception {
+        Instances train = randomData(2000, 3, 5);
+        Foil model = train(train);
+        // Varios bloques de CompiledRules, el último incompleto
+        Instances test = randomData(2 * CompiledRules.BLOCK_ROWS + 123, 3, 6);
+        double[][] batch = model.distributionsForInstances(test);
+        assertEquals(test.numInstances(), batch.length);
+        for (int r = 0; r < test.numInstances(); r++) {
+            assertTrue("fila " + r, Arrays.equals(model.distributionForInstance(test.instance(r)), batch[r]));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package aprendizaje.automatico;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SelectedTag;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks de Candidatos-Eliminación sobre datos sintéticos con un concepto
+ * conjuntivo (ver {@link SyntheticData}), para cada motor de hipótesis.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CandidateEliminationBenchmark {
+
+    @Param({"1000"})
+    public int rows;
+
+    @Param({"8"})
+    public int attributes;
+
+    @Param({"3"})
+    public int arity;
+
+    @Param({"2"})
+    public int conceptSize;
+
+    @Param({"string", "bitset"})
+    public String engine;
+
+    /** Instancias ya procesadas antes del ejemplo negativo medido en updateGeneralBoundary. */
+    @Param({"50"})
+    public int prefix;
+
+    private Instances data;
+    private HypothesisSpace<Object> space;
+    private Object[] generalHypotheses;
+    private Object[] examples;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        data = SyntheticData.generate(rows, attributes, arity, 1, conceptSize, 0.0, 42);
+        space = createSpace(engine, data);
+        // Pares (hipótesis, ejemplo): cada hipótesis generaliza dos filas, así que tiene varios '?'
+        examples = new Object[rows];
+        generalHypotheses = new Object[rows];
+        for (int r = 0; r < rows; r++) {
+            examples[r] = space.fromInstance(data.instance(r));
+        }
+        for (int r = 0; r < rows; r++) {
+            generalHypotheses[r] = space.generalize(examples[r], examples[(r + 1) % rows]);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static HypothesisSpace<Object> createSpace(String engine, Instances data) throws Exception {
+        HypothesisSpace<?> space = engine.equals("bitset") ? new BitHypothesisSpace(data) : new StringHypothesisSpace(data);
+        return (HypothesisSpace<Object>) space;
+    }
+
+    @Benchmark
+    public CandidateElimination buildClassifier() throws Exception {
+        CandidateElimination classifier = new CandidateElimination();
+        classifier.setEngine(new SelectedTag(engine, CandidateElimination.TAGS_ENGINE));
+        classifier.setTraceLevel(new SelectedTag(CandidateElimination.TRACE_OFF, CandidateElimination.TAGS_TRACE));
+        classifier.buildClassifier(data);
+        return classifier;
+    }
+
+    /**
+     * Una llamada a covers por fila; el tiempo es el del recorrido completo.
+     */
+    @Benchmark
+    public int covers() {
+        int count = 0;
+        for (int r = 0; r < rows; r++) {
+            if (space.covers(generalHypotheses[r], examples[r])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Espacio de versiones tras procesar las primeras prefix instancias; se
+     * reconstruye antes de cada invocación porque updateGeneralBoundary lo modifica.
+     */
+    @State(Scope.Thread)
+    public static class UpdateState {
+        VersionSpace<Object> versionSpace;
+        Object negativeExample;
+
+        @Setup(Level.Invocation)
+        public void setUp(CandidateEliminationBenchmark benchmark) {
+            Instances data = benchmark.data;
+            int yes = data.classAttribute().indexOfValue("yes");
+            versionSpace = new VersionSpace<>(benchmark.space);
+            int r = 0;
+            for (; r < Math.min(benchmark.prefix, data.numInstances()); r++) {
+                Instance instance = data.instance(r);
+                if (instance.classValue() == yes) {
+                    versionSpace.addPositive(instance);
+                } else {
+                    versionSpace.addNegative(instance);
+                }
+            }
+            // Siguiente ejemplo negativo tras el prefijo
+            while (r < data.numInstances() && data.instance(r).classValue() == yes) {
+                r++;
+            }
+            negativeExample = benchmark.space.fromInstance(data.instance(r % data.numInstances()));
+        }
+    }
+
+    @Benchmark
+    public VersionSpace<Object> updateGeneralBoundary(UpdateState state) {
+        state.versionSpace.updateGeneralBoundary(state.negativeExample);
+        return state.versionSpace;
+    }
+}
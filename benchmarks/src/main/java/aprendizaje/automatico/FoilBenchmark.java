@@ -0,0 +1,113 @@
+package aprendizaje.automatico;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks de FOIL sobre datos sintéticos con un concepto en forma normal
+ * disyuntiva y ruido (ver {@link SyntheticData}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FoilBenchmark {
+
+    @Param({"1000", "10000"})
+    public int rows;
+
+    @Param({"10"})
+    public int attributes;
+
+    @Param({"4"})
+    public int arity;
+
+    @Param({"2"})
+    public int terms;
+
+    @Param({"2"})
+    public int conceptSize;
+
+    @Param({"0.05"})
+    public double noise;
+
+    /** Valor de -num-slots (1 = secuencial, 0 = todos los núcleos). */
+    @Param({"1"})
+    public int numSlots;
+
+    private Instances data;
+    private Foil trained;
+    private CoverageIndex index;
+    private long[] positiveRows;
+    private long[] negativeRows;
+    private int numPositive;
+    private int numNegative;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        data = SyntheticData.generate(rows, attributes, arity, terms, conceptSize, noise, 42);
+        trained = newFoil();
+        trained.buildClassifier(data);
+
+        // Primer paso de la primera regla de la clase "yes"
+        int yes = data.classAttribute().indexOfValue("yes");
+        index = new CoverageIndex(data);
+        positiveRows = index.classRows(yes);
+        negativeRows = index.otherClassRows(yes);
+        numPositive = CoverageIndex.cardinality(positiveRows);
+        numNegative = CoverageIndex.cardinality(negativeRows);
+    }
+
+    private Foil newFoil() {
+        Foil foil = new Foil();
+        foil.setNumExecutionSlots(numSlots);
+        return foil;
+    }
+
+    @Benchmark
+    public Foil buildClassifier() throws Exception {
+        Foil foil = newFoil();
+        foil.buildClassifier(data);
+        return foil;
+    }
+
+    @Benchmark
+    public Object findBestLiteral() {
+        return trained.findBestLiteral(index, positiveRows, negativeRows, numPositive, numNegative);
+    }
+
+    /**
+     * Una instancia por llamada, recorriendo los datos en orden.
+     */
+    @Benchmark
+    public double[] distributionForInstance() throws Exception {
+        Instance instance = data.instance(next);
+        next = next + 1 == rows ? 0 : next + 1;
+        return trained.distributionForInstance(instance);
+    }
+
+    /**
+     * Todas las instancias en un solo lote.
+     */
+    @Benchmark
+    public double[][] distributionsForInstances() throws Exception {
+        return trained.distributionsForInstances(data);
+    }
+}
@@ -0,0 +1,106 @@
+package aprendizaje.automatico;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Conjuntos de datos nominales sintéticos para los benchmarks.
+ *
+ * Los atributos a0..a(n-1) toman valores v0..v(arity-1) al azar y la clase
+ * (yes/no) sigue un concepto plantado en forma normal disyuntiva: el término t
+ * exige que conceptSize atributos consecutivos, a partir de t * conceptSize,
+ * tomen el valor v(t mod arity). Con un solo término el concepto es una
+ * conjunción, que es lo que puede aprender Candidatos-Eliminación; con ruido
+ * se invierte la clase de esa fracción de filas.
+ */
+final class SyntheticData {
+
+    private SyntheticData() {
+    }
+
+    /**
+     * Cabecera (sin filas) de un conjunto con atributos a0..a(attributes-1) de
+     * arity valores y la clase yes/no como último atributo.
+     */
+    static Instances header(int attributes, int arity, int capacity) {
+        ArrayList<Attribute> attInfo = new ArrayList<>();
+        for (int i = 0; i < attributes; i++) {
+            List<String> values = new ArrayList<>();
+            for (int v = 0; v < arity; v++) {
+                values.add("v" + v);
+            }
+            attInfo.add(new Attribute("a" + i, values));
+        }
+        List<String> classValues = new ArrayList<>();
+        classValues.add("yes");
+        classValues.add("no");
+        attInfo.add(new Attribute("class", classValues));
+
+        Instances data = new Instances("synthetic", attInfo, capacity);
+        data.setClassIndex(attributes);
+        return data;
+    }
+
+    static Instances generate(int rows, int attributes, int arity, int terms, int conceptSize,
+                              double noise, long seed) {
+        Instances data = header(attributes, arity, rows);
+        Rows generator = new Rows(attributes, arity, terms, conceptSize, noise, seed);
+        for (int r = 0; r < rows; r++) {
+            data.add(new DenseInstance(1.0, generator.next()));
+        }
+        return data;
+    }
+
+    /**
+     * Generador de filas una a una, para escribir conjuntos que no caben en memoria.
+     */
+    static final class Rows {
+        private final int attributes;
+        private final int arity;
+        private final int terms;
+        private final int conceptSize;
+        private final double noise;
+        private final Random random;
+
+        Rows(int attributes, int arity, int terms, int conceptSize, double noise, long seed) {
+            this.attributes = attributes;
+            this.arity = arity;
+            this.terms = terms;
+            this.conceptSize = conceptSize;
+            this.noise = noise;
+            this.random = new Random(seed);
+        }
+
+        /**
+         * Valores de la siguiente fila (índices de valor, la clase al final).
+         */
+        double[] next() {
+            double[] values = new double[attributes + 1];
+            for (int i = 0; i < attributes; i++) {
+                values[i] = random.nextInt(arity);
+            }
+            boolean positive = false;
+            for (int t = 0; t < terms && !positive; t++) {
+                boolean matches = true;
+                for (int c = 0; c < conceptSize; c++) {
+                    int i = (t * conceptSize + c) % attributes;
+                    if ((int) values[i] != t % arity) {
+                        matches = false;
+                        break;
+                    }
+                }
+                positive = matches;
+            }
+            if (random.nextDouble() < noise) {
+                positive = !positive;
+            }
+            values[attributes] = positive ? 0 : 1;
+            return values;
+        }
+    }
+}
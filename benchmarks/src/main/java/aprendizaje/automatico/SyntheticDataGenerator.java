@@ -0,0 +1,80 @@
+package aprendizaje.automatico;
+
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.Utils;
+import weka.core.converters.ArffSaver;
+import weka.core.converters.Saver;
+
+import java.io.File;
+
+/**
+ * Genera conjuntos nominales sintéticos de cualquier tamaño (ver
+ * {@link SyntheticData}) escribiendo fila a fila, sin tenerlos en memoria.
+ *
+ * Uso:
+ * <pre>
+ * java -cp target/benchmarks.jar aprendizaje.automatico.SyntheticDataGenerator -o datos.arff \
+ *     [-rows 1000000] [-attributes 10] [-arity 3] [-terms 1] [-concept-size 2] [-noise 0] [-seed 1] [-binary]
+ * </pre>
+ * Con -terms 1 el concepto es una conjunción (apto para Candidatos-Eliminación,
+ * mejor sin ruido); con más términos es una DNF para FOIL. Con -binary se
+ * escribe en {@link ColumnarFormat} en lugar de ARFF.
+ */
+public class SyntheticDataGenerator {
+
+    public static void main(String[] args) {
+        try {
+            String output = Utils.getOption('o', args);
+            if (output.length() == 0) {
+                System.err.println("Uso: SyntheticDataGenerator -o <fichero> [-rows <n>] [-attributes <n>] [-arity <n>]"
+                        + " [-terms <n>] [-concept-size <n>] [-noise <p>] [-seed <n>] [-binary]");
+                System.exit(1);
+            }
+            long rows = Long.parseLong(option("rows", "1000000", args));
+            int attributes = Integer.parseInt(option("attributes", "10", args));
+            int arity = Integer.parseInt(option("arity", "3", args));
+            int terms = Integer.parseInt(option("terms", "1", args));
+            int conceptSize = Integer.parseInt(option("concept-size", "2", args));
+            double noise = Double.parseDouble(option("noise", "0", args));
+            long seed = Long.parseLong(option("seed", "1", args));
+            boolean binary = Utils.getFlag("binary", args);
+            Utils.checkForRemainingOptions(args);
+
+            Instances header = SyntheticData.header(attributes, arity, 0);
+            SyntheticData.Rows generator = new SyntheticData.Rows(attributes, arity, terms, conceptSize, noise, seed);
+            File file = new File(output);
+            long start = System.nanoTime();
+
+            if (binary) {
+                try (ColumnarWriter writer = new ColumnarWriter(file, header, rows)) {
+                    for (long r = 0; r < rows; r++) {
+                        writer.write(generator.next());
+                    }
+                }
+            } else {
+                ArffSaver saver = new ArffSaver();
+                saver.setRetrieval(Saver.INCREMENTAL);
+                saver.setInstances(header);
+                saver.setFile(file);
+                for (long r = 0; r < rows; r++) {
+                    DenseInstance instance = new DenseInstance(1.0, generator.next());
+                    instance.setDataset(header);
+                    saver.writeIncremental(instance);
+                }
+                // null cierra el fichero
+                saver.writeIncremental(null);
+            }
+            System.out.println(rows + " filas escritas en " + file + " ("
+                    + Utils.doubleToString((System.nanoTime() - start) / 1e9, 2) + " s)");
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static String option(String name, String defaultValue, String[] args) throws Exception {
+        String value = Utils.getOption(name, args);
+        return value.length() != 0 ? value : defaultValue;
+    }
+}
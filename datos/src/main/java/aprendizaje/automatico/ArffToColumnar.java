@@ -0,0 +1,60 @@
+package aprendizaje.automatico;
+
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+import weka.core.converters.ArffLoader;
+
+import java.io.File;
+
+/**
+ * Convierte un ARFF nominal a {@link ColumnarFormat}. Lee el ARFF dos veces
+ * en streaming (la primera solo cuenta las filas, que fijan la posición de cada
+ * columna), así que la memoria usada no depende del tamaño del fichero.
+ *
+ * Uso: {@code java -cp ... aprendizaje.automatico.ArffToColumnar entrada.arff salida.bin}
+ * (la clase es el último atributo).
+ */
+public class ArffToColumnar {
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Uso: ArffToColumnar <entrada.arff> <salida.bin>");
+            System.exit(1);
+        }
+        try {
+            long start = System.nanoTime();
+            long rows = convert(new File(args[0]), new File(args[1]));
+            System.out.println(rows + " filas convertidas en "
+                    + Utils.doubleToString((System.nanoTime() - start) / 1e9, 2) + " s");
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return número de filas escritas
+     */
+    static long convert(File arff, File output) throws Exception {
+        ArffLoader loader = new ArffLoader();
+        loader.setFile(arff);
+        Instances header = loader.getStructure();
+        long rows = 0;
+        while (loader.getNextInstance(header) != null) {
+            rows++;
+        }
+
+        loader.reset();
+        loader.setFile(arff);
+        header = loader.getStructure();
+        header.setClassIndex(header.numAttributes() - 1);
+        try (ColumnarWriter writer = new ColumnarWriter(output, header, rows)) {
+            Instance instance;
+            while ((instance = loader.getNextInstance(header)) != null) {
+                writer.write(instance);
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,137 @@
+package aprendizaje.automatico;
+
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Conjunto nominal guardado por columnas: para cada atributo, el índice del
+ * valor de cada fila en un byte o en un short (-1 si falta), como en
+ * {@link ColumnarFormat}. Los buffers pueden ser un fichero mapeado
+ * ({@link ColumnarFile}) o memoria del heap ({@link ParallelArffLoader}).
+ *
+ * Cada columna se reparte en segmentos de 1 GB, porque un {@link ByteBuffer}
+ * se indexa con int; como el segmento tiene un número par de bytes, ningún
+ * short queda partido entre dos.
+ *
+ * Se puede usar como vista por columnas ({@link NominalColumns}, p. ej. con
+ * {@code Foil.buildClassifier(NominalColumns)} o
+ * {@code CandidateElimination.buildClassifier(NominalColumns)}), instancia a
+ * instancia con {@link #instance} o convertido entero a {@code Instances} con
+ * {@link #toInstances}.
+ */
+public class ColumnStore implements NominalColumns {
+
+    /** Cada segmento de una columna tiene 2^30 bytes (1 GB). */
+    static final int SEGMENT_SHIFT = 30;
+    static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final Instances header;
+    private final int numRows;
+    private final int[] width;
+    private final int[] numValues;
+    private final ByteBuffer[][] columns; // Segmentos de cada columna
+
+    /**
+     * @param width bytes por valor de cada columna (1 o 2)
+     * @param columns segmentos de cada columna, con el orden de bytes de {@link ColumnarFormat#ORDER}
+     */
+    ColumnStore(Instances header, int numRows, int[] width, ByteBuffer[][] columns) {
+        this.header = header;
+        this.numRows = numRows;
+        this.width = width;
+        this.columns = columns;
+        numValues = new int[header.numAttributes()];
+        for (int i = 0; i < numValues.length; i++) {
+            numValues[i] = header.attribute(i).numValues();
+        }
+    }
+
+    /**
+     * Número de segmentos para una columna de length bytes.
+     */
+    static int numSegments(long length) {
+        return (int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+    }
+
+    /**
+     * Bytes del segmento s de una columna de length bytes.
+     */
+    static int segmentLength(long length, int s) {
+        return (int) Math.min(length - ((long) s << SEGMENT_SHIFT), 1L << SEGMENT_SHIFT);
+    }
+
+    @Override
+    public Instances header() {
+        return header;
+    }
+
+    @Override
+    public int numRows() {
+        return numRows;
+    }
+
+    @Override
+    public int numAttributes() {
+        return numValues.length;
+    }
+
+    @Override
+    public int classIndex() {
+        return header.classIndex();
+    }
+
+    @Override
+    public int numValues(int attribute) {
+        return numValues[attribute];
+    }
+
+    @Override
+    public int value(int attribute, int row) {
+        if (width[attribute] == 1) {
+            return columns[attribute][row >>> SEGMENT_SHIFT].get((int) (row & SEGMENT_MASK));
+        }
+        long position = (long) row << 1;
+        return columns[attribute][(int) (position >>> SEGMENT_SHIFT)].getShort((int) (position & SEGMENT_MASK));
+    }
+
+    /**
+     * Escribe el índice de valor de la fila; solo mientras se carga el conjunto.
+     */
+    void set(int attribute, int row, int code) {
+        if (width[attribute] == 1) {
+            columns[attribute][row >>> SEGMENT_SHIFT].put((int) (row & SEGMENT_MASK), (byte) code);
+        } else {
+            long position = (long) row << 1;
+            columns[attribute][(int) (position >>> SEGMENT_SHIFT)].putShort((int) (position & SEGMENT_MASK), (short) code);
+        }
+    }
+
+    /**
+     * Instancia nueva con los valores de la fila, asociada a {@link #header}.
+     */
+    public Instance instance(int row) {
+        double[] values = new double[numValues.length];
+        for (int i = 0; i < values.length; i++) {
+            int value = value(i, row);
+            values[i] = value == ColumnarFormat.MISSING ? Utils.missingValue() : value;
+        }
+        DenseInstance instance = new DenseInstance(1.0, values);
+        instance.setDataset(header);
+        return instance;
+    }
+
+    /**
+     * Copia todas las filas a un {@code Instances} en memoria.
+     */
+    public Instances toInstances() {
+        Instances data = new Instances(header, numRows);
+        for (int row = 0; row < numRows; row++) {
+            data.add(instance(row));
+        }
+        return data;
+    }
+}
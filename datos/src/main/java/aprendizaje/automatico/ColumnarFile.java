@@ -0,0 +1,91 @@
+package aprendizaje.automatico;
+
+import weka.core.Attribute;
+import weka.core.Instances;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fichero en {@link ColumnarFormat} mapeado en memoria con
+ * {@code FileChannel.map}. Solo se lee la cabecera al abrirlo; los valores se
+ * leen de las páginas mapeadas cuando se piden, así que abrirlo no depende del
+ * número de filas.
+ */
+public class ColumnarFile extends ColumnStore {
+
+    private ColumnarFile(Instances header, int numRows, int[] width, ByteBuffer[][] columns) {
+        super(header, numRows, width, columns);
+    }
+
+    public static ColumnarFile open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < 3 * Integer.BYTES) {
+                throw new IOException(file + " no está en el formato binario por columnas");
+            }
+            ByteBuffer start = channel.map(FileChannel.MapMode.READ_ONLY, 0, 3 * Integer.BYTES).order(ColumnarFormat.ORDER);
+            if (start.getInt() != ColumnarFormat.MAGIC) {
+                throw new IOException(file + " no está en el formato binario por columnas");
+            }
+            int version = start.getInt();
+            if (version != ColumnarFormat.VERSION) {
+                throw new IOException("Versión " + version + " del formato no soportada");
+            }
+            int headerLength = start.getInt();
+            ByteBuffer encoded = channel.map(FileChannel.MapMode.READ_ONLY, 3 * Integer.BYTES, headerLength);
+            byte[] bytes = new byte[headerLength];
+            encoded.get(bytes);
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            String relation = in.readUTF();
+            long rows = in.readLong();
+            if (rows < 0 || rows > Integer.MAX_VALUE) {
+                // Las filas se indexan con int, como en Instances
+                throw new IOException(file + " tiene " + rows + " filas; el máximo es " + Integer.MAX_VALUE);
+            }
+            int numAttributes = in.readInt();
+            ArrayList<Attribute> attributes = new ArrayList<>(numAttributes);
+            for (int i = 0; i < numAttributes; i++) {
+                String name = in.readUTF();
+                int count = in.readInt();
+                List<String> values = new ArrayList<>(count);
+                for (int v = 0; v < count; v++) {
+                    values.add(in.readUTF());
+                }
+                attributes.add(new Attribute(name, values));
+            }
+            Instances header = new Instances(relation, attributes, 0);
+            header.setClassIndex(in.readInt());
+
+            // Cada columna se mapea en segmentos de 1 GB: un mapeo no puede pasar de 2 GB
+            int[] width = new int[numAttributes];
+            ByteBuffer[][] columns = new ByteBuffer[numAttributes][];
+            long offset = ColumnarFormat.dataStart(headerLength);
+            for (int i = 0; i < numAttributes; i++) {
+                width[i] = ColumnarFormat.valueWidth(header.attribute(i));
+                long length = rows * width[i];
+                if (offset + length > channel.size()) {
+                    throw new IOException(file + " está truncado: falta la columna " + header.attribute(i).name());
+                }
+                columns[i] = new ByteBuffer[ColumnStore.numSegments(length)];
+                for (int s = 0; s < columns[i].length; s++) {
+                    long position = offset + ((long) s << ColumnStore.SEGMENT_SHIFT);
+                    MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                            ColumnStore.segmentLength(length, s));
+                    columns[i][s] = segment.order(ColumnarFormat.ORDER);
+                }
+                offset += ColumnarFormat.columnBytes(rows, width[i]);
+            }
+            // El mapeo sigue siendo válido después de cerrar el canal
+            return new ColumnarFile(header, (int) rows, width, columns);
+        }
+    }
+}
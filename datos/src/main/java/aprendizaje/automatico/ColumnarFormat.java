@@ -0,0 +1,88 @@
+package aprendizaje.automatico;
+
+import weka.core.Attribute;
+import weka.core.Instances;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+
+/**
+ * Formato binario por columnas para conjuntos nominales.
+ *
+ * Estructura del fichero (enteros en little-endian):
+ * <pre>
+ *   int    MAGIC, int VERSION, int longitud de la cabecera
+ *   cabecera: relación, número de filas, atributos (nombre y valores), índice de clase
+ *   relleno hasta múltiplo de 8
+ *   columna 0, columna 1, ... (cada una alineada a 8 bytes)
+ * </pre>
+ * Cada columna guarda el índice del valor de cada fila en un byte si el
+ * atributo tiene como mucho 127 valores y en un short si no; -1 es el valor
+ * ausente. Solo admite atributos nominales.
+ */
+final class ColumnarFormat {
+
+    static final int MAGIC = 0x4E434F4C; // "NCOL"
+    static final int VERSION = 1;
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    static final int MISSING = -1;
+
+    private ColumnarFormat() {
+    }
+
+    /**
+     * Bytes por valor de la columna del atributo: 1 (byte) o 2 (short).
+     */
+    static int valueWidth(Attribute attribute) throws IOException {
+        if (!attribute.isNominal()) {
+            throw new IOException("El formato por columnas solo admite atributos nominales: " + attribute.name());
+        }
+        if (attribute.numValues() <= Byte.MAX_VALUE) {
+            return 1;
+        }
+        if (attribute.numValues() <= Short.MAX_VALUE) {
+            return 2;
+        }
+        throw new IOException("Demasiados valores en el atributo " + attribute.name());
+    }
+
+    /**
+     * Cabecera serializada (sin MAGIC, VERSION ni su longitud).
+     */
+    static byte[] encodeHeader(Instances header, long numRows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(header.relationName());
+        out.writeLong(numRows);
+        out.writeInt(header.numAttributes());
+        for (int i = 0; i < header.numAttributes(); i++) {
+            Attribute attribute = header.attribute(i);
+            valueWidth(attribute);
+            out.writeUTF(attribute.name());
+            out.writeInt(attribute.numValues());
+            for (int v = 0; v < attribute.numValues(); v++) {
+                out.writeUTF(attribute.value(v));
+            }
+        }
+        out.writeInt(header.classIndex());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Posición de la primera columna para una cabecera de headerLength bytes.
+     */
+    static long dataStart(int headerLength) {
+        return align(3 * Integer.BYTES + headerLength);
+    }
+
+    static long columnBytes(long numRows, int width) {
+        return align(numRows * width);
+    }
+
+    static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+}
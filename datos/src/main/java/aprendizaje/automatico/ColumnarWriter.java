@@ -0,0 +1,131 @@
+package aprendizaje.automatico;
+
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Escribe un fichero en {@link ColumnarFormat} fila a fila con memoria
+ * constante: cada columna acumula un bloque de filas en su buffer y lo vuelca
+ * en su zona del fichero cuando se llena. El número de filas se fija al crear
+ * el fichero, porque determina dónde empieza cada columna.
+ */
+public class ColumnarWriter implements Closeable {
+
+    /** Filas que acumula cada columna antes de escribirlas. */
+    static final int BLOCK_ROWS = 16384;
+
+    private final FileChannel channel;
+    private final long numRows;
+    private final int[] width;
+    private final long[] position;   // Siguiente posición de escritura de cada columna
+    private final ByteBuffer[] buffers;
+    private final long fileSize;
+    private long written;
+
+    public ColumnarWriter(File file, Instances header, long numRows) throws IOException {
+        this.numRows = numRows;
+        int numAttributes = header.numAttributes();
+        width = new int[numAttributes];
+        position = new long[numAttributes];
+        buffers = new ByteBuffer[numAttributes];
+
+        byte[] encoded = ColumnarFormat.encodeHeader(header, numRows);
+        long offset = ColumnarFormat.dataStart(encoded.length);
+        for (int i = 0; i < numAttributes; i++) {
+            width[i] = ColumnarFormat.valueWidth(header.attribute(i));
+            position[i] = offset;
+            offset += ColumnarFormat.columnBytes(numRows, width[i]);
+            buffers[i] = ByteBuffer.allocate(BLOCK_ROWS * width[i]).order(ColumnarFormat.ORDER);
+        }
+        fileSize = offset;
+
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer start = ByteBuffer.allocate(3 * Integer.BYTES + encoded.length).order(ColumnarFormat.ORDER);
+        start.putInt(ColumnarFormat.MAGIC).putInt(ColumnarFormat.VERSION).putInt(encoded.length).put(encoded);
+        start.flip();
+        writeFully(start, 0);
+    }
+
+    /**
+     * Añade una fila con los índices de valor de cada atributo (NaN si falta).
+     */
+    public void write(double[] values) throws IOException {
+        if (written == numRows) {
+            throw new IOException("Se han escrito más filas de las " + numRows + " declaradas");
+        }
+        for (int i = 0; i < width.length; i++) {
+            put(i, Utils.isMissingValue(values[i]) ? ColumnarFormat.MISSING : (int) values[i]);
+        }
+        written++;
+    }
+
+    public void write(Instance instance) throws IOException {
+        write(instance.toDoubleArray());
+    }
+
+    /**
+     * Añade la fila row de una vista por columnas con la misma cabecera.
+     */
+    public void write(NominalColumns data, int row) throws IOException {
+        if (written == numRows) {
+            throw new IOException("Se han escrito más filas de las " + numRows + " declaradas");
+        }
+        for (int i = 0; i < width.length; i++) {
+            put(i, data.value(i, row));
+        }
+        written++;
+    }
+
+    private void put(int i, int code) throws IOException {
+        if (width[i] == 1) {
+            buffers[i].put((byte) code);
+        } else {
+            buffers[i].putShort((short) code);
+        }
+        if (!buffers[i].hasRemaining()) {
+            flush(i);
+        }
+    }
+
+    private void flush(int i) throws IOException {
+        ByteBuffer buffer = buffers[i];
+        buffer.flip();
+        int length = buffer.remaining();
+        writeFully(buffer, position[i]);
+        position[i] += length;
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer, long at) throws IOException {
+        while (buffer.hasRemaining()) {
+            at += channel.write(buffer, at);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            for (int i = 0; i < buffers.length; i++) {
+                flush(i);
+            }
+            if (written != numRows) {
+                throw new IOException("Se declararon " + numRows + " filas pero se escribieron " + written);
+            }
+            // Deja el fichero con su tamaño completo aunque la última columna acabe en relleno
+            if (channel.size() < fileSize) {
+                writeFully(ByteBuffer.allocate((int) (fileSize - channel.size())), channel.size());
+            }
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package aprendizaje.automatico;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Pool de hilos según la opción -num-slots de los clasificadores: 1 es
+ * secuencial (sin pool), 0 o menos usa todos los núcleos con el pool común de
+ * la JVM y cualquier otro valor, un pool propio con ese número de hilos.
+ */
+public final class ExecutionSlots {
+
+    private ExecutionSlots() {
+    }
+
+    /**
+     * Pool para numSlots, reutilizando current si sirve. Si no, current se
+     * cierra (salvo que sea el pool común): las tareas que ya tenga terminan,
+     * pero no acepta más.
+     *
+     * @param current pool devuelto en la llamada anterior, o null
+     * @return null si numSlots es 1
+     */
+    public static ForkJoinPool pool(ForkJoinPool current, int numSlots) {
+        ForkJoinPool pool;
+        if (numSlots == 1) {
+            pool = null;
+        } else if (numSlots < 1) {
+            pool = ForkJoinPool.commonPool();
+        } else if (current != null && current != ForkJoinPool.commonPool() && current.getParallelism() == numSlots) {
+            pool = current;
+        } else {
+            pool = new ForkJoinPool(numSlots);
+        }
+        if (current != null && current != pool && current != ForkJoinPool.commonPool()) {
+            current.shutdown();
+        }
+        return pool;
+    }
+}
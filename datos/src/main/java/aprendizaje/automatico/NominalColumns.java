@@ -0,0 +1,32 @@
+package aprendizaje.automatico;
+
+import weka.core.Instances;
+
+/**
+ * Vista por columnas de un conjunto de datos nominal, para entrenar sin
+ * construir {@code Instances} ni una {@code Instance} por fila (p. ej. desde un
+ * fichero binario mapeado en memoria).
+ */
+public interface NominalColumns {
+
+    /**
+     * Cabecera del conjunto (sin filas), con el índice de clase fijado.
+     */
+    Instances header();
+
+    int numRows();
+
+    int numAttributes();
+
+    int classIndex();
+
+    /**
+     * Número de valores del atributo, o 0 si no es nominal.
+     */
+    int numValues(int attribute);
+
+    /**
+     * Índice del valor del atributo en la fila, o -1 si falta.
+     */
+    int value(int attribute, int row);
+}
@@ -0,0 +1,444 @@
+package aprendizaje.automatico;
+
+import weka.core.Attribute;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Cargador de ARFF nominales en paralelo.
+ *
+ * La cabecera se interpreta con Weka; la sección @data se divide en bloques de
+ * unas {@link #CHUNK_BYTES} que empiezan y acaban en un salto de línea, y cada
+ * bloque se mapea con {@code FileChannel.map} y se analiza directamente sobre
+ * los bytes mapeados, sin Reader ni String por celda. Hay dos pasadas
+ * paralelas: la primera cuenta las filas de cada bloque, con lo que se sabe en
+ * qué fila empieza cada uno, y la segunda escribe los valores en un único
+ * {@link ColumnStore} compartido (cada bloque escribe solo sus filas).
+ *
+ * Cada valor se comprueba contra los de su atributo en la cabecera; un valor
+ * desconocido o un número de campos distinto del de atributos produce una
+ * IOException con el número de fila. Solo admite atributos nominales e
+ * instancias densas sin peso; la clase es el último atributo.
+ */
+public class ParallelArffLoader {
+
+    /** Tamaño aproximado de cada bloque de @data. */
+    static final int CHUNK_BYTES = 16 << 20;
+
+    private ParallelArffLoader() {
+    }
+
+    /**
+     * Uso: {@code ParallelArffLoader <fichero.arff> [-num-slots <n>] [-o <salida.bin>]}.
+     * Con -o escribe además el conjunto en {@link ColumnarFormat}.
+     */
+    public static void main(String[] args) {
+        try {
+            String numSlots = Utils.getOption("num-slots", args);
+            String output = Utils.getOption('o', args);
+            // getOption deja vacías las posiciones que consume
+            String input = "";
+            for (String arg : args) {
+                if (arg.length() != 0) {
+                    input = arg;
+                    break;
+                }
+            }
+            if (input.length() == 0) {
+                System.err.println("Uso: ParallelArffLoader <fichero.arff> [-num-slots <n>] [-o <salida.bin>]");
+                System.exit(1);
+            }
+            long start = System.nanoTime();
+            ColumnStore data = load(new File(input), numSlots.length() != 0 ? Integer.parseInt(numSlots) : 0);
+            System.out.println(data.numRows() + " filas cargadas en "
+                    + Utils.doubleToString((System.nanoTime() - start) / 1e9, 2) + " s");
+            if (output.length() != 0) {
+                try (ColumnarWriter writer = new ColumnarWriter(new File(output), data.header(), data.numRows())) {
+                    for (int r = 0; r < data.numRows(); r++) {
+                        writer.write(data, r);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @param numSlots número de hilos (0 = todos los núcleos)
+     */
+    public static ColumnStore load(File file, int numSlots) throws IOException {
+        return load(file, numSlots, CHUNK_BYTES);
+    }
+
+    /**
+     * @param chunkBytes tamaño aproximado de cada bloque de @data
+     */
+    static ColumnStore load(File file, int numSlots, int chunkBytes) throws IOException {
+        int parallelism = numSlots < 1 ? Runtime.getRuntime().availableProcessors() : numSlots;
+        long dataStart = findData(file);
+        Instances header;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            // EOFException si el fichero ha encogido desde findData
+            byte[] bytes = new byte[(int) dataStart];
+            in.readFully(bytes);
+            header = new Instances(new StringReader(new String(bytes, StandardCharsets.UTF_8)));
+        }
+        header.setClassIndex(header.numAttributes() - 1);
+
+        int numAttributes = header.numAttributes();
+        int[] width = new int[numAttributes];
+        ValueTable[] tables = new ValueTable[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            width[i] = ColumnarFormat.valueWidth(header.attribute(i));
+            tables[i] = new ValueTable(header.attribute(i));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel, dataStart, chunkBytes);
+            int numChunks = bounds.length - 1;
+            MappedByteBuffer[] chunks = new MappedByteBuffer[numChunks];
+            for (int c = 0; c < numChunks; c++) {
+                chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, bounds[c], bounds[c + 1] - bounds[c]);
+            }
+
+            // 1ª pasada: filas de cada bloque -> fila en la que empieza cada uno
+            int[] rowsPerChunk = new int[numChunks];
+            pool.submit(() -> IntStream.range(0, numChunks).parallel()
+                    .forEach(c -> rowsPerChunk[c] = countRows(chunks[c]))).join();
+            long numRows = 0;
+            for (int rows : rowsPerChunk) {
+                numRows += rows;
+            }
+            if (numRows > Integer.MAX_VALUE) {
+                // Las filas se indexan con int, como en Instances
+                throw new IOException(file + " tiene " + numRows + " filas; el máximo es " + Integer.MAX_VALUE);
+            }
+            int[] firstRow = new int[numChunks];
+            for (int c = 1; c < numChunks; c++) {
+                firstRow[c] = firstRow[c - 1] + rowsPerChunk[c - 1];
+            }
+
+            // Columnas en segmentos de 1 GB, como las de un fichero mapeado
+            ByteBuffer[][] columns = new ByteBuffer[numAttributes][];
+            for (int i = 0; i < numAttributes; i++) {
+                long length = numRows * width[i];
+                columns[i] = new ByteBuffer[ColumnStore.numSegments(length)];
+                for (int s = 0; s < columns[i].length; s++) {
+                    columns[i][s] = ByteBuffer.allocate(ColumnStore.segmentLength(length, s)).order(ColumnarFormat.ORDER);
+                }
+            }
+            ColumnStore data = new ColumnStore(header, (int) numRows, width, columns);
+
+            // 2ª pasada: cada bloque escribe sus filas en las columnas compartidas
+            IOException[] errors = new IOException[numChunks];
+            pool.submit(() -> IntStream.range(0, numChunks).parallel().forEach(c -> {
+                try {
+                    new ChunkParser(chunks[c], tables, data, firstRow[c]).parse();
+                } catch (IOException e) {
+                    errors[c] = e;
+                }
+            })).join();
+            for (IOException error : errors) {
+                if (error != null) {
+                    throw error;
+                }
+            }
+            return data;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Posición del primer byte tras la línea @data.
+     */
+    private static long findData(File file) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long position = 0;
+            int b;
+            while ((b = in.read()) >= 0) {
+                position++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                String text = new String(line.toByteArray(), StandardCharsets.UTF_8).trim();
+                line.reset();
+                if (text.regionMatches(true, 0, "@data", 0, 5)) {
+                    return position;
+                }
+            }
+            throw new IOException(file + " no tiene sección @data");
+        }
+    }
+
+    /**
+     * Límites de los bloques: cada uno acaba justo después de un salto de línea
+     * (o al final del fichero).
+     */
+    private static long[] chunkBounds(FileChannel channel, long dataStart, int chunkBytes) throws IOException {
+        long size = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(dataStart);
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long position = dataStart;
+        while (size - position > chunkBytes) {
+            long next = position + chunkBytes;
+            // Avanzar hasta después del siguiente '\n'
+            boolean found = false;
+            while (!found && next < size) {
+                buffer.clear();
+                int n = channel.read(buffer, next);
+                for (int k = 0; k < n; k++) {
+                    if (buffer.get(k) == '\n') {
+                        next += k + 1;
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    next += n;
+                }
+            }
+            if (next >= size) {
+                break;
+            }
+            bounds.add(next);
+            position = next;
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int k = 0; k < result.length; k++) {
+            result[k] = bounds.get(k);
+        }
+        return result;
+    }
+
+    /**
+     * Líneas de datos del bloque: las que no están vacías ni son comentarios.
+     */
+    private static int countRows(ByteBuffer chunk) {
+        int rows = 0;
+        int limit = chunk.limit();
+        int p = 0;
+        while (p < limit) {
+            int end = p;
+            while (end < limit && chunk.get(end) != '\n') {
+                end++;
+            }
+            if (isDataLine(chunk, p, end)) {
+                rows++;
+            }
+            p = end + 1;
+        }
+        return rows;
+    }
+
+    private static boolean isDataLine(ByteBuffer chunk, int from, int to) {
+        while (from < to && isSpace(chunk.get(from))) {
+            from++;
+        }
+        return from < to && chunk.get(from) != '%';
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    /**
+     * Análisis de las líneas de un bloque, escribiendo a partir de firstRow.
+     */
+    private static final class ChunkParser {
+        private final ByteBuffer chunk;
+        private final ValueTable[] tables;
+        private final ColumnStore data;
+        private final int firstRow;
+
+        ChunkParser(ByteBuffer chunk, ValueTable[] tables, ColumnStore data, int firstRow) {
+            this.chunk = chunk;
+            this.tables = tables;
+            this.data = data;
+            this.firstRow = firstRow;
+        }
+
+        void parse() throws IOException {
+            int limit = chunk.limit();
+            int row = firstRow;
+            int p = 0;
+            while (p < limit) {
+                int end = p;
+                while (end < limit && chunk.get(end) != '\n') {
+                    end++;
+                }
+                if (isDataLine(chunk, p, end)) {
+                    parseLine(p, end, row++);
+                }
+                p = end + 1;
+            }
+        }
+
+        private void parseLine(int from, int to, int row) throws IOException {
+            int p = from;
+            for (int i = 0; i < tables.length; i++) {
+                while (p < to && isSpace(chunk.get(p))) {
+                    p++;
+                }
+                if (p >= to) {
+                    throw error(row, "faltan valores (se esperaban " + tables.length + ")");
+                }
+                byte first = chunk.get(p);
+                if (first == '{') {
+                    throw error(row, "las instancias dispersas no están soportadas");
+                }
+                int code;
+                if (first == '\'' || first == '"') {
+                    // Valor entre comillas: se decodifica como lo hace Weka y se busca por texto
+                    int close = p + 1;
+                    while (close < to && chunk.get(close) != first) {
+                        close += chunk.get(close) == '\\' ? 2 : 1;
+                    }
+                    if (close >= to) {
+                        throw error(row, "comillas sin cerrar");
+                    }
+                    String value = Utils.unbackQuoteChars(text(p + 1, close));
+                    code = tables[i].lookup(value);
+                    if (code < 0) {
+                        throw error(row, "valor '" + value + "' no declarado en " + tables[i].name);
+                    }
+                    p = close + 1;
+                } else {
+                    int end = p;
+                    while (end < to && chunk.get(end) != ',') {
+                        end++;
+                    }
+                    int valueEnd = end;
+                    while (valueEnd > p && isSpace(chunk.get(valueEnd - 1))) {
+                        valueEnd--;
+                    }
+                    if (valueEnd - p == 1 && first == '?') {
+                        code = ColumnarFormat.MISSING;
+                    } else {
+                        code = tables[i].lookup(chunk, p, valueEnd);
+                        if (code < 0) {
+                            throw error(row, "valor '" + text(p, valueEnd) + "' no declarado en " + tables[i].name);
+                        }
+                    }
+                    p = end;
+                }
+                data.set(i, row, code);
+
+                while (p < to && isSpace(chunk.get(p))) {
+                    p++;
+                }
+                if (i < tables.length - 1) {
+                    if (p >= to || chunk.get(p) != ',') {
+                        throw error(row, "faltan valores (se esperaban " + tables.length + ")");
+                    }
+                    p++;
+                } else if (p < to) {
+                    throw error(row, "sobran valores (se esperaban " + tables.length + ")");
+                }
+            }
+        }
+
+        private String text(int from, int to) {
+            byte[] bytes = new byte[to - from];
+            for (int k = 0; k < bytes.length; k++) {
+                bytes[k] = chunk.get(from + k);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private IOException error(int row, String message) {
+            return new IOException("Fila " + (row + 1) + " de @data: " + message);
+        }
+    }
+
+    /**
+     * Tabla hash de direccionamiento abierto con los valores de un atributo en
+     * UTF-8, para buscarlos directamente sobre los bytes del buffer.
+     */
+    private static final class ValueTable {
+        final String name;
+        private final byte[][] values;
+        private final int[] slots; // Índice del valor + 1, o 0 si la posición está libre
+        private final int mask;
+
+        ValueTable(Attribute attribute) {
+            name = attribute.name();
+            values = new byte[attribute.numValues()][];
+            int size = Integer.highestOneBit(Math.max(1, attribute.numValues()) * 2) << 1;
+            slots = new int[size];
+            mask = size - 1;
+            for (int v = 0; v < values.length; v++) {
+                values[v] = attribute.value(v).getBytes(StandardCharsets.UTF_8);
+                int slot = hash(values[v]) & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = v + 1;
+            }
+        }
+
+        /**
+         * Índice del valor formado por los bytes [from, to) del buffer, o -1.
+         */
+        int lookup(ByteBuffer buffer, int from, int to) {
+            int h = 0x811C9DC5;
+            for (int k = from; k < to; k++) {
+                h = (h ^ (buffer.get(k) & 0xFF)) * 0x01000193;
+            }
+            for (int slot = h & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+                byte[] value = values[slots[slot] - 1];
+                if (value.length == to - from && matches(value, buffer, from)) {
+                    return slots[slot] - 1;
+                }
+            }
+            return -1;
+        }
+
+        int lookup(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            return lookup(ByteBuffer.wrap(bytes), 0, bytes.length);
+        }
+
+        private static boolean matches(byte[] value, ByteBuffer buffer, int from) {
+            for (int k = 0; k < value.length; k++) {
+                if (value[k] != buffer.get(from + k)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int hash(byte[] bytes) {
+            int h = 0x811C9DC5;
+            for (byte b : bytes) {
+                h = (h ^ (b & 0xFF)) * 0x01000193;
+            }
+            return h;
+        }
+    }
+}
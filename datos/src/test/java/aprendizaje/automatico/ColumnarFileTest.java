@@ -0,0 +1,74 @@
+package aprendizaje.automatico;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import weka.core.Instances;
+import weka.core.converters.ConverterUtils.DataSource;
+
+import java.io.File;
+
+/**
+ * Un ARFF convertido a {@link ColumnarFormat} y abierto con
+ * {@link ColumnarFile} tiene las mismas filas que el original.
+ */
+public class ColumnarFileTest extends TestCase {
+
+    private static final String[] FILES = {
+            "../ev/data/weather.nominal.arff",
+            "../ev/data/weather.nominal2.arff",
+            "../ev/data/coches.arff"
+    };
+
+    public ColumnarFileTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(ColumnarFileTest.class);
+    }
+
+    public void testRoundTrip() throws Exception {
+        for (String path : FILES) {
+            Instances expected = new DataSource(path).getDataSet();
+            expected.setClassIndex(expected.numAttributes() - 1);
+            File binary = File.createTempFile("columnar", ".bin");
+            try {
+                assertEquals(expected.numInstances(), ArffToColumnar.convert(new File(path), binary));
+                ColumnarFile file = ColumnarFile.open(binary);
+                assertEquals(path, expected.numInstances(), file.numRows());
+                assertEquals(path, expected.classIndex(), file.classIndex());
+                assertNull(path, expected.equalHeadersMsg(file.header()));
+                for (int r = 0; r < file.numRows(); r++) {
+                    for (int i = 0; i < file.numAttributes(); i++) {
+                        int value = expected.instance(r).isMissing(i) ? ColumnarFormat.MISSING
+                                : (int) expected.instance(r).value(i);
+                        assertEquals(path + " fila " + r, value, file.value(i, r));
+                    }
+                }
+            } finally {
+                binary.delete();
+            }
+        }
+    }
+
+    /**
+     * Los segmentos cubren la columna entera sin pasar de 1 GB.
+     */
+    public void testSegments() {
+        long segment = 1L << ColumnStore.SEGMENT_SHIFT;
+        assertEquals(0, ColumnStore.numSegments(0));
+        assertEquals(1, ColumnStore.numSegments(segment));
+        assertEquals(2, ColumnStore.numSegments(segment + 1));
+        // Columna de short con Integer.MAX_VALUE filas
+        long length = 2L * Integer.MAX_VALUE;
+        int numSegments = ColumnStore.numSegments(length);
+        assertEquals(4, numSegments);
+        long total = 0;
+        for (int s = 0; s < numSegments; s++) {
+            assertTrue(ColumnStore.segmentLength(length, s) <= segment);
+            total += ColumnStore.segmentLength(length, s);
+        }
+        assertEquals(length, total);
+    }
+}
@@ -0,0 +1,44 @@
+package aprendizaje.automatico;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * {@link ExecutionSlots} reutiliza el pool mientras no cambia -num-slots y
+ * cierra el anterior en cuanto cambia, también al pasar a 1 o a 0.
+ */
+public class ExecutionSlotsTest extends TestCase {
+
+    public ExecutionSlotsTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(ExecutionSlotsTest.class);
+    }
+
+    public void testPool() {
+        assertNull(ExecutionSlots.pool(null, 1));
+        assertSame(ForkJoinPool.commonPool(), ExecutionSlots.pool(null, 0));
+
+        ForkJoinPool three = ExecutionSlots.pool(null, 3);
+        assertEquals(3, three.getParallelism());
+        assertSame(three, ExecutionSlots.pool(three, 3));
+
+        ForkJoinPool two = ExecutionSlots.pool(three, 2);
+        assertEquals(2, two.getParallelism());
+        assertTrue(three.isShutdown());
+
+        assertNull(ExecutionSlots.pool(two, 1));
+        assertTrue(two.isShutdown());
+
+        ForkJoinPool four = ExecutionSlots.pool(null, 4);
+        assertSame(ForkJoinPool.commonPool(), ExecutionSlots.pool(four, 0));
+        assertTrue(four.isShutdown());
+        assertFalse(ForkJoinPool.commonPool().isShutdown());
+        assertNotNull(ExecutionSlots.pool(ForkJoinPool.commonPool(), 2));
+    }
+}
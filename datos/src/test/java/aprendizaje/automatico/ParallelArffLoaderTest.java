@@ -0,0 +1,164 @@
+package aprendizaje.automatico;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import weka.core.Instances;
+import weka.core.converters.ConverterUtils.DataSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * {@link ParallelArffLoader} lee los mismos valores que el cargador de Weka,
+ * con cualquier número de hilos y de bloques, y señala con su número de fila
+ * los valores no declarados y las filas con otro número de campos.
+ */
+public class ParallelArffLoaderTest extends TestCase {
+
+    private static final String[] FILES = {
+            "../ev/data/weather.nominal.arff",
+            "../ev/data/weather.nominal2.arff",
+            "../ev/data/coches.arff"
+    };
+
+    public ParallelArffLoaderTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(ParallelArffLoaderTest.class);
+    }
+
+    private static void assertSameValues(String message, Instances expected, ColumnStore data) {
+        assertEquals(message, expected.numInstances(), data.numRows());
+        assertEquals(message, expected.numAttributes() - 1, data.classIndex());
+        for (int r = 0; r < data.numRows(); r++) {
+            for (int i = 0; i < data.numAttributes(); i++) {
+                int value = expected.instance(r).isMissing(i) ? ColumnarFormat.MISSING
+                        : (int) expected.instance(r).value(i);
+                assertEquals(message + " fila " + r, value, data.value(i, r));
+            }
+        }
+    }
+
+    public void testSameValuesAsWeka() throws Exception {
+        for (String path : FILES) {
+            Instances expected = new DataSource(path).getDataSet();
+            for (int numSlots : new int[] {1, 3}) {
+                assertSameValues(path, expected, ParallelArffLoader.load(new File(path), numSlots));
+            }
+        }
+    }
+
+    /**
+     * ARFF con numRows filas de cuatro atributos nominales, con valores entre
+     * comillas, ausentes, comentarios, líneas en blanco y algún fin de línea
+     * \r\n, para que los límites de los bloques caigan en todos esos sitios.
+     */
+    private static File randomArff(int numRows, long seed) throws IOException {
+        Random random = new Random(seed);
+        File file = File.createTempFile("paralelo", ".arff");
+        try (PrintWriter out = new PrintWriter(file, StandardCharsets.UTF_8.name())) {
+            out.println("@relation aleatorio");
+            out.println("@attribute color {rojo, verde, azul}");
+            out.println("@attribute forma {'muy grande', pequeño, '?'}");
+            out.println("@attribute textura {a, b}");
+            out.println("@attribute clase {si, no}");
+            out.println("@data");
+            String[][] values = {
+                    {"rojo", "verde", "azul", "?"},
+                    {"'muy grande'", "pequeño", "'?'", "?"},
+                    {"a", "b", "?", " b "},
+                    {"si", "no", "'no'", "si"}
+            };
+            for (int r = 0; r < numRows; r++) {
+                if (random.nextInt(10) == 0) {
+                    out.print(random.nextBoolean() ? "% comentario\n" : "\n");
+                }
+                StringBuilder line = new StringBuilder();
+                for (int i = 0; i < values.length; i++) {
+                    line.append(i == 0 ? "" : ",").append(values[i][random.nextInt(values[i].length)]);
+                }
+                out.print(line);
+                out.print(random.nextInt(5) == 0 ? "\r\n" : "\n");
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Con bloques de unos pocos bytes cada uno tiene una fila o ninguna, así
+     * que se prueban la búsqueda del salto de línea, las filas de cada bloque
+     * y la fila en la que empieza cada uno.
+     */
+    public void testTinyChunks() throws Exception {
+        for (String path : FILES) {
+            Instances expected = new DataSource(path).getDataSet();
+            for (int chunkBytes : new int[] {1, 2, 7, 64}) {
+                assertSameValues(path + ", bloques de " + chunkBytes, expected,
+                        ParallelArffLoader.load(new File(path), 3, chunkBytes));
+            }
+        }
+        File file = randomArff(2000, 1);
+        try {
+            Instances expected = new DataSource(file.getPath()).getDataSet();
+            for (int chunkBytes : new int[] {1, 3, 16, 100, 4096}) {
+                for (int numSlots : new int[] {1, 3}) {
+                    assertSameValues("aleatorio, bloques de " + chunkBytes, expected,
+                            ParallelArffLoader.load(file, numSlots, chunkBytes));
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Carga un ARFF con la fila badRow (contando desde 1) cambiada por bad y devuelve
+     * el mensaje del error.
+     */
+    private static String loadError(String bad, int badRow, int chunkBytes) throws Exception {
+        File file = File.createTempFile("erroneo", ".arff");
+        try {
+            try (PrintWriter out = new PrintWriter(file, StandardCharsets.UTF_8.name())) {
+                out.println("@relation erroneo");
+                out.println("@attribute color {rojo, verde}");
+                out.println("@attribute clase {si, no}");
+                out.println("@data");
+                for (int r = 1; r <= 50; r++) {
+                    if (r % 7 == 0) {
+                        out.println("% comentario");
+                    }
+                    out.println(r == badRow ? bad : "rojo,si");
+                }
+            }
+            ParallelArffLoader.load(file, 3, chunkBytes);
+            fail("Se ha cargado la fila " + badRow + ": " + bad);
+            return null;
+        } catch (IOException e) {
+            return e.getMessage();
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testErrorsReportRow() throws Exception {
+        for (int chunkBytes : new int[] {5, 1 << 20}) {
+            String message = loadError("azul,si", 37, chunkBytes);
+            assertTrue(message, message.startsWith("Fila 37 de @data"));
+            assertTrue(message, message.contains("'azul'"));
+
+            message = loadError("rojo", 12, chunkBytes);
+            assertTrue(message, message.startsWith("Fila 12 de @data"));
+            assertTrue(message, message.contains("faltan valores"));
+
+            message = loadError("rojo,si,no", 45, chunkBytes);
+            assertTrue(message, message.startsWith("Fila 45 de @data"));
+            assertTrue(message, message.contains("sobran valores"));
+        }
+    }
+}
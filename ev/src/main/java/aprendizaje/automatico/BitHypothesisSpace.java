@@ -0,0 +1,210 @@
+package aprendizaje.automatico;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Motor de hipótesis empaquetadas en bits. Cada atributo ocupa un campo de
+ * numValues() + 1 bits dentro de un {@code long}:
+ * <ul>
+ *   <li>valor concreto j: solo el bit j,</li>
+ *   <li>'?': todos los bits del campo (incluido el bit reservado numValues()),</li>
+ *   <li>∅: ningún bit.</li>
+ * </ul>
+ * Así, "h1 cubre h2" equivale a que los bits de h2 sean un subconjunto de los de
+ * h1, y {@link #covers} se reduce a un AND por palabra. El bit reservado hace que
+ * '?' sea distinto de cualquier valor concreto aunque el dominio tenga un solo valor.
+ * Un valor ausente en una instancia se codifica como '?', igual que
+ * {@code Instance.stringValue} en el motor de cadenas.
+ */
+class BitHypothesisSpace implements HypothesisSpace<long[]> {
+
+    private final Instances m_data;
+    private final int numAttributes;
+    private final int numWords;
+    private final int[] word;     // Palabra que contiene el campo de cada atributo
+    private final int[] shift;    // Posición del primer bit del campo
+    private final long[] anyMask; // Todos los bits del campo ('?'), ya desplazados
+    private final long[] mostGeneral;
+
+    BitHypothesisSpace(Instances data) throws Exception {
+        m_data = data;
+        numAttributes = data.classIndex();
+        word = new int[numAttributes];
+        shift = new int[numAttributes];
+        anyMask = new long[numAttributes];
+
+        int w = 0;
+        int used = 0;
+        for (int i = 0; i < numAttributes; i++) {
+            Attribute attr = data.attribute(i);
+            if (!attr.isNominal()) {
+                throw new Exception("El motor 'bitset' solo admite atributos nominales: " + attr.name());
+            }
+            int width = attr.numValues() + 1;
+            if (width > Long.SIZE) {
+                throw new Exception("El atributo " + attr.name() + " tiene demasiados valores para el motor 'bitset'.");
+            }
+            // Un campo nunca se reparte entre dos palabras
+            if (used + width > Long.SIZE) {
+                w++;
+                used = 0;
+            }
+            word[i] = w;
+            shift[i] = used;
+            anyMask[i] = (width == Long.SIZE ? -1L : (1L << width) - 1) << used;
+            used += width;
+        }
+        numWords = numAttributes == 0 ? 0 : w + 1;
+
+        mostGeneral = new long[numWords];
+        for (int i = 0; i < numAttributes; i++) {
+            mostGeneral[word[i]] |= anyMask[i];
+        }
+    }
+
+    private long field(long[] h, int i) {
+        return h[word[i]] & anyMask[i];
+    }
+
+    private long valueBit(int i, int j) {
+        return 1L << (shift[i] + j);
+    }
+
+    @Override
+    public int numAttributes() {
+        return numAttributes;
+    }
+
+    @Override
+    public int numValues(int i) {
+        return m_data.attribute(i).numValues();
+    }
+
+    @Override
+    public long[] mostGeneral() {
+        return mostGeneral.clone();
+    }
+
+    @Override
+    public long[] mostSpecific() {
+        return new long[numWords];
+    }
+
+    @Override
+    public boolean isMostSpecific(long[] h) {
+        return field(h, 0) == 0;
+    }
+
+    @Override
+    public long[] fromInstance(Instance instance) {
+        long[] h = new long[numWords];
+        for (int i = 0; i < numAttributes; i++) {
+            h[word[i]] |= instance.isMissing(i) ? anyMask[i] : valueBit(i, (int) instance.value(i));
+        }
+        return h;
+    }
+
+    @Override
+    public long[] fromRow(NominalColumns data, int row) {
+        long[] h = new long[numWords];
+        for (int i = 0; i < numAttributes; i++) {
+            int value = data.value(i, row);
+            h[word[i]] |= value < 0 ? anyMask[i] : valueBit(i, value);
+        }
+        return h;
+    }
+
+    @Override
+    public long[] copy(long[] h) {
+        return h.clone();
+    }
+
+    @Override
+    public boolean covers(long[] h1, long[] h2) {
+        // El placeholder no cubre nada real.
+        if (isMostSpecific(h1)) {
+            return false;
+        }
+        for (int w = 0; w < numWords; w++) {
+            if ((h2[w] & ~h1[w]) != 0) {
+                return false;
+            }
+        }
+        // Como en el motor de cadenas, un valor concreto no cubre ∅: solo [?, ..., ?] cubre el placeholder.
+        return !isMostSpecific(h2) || Arrays.equals(h1, mostGeneral);
+    }
+
+    @Override
+    public long[] generalize(long[] h_s, long[] positiveExample) {
+        long[] h_new = h_s.clone();
+        for (int i = 0; i < numAttributes; i++) {
+            long f = field(h_s, i);
+            if (f != anyMask[i] && f != field(positiveExample, i)) {
+                h_new[word[i]] |= anyMask[i];
+            }
+        }
+        return h_new;
+    }
+
+    @Override
+    public List<long[]> minimalSpecializations(long[] h_g, long[] negativeExample) {
+        List<long[]> result = new ArrayList<>();
+        for (int i = 0; i < numAttributes; i++) {
+            if (field(h_g, i) != anyMask[i]) {
+                continue;
+            }
+            long negative = field(negativeExample, i);
+            int numValues = m_data.attribute(i).numValues();
+            for (int j = 0; j < numValues; j++) {
+                long bit = valueBit(i, j);
+                if (bit != negative) {
+                    long[] h_new = h_g.clone();
+                    h_new[word[i]] = (h_new[word[i]] & ~anyMask[i]) | bit;
+                    result.add(h_new);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean sameHypothesis(long[] h1, long[] h2) {
+        return Arrays.equals(h1, h2);
+    }
+
+    @Override
+    public int hashHypothesis(long[] h) {
+        return Arrays.hashCode(h);
+    }
+
+    @Override
+    public int valueCode(long[] h, int i) {
+        long f = field(h, i);
+        if (f == anyMask[i]) {
+            return ANY;
+        }
+        return f == 0 ? m_data.attribute(i).numValues() : Long.numberOfTrailingZeros(f) - shift[i];
+    }
+
+    @Override
+    public String format(long[] h) {
+        String[] values = new String[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            int code = valueCode(h, i);
+            if (code == ANY) {
+                values[i] = "?";
+            } else if (code == m_data.attribute(i).numValues()) {
+                values[i] = StringHypothesisSpace.MOST_SPECIFIC_PLACEHOLDER;
+            } else {
+                values[i] = m_data.attribute(i).value(code);
+            }
+        }
+        return Arrays.toString(values);
+    }
+}
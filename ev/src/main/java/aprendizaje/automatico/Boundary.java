@@ -0,0 +1,395 @@
+package aprendizaje.automatico;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Frontera (S o G) del espacio de versiones.
+ *
+ * Mantiene el orden de inserción de las hipótesis, un conjunto hash para
+ * detectar duplicados en O(1) y, durante la poda de redundancias, un índice de
+ * generalidad: para cada par (atributo, valor concreto) la lista de hipótesis
+ * que lo contienen. Como "h2 cubre h1" exige que los valores concretos de h2
+ * sean un subconjunto de los de h1, el índice descarta sin compararlas las
+ * hipótesis que no pueden dominar a otra.
+ *
+ * @param <H> tipo con el que se representa una hipótesis
+ */
+class Boundary<H> implements Iterable<H>, Serializable {
+
+    /** Número de hipótesis que comprueba cada tarea en la poda paralela. */
+    static final int PARALLEL_CHUNK = 256;
+
+    private final HypothesisSpace<H> space;
+    private final List<H> members = new ArrayList<>();
+    private final Set<Key<H>> keys = new HashSet<>();
+
+    Boundary(HypothesisSpace<H> space) {
+        this.space = space;
+    }
+
+    /**
+     * Envoltorio que delega igualdad y hash en el espacio de hipótesis, para usar
+     * hipótesis como claves de tablas hash.
+     */
+    static final class Key<H> implements Serializable {
+        private final HypothesisSpace<H> space;
+        private final H h;
+        private final int hash;
+
+        Key(HypothesisSpace<H> space, H h) {
+            this.space = space;
+            this.h = h;
+            this.hash = space.hashHypothesis(h);
+        }
+
+        H hypothesis() {
+            return h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean equals(Object o) {
+            return o instanceof Key && space.sameHypothesis(h, ((Key<H>) o).h);
+        }
+    }
+
+    int size() {
+        return members.size();
+    }
+
+    boolean isEmpty() {
+        return members.isEmpty();
+    }
+
+    H get(int index) {
+        return members.get(index);
+    }
+
+    boolean contains(H h) {
+        return keys.contains(new Key<>(space, h));
+    }
+
+    /**
+     * Añade h al final si no hay ya una hipótesis igual.
+     *
+     * @return false si h era un duplicado
+     */
+    boolean add(H h) {
+        if (!keys.add(new Key<>(space, h))) {
+            return false;
+        }
+        members.add(h);
+        return true;
+    }
+
+    void addAll(Iterable<H> hypotheses) {
+        for (H h : hypotheses) {
+            add(h);
+        }
+    }
+
+    void removeIf(Predicate<H> filter) {
+        Iterator<H> iter = members.iterator();
+        while (iter.hasNext()) {
+            H h = iter.next();
+            if (filter.test(h)) {
+                iter.remove();
+                keys.remove(new Key<>(space, h));
+            }
+        }
+    }
+
+    /**
+     * Elimina las hipótesis indicadas (comparando por identidad, como {@code List.removeAll} con arrays).
+     */
+    void removeAll(Collection<H> hypotheses) {
+        if (hypotheses.isEmpty()) {
+            return;
+        }
+        Set<H> toRemove = Collections.newSetFromMap(new IdentityHashMap<>());
+        toRemove.addAll(hypotheses);
+        removeIf(toRemove::contains);
+    }
+
+    List<H> asList() {
+        return Collections.unmodifiableList(members);
+    }
+
+    @Override
+    public Iterator<H> iterator() {
+        return asList().iterator();
+    }
+
+    /**
+     * Elimina las hipótesis para las que existe otra estrictamente más general (poda de G).
+     *
+     * @param pool si no es null, las hipótesis se comprueban en paralelo en este pool
+     */
+    void removeSubsumed(ForkJoinPool pool) {
+        int n = members.size();
+        if (n < 2) {
+            return;
+        }
+        GeneralityIndex index = new GeneralityIndex();
+        boolean[] remove = new boolean[n];
+
+        if (pool == null || n < PARALLEL_CHUNK) {
+            markSubsumed(index, 0, n, remove);
+        } else {
+            // Cada bloque escribe solo sus posiciones de remove: el resultado no depende del reparto.
+            int numChunks = (n + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+            pool.submit(() -> IntStream.range(0, numChunks).parallel().forEach(c ->
+                    markSubsumed(index, c * PARALLEL_CHUNK, Math.min(n, (c + 1) * PARALLEL_CHUNK), remove))).join();
+        }
+        removeMarked(remove);
+    }
+
+    private void markSubsumed(GeneralityIndex index, int from, int to, boolean[] remove) {
+        int n = members.size();
+        int numAttributes = space.numAttributes();
+        int[] count = new int[n];
+        int[] touched = new int[n];
+
+        for (int m1 = from; m1 < to; m1++) {
+            // Nada es estrictamente más general que [?, ..., ?]
+            if (index.concrete[m1] == 0) {
+                continue;
+            }
+            H h1 = members.get(m1);
+            boolean subsumed = false;
+            // [?, ..., ?] domina a cualquier otra hipótesis
+            for (int m2 : index.withoutConcrete) {
+                if (isStrictlyMoreGeneral(members.get(m2), h1)) {
+                    subsumed = true;
+                    break;
+                }
+            }
+            if (!subsumed) {
+                // Contar cuántos valores concretos de cada candidata coinciden con h1:
+                // solo pueden dominar las que coinciden en todos y tienen menos que h1.
+                int numTouched = 0;
+                int[] codes = index.codes[m1];
+                for (int i = 0; i < numAttributes; i++) {
+                    if (codes[i] == HypothesisSpace.ANY) {
+                        continue;
+                    }
+                    for (int m2 : index.postings[i][codes[i]]) {
+                        if (count[m2]++ == 0) {
+                            touched[numTouched++] = m2;
+                        }
+                    }
+                }
+                for (int t = 0; t < numTouched; t++) {
+                    int m2 = touched[t];
+                    if (!subsumed && count[m2] == index.concrete[m2] && index.concrete[m2] < index.concrete[m1]
+                            && isStrictlyMoreGeneral(members.get(m2), h1)) {
+                        subsumed = true;
+                    }
+                    count[m2] = 0;
+                }
+            }
+            remove[m1] = subsumed;
+        }
+    }
+
+    /**
+     * Elimina las hipótesis para las que existe otra estrictamente más específica (poda de S).
+     */
+    void removeMoreGeneralHypotheses() {
+        int n = members.size();
+        if (n < 2) {
+            return;
+        }
+        GeneralityIndex index = new GeneralityIndex();
+        int numAttributes = space.numAttributes();
+        boolean[] remove = new boolean[n];
+
+        for (int m1 = 0; m1 < n; m1++) {
+            H h1 = members.get(m1);
+            // El placeholder no cubre nada, así que nunca es más general que otra hipótesis
+            if (space.isMostSpecific(h1)) {
+                continue;
+            }
+            // Las candidatas deben contener todos los valores concretos de h1:
+            // basta con recorrer la lista más corta de entre las de esos valores.
+            int[] codes = index.codes[m1];
+            int[] candidates = null;
+            for (int i = 0; i < numAttributes; i++) {
+                if (codes[i] != HypothesisSpace.ANY
+                        && (candidates == null || index.postings[i][codes[i]].length < candidates.length)) {
+                    candidates = index.postings[i][codes[i]];
+                }
+            }
+            if (candidates == null) {
+                candidates = index.all;
+            }
+            for (int m2 : candidates) {
+                if (index.concrete[m2] > index.concrete[m1] && isStrictlyMoreGeneral(h1, members.get(m2))) {
+                    remove[m1] = true;
+                    break;
+                }
+            }
+        }
+        removeMarked(remove);
+    }
+
+    /**
+     * Reduce la frontera a maxSize hipótesis conservando las de mayor (o menor)
+     * cobertura del espacio de instancias, es decir, el producto de numValues()
+     * de los atributos con '?'. Los empates se resuelven por orden de inserción
+     * y las hipótesis conservadas mantienen su orden.
+     *
+     * @param keepMostGeneral true para conservar las de mayor cobertura (G), false para las de menor (S)
+     * @return número de hipótesis descartadas
+     */
+    int truncate(int maxSize, boolean keepMostGeneral) {
+        int n = members.size();
+        if (n <= maxSize) {
+            return 0;
+        }
+        double[] coverage = new double[n];
+        Integer[] order = new Integer[n];
+        for (int m = 0; m < n; m++) {
+            coverage[m] = logCoverage(members.get(m));
+            order[m] = m;
+        }
+        // Arrays.sort con objetos es estable: a igual cobertura se mantiene el orden de inserción
+        Arrays.sort(order, (a, b) -> keepMostGeneral
+                ? Double.compare(coverage[b], coverage[a])
+                : Double.compare(coverage[a], coverage[b]));
+        boolean[] remove = new boolean[n];
+        for (int k = maxSize; k < n; k++) {
+            remove[order[k]] = true;
+        }
+        removeMarked(remove);
+        return n - maxSize;
+    }
+
+    /**
+     * Logaritmo del número de instancias distintas que cubre h (-infinito para ∅).
+     */
+    private double logCoverage(H h) {
+        double log = 0;
+        for (int i = 0; i < space.numAttributes(); i++) {
+            int code = space.valueCode(h, i);
+            if (code == HypothesisSpace.ANY) {
+                log += Math.log(space.numValues(i));
+            } else if (code == space.numValues(i)) {
+                return Double.NEGATIVE_INFINITY;
+            }
+        }
+        return log;
+    }
+
+    private boolean isStrictlyMoreGeneral(H general, H specific) {
+        return general != specific && !space.sameHypothesis(general, specific)
+                && space.covers(general, specific) && !space.covers(specific, general);
+    }
+
+    /**
+     * Elimina las hipótesis cuya posición está marcada en remove.
+     */
+    void removeMarked(boolean[] remove) {
+        List<H> kept = new ArrayList<>(members.size());
+        for (int m = 0; m < remove.length; m++) {
+            if (remove[m]) {
+                keys.remove(new Key<>(space, members.get(m)));
+            } else {
+                kept.add(members.get(m));
+            }
+        }
+        members.clear();
+        members.addAll(kept);
+    }
+
+    /**
+     * Índice (atributo, código de valor) -> posiciones de las hipótesis, construido
+     * sobre el contenido actual de la frontera.
+     */
+    private final class GeneralityIndex {
+        final int[][] codes;       // Código de cada atributo en cada hipótesis
+        final int[] concrete;      // Número de atributos con valor concreto (o ∅)
+        final int[][][] postings;  // postings[i][código] -> hipótesis con ese valor
+        final int[] withoutConcrete;
+        final int[] all;
+
+        GeneralityIndex() {
+            int n = members.size();
+            int numAttributes = space.numAttributes();
+            codes = new int[n][];
+            concrete = new int[n];
+            all = new int[n];
+            int[][] sizes = new int[numAttributes][];
+            int numWithoutConcrete = 0;
+
+            for (int m = 0; m < n; m++) {
+                all[m] = m;
+                codes[m] = new int[numAttributes];
+                for (int i = 0; i < numAttributes; i++) {
+                    int code = space.valueCode(members.get(m), i);
+                    codes[m][i] = code;
+                    if (code != HypothesisSpace.ANY) {
+                        concrete[m]++;
+                        sizes[i] = grow(sizes[i], code);
+                        sizes[i][code]++;
+                    }
+                }
+                if (concrete[m] == 0) {
+                    numWithoutConcrete++;
+                }
+            }
+
+            postings = new int[numAttributes][][];
+            for (int i = 0; i < numAttributes; i++) {
+                int numCodes = sizes[i] == null ? 0 : sizes[i].length;
+                postings[i] = new int[numCodes][];
+                for (int c = 0; c < numCodes; c++) {
+                    postings[i][c] = new int[sizes[i][c]];
+                    sizes[i][c] = 0;
+                }
+            }
+            withoutConcrete = new int[numWithoutConcrete];
+            numWithoutConcrete = 0;
+            for (int m = 0; m < n; m++) {
+                for (int i = 0; i < numAttributes; i++) {
+                    int code = codes[m][i];
+                    if (code != HypothesisSpace.ANY) {
+                        postings[i][code][sizes[i][code]++] = m;
+                    }
+                }
+                if (concrete[m] == 0) {
+                    withoutConcrete[numWithoutConcrete++] = m;
+                }
+            }
+        }
+
+        private int[] grow(int[] counts, int code) {
+            if (counts == null) {
+                return new int[code + 1];
+            }
+            if (code >= counts.length) {
+                int[] bigger = new int[code + 1];
+                System.arraycopy(counts, 0, bigger, 0, counts.length);
+                return bigger;
+            }
+            return counts;
+        }
+    }
+}
@@ -2,112 +2,315 @@ package aprendizaje.automatico;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.classifiers.AbstractClassifier;
-import weka.core.Attribute;
+import weka.classifiers.UpdateableClassifier;
+import weka.core.AdditionalMeasureProducer;
+import weka.core.Option;
+import weka.core.SelectedTag;
+import weka.core.Tag;
 import weka.core.Utils;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Implementación Conceptual del Algoritmo de Candidatos-Eliminación (Candidate-Elimination) 
  * para WEKA.
+ *
+ * Las fronteras S y G se guardan en un {@link VersionSpace}; el motor elegido con
+ * -E decide cómo se representan las hipótesis:
+ * <ul>
+ *   <li>string: un String[] por hipótesis (motor original),</li>
+ *   <li>bitset: campos de bits empaquetados en long[] (ver {@link BitHypothesisSpace}).</li>
+ * </ul>
+ * Ambos motores producen las mismas fronteras S y G.
+ *
+ * Con -num-slots distinto de 1, la especialización de G ante un ejemplo negativo
+ * se reparte entre varios hilos; el resultado es idéntico al secuencial.
+ *
+ * La traza del entrenamiento se controla con -T (off, summary o full); además
+ * se pueden registrar {@link TrainingListener} que reciben un
+ * {@link TrainingEvent} por instancia.
+ *
+ * Implementa {@link UpdateableClassifier}: tras {@link #buildClassifier} con la
+ * cabecera, cada {@link #updateClassifier} procesa una instancia, de modo que los
+ * datos pueden leerse en streaming sin cargarlos en memoria. Con una vista por
+ * columnas ({@link NominalColumns}) se entrena leyendo los valores directamente
+ * de sus columnas, sin crear una {@link Instance} por fila.
+ *
+ * Para predecir, cada hipótesis de S ∪ G vota: {@link #distributionForInstance}
+ * devuelve la fracción que cubre la instancia, calculada sobre una forma
+ * precompilada de las fronteras ({@link CompiledVersionSpace}).
+ *
+ * Con -M se limita el tamaño de S y G: al superarlo se conservan las hipótesis
+ * de mayor cobertura en G (y de menor en S), y el espacio de versiones pasa a
+ * ser aproximado. Cuántas veces se aplicó el límite se consulta con
+ * {@link #getMeasure}.
  */
-public class CandidateElimination extends AbstractClassifier {
+public class CandidateElimination extends AbstractClassifier
+        implements UpdateableClassifier, AdditionalMeasureProducer {
 
-    // Usaremos "\emptyset" para representar la hipótesis más específica (no cubre nada)
-    private static final String MOST_SPECIFIC_PLACEHOLDER = "∅"; 
+    public static final int ENGINE_STRING = 0;
+    public static final int ENGINE_BITSET = 1;
+    public static final Tag[] TAGS_ENGINE = {
+        new Tag(ENGINE_STRING, "string", "Hipótesis como String[]"),
+        new Tag(ENGINE_BITSET, "bitset", "Hipótesis empaquetadas en bits")
+    };
 
-    private List<String[]> S_boundary; // Conjunto de hipótesis más Específicas
-    private List<String[]> G_boundary; // Conjunto de hipótesis más Generales
-    private int numAttributes;
-    private Instances m_data; // Guardar referencia a los datos para acceder a los atributos
+    public static final int TRACE_OFF = 0;
+    public static final int TRACE_SUMMARY = 1;
+    public static final int TRACE_FULL = 2;
+    public static final Tag[] TAGS_TRACE = {
+        new Tag(TRACE_OFF, "off", "Sin traza"),
+        new Tag(TRACE_SUMMARY, "summary", "Una línea por instancia con tamaños y tiempo"),
+        new Tag(TRACE_FULL, "full", "Fronteras S y G completas antes y después de cada instancia")
+    };
+
+    private static final String MOST_SPECIFIC_PLACEHOLDER = StringHypothesisSpace.MOST_SPECIFIC_PLACEHOLDER;
+
+    private int m_engine = ENGINE_STRING;
+    private int m_numExecutionSlots = 1;
+    private int m_traceLevel = TRACE_FULL;
+    private int m_maxBoundarySize = 0;
+    private transient List<TrainingListener> m_listeners;
+    private transient ForkJoinPool m_pool;
+    private VersionSpace<?> m_versionSpace; // Fronteras S y G
+    private Instances m_data; // Cabecera de los datos, para acceder a los atributos
+    private int m_numProcessed; // Instancias procesadas hasta ahora
+    private boolean m_stopped; // El espacio de versiones colapsó: se ignoran las siguientes instancias
+    private transient volatile CompiledVersionSpace m_compiled; // S ∪ G precompilado para predecir
 
     @Override
     public void buildClassifier(Instances data) throws Exception {
         // 1. Inicialización
-        data = new Instances(data); 
-        data.deleteWithMissingClass(); 
-
         if (data.classIndex() < 0) {
             throw new Exception("La clase de la instancia no está configurada.");
         }
-        m_data = data; 
-        // Excluir el atributo de clase, asumiendo que el índice de clase es el último.
-        numAttributes = data.classIndex(); 
+        // Solo se guarda la cabecera: las instancias se recorren sin copiarlas
+        m_data = new Instances(data, 0);
 
         // Inicializar S y G
-        initializeBoundaries();
+        m_versionSpace = createVersionSpace(m_data);
+        m_versionSpace.setPool(getPool());
+        m_versionSpace.setMaxBoundarySize(m_maxBoundarySize);
+        m_numProcessed = 0;
+        m_stopped = false;
+        m_compiled = null;
 
-        // 2. Procesar Ejemplos de Entrenamiento
-        for (int i = 0; i < data.numInstances(); i++) {
-            System.out.println("\n=========================================================");
-            System.out.println("--- Iteración " + (i + 1) + "/" + data.numInstances() + " ---");
+        // 2. Procesar Ejemplos de Entrenamiento (las que no tienen clase se ignoran)
+        int numInstances = 0;
+        for (Instance instance : data) {
+            if (!instance.classIsMissing()) {
+                numInstances++;
+            }
+        }
+        for (Instance instance : data) {
+            if (instance.classIsMissing()) {
+                continue;
+            }
+            if (!processExample(instance, null, -1, ++m_numProcessed, numInstances)) {
+                m_stopped = true;
+                break; // Salir si el espacio de versiones colapsa
+            }
+        }
+    }
 
-            Instance instance = data.instance(i);
-            String[] instanceArray = instanceToHypothesis(instance);
-            boolean isPositive = isPositiveExample(instance);
+    /**
+     * Procesa una única instancia: una actualización de S y G. Permite entrenar
+     * en streaming (p. ej. con {@code ArffLoader.getNextInstance}) tras llamar a
+     * {@link #buildClassifier} con la cabecera del conjunto de datos.
+     */
+    @Override
+    public void updateClassifier(Instance instance) throws Exception {
+        if (m_versionSpace == null) {
+            throw new Exception("Hay que llamar a buildClassifier antes de updateClassifier.");
+        }
+        if (m_stopped || instance.classIsMissing()) {
+            return;
+        }
+        m_compiled = null;
+        if (!processExample(instance, null, -1, ++m_numProcessed, -1)) {
+            m_stopped = true;
+        }
+    }
 
-            System.out.println("Instancia: " + instance);
+    /**
+     * Entrena sobre una vista por columnas (p. ej. un {@code ColumnarFile}),
+     * leyendo cada valor de su columna sin crear una {@link Instance} por fila.
+     * S y G son los mismos que con los datos equivalentes en {@code Instances}.
+     */
+    public void buildClassifier(NominalColumns data) throws Exception {
+        buildClassifier(data.header());
+        int classIndex = data.classIndex();
+        int numInstances = 0;
+        for (int row = 0; row < data.numRows(); row++) {
+            if (data.value(classIndex, row) >= 0) {
+                numInstances++;
+            }
+        }
+        for (int row = 0; row < data.numRows(); row++) {
+            if (data.value(classIndex, row) < 0) {
+                continue;
+            }
+            if (!processExample(null, data, row, ++m_numProcessed, numInstances)) {
+                m_stopped = true;
+                break;
+            }
+        }
+    }
+
+    /**
+     * Como {@link #updateClassifier(Instance)} con la fila de una vista por
+     * columnas con la misma cabecera que la usada en {@link #buildClassifier}.
+     */
+    public void updateClassifier(NominalColumns data, int row) throws Exception {
+        if (m_versionSpace == null) {
+            throw new Exception("Hay que llamar a buildClassifier antes de updateClassifier.");
+        }
+        if (data.numAttributes() != m_data.numAttributes() || data.classIndex() != m_data.classIndex()) {
+            throw new Exception("Los datos no tienen la misma cabecera que los del entrenamiento.");
+        }
+        if (m_stopped || data.value(data.classIndex(), row) < 0) {
+            return;
+        }
+        m_compiled = null;
+        if (!processExample(null, data, row, ++m_numProcessed, -1)) {
+            m_stopped = true;
+        }
+    }
+
+    private ForkJoinPool getPool() {
+        m_pool = ExecutionSlots.pool(m_pool, m_numExecutionSlots);
+        return m_pool;
+    }
+
+
+    /**
+     * Actualiza S y G con una instancia, o con la fila row de data si instance
+     * es null, escribiendo la traza según el nivel elegido y avisando a los
+     * listeners.
+     *
+     * @return false si el espacio de versiones ya había colapsado
+     */
+    private boolean processExample(Instance instance, NominalColumns data, int row, int iteration, int numInstances) {
+        boolean full = m_traceLevel == TRACE_FULL;
+        boolean isPositive = instance != null ? isPositiveExample(instance)
+                : data.value(data.classIndex(), row) == m_data.classAttribute().indexOfValue("yes");
+
+        if (full) {
+            System.out.println("\n=========================================================");
+            System.out.println("--- Iteración " + iteration + (numInstances < 0 ? "" : "/" + numInstances) + " ---");
+            System.out.println("Instancia: " + (instance != null ? instance : formatRow(data, row)));
             System.out.println("Clase: " + (isPositive ? "Positiva ('yes')" : "Negativa ('no')"));
             printBoundaries("Estado ANTES de la actualización:");
+        }
 
-            if (S_boundary.isEmpty() || G_boundary.isEmpty()) {
-                System.out.println("Acción: El Espacio de Versiones ha colapsado. S=" + S_boundary.size() + ", G=" + G_boundary.size());
-                break; // Salir si el espacio de versiones colapsa
+        if (m_versionSpace.isCollapsed()) {
+            if (full) {
+                System.out.println("Acción: El Espacio de Versiones ha colapsado. S=" + m_versionSpace.getSpecificBoundary().size()
+                        + ", G=" + m_versionSpace.getGeneralBoundary().size());
             }
+            return false;
+        }
+
+        // Solo se mide el tiempo si alguien va a consumir el evento
+        boolean timed = m_traceLevel == TRACE_SUMMARY || (m_listeners != null && !m_listeners.isEmpty());
+        int sizeSBefore = 0, sizeGBefore = 0;
+        long start = 0;
+        if (timed) {
+            sizeSBefore = m_versionSpace.getSpecificBoundary().size();
+            sizeGBefore = m_versionSpace.getGeneralBoundary().size();
+            start = System.nanoTime();
+        }
 
-            if (isPositive) {
-                // Si es POSITIVO: Generalizar S, Especializar G
-                System.out.println("Acción: Ejemplo POSITIVO.");
-                // 2.1.1 Eliminar de G las inconsistentes (las que NO cubren d+)
-                pruneGeneralBoundary(instanceArray); 
-                // 2.1.2 Actualizar S (generalizar las inconsistentes y verificar contra G)
-                updateSpecificBoundary(instanceArray);
-            } else {
-                // Si es NEGATIVO: Especializar G, Podar S
-                System.out.println("Acción: Ejemplo NEGATIVO.");
-                // 2.2.1 Eliminar de S las inconsistentes (las que SÍ cubren d-)
-                pruneSpecificBoundary(instanceArray);
-                // 2.2.2 Actualizar G (especializar las inconsistentes y verificar contra S)
-                updateGeneralBoundary(instanceArray);
+        int discarded;
+        if (isPositive) {
+            if (full) System.out.println("Acción: Ejemplo POSITIVO.");
+            discarded = instance != null ? m_versionSpace.addPositive(instance) : m_versionSpace.addPositive(data, row);
+        } else {
+            if (full) System.out.println("Acción: Ejemplo NEGATIVO.");
+            discarded = instance != null ? m_versionSpace.addNegative(instance) : m_versionSpace.addNegative(data, row);
+        }
+        if (full && discarded > 0) {
+            System.out.println("Límite de " + m_maxBoundarySize + " hipótesis alcanzado: " + discarded + " descartadas.");
+        }
+
+        if (timed) {
+            TrainingEvent event = new TrainingEvent(iteration, numInstances, isPositive, sizeSBefore, sizeGBefore,
+                    m_versionSpace.getSpecificBoundary().size(), m_versionSpace.getGeneralBoundary().size(),
+                    discarded, System.nanoTime() - start);
+            if (m_traceLevel == TRACE_SUMMARY) {
+                printSummary(event);
             }
+            if (m_listeners != null) {
+                for (TrainingListener listener : m_listeners) {
+                    listener.iterationCompleted(event);
+                }
+            }
+        }
+        if (full) {
             printBoundaries("Estado DESPUÉS de la actualización:");
         }
+        return true;
     }
 
     /**
-     * Inicializa S y G.
-     * S0: {\emptyset} (hipótesis más específica).
-     * G0: {?, ?, ?, ?} (hipótesis más general).
+     * La fila con el formato de {@code Instance.toString}.
      */
-    private void initializeBoundaries() {
-        S_boundary = new ArrayList<>();
-        G_boundary = new ArrayList<>();
+    private String formatRow(NominalColumns data, int row) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < data.numAttributes(); i++) {
+            int value = data.value(i, row);
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(value < 0 ? "?" : Utils.quote(m_data.attribute(i).value(value)));
+        }
+        return sb.toString();
+    }
 
-        // Inicializar G con la hipótesis más general: [?,?,?,...]
-        String[] mostGeneral = new String[numAttributes];
-        Arrays.fill(mostGeneral, "?");
-        G_boundary.add(mostGeneral);
+    private static void printSummary(TrainingEvent event) {
+        System.out.println("Iteración " + event.iteration() + (event.numInstances() < 0 ? "" : "/" + event.numInstances())
+                + (event.positive() ? " (+)" : " (-)")
+                + ": |S| " + event.sizeSBefore() + " -> " + event.sizeSAfter()
+                + ", |G| " + event.sizeGBefore() + " -> " + event.sizeGAfter()
+                + ", " + Utils.doubleToString(event.elapsedNanos() / 1e6, 3) + " ms"
+                + (event.discarded() > 0 ? ", " + event.discarded() + " descartadas por el límite" : ""));
+    }
 
-        // Inicializar S con la hipótesis más específica: [\emptyset, \emptyset, \emptyset, \emptyset]
-        String[] mostSpecific = new String[numAttributes];
-        Arrays.fill(mostSpecific, MOST_SPECIFIC_PLACEHOLDER);
-        S_boundary.add(mostSpecific);
+    /**
+     * Registra un listener que recibirá un {@link TrainingEvent} por instancia procesada.
+     */
+    public void addTrainingListener(TrainingListener listener) {
+        if (m_listeners == null) {
+            m_listeners = new ArrayList<>();
+        }
+        m_listeners.add(listener);
     }
 
-    // ... (instanceToHypothesis y isPositiveExample son correctos) ...
+    public void removeTrainingListener(TrainingListener listener) {
+        if (m_listeners != null) {
+            m_listeners.remove(listener);
+        }
+    }
+
+    /**
+     * Fronteras S y G actuales (null antes de buildClassifier).
+     */
+    VersionSpace<?> getVersionSpace() {
+        return m_versionSpace;
+    }
 
     /**
-     * Convierte una instancia de Weka en una hipótesis (array de Strings)
+     * Crea el espacio de versiones inicial (S0, G0) con el motor seleccionado.
      */
-    private String[] instanceToHypothesis(Instance instance) {
-        String[] hypothesis = new String[numAttributes];
-        for (int i = 0; i < numAttributes; i++) {
-            Attribute attr = instance.attribute(i);
-            hypothesis[i] = instance.stringValue(i);
+    private VersionSpace<?> createVersionSpace(Instances data) throws Exception {
+        if (m_engine == ENGINE_BITSET) {
+            return new VersionSpace<>(new BitHypothesisSpace(data));
         }
-        return hypothesis;
+        return new VersionSpace<>(new StringHypothesisSpace(data));
     }
 
     /**
@@ -119,294 +322,253 @@ public class CandidateElimination extends AbstractClassifier {
     }
 
     /**
-     * Implementa la lógica para generalizar S con un ejemplo positivo.
+     * Predice 'yes' si más de la mitad de las hipótesis de S ∪ G cubren la
+     * instancia. Si S y G han convergido a una única hipótesis coincide con
+     * aplicar esa hipótesis; si hay empate o el espacio es vacío se predice 'no'.
      */
-    private void updateSpecificBoundary(String[] positiveExample) {
-        List<String[]> hypothesesToRemove = new ArrayList<>();
-        List<String[]> hypothesesToAdd = new ArrayList<>();
-
-        for (String[] s : S_boundary) {
-            // Caso especial: si S0 sigue en S, debe ser reemplazado por el primer positivo.
-            if (s[0].equals(MOST_SPECIFIC_PLACEHOLDER)) {
-                hypothesesToRemove.add(s);
-                hypothesesToAdd.add(positiveExample.clone());
-            } 
-            // Si S es inconsistente (no cubre d+) y NO es el placeholder inicial
-            else if (!covers(s, positiveExample)) { 
-                hypothesesToRemove.add(s);
-                
-                // Generalización mínima: h
-                String[] h = generalize(s, positiveExample);
-                
-                // h debe ser consistente con G (más específica que alguna g en G)
-                if (isConsistentWithG(h)) {
-                    // Evitar añadir duplicados
-                    if (!listContains(hypothesesToAdd, h) && !listContains(S_boundary, h)) {
-                         hypothesesToAdd.add(h);
-                    }
-                }
-            }
+    @Override
+    public double classifyInstance(Instance instance) {
+        CompiledVersionSpace compiled = getCompiledVersionSpace();
+        int covering = compiled.countCovering(instance, compiled.newScratch());
+        if (2 * covering > compiled.numMembers()) {
+            return m_data.classAttribute().indexOfValue("yes");
         }
-        S_boundary.removeAll(hypothesesToRemove);
-        S_boundary.addAll(hypothesesToAdd);
-        
-        // Eliminar redundancias (hipótesis más generales que otras en S)
-        S_boundary = removeMoreGeneralHypotheses(S_boundary);
+        return m_data.classAttribute().indexOfValue("no"); // No hay consenso, se predice la clase negativa
     }
 
     /**
-     * Elimina de G las hipótesis que son inconsistentes con un ejemplo positivo.
-     * (es decir, que no cubren el ejemplo positivo).
+     * Votación del espacio de versiones: la probabilidad de 'yes' es la fracción
+     * de hipótesis de S ∪ G que cubren la instancia.
      */
-    private void pruneGeneralBoundary(String[] positiveExample) {
-        Iterator<String[]> iter = G_boundary.iterator();
-        while (iter.hasNext()) {
-            if (!covers(iter.next(), positiveExample)) {
-                iter.remove();
-            }
-        }
+    @Override
+    public double[] distributionForInstance(Instance instance) {
+        CompiledVersionSpace compiled = getCompiledVersionSpace();
+        double[] dist = new double[m_data.numClasses()];
+        fillDistribution(dist, compiled, compiled.countCovering(instance, compiled.newScratch()));
+        return dist;
     }
 
     /**
-     * Elimina de S las hipótesis que son inconsistentes con un ejemplo negativo.
-     * (es decir, que cubren el ejemplo negativo).
+     * Puntúa un lote completo con la misma forma compilada y un único buffer de trabajo.
      */
-    private void pruneSpecificBoundary(String[] negativeExample) {
-        Iterator<String[]> iter = S_boundary.iterator();
-        while (iter.hasNext()) {
-            String[] s = iter.next();
-            // El placeholder inicial NUNCA cubre un ejemplo real.
-            if (!s[0].equals(MOST_SPECIFIC_PLACEHOLDER) && covers(s, negativeExample)) {
-                iter.remove();
-            }
+    @Override
+    public double[][] distributionsForInstances(Instances batch) {
+        CompiledVersionSpace compiled = getCompiledVersionSpace();
+        long[] scratch = compiled.newScratch();
+        double[][] dists = new double[batch.numInstances()][m_data.numClasses()];
+        for (int i = 0; i < dists.length; i++) {
+            fillDistribution(dists[i], compiled, compiled.countCovering(batch.instance(i), scratch));
         }
+        return dists;
     }
-    
-    /**
-     * Implementa la lógica para especializar G con un ejemplo negativo.
-     */
-    private void updateGeneralBoundary(String[] negativeExample) {
-        List<String[]> hypothesesToRemove = new ArrayList<>();
-        List<String[]> hypothesesToAdd = new ArrayList<>();
-
-        for (String[] g : G_boundary) {
-            // Si G es inconsistente (cubre el ejemplo negativo)
-            if (covers(g, negativeExample)) { 
-                hypothesesToRemove.add(g);
-                
-                // Generar especializaciones mínimas
-                List<String[]> specializations = generateMinimalSpecializations(g, negativeExample);
-                
-                for (String[] h : specializations) {
-                    // h debe ser consistente con S (más general que algún miembro de S)
-                    if (isConsistentWithS(h)) {
-                         // Evitar añadir duplicados
-                        if (!listContains(hypothesesToAdd, h) && !listContains(G_boundary, h)) {
-                            hypothesesToAdd.add(h);
-                        }
-                    }
-                }
-            }
+
+    @Override
+    public boolean implementsMoreEfficientBatchPrediction() {
+        return true;
+    }
+
+    private void fillDistribution(double[] dist, CompiledVersionSpace compiled, int covering) {
+        int no = m_data.classAttribute().indexOfValue("no");
+        if (compiled.numMembers() == 0) {
+            dist[no] = 1.0; // Espacio de versiones vacío: se predice la clase negativa
+            return;
         }
-        G_boundary.removeAll(hypothesesToRemove);
-        G_boundary.addAll(hypothesesToAdd);
-        
-        // Eliminar redundancias (hipótesis más específicas que otras en G)
-        G_boundary = removeSubsumed(G_boundary);
+        double fraction = (double) covering / compiled.numMembers();
+        dist[m_data.classAttribute().indexOfValue("yes")] = fraction;
+        dist[no] = 1.0 - fraction;
     }
-    
-    // --- Métodos Auxiliares Corregidos/Revisados ---
-    
+
     /**
-     * Comprueba si la hipótesis h1 (general) es más general o igual que h2 (específica).
-     * También se usa para 'covers(hipótesis, ejemplo)'.
+     * Compila S ∪ G la primera vez que se predice tras un cambio en las fronteras.
      */
-    private boolean covers(String[] h1, String[] h2) {
-        for (int i = 0; i < numAttributes; i++) {
-            // h1 es la hipótesis. Si es el placeholder, no cubre nada real.
-            if (h1[i].equals(MOST_SPECIFIC_PLACEHOLDER)) { 
-                return false;
-            }
-            // Si h1 es un valor concreto y no coincide con h2 (ejemplo/hipótesis específica)
-            if (!h1[i].equals("?") && !h1[i].equals(h2[i])) { 
-                return false; 
+    private CompiledVersionSpace getCompiledVersionSpace() {
+        CompiledVersionSpace compiled = m_compiled;
+        if (compiled == null) {
+            int[] numValues = new int[m_data.classIndex()];
+            for (int i = 0; i < numValues.length; i++) {
+                numValues[i] = m_data.attribute(i).numValues();
             }
+            compiled = CompiledVersionSpace.compile(m_versionSpace, numValues);
+            m_compiled = compiled;
         }
-        return true;
+        return compiled;
     }
 
     /**
-     * Implementación CORREGIDA. Genera especializaciones mínimas para una hipótesis g 
-     * que cubre un ejemplo negativo d-.
-     * La especialización se realiza cambiando un '?' en g por un valor de dominio V 
-     * tal que V != d-[i].
+     * Formatea cada hipótesis de la frontera con el motor que la generó.
      */
-   private List<String[]> generateMinimalSpecializations(String[] h_g, String[] negativeExample) {
-        List<String[]> result = new ArrayList<>();
-        
-        // Para cada atributo i
-        for (int i = 0; i < numAttributes; i++) {
-            // Solo especializar si el atributo en G es general ('?') y el valor del ejemplo negativo es concreto
-            if (h_g[i].equals("?")) {
-                Attribute attr = m_data.attribute(i);
-                
-                // Iterar sobre todos los valores posibles del dominio
-                for (int j = 0; j < attr.numValues(); j++) {
-                    String domainValue = attr.value(j);
-                    
-                    // La especialización es minimal y NO cubre negativeExample si:
-                    // 1. Reemplazamos '?' por un valor CONCRETO. (Ya hecho al iterar 'domainValue')
-                    // 2. Ese valor CONCRETO es DIFERENTE del valor del ejemplo negativo en esa posición.
-                    if (!domainValue.equals(negativeExample[i])) {
-                        String[] h_new = h_g.clone();
-                        h_new[i] = domainValue;
-                        
-                        // Agregar solo si no es un duplicado
-                        if (!listContains(result, h_new)) {
-                            result.add(h_new);
-                        }
-                    }
-                }
-            }
+    private static <H> void appendBoundary(StringBuilder sb, VersionSpace<H> vs, Iterable<H> boundary,
+                                           String prefix, String suffix) {
+        for (H h : boundary) {
+            sb.append(prefix).append(vs.getSpace().format(h).replace(MOST_SPECIFIC_PLACEHOLDER, "$\\emptyset$")).append(suffix);
         }
-        return result;
     }
 
-    // ... (isConsistentWithS, isConsistentWithG, generalize, removeMoreGeneralHypotheses, removeSubsumed son correctos o adaptables) ...
+    private static <H> void appendSpecific(StringBuilder sb, VersionSpace<H> vs, String prefix, String suffix) {
+        appendBoundary(sb, vs, vs.getSpecificBoundary(), prefix, suffix);
+    }
 
-    /**
-     * Comprueba si una hipótesis h es más general o igual que *alguna* hipótesis en S.
-     */
-    private boolean isConsistentWithS(String[] h) {
-        // SOLUCIÓN 1: Si S solo contiene el placeholder, cualquier especialización de G es válida por ahora.
-        if (S_boundary.size() == 1 && S_boundary.get(0)[0].equals(MOST_SPECIFIC_PLACEHOLDER)) {
-            return true;
-        }
-
-        for (String[] s : S_boundary) {
-            // Ignorar el placeholder inicial de S si aún está por error (aunque el primer positivo lo elimina)
-            if (s[0].equals(MOST_SPECIFIC_PLACEHOLDER)) continue;
-            
-            // h es consistente con S si cubre/es más general que s
-            if (covers(h, s)) {
-                return true;
-            }
-        }
-        return false; 
+    private static <H> void appendGeneral(StringBuilder sb, VersionSpace<H> vs, String prefix, String suffix) {
+        appendBoundary(sb, vs, vs.getGeneralBoundary(), prefix, suffix);
     }
 
-    /**
-     * Comprueba si una hipótesis h es más específica o igual que *alguna* hipótesis en G.
-     */
-    private boolean isConsistentWithG(String[] h) {
-        for (String[] g : G_boundary) {
-            // h es consistente con G si g cubre/es más general que h
-            if (covers(g, h)) {
-                return true; 
-            }
+    private void printBoundaries(String title) {
+        System.out.println(title);
+        StringBuilder sb = new StringBuilder("  S: ");
+        if (m_versionSpace.getSpecificBoundary().isEmpty()) {
+            sb.append("[Vacío]");
+        } else {
+            appendSpecific(sb, m_versionSpace, "", " ");
         }
-        return false;
+        sb.append("\n  G: ");
+        if (m_versionSpace.getGeneralBoundary().isEmpty()) {
+            sb.append("[Vacío]");
+        } else {
+            appendGeneral(sb, m_versionSpace, "", " ");
+        }
+        System.out.println(sb);
     }
 
     /**
-     * Generaliza una hipótesis h_s para que cubra un ejemplo positivo.
+     * @return una descripción de este clasificador
      */
-    private String[] generalize(String[] h_s, String[] positiveExample) {
-        String[] h_new = h_s.clone();
-        for (int j = 0; j < numAttributes; j++) {
-            // Si el valor no es general ('?') y no coincide con el ejemplo, generalizarlo a '?'
-            if (!h_s[j].equals("?") && !h_s[j].equals(positiveExample[j])) {
-                h_new[j] = "?";
-            }
-        }
-        return h_new;
+    public String globalInfo() {
+        return "Algoritmo de Candidatos-Eliminación para atributos nominales.";
     }
 
-    // ... (removeMoreGeneralHypotheses, removeSubsumed y listContains son correctos) ...
-    
-    private List<String[]> removeMoreGeneralHypotheses(List<String[]> boundary) {
-        // ... (lógica interna es correcta) ...
-        List<String[]> result = new ArrayList<>();
-        for (String[] h1 : boundary) {
-            boolean isMoreGeneral = false;
-            for (String[] h2 : boundary) {
-                if (h1 != h2 && !Arrays.equals(h1, h2) && covers(h1, h2) && !covers(h2, h1)) {
-                    isMoreGeneral = true;
-                    break;
-                }
-            }
-            if (!isMoreGeneral) {
-                result.add(h1);
-            }
-        }
-        return result;
+    @Override
+    public Enumeration<Option> listOptions() {
+        Vector<Option> newVector = new Vector<>();
+        newVector.addElement(new Option("\tMotor de representación de hipótesis (string|bitset).\n"
+                + "\t(por defecto: string)", "E", 1, "-E <string|bitset>"));
+        newVector.addElement(new Option("\tNúmero de hilos para especializar G.\n"
+                + "\t(por defecto 1 - sin paralelismo)\n"
+                + "\t(0 para usar todos los núcleos)", "num-slots", 1, "-num-slots <num>"));
+        newVector.addElement(new Option("\tTamaño máximo de S y de G; al superarlo se conservan\n"
+                + "\tlas hipótesis de mayor cobertura en G y de menor en S.\n"
+                + "\t(por defecto: 0 - sin límite)", "M", 1, "-M <num>"));
+        newVector.addElement(new Option("\tNivel de traza del entrenamiento (off|summary|full).\n"
+                + "\t(por defecto: full)", "T", 1, "-T <off|summary|full>"));
+        newVector.addAll(Collections.list(super.listOptions()));
+        return newVector.elements();
     }
-    
-    private List<String[]> removeSubsumed(List<String[]> boundary) {
-        // ... (lógica interna es correcta) ...
-        List<String[]> result = new ArrayList<>();
-        for (String[] h1 : boundary) {
-            boolean subsumed = false;
-            for (String[] h2 : boundary) {
-                // Si h2 es estrictamente más general que h1
-                if (h1 != h2 && !Arrays.equals(h1, h2) && covers(h2, h1) && !covers(h1, h2)) { 
-                    subsumed = true;
-                    break;
-                }
-            }
-            if (!subsumed) {
-                result.add(h1);
-            }
+
+    @Override
+    public void setOptions(String[] options) throws Exception {
+        String engine = Utils.getOption('E', options);
+        if (engine.length() != 0) {
+            setEngine(new SelectedTag(engine, TAGS_ENGINE));
+        } else {
+            setEngine(new SelectedTag(ENGINE_STRING, TAGS_ENGINE));
         }
-        return result;
-    }
-    
-    private boolean listContains(List<String[]> list, String[] array) {
-        for (String[] item : list) {
-            if (Arrays.equals(item, array)) return true;
+        String trace = Utils.getOption('T', options);
+        if (trace.length() != 0) {
+            setTraceLevel(new SelectedTag(trace, TAGS_TRACE));
+        } else {
+            setTraceLevel(new SelectedTag(TRACE_FULL, TAGS_TRACE));
         }
-        return false;
+        String maxSize = Utils.getOption('M', options);
+        setMaxBoundarySize(maxSize.length() != 0 ? Integer.parseInt(maxSize) : 0);
+        String numSlots = Utils.getOption("num-slots", options);
+        setNumExecutionSlots(numSlots.length() != 0 ? Integer.parseInt(numSlots) : 1);
+        super.setOptions(options);
+        Utils.checkForRemainingOptions(options);
     }
-    
-    // ... (classifyInstance y toString son correctos) ...
+
     @Override
-    public double classifyInstance(Instance instance) {
-        String[] instanceArray = instanceToHypothesis(instance);
-
-        if (S_boundary.size() == 1 && G_boundary.size() == 1 && Arrays.equals(S_boundary.get(0), G_boundary.get(0))) {
-            String[] finalHypothesis = S_boundary.get(0);
-            
-            if (covers(finalHypothesis, instanceArray)) {
-                return m_data.classAttribute().indexOfValue("yes");
-            } else {
-                return m_data.classAttribute().indexOfValue("no"); 
-            }
+    public String[] getOptions() {
+        Vector<String> options = new Vector<>();
+        options.add("-E");
+        options.add(getEngine().getSelectedTag().getIDStr());
+        options.add("-num-slots");
+        options.add("" + getNumExecutionSlots());
+        options.add("-M");
+        options.add("" + getMaxBoundarySize());
+        options.add("-T");
+        options.add(getTraceLevel().getSelectedTag().getIDStr());
+        Collections.addAll(options, super.getOptions());
+        return options.toArray(new String[0]);
+    }
+
+    public String engineTipText() {
+        return "Representación interna de las hipótesis; todos los motores dan las mismas fronteras S y G.";
+    }
+
+    public SelectedTag getEngine() {
+        return new SelectedTag(m_engine, TAGS_ENGINE);
+    }
+
+    public void setEngine(SelectedTag engine) {
+        if (engine.getTags() == TAGS_ENGINE) {
+            m_engine = engine.getSelectedTag().getID();
         }
-        return m_data.classAttribute().indexOfValue("no"); // No hay consenso, se predice la clase negativa
     }
     
-    private void printBoundaries(String title) {
-        System.out.println(title);
-        System.out.print("  S: ");
-        if (S_boundary.isEmpty()) {
-            System.out.println("[Vacío]");
-        } else {
-            S_boundary.forEach(h -> System.out.print(Arrays.toString(h).replace(MOST_SPECIFIC_PLACEHOLDER, "$\\emptyset$") + " "));
-            System.out.println();
+    public String numExecutionSlotsTipText() {
+        return "Número de hilos para especializar G (1 = secuencial, 0 = todos los núcleos).";
+    }
+
+    public int getNumExecutionSlots() {
+        return m_numExecutionSlots;
+    }
+
+    public void setNumExecutionSlots(int numSlots) {
+        m_numExecutionSlots = numSlots;
+    }
+
+    public String maxBoundarySizeTipText() {
+        return "Tamaño máximo de S y de G (0 = sin límite). Con límite, el espacio de versiones es aproximado.";
+    }
+
+    public int getMaxBoundarySize() {
+        return m_maxBoundarySize;
+    }
+
+    public void setMaxBoundarySize(int maxBoundarySize) {
+        m_maxBoundarySize = maxBoundarySize;
+    }
+
+    @Override
+    public Enumeration<String> enumerateMeasures() {
+        Vector<String> measures = new Vector<>();
+        measures.addElement("measureNumTruncations");
+        measures.addElement("measureNumDiscardedHypotheses");
+        measures.addElement("measureMaxBoundarySizeBeforeTruncation");
+        return measures.elements();
+    }
+
+    @Override
+    public double getMeasure(String additionalMeasureName) {
+        if (m_versionSpace == null) {
+            return 0;
         }
-        System.out.print("  G: ");
-        if (G_boundary.isEmpty()) {
-            System.out.println("[Vacío]");
-        } else {
-            G_boundary.forEach(h -> System.out.print(Arrays.toString(h) + " "));
-            System.out.println();
+        if (additionalMeasureName.equalsIgnoreCase("measureNumTruncations")) {
+            return m_versionSpace.getNumTruncations();
+        } else if (additionalMeasureName.equalsIgnoreCase("measureNumDiscardedHypotheses")) {
+            return m_versionSpace.getNumDiscarded();
+        } else if (additionalMeasureName.equalsIgnoreCase("measureMaxBoundarySizeBeforeTruncation")) {
+            return m_versionSpace.getMaxSizeBeforeTruncation();
         }
+        throw new IllegalArgumentException(additionalMeasureName + " no soportada (CandidateElimination)");
     }
-    
+
+    public String traceLevelTipText() {
+        return "Traza del entrenamiento: off (nada), summary (tamaños y tiempo) o full (S y G completas).";
+    }
+
+    public SelectedTag getTraceLevel() {
+        return new SelectedTag(m_traceLevel, TAGS_TRACE);
+    }
+
+    public void setTraceLevel(SelectedTag traceLevel) {
+        if (traceLevel.getTags() == TAGS_TRACE) {
+            m_traceLevel = traceLevel.getSelectedTag().getID();
+        }
+    }
+
     @Override
     public String toString() {
-        // ... (la implementación de toString es correcta) ...
-        if (S_boundary == null || S_boundary.isEmpty() || G_boundary.isEmpty()) {
+        if (m_versionSpace == null || m_versionSpace.isCollapsed()) {
             return "Candidate-Elimination: El espacio de versiones es vacío (inconsistente).";
         }
         
@@ -414,10 +576,15 @@ public class CandidateElimination extends AbstractClassifier {
         sb.append("Algoritmo de Candidatos-Eliminación\n");
         sb.append("-----------------------------------\n");
         sb.append("Hipótesis S (más específicas):\n");
-        S_boundary.forEach(h -> sb.append("\t").append(Arrays.toString(h).replace(MOST_SPECIFIC_PLACEHOLDER, "$\\emptyset$")).append("\n"));
+        appendSpecific(sb, m_versionSpace, "\t", "\n");
         sb.append("Hipótesis G (más generales):\n");
-        G_boundary.forEach(h -> sb.append("\t").append(Arrays.toString(h)).append("\n"));
+        appendGeneral(sb, m_versionSpace, "\t", "\n");
+        if (m_versionSpace.getNumTruncations() > 0) {
+            sb.append("Aproximación: el límite de ").append(m_maxBoundarySize).append(" hipótesis se aplicó ")
+                    .append(m_versionSpace.getNumTruncations()).append(" veces (")
+                    .append(m_versionSpace.getNumDiscarded()).append(" descartadas).\n");
+        }
         
         return sb.toString();
     }
-}
\ No newline at end of file
+}
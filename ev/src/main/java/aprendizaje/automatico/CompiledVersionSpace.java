@@ -0,0 +1,129 @@
+package aprendizaje.automatico;
+
+import weka.core.Instance;
+
+import java.util.Arrays;
+
+/**
+ * Forma precompilada de S ∪ G para predecir por votación.
+ *
+ * Para cada atributo i y cada valor v (más una posición extra para el valor
+ * ausente) se guarda una máscara de bits sobre las hipótesis: el bit m está a 1
+ * si la hipótesis m acepta v en el atributo i ('?' o el propio v). Las
+ * hipótesis que cubren una instancia son el AND de las máscaras de sus valores,
+ * así que contar votos es un bucle de AND y popcount sobre long[] sin crear
+ * objetos por fila. Es inmutable y puede usarse desde varios hilos.
+ */
+final class CompiledVersionSpace {
+
+    private final int numMembers;
+    private final int numWords;
+    private final int[] attributes; // Atributos donde alguna hipótesis tiene un valor concreto
+    private final int[] numValues;  // numValues() de cada atributo (posición del valor ausente)
+    private final int[] offset;     // Primera máscara de cada atributo, en unidades de numWords
+    private final long[] masks;
+    private final long lastWordMask;
+
+    private CompiledVersionSpace(int numMembers, int numWords, int[] attributes, int[] numValues,
+                                 int[] offset, long[] masks) {
+        this.numMembers = numMembers;
+        this.numWords = numWords;
+        this.attributes = attributes;
+        this.numValues = numValues;
+        this.offset = offset;
+        this.masks = masks;
+        this.lastWordMask = numMembers % Long.SIZE == 0 ? -1L : (1L << (numMembers % Long.SIZE)) - 1;
+    }
+
+    /**
+     * Compila las hipótesis de S ∪ G (cada hipótesis distinta cuenta una vez).
+     *
+     * @param numValues número de valores de cada atributo (sin la clase)
+     */
+    static <H> CompiledVersionSpace compile(VersionSpace<H> versionSpace, int[] numValues) {
+        HypothesisSpace<H> space = versionSpace.getSpace();
+        Boundary<H> members = new Boundary<>(space);
+        members.addAll(versionSpace.getSpecificBoundary());
+        members.addAll(versionSpace.getGeneralBoundary());
+
+        int n = members.size();
+        int numAttributes = space.numAttributes();
+        int numWords = (n + Long.SIZE - 1) / Long.SIZE;
+        int[] offset = new int[numAttributes];
+        int numMasks = 0;
+        for (int i = 0; i < numAttributes; i++) {
+            offset[i] = numMasks;
+            numMasks += numValues[i] + 1;
+        }
+        long[] masks = new long[numMasks * numWords];
+        boolean[] relevant = new boolean[numAttributes];
+
+        for (int m = 0; m < n; m++) {
+            H h = members.get(m);
+            int word = m / Long.SIZE;
+            long bit = 1L << (m % Long.SIZE);
+            for (int i = 0; i < numAttributes; i++) {
+                int code = space.valueCode(h, i);
+                if (code == HypothesisSpace.ANY) {
+                    // '?' acepta cualquier valor, también el ausente
+                    for (int v = 0; v <= numValues[i]; v++) {
+                        masks[(offset[i] + v) * numWords + word] |= bit;
+                    }
+                } else {
+                    relevant[i] = true;
+                    // ∅ (code == numValues) no acepta nada
+                    if (code < numValues[i]) {
+                        masks[(offset[i] + code) * numWords + word] |= bit;
+                    }
+                }
+            }
+        }
+
+        int numRelevant = 0;
+        for (boolean r : relevant) {
+            if (r) numRelevant++;
+        }
+        int[] attributes = new int[numRelevant];
+        numRelevant = 0;
+        for (int i = 0; i < numAttributes; i++) {
+            if (relevant[i]) attributes[numRelevant++] = i;
+        }
+        return new CompiledVersionSpace(n, numWords, attributes, numValues.clone(), offset, masks);
+    }
+
+    int numMembers() {
+        return numMembers;
+    }
+
+    /**
+     * Buffer de trabajo para {@link #countCovering}; se puede reutilizar entre filas.
+     */
+    long[] newScratch() {
+        return new long[numWords];
+    }
+
+    /**
+     * Número de hipótesis de S ∪ G que cubren la instancia.
+     *
+     * @param scratch buffer de {@link #newScratch}, sobrescrito en cada llamada
+     */
+    int countCovering(Instance instance, long[] scratch) {
+        if (numMembers == 0) {
+            return 0;
+        }
+        Arrays.fill(scratch, -1L);
+        scratch[numWords - 1] = lastWordMask;
+        for (int i : attributes) {
+            int v = instance.isMissing(i) ? numValues[i] : (int) instance.value(i);
+            int base = (offset[i] + v) * numWords;
+            for (int w = 0; w < numWords; w++) {
+                scratch[w] &= masks[base + w];
+            }
+        }
+        int count = 0;
+        for (int w = 0; w < numWords; w++) {
+            count += Long.bitCount(scratch[w]);
+        }
+        return count;
+    }
+}
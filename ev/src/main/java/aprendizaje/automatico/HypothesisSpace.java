@@ -0,0 +1,67 @@
+package aprendizaje.automatico;
+
+import weka.core.Instance;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Representación de las hipótesis conjuntivas que maneja el algoritmo de
+ * Candidatos-Eliminación. Cada implementación decide cómo codificar los
+ * valores concretos, el comodín '?' y la hipótesis vacía ∅.
+ *
+ * @param <H> tipo con el que se representa una hipótesis
+ */
+interface HypothesisSpace<H> extends Serializable {
+
+    /** Código de {@link #valueCode} para el comodín '?'. */
+    int ANY = -1;
+
+    int numAttributes();
+
+    /** Número de valores del dominio del atributo i. */
+    int numValues(int i);
+
+    /** Hipótesis más general: [?, ?, ..., ?]. */
+    H mostGeneral();
+
+    /** Hipótesis más específica: [∅, ∅, ..., ∅]. */
+    H mostSpecific();
+
+    /** Indica si h es el placeholder ∅ (no cubre ningún ejemplo real). */
+    boolean isMostSpecific(H h);
+
+    /** Convierte una instancia de Weka en una hipótesis. */
+    H fromInstance(Instance instance);
+
+    /** Convierte una fila de una vista por columnas en una hipótesis, sin pasar por Instance. */
+    H fromRow(NominalColumns data, int row);
+
+    H copy(H h);
+
+    /**
+     * Comprueba si la hipótesis h1 (general) es más general o igual que h2 (específica).
+     * También se usa para 'covers(hipótesis, ejemplo)'.
+     */
+    boolean covers(H h1, H h2);
+
+    /** Generalización mínima de h_s para que cubra el ejemplo positivo. */
+    H generalize(H h_s, H positiveExample);
+
+    /** Especializaciones mínimas de h_g que no cubren el ejemplo negativo. */
+    List<H> minimalSpecializations(H h_g, H negativeExample);
+
+    boolean sameHypothesis(H h1, H h2);
+
+    /** Hash coherente con {@link #sameHypothesis}. */
+    int hashHypothesis(H h);
+
+    /**
+     * Código del valor del atributo i en h: {@link #ANY} para '?', el índice del
+     * valor en el dominio si es concreto, o numValues() para ∅.
+     */
+    int valueCode(H h, int i);
+
+    /** Representación textual con el formato de {@code Arrays.toString}. */
+    String format(H h);
+}
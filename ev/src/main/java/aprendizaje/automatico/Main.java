@@ -1,9 +1,10 @@
 package aprendizaje.automatico;
 
 import weka.core.Instances;
-import weka.core.converters.ConverterUtils.DataSource;
+import weka.core.converters.ArffLoader;
 import weka.classifiers.Classifier;
 import weka.core.Instance;
+import weka.core.Utils;
 
 import java.io.File;
 
@@ -20,25 +21,62 @@ public class Main {
             // **IMPORTANTE:** Necesitas el archivo ARFF. Si no lo tienes, usa un PATH absoluto 
             // o descárgalo de los ejemplos de Weka.
             String dataPath = "data/coches.arff"; // Ejemplo de ruta local
-            
-            // Usar la clase DataSource de Weka para cargar el archivo
-            DataSource source = new DataSource(dataPath);
-            Instances data = source.getDataSet();
 
-            // 2. Establecer el atributo de clase
-            // Por ejemplo, el último atributo (índice data.numAttributes() - 1)
-            if (data.classIndex() == -1) {
-                data.setClassIndex(data.numAttributes() - 1);
-            }
+            // Con "-stream" las instancias se leen una a una con ArffLoader y se
+            // entrenan con updateClassifier, sin cargar el fichero en memoria.
+            boolean streaming = Utils.getFlag("stream", args);
+            // Con "-binary <fichero>" se entrena desde el formato binario por columnas,
+            // leyendo los valores del fichero mapeado sin crear Instances.
+            String binaryPath = Utils.getOption("binary", args);
 
-            // 3. Inicializar y Entrenar el Clasificador
+            // 3. Inicializar el Clasificador
             // Si CandidateElimination está en el paquete 'aprendizaje.automatico', úsalo directamente:
             CandidateElimination ceClassifier = new CandidateElimination();
-            
-            System.out.println("\nEntrenando clasificador...");
-            
-            // El método buildClassifier() realiza el entrenamiento
-            ceClassifier.buildClassifier(data);
+            // Opciones de Weka desde la línea de comandos (p. ej. "-E bitset")
+            ceClassifier.setOptions(args);
+
+            Instances data;
+            Instance testInstance;
+            if (binaryPath.length() != 0) {
+                ColumnarFile file = ColumnarFile.open(new File(binaryPath));
+                data = file.header();
+
+                System.out.println("\nEntrenando clasificador desde " + binaryPath + "...");
+
+                ceClassifier.buildClassifier(file);
+                testInstance = file.instance(0);
+            } else if (streaming) {
+                ArffLoader loader = new ArffLoader();
+                loader.setFile(new File(dataPath));
+                data = loader.getStructure();
+                // 2. Establecer el atributo de clase (el último)
+                data.setClassIndex(data.numAttributes() - 1);
+
+                System.out.println("\nEntrenando clasificador en streaming...");
+
+                // buildClassifier() con la cabecera inicializa S y G; cada instancia se procesa al leerla
+                ceClassifier.buildClassifier(data);
+                testInstance = null;
+                Instance instance;
+                while ((instance = loader.getNextInstance(data)) != null) {
+                    if (testInstance == null) {
+                        testInstance = instance;
+                    }
+                    ceClassifier.updateClassifier(instance);
+                }
+            } else {
+                // Cargar el ARFF por columnas, analizando la sección @data en paralelo
+                // con tantos hilos como -num-slots (la clase es el último atributo)
+                ColumnStore columns = ParallelArffLoader.load(new File(dataPath), ceClassifier.getNumExecutionSlots());
+                data = columns.header();
+
+                System.out.println("\nEntrenando clasificador...");
+
+                // El método buildClassifier() realiza el entrenamiento
+                ceClassifier.buildClassifier(columns);
+                // Tomamos el primer ejemplo como ejemplo de prueba
+                testInstance = columns.instance(0);
+            }
 
             System.out.println("Entrenamiento completado.");
             System.out.println("-----------------------------------");
@@ -49,9 +87,6 @@ public class Main {
             System.out.println("-----------------------------------");
 
             // 5. Probar el Clasificador en una Instancia
-            // Tomamos el primer ejemplo como ejemplo de prueba
-            Instance testInstance = data.instance(0); 
-            
             // El valor real de la clase del primer ejemplo
             double actualClassValue = testInstance.classValue();
             String actualClassLabel = data.classAttribute().value((int) actualClassValue);
@@ -0,0 +1,162 @@
+package aprendizaje.automatico;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Motor original: cada hipótesis es un {@code String[]} con el nombre del valor,
+ * "?" o el placeholder "∅".
+ */
+class StringHypothesisSpace implements HypothesisSpace<String[]> {
+
+    // Usaremos "\emptyset" para representar la hipótesis más específica (no cubre nada)
+    static final String MOST_SPECIFIC_PLACEHOLDER = "∅";
+
+    private final Instances m_data;
+    private final int numAttributes;
+
+    StringHypothesisSpace(Instances data) {
+        m_data = data;
+        // Excluir el atributo de clase, asumiendo que el índice de clase es el último.
+        numAttributes = data.classIndex();
+    }
+
+    @Override
+    public int numAttributes() {
+        return numAttributes;
+    }
+
+    @Override
+    public int numValues(int i) {
+        return m_data.attribute(i).numValues();
+    }
+
+    @Override
+    public String[] mostGeneral() {
+        String[] mostGeneral = new String[numAttributes];
+        Arrays.fill(mostGeneral, "?");
+        return mostGeneral;
+    }
+
+    @Override
+    public String[] mostSpecific() {
+        String[] mostSpecific = new String[numAttributes];
+        Arrays.fill(mostSpecific, MOST_SPECIFIC_PLACEHOLDER);
+        return mostSpecific;
+    }
+
+    @Override
+    public boolean isMostSpecific(String[] h) {
+        return h[0].equals(MOST_SPECIFIC_PLACEHOLDER);
+    }
+
+    @Override
+    public String[] fromInstance(Instance instance) {
+        String[] hypothesis = new String[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            hypothesis[i] = instance.stringValue(i);
+        }
+        return hypothesis;
+    }
+
+    @Override
+    public String[] fromRow(NominalColumns data, int row) {
+        String[] hypothesis = new String[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            int value = data.value(i, row);
+            hypothesis[i] = value < 0 ? "?" : m_data.attribute(i).value(value);
+        }
+        return hypothesis;
+    }
+
+    @Override
+    public String[] copy(String[] h) {
+        return h.clone();
+    }
+
+    @Override
+    public boolean covers(String[] h1, String[] h2) {
+        for (int i = 0; i < numAttributes; i++) {
+            // h1 es la hipótesis. Si es el placeholder, no cubre nada real.
+            if (h1[i].equals(MOST_SPECIFIC_PLACEHOLDER)) {
+                return false;
+            }
+            // Si h1 es un valor concreto y no coincide con h2 (ejemplo/hipótesis específica)
+            if (!h1[i].equals("?") && !h1[i].equals(h2[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String[] generalize(String[] h_s, String[] positiveExample) {
+        String[] h_new = h_s.clone();
+        for (int j = 0; j < numAttributes; j++) {
+            // Si el valor no es general ('?') y no coincide con el ejemplo, generalizarlo a '?'
+            if (!h_s[j].equals("?") && !h_s[j].equals(positiveExample[j])) {
+                h_new[j] = "?";
+            }
+        }
+        return h_new;
+    }
+
+    /**
+     * La especialización se realiza cambiando un '?' en g por un valor de dominio V
+     * tal que V != d-[i].
+     */
+    @Override
+    public List<String[]> minimalSpecializations(String[] h_g, String[] negativeExample) {
+        List<String[]> result = new ArrayList<>();
+
+        // Para cada atributo i
+        for (int i = 0; i < numAttributes; i++) {
+            // Solo especializar si el atributo en G es general ('?')
+            if (h_g[i].equals("?")) {
+                Attribute attr = m_data.attribute(i);
+
+                // Iterar sobre todos los valores posibles del dominio
+                for (int j = 0; j < attr.numValues(); j++) {
+                    String domainValue = attr.value(j);
+
+                    // Ese valor CONCRETO debe ser DIFERENTE del valor del ejemplo negativo en esa posición.
+                    if (!domainValue.equals(negativeExample[i])) {
+                        String[] h_new = h_g.clone();
+                        h_new[i] = domainValue;
+                        result.add(h_new);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean sameHypothesis(String[] h1, String[] h2) {
+        return Arrays.equals(h1, h2);
+    }
+
+    @Override
+    public int hashHypothesis(String[] h) {
+        return Arrays.hashCode(h);
+    }
+
+    @Override
+    public int valueCode(String[] h, int i) {
+        if (h[i].equals("?")) {
+            return ANY;
+        }
+        Attribute attr = m_data.attribute(i);
+        return h[i].equals(MOST_SPECIFIC_PLACEHOLDER) ? attr.numValues() : attr.indexOfValue(h[i]);
+    }
+
+    @Override
+    public String format(String[] h) {
+        return Arrays.toString(h);
+    }
+}
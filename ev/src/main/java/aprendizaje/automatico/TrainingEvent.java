@@ -0,0 +1,29 @@
+package aprendizaje.automatico;
+
+/**
+ * Resumen de una iteración del entrenamiento de {@link CandidateElimination}:
+ * tamaño de las fronteras antes y después de procesar la instancia y tiempo
+ * empleado en la actualización.
+ *
+ * @param iteration      número de la instancia procesada (empezando en 1)
+ * @param numInstances   número total de instancias, o -1 si no se conoce
+ * @param positive       si la instancia era un ejemplo positivo
+ * @param sizeSBefore    tamaño de S antes de la actualización
+ * @param sizeGBefore    tamaño de G antes de la actualización
+ * @param sizeSAfter     tamaño de S después de la actualización
+ * @param sizeGAfter     tamaño de G después de la actualización
+ * @param discarded      hipótesis descartadas por el límite de tamaño (-M) en esta iteración
+ * @param elapsedNanos   tiempo de la actualización en nanosegundos
+ */
+public record TrainingEvent(int iteration, int numInstances, boolean positive,
+                            int sizeSBefore, int sizeGBefore,
+                            int sizeSAfter, int sizeGAfter, int discarded,
+                            long elapsedNanos) {
+
+    /**
+     * Indica si el espacio de versiones ha quedado vacío tras la actualización.
+     */
+    public boolean collapsed() {
+        return sizeSAfter == 0 || sizeGAfter == 0;
+    }
+}
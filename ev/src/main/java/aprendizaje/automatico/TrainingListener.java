@@ -0,0 +1,12 @@
+package aprendizaje.automatico;
+
+/**
+ * Recibe un {@link TrainingEvent} por cada instancia que procesa
+ * {@link CandidateElimination}. Solo se mide el tiempo y se crean eventos si hay
+ * algún listener registrado o la traza está en modo "summary".
+ */
+@FunctionalInterface
+public interface TrainingListener {
+
+    void iterationCompleted(TrainingEvent event);
+}
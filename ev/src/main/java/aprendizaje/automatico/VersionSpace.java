@@ -0,0 +1,303 @@
+package aprendizaje.automatico;
+
+import weka.core.Instance;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Fronteras S y G del espacio de versiones y reglas de actualización del
+ * algoritmo de Candidatos-Eliminación, independientes de la representación
+ * de las hipótesis.
+ *
+ * @param <H> tipo con el que se representa una hipótesis
+ */
+class VersionSpace<H> implements Serializable {
+
+    private final HypothesisSpace<H> space;
+    private final Boundary<H> S_boundary; // Conjunto de hipótesis más Específicas
+    private final Boundary<H> G_boundary; // Conjunto de hipótesis más Generales
+    private transient ForkJoinPool pool; // Si no es null, G se especializa en paralelo
+    private int maxBoundarySize; // 0 = sin límite
+    private int numTruncations; // Veces que se ha aplicado el límite
+    private long numDiscarded; // Hipótesis descartadas por el límite
+    private int maxSizeBeforeTruncation; // Mayor tamaño alcanzado por una frontera antes de recortarla
+
+    /**
+     * Inicializa S y G.
+     * S0: {\emptyset} (hipótesis más específica).
+     * G0: {?, ?, ?, ?} (hipótesis más general).
+     */
+    VersionSpace(HypothesisSpace<H> space) {
+        this.space = space;
+        S_boundary = new Boundary<>(space);
+        G_boundary = new Boundary<>(space);
+        G_boundary.add(space.mostGeneral());
+        S_boundary.add(space.mostSpecific());
+    }
+
+    /**
+     * Activa (pool != null) o desactiva la especialización paralela de G.
+     */
+    void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Limita el tamaño de S y G. Al superarlo, G conserva las hipótesis de mayor
+     * cobertura y S las de menor, de modo que el espacio de versiones pasa a ser
+     * una aproximación. Con G acotada, las especializaciones candidatas de cada
+     * ejemplo negativo también lo están (a lo sumo maxSize * suma de numValues()).
+     *
+     * @param maxSize tamaño máximo de cada frontera, o 0 para no limitarlo
+     */
+    void setMaxBoundarySize(int maxSize) {
+        this.maxBoundarySize = maxSize;
+    }
+
+    int getNumTruncations() {
+        return numTruncations;
+    }
+
+    long getNumDiscarded() {
+        return numDiscarded;
+    }
+
+    int getMaxSizeBeforeTruncation() {
+        return maxSizeBeforeTruncation;
+    }
+
+    HypothesisSpace<H> getSpace() {
+        return space;
+    }
+
+    Boundary<H> getSpecificBoundary() {
+        return S_boundary;
+    }
+
+    Boundary<H> getGeneralBoundary() {
+        return G_boundary;
+    }
+
+    boolean isCollapsed() {
+        return S_boundary.isEmpty() || G_boundary.isEmpty();
+    }
+
+    /**
+     * Si es POSITIVO: Generalizar S, Especializar G.
+     *
+     * @return número de hipótesis descartadas por el límite de tamaño
+     */
+    int addPositive(Instance instance) {
+        return addPositive(space.fromInstance(instance));
+    }
+
+    int addPositive(NominalColumns data, int row) {
+        return addPositive(space.fromRow(data, row));
+    }
+
+    private int addPositive(H positiveExample) {
+        // 2.1.1 Eliminar de G las inconsistentes (las que NO cubren d+)
+        pruneGeneralBoundary(positiveExample);
+        // 2.1.2 Actualizar S (generalizar las inconsistentes y verificar contra G)
+        updateSpecificBoundary(positiveExample);
+        return applyLimit(S_boundary, false);
+    }
+
+    /**
+     * Si es NEGATIVO: Especializar G, Podar S.
+     *
+     * @return número de hipótesis descartadas por el límite de tamaño
+     */
+    int addNegative(Instance instance) {
+        return addNegative(space.fromInstance(instance));
+    }
+
+    int addNegative(NominalColumns data, int row) {
+        return addNegative(space.fromRow(data, row));
+    }
+
+    private int addNegative(H negativeExample) {
+        // 2.2.1 Eliminar de S las inconsistentes (las que SÍ cubren d-)
+        pruneSpecificBoundary(negativeExample);
+        // 2.2.2 Actualizar G (especializar las inconsistentes y verificar contra S)
+        updateGeneralBoundary(negativeExample);
+        return applyLimit(G_boundary, true);
+    }
+
+    private int applyLimit(Boundary<H> boundary, boolean keepMostGeneral) {
+        if (maxBoundarySize <= 0 || boundary.size() <= maxBoundarySize) {
+            return 0;
+        }
+        maxSizeBeforeTruncation = Math.max(maxSizeBeforeTruncation, boundary.size());
+        int discarded = boundary.truncate(maxBoundarySize, keepMostGeneral);
+        numTruncations++;
+        numDiscarded += discarded;
+        return discarded;
+    }
+
+    /**
+     * Implementa la lógica para generalizar S con un ejemplo positivo.
+     */
+    void updateSpecificBoundary(H positiveExample) {
+        List<H> hypothesesToRemove = new ArrayList<>();
+        Boundary<H> hypothesesToAdd = new Boundary<>(space);
+
+        for (H s : S_boundary) {
+            // Caso especial: si S0 sigue en S, debe ser reemplazado por el primer positivo.
+            if (space.isMostSpecific(s)) {
+                hypothesesToRemove.add(s);
+                hypothesesToAdd.add(space.copy(positiveExample));
+            }
+            // Si S es inconsistente (no cubre d+) y NO es el placeholder inicial
+            else if (!space.covers(s, positiveExample)) {
+                hypothesesToRemove.add(s);
+
+                // Generalización mínima: h
+                H h = space.generalize(s, positiveExample);
+
+                // h debe ser consistente con G (más específica que alguna g en G)
+                // Evitar añadir duplicados (hypothesesToAdd los descarta por hash)
+                if (isConsistentWithG(h) && !S_boundary.contains(h)) {
+                    hypothesesToAdd.add(h);
+                }
+            }
+        }
+        S_boundary.removeAll(hypothesesToRemove);
+        S_boundary.addAll(hypothesesToAdd);
+
+        // Eliminar redundancias (hipótesis más generales que otras en S)
+        S_boundary.removeMoreGeneralHypotheses();
+    }
+
+    /**
+     * Elimina de G las hipótesis que son inconsistentes con un ejemplo positivo.
+     * (es decir, que no cubren el ejemplo positivo).
+     */
+    void pruneGeneralBoundary(H positiveExample) {
+        G_boundary.removeIf(g -> !space.covers(g, positiveExample));
+    }
+
+    /**
+     * Elimina de S las hipótesis que son inconsistentes con un ejemplo negativo.
+     * (es decir, que cubren el ejemplo negativo).
+     */
+    void pruneSpecificBoundary(H negativeExample) {
+        // El placeholder inicial NUNCA cubre un ejemplo real.
+        S_boundary.removeIf(s -> !space.isMostSpecific(s) && space.covers(s, negativeExample));
+    }
+
+    /**
+     * Implementa la lógica para especializar G con un ejemplo negativo.
+     */
+    void updateGeneralBoundary(H negativeExample) {
+        if (pool != null && G_boundary.size() >= Boundary.PARALLEL_CHUNK) {
+            updateGeneralBoundaryParallel(negativeExample);
+            return;
+        }
+        List<H> hypothesesToRemove = new ArrayList<>();
+        Boundary<H> hypothesesToAdd = new Boundary<>(space);
+
+        for (H g : G_boundary) {
+            // Si G es inconsistente (cubre el ejemplo negativo)
+            if (space.covers(g, negativeExample)) {
+                hypothesesToRemove.add(g);
+
+                // Generar especializaciones mínimas
+                List<H> specializations = space.minimalSpecializations(g, negativeExample);
+
+                for (H h : specializations) {
+                    // h debe ser consistente con S (más general que algún miembro de S)
+                    // Evitar añadir duplicados (hypothesesToAdd los descarta por hash)
+                    if (isConsistentWithS(h) && !G_boundary.contains(h)) {
+                        hypothesesToAdd.add(h);
+                    }
+                }
+            }
+        }
+        G_boundary.removeAll(hypothesesToRemove);
+        G_boundary.addAll(hypothesesToAdd);
+
+        // Eliminar redundancias (hipótesis más específicas que otras en G)
+        G_boundary.removeSubsumed(null);
+    }
+
+    /**
+     * Versión paralela de {@link #updateGeneralBoundary}. Cada g se especializa en
+     * una tarea distinta y las especializaciones se deduplican en un mapa
+     * concurrente que guarda, para cada hipótesis, la posición (g, especialización)
+     * en la que la habría encontrado el recorrido secuencial. Al ordenar por esa
+     * posición se obtiene exactamente la misma frontera G que en modo secuencial.
+     */
+    private void updateGeneralBoundaryParallel(H negativeExample) {
+        List<H> members = G_boundary.asList();
+        int n = members.size();
+        boolean[] hypothesesToRemove = new boolean[n];
+        Map<Boundary.Key<H>, Long> hypothesesToAdd = new ConcurrentHashMap<>();
+
+        pool.submit(() -> IntStream.range(0, n).parallel().forEach(gi -> {
+            H g = members.get(gi);
+            // Si G es inconsistente (cubre el ejemplo negativo)
+            if (!space.covers(g, negativeExample)) {
+                return;
+            }
+            hypothesesToRemove[gi] = true;
+            List<H> specializations = space.minimalSpecializations(g, negativeExample);
+            for (int j = 0; j < specializations.size(); j++) {
+                H h = specializations.get(j);
+                if (isConsistentWithS(h) && !G_boundary.contains(h)) {
+                    hypothesesToAdd.merge(new Boundary.Key<>(space, h), ((long) gi << 32) | j, Math::min);
+                }
+            }
+        })).join();
+
+        List<Map.Entry<Boundary.Key<H>, Long>> ordered = new ArrayList<>(hypothesesToAdd.entrySet());
+        ordered.sort(Map.Entry.comparingByValue(Comparator.naturalOrder()));
+
+        G_boundary.removeMarked(hypothesesToRemove);
+        for (Map.Entry<Boundary.Key<H>, Long> entry : ordered) {
+            G_boundary.add(entry.getKey().hypothesis());
+        }
+        G_boundary.removeSubsumed(pool);
+    }
+
+    /**
+     * Comprueba si una hipótesis h es más general o igual que *alguna* hipótesis en S.
+     */
+    private boolean isConsistentWithS(H h) {
+        // Si S solo contiene el placeholder, cualquier especialización de G es válida por ahora.
+        if (S_boundary.size() == 1 && space.isMostSpecific(S_boundary.get(0))) {
+            return true;
+        }
+
+        for (H s : S_boundary) {
+            // Ignorar el placeholder inicial de S si aún está por error (aunque el primer positivo lo elimina)
+            if (space.isMostSpecific(s)) continue;
+
+            // h es consistente con S si cubre/es más general que s
+            if (space.covers(h, s)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Comprueba si una hipótesis h es más específica o igual que *alguna* hipótesis en G.
+     */
+    private boolean isConsistentWithG(H h) {
+        for (H g : G_boundary) {
+            // h es consistente con G si g cubre/es más general que h
+            if (space.covers(g, h)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,463 @@
+package aprendizaje.automatico;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SelectedTag;
+import weka.core.SerializedObject;
+import weka.core.converters.ConverterUtils.DataSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Los dos motores de {@link CandidateElimination} llegan a las mismas
+ * fronteras S y G que la implementación original, y con cualquier número de hilos.
+ */
+public class CandidateEliminationTest extends TestCase {
+
+    private static final String[] FILES = {
+            "data/coches.arff",
+            "data/weather.nominal.arff",
+            "data/weather.nominal2.arff"
+    };
+
+    public CandidateEliminationTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(CandidateEliminationTest.class);
+    }
+
+    private static Instances load(String path) throws Exception {
+        Instances data = new DataSource(path).getDataSet();
+        data.setClassIndex(data.numAttributes() - 1);
+        return data;
+    }
+
+    private static CandidateElimination train(Instances data, int engine, int numSlots) throws Exception {
+        CandidateElimination model = new CandidateElimination();
+        model.setEngine(new SelectedTag(engine, CandidateElimination.TAGS_ENGINE));
+        model.setTraceLevel(new SelectedTag(CandidateElimination.TRACE_OFF, CandidateElimination.TAGS_TRACE));
+        model.setNumExecutionSlots(numSlots);
+        model.buildClassifier(data);
+        return model;
+    }
+
+    /**
+     * Hipótesis de la frontera que sigue al título en {@code toString}, ordenadas.
+     */
+    private static List<String> boundary(CandidateElimination model, String title) {
+        List<String> hypotheses = new ArrayList<>();
+        boolean inside = false;
+        for (String line : model.toString().split("\n")) {
+            if (line.startsWith("Hipótesis ")) {
+                inside = line.startsWith(title);
+            } else if (inside && line.startsWith("\t")) {
+                hypotheses.add(line.trim());
+            }
+        }
+        Collections.sort(hypotheses);
+        return hypotheses;
+    }
+
+    private static void assertSameBoundaries(String message, CandidateElimination expected,
+                                             CandidateElimination actual) {
+        assertEquals(message + ": S", boundary(expected, "Hipótesis S"), boundary(actual, "Hipótesis S"));
+        assertEquals(message + ": G", boundary(expected, "Hipótesis G"), boundary(actual, "Hipótesis G"));
+    }
+
+    public void testEnginesAgree() throws Exception {
+        for (String path : FILES) {
+            Instances data = load(path);
+            CandidateElimination strings = train(data, CandidateElimination.ENGINE_STRING, 1);
+            CandidateElimination bits = train(data, CandidateElimination.ENGINE_BITSET, 1);
+            assertSameBoundaries(path, strings, bits);
+            assertEquals(path, strings.toString(), bits.toString());
+        }
+    }
+
+    /**
+     * Fronteras finales que daba la implementación original (un único bucle
+     * sobre String[]) con los tres ficheros de ejemplo; null si el espacio de
+     * versiones colapsa.
+     */
+    private static final String[][][] ORIGINAL_BOUNDARIES = {
+            {{"[Japon, ?, ?, ?, Economico]"}, {"[Japon, ?, ?, ?, Economico]"}},
+            null,
+            {{"[overcast, cool, ?, ?]"}, {"[?, cool, ?, ?]"}}
+    };
+
+    public void testMatchesOriginalImplementation() throws Exception {
+        for (int f = 0; f < FILES.length; f++) {
+            Instances data = load(FILES[f]);
+            for (int engine : new int[] {CandidateElimination.ENGINE_STRING, CandidateElimination.ENGINE_BITSET}) {
+                for (int numSlots : new int[] {1, 4}) {
+                    CandidateElimination model = train(data, engine, numSlots);
+                    String message = FILES[f] + ", motor " + engine + ", " + numSlots + " hilos";
+                    if (ORIGINAL_BOUNDARIES[f] == null) {
+                        assertTrue(message, model.getVersionSpace().isCollapsed());
+                        assertEquals(message, "Candidate-Elimination: El espacio de versiones es vacío (inconsistente).",
+                                model.toString());
+                    } else {
+                        assertEquals(message + ": S", Arrays.asList(ORIGINAL_BOUNDARIES[f][0]),
+                                boundary(model, "Hipótesis S"));
+                        assertEquals(message + ": G", Arrays.asList(ORIGINAL_BOUNDARIES[f][1]),
+                                boundary(model, "Hipótesis G"));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * También tras cada instancia, antes de que el espacio pueda colapsar.
+     */
+    public void testEnginesAgreeAfterEachInstance() throws Exception {
+        for (String path : FILES) {
+            Instances data = load(path);
+            Instances header = new Instances(data, 0);
+            CandidateElimination strings = train(header, CandidateElimination.ENGINE_STRING, 1);
+            CandidateElimination bits = train(header, CandidateElimination.ENGINE_BITSET, 1);
+            for (int r = 0; r < data.numInstances(); r++) {
+                strings.updateClassifier(data.instance(r));
+                bits.updateClassifier(data.instance(r));
+                assertSameBoundaries(path + " tras la fila " + r, strings, bits);
+            }
+        }
+    }
+
+    /**
+     * Datos nominales aleatorios: numNegative ejemplos negativos, uno positivo y
+     * otros numNegative negativos. Los primeros negativos hacen crecer G.
+     */
+    private static Instances randomData(int numAttributes, int arity, int numNegative, long seed) {
+        Random random = new Random(seed);
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        for (int i = 0; i < numAttributes; i++) {
+            List<String> values = new ArrayList<>();
+            for (int v = 0; v < arity; v++) {
+                values.add("v" + v);
+            }
+            attributes.add(new Attribute("a" + i, values));
+        }
+        List<String> classes = new ArrayList<>();
+        classes.add("yes");
+        classes.add("no");
+        attributes.add(new Attribute("clase", classes));
+        Instances data = new Instances("aleatorio", attributes, 2 * numNegative + 1);
+        data.setClassIndex(numAttributes);
+        for (int r = 0; r < 2 * numNegative + 1; r++) {
+            double[] values = new double[numAttributes + 1];
+            for (int i = 0; i < numAttributes; i++) {
+                values[i] = random.nextInt(arity);
+            }
+            values[numAttributes] = r == numNegative ? 0 : 1;
+            data.add(new DenseInstance(1.0, values));
+        }
+        return data;
+    }
+
+    /**
+     * Con G por encima de {@link Boundary#PARALLEL_CHUNK}, la especialización
+     * en paralelo da las mismas fronteras, en el mismo orden, que la secuencial.
+     */
+    public void testParallelGeneralBoundary() throws Exception {
+        Instances data = randomData(10, 3, 10, 1);
+        for (int engine : new int[] {CandidateElimination.ENGINE_STRING, CandidateElimination.ENGINE_BITSET}) {
+            Instances header = new Instances(data, 0);
+            CandidateElimination sequential = train(header, engine, 1);
+            CandidateElimination parallel = train(header, engine, 4);
+            // Mayor G que ha tenido que especializarse ante un negativo
+            int[] maxG = {0};
+            sequential.addTrainingListener(event -> {
+                if (!event.positive()) {
+                    maxG[0] = Math.max(maxG[0], event.sizeGBefore());
+                }
+            });
+            for (int r = 0; r < data.numInstances(); r++) {
+                sequential.updateClassifier(data.instance(r));
+                parallel.updateClassifier(data.instance(r));
+                assertEquals("fila " + r, sequential.toString(), parallel.toString());
+            }
+            assertTrue("G no llegó a " + Boundary.PARALLEL_CHUNK + ": " + maxG[0], maxG[0] >= Boundary.PARALLEL_CHUNK);
+            assertFalse(boundary(sequential, "Hipótesis G").isEmpty());
+        }
+    }
+
+    /**
+     * Cobertura de h (producto de numValues() de los atributos con '?'; 0 para ∅),
+     * calculada aquí sin pasar por {@link Boundary}.
+     */
+    private static <H> double coverage(HypothesisSpace<H> space, H h) {
+        double coverage = 1;
+        for (int i = 0; i < space.numAttributes(); i++) {
+            int code = space.valueCode(h, i);
+            if (code == HypothesisSpace.ANY) {
+                coverage *= space.numValues(i);
+            } else if (code == space.numValues(i)) {
+                return 0;
+            }
+        }
+        return coverage;
+    }
+
+    /**
+     * Las maxSize hipótesis de mayor (o menor) cobertura, con empates por orden
+     * de inserción, en el orden en que aparecen en la lista.
+     */
+    private static <H> List<String> expectedTruncation(HypothesisSpace<H> space, List<H> hypotheses,
+                                                       int maxSize, boolean keepMostGeneral) {
+        int n = hypotheses.size();
+        Integer[] order = new Integer[n];
+        for (int m = 0; m < n; m++) {
+            order[m] = m;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int cmp = Double.compare(coverage(space, hypotheses.get(b)), coverage(space, hypotheses.get(a)));
+            return keepMostGeneral ? cmp : -cmp;
+        });
+        boolean[] keep = new boolean[n];
+        for (int k = 0; k < Math.min(maxSize, n); k++) {
+            keep[order[k]] = true;
+        }
+        List<String> kept = new ArrayList<>();
+        for (int m = 0; m < n; m++) {
+            if (keep[m]) {
+                kept.add(space.format(hypotheses.get(m)));
+            }
+        }
+        return kept;
+    }
+
+    private static <H> List<String> format(HypothesisSpace<H> space, Iterable<H> hypotheses) {
+        List<String> formatted = new ArrayList<>();
+        for (H h : hypotheses) {
+            formatted.add(space.format(h));
+        }
+        return formatted;
+    }
+
+    /**
+     * {@link Boundary#truncate} conserva las hipótesis de mayor cobertura (G) o
+     * de menor (S) sobre una G real de varios cientos de hipótesis.
+     */
+    public void testTruncateKeepsCoverageExtremes() throws Exception {
+        Instances data = randomData(10, 3, 10, 1);
+        StringHypothesisSpace space = new StringHypothesisSpace(data);
+        VersionSpace<String[]> versionSpace = new VersionSpace<>(space);
+        for (int r = 0; r < 6; r++) {
+            versionSpace.addNegative(data.instance(r));
+        }
+        List<String[]> general = versionSpace.getGeneralBoundary().asList();
+        int maxSize = 25;
+        assertTrue("G solo tiene " + general.size(), general.size() > 4 * maxSize);
+
+        for (boolean keepMostGeneral : new boolean[] {true, false}) {
+            Boundary<String[]> boundary = new Boundary<>(space);
+            boundary.addAll(general);
+            int discarded = boundary.truncate(maxSize, keepMostGeneral);
+            assertEquals(general.size() - maxSize, discarded);
+            assertEquals(maxSize, boundary.size());
+            assertEquals(expectedTruncation(space, general, maxSize, keepMostGeneral), format(space, boundary));
+
+            // Ninguna descartada está más allá de las conservadas en el sentido del recorte
+            double worstKept = keepMostGeneral ? Double.MAX_VALUE : 0;
+            for (String[] h : boundary) {
+                worstKept = keepMostGeneral ? Math.min(worstKept, coverage(space, h))
+                        : Math.max(worstKept, coverage(space, h));
+            }
+            for (String[] h : general) {
+                if (!boundary.contains(h)) {
+                    double c = coverage(space, h);
+                    assertTrue(keepMostGeneral ? c <= worstKept : c >= worstKept);
+                }
+            }
+            assertEquals(0, boundary.truncate(maxSize, keepMostGeneral));
+        }
+    }
+
+    /**
+     * Con límite, tras cada instancia G es exactamente el recorte de la G que
+     * se habría obtenido sin límite desde el mismo estado.
+     */
+    @SuppressWarnings("unchecked")
+    public void testApplyLimitKeepsHighestCoverage() throws Exception {
+        Instances data = randomData(10, 3, 10, 2);
+        int maxSize = 20;
+        for (HypothesisSpace<?> space : new HypothesisSpace<?>[] {
+                new StringHypothesisSpace(data), new BitHypothesisSpace(data)}) {
+            VersionSpace<Object> capped = new VersionSpace<>((HypothesisSpace<Object>) space);
+            capped.setMaxBoundarySize(maxSize);
+            long discarded = 0;
+            int truncations = 0;
+            for (int r = 0; r < data.numInstances(); r++) {
+                VersionSpace<Object> unlimited = (VersionSpace<Object>) new SerializedObject(capped).getObject();
+                unlimited.setMaxBoundarySize(0);
+                boolean positive = data.instance(r).classValue() == 0;
+                int step;
+                if (positive) {
+                    unlimited.addPositive(data.instance(r));
+                    step = capped.addPositive(data.instance(r));
+                } else {
+                    unlimited.addNegative(data.instance(r));
+                    step = capped.addNegative(data.instance(r));
+                }
+                HypothesisSpace<Object> s = capped.getSpace();
+                List<Object> full = unlimited.getGeneralBoundary().asList();
+                assertEquals("fila " + r, expectedTruncation(s, full, maxSize, true),
+                        format(s, capped.getGeneralBoundary()));
+                assertEquals("fila " + r, expectedTruncation(s, unlimited.getSpecificBoundary().asList(),
+                        maxSize, false), format(s, capped.getSpecificBoundary()));
+                assertEquals("fila " + r, Math.max(0, full.size() - maxSize)
+                        + Math.max(0, unlimited.getSpecificBoundary().size() - maxSize), step);
+                discarded += step;
+                truncations += step > 0 ? 1 : 0;
+            }
+            assertTrue("no se aplicó el límite", truncations > 0);
+            assertEquals(discarded, capped.getNumDiscarded());
+            assertEquals(truncations, capped.getNumTruncations());
+        }
+    }
+
+    /**
+     * Con -M, S y G no superan el límite tras ninguna instancia y las medidas
+     * de {@link weka.core.AdditionalMeasureProducer} cuentan lo descartado.
+     */
+    public void testMaxBoundarySizeOption() throws Exception {
+        Instances data = randomData(10, 3, 10, 1);
+        int maxSize = 20;
+        for (String engine : new String[] {"string", "bitset"}) {
+            for (int numSlots : new int[] {1, 4}) {
+                CandidateElimination model = new CandidateElimination();
+                model.setOptions(new String[] {"-E", engine, "-T", "off", "-M", "" + maxSize,
+                        "-num-slots", "" + numSlots});
+                model.buildClassifier(new Instances(data, 0));
+                long[] discarded = {0};
+                int[] truncations = {0};
+                int[] maxBefore = {0};
+                model.addTrainingListener(event -> {
+                    assertTrue(event.sizeSAfter() <= maxSize);
+                    assertTrue(event.sizeGAfter() <= maxSize);
+                    discarded[0] += event.discarded();
+                    if (event.discarded() > 0) {
+                        truncations[0]++;
+                        maxBefore[0] = Math.max(maxBefore[0], (event.positive() ? event.sizeSAfter()
+                                : event.sizeGAfter()) + event.discarded());
+                    }
+                });
+                for (int r = 0; r < data.numInstances(); r++) {
+                    model.updateClassifier(data.instance(r));
+                    assertTrue(boundary(model, "Hipótesis S").size() <= maxSize);
+                    assertTrue(boundary(model, "Hipótesis G").size() <= maxSize);
+                }
+                String message = engine + ", " + numSlots + " hilos";
+                assertTrue(message, truncations[0] > 0);
+                assertEquals(message, (double) discarded[0], model.getMeasure("measureNumDiscardedHypotheses"));
+                assertEquals(message, (double) truncations[0], model.getMeasure("measureNumTruncations"));
+                assertEquals(message, (double) maxBefore[0],
+                        model.getMeasure("measureMaxBoundarySizeBeforeTruncation"));
+                assertTrue(Collections.list(model.enumerateMeasures()).contains("measureNumDiscardedHypotheses"));
+            }
+        }
+    }
+
+    /**
+     * Distribución esperada calculada directamente sobre las fronteras: fracción
+     * de hipótesis distintas de S ∪ G cuyo covers() acepta la instancia.
+     */
+    private static <H> double[] expectedVote(VersionSpace<H> versionSpace, Instances header, Instance instance) {
+        HypothesisSpace<H> space = versionSpace.getSpace();
+        Boundary<H> members = new Boundary<>(space);
+        members.addAll(versionSpace.getSpecificBoundary());
+        members.addAll(versionSpace.getGeneralBoundary());
+        H example = space.fromInstance(instance);
+        int covering = 0;
+        for (H h : members) {
+            if (space.covers(h, example)) {
+                covering++;
+            }
+        }
+        double[] dist = new double[header.numClasses()];
+        int yes = header.classAttribute().indexOfValue("yes");
+        int no = header.classAttribute().indexOfValue("no");
+        if (members.size() == 0) {
+            dist[no] = 1;
+        } else {
+            dist[yes] = (double) covering / members.size();
+            dist[no] = 1 - dist[yes];
+        }
+        return dist;
+    }
+
+    /**
+     * Todas las combinaciones de valores posibles si son pocas; si no, una muestra aleatoria.
+     */
+    private static Instances queries(Instances data, long seed) {
+        Instances queries = new Instances(data, 0);
+        int numAttributes = data.classIndex();
+        long combinations = 1;
+        for (int i = 0; i < numAttributes; i++) {
+            combinations *= data.attribute(i).numValues();
+        }
+        Random random = new Random(seed);
+        int count = (int) Math.min(combinations, 500);
+        for (int q = 0; q < count; q++) {
+            double[] values = new double[data.numAttributes()];
+            long rest = q;
+            for (int i = 0; i < numAttributes; i++) {
+                int numValues = data.attribute(i).numValues();
+                values[i] = combinations <= 500 ? rest % numValues : random.nextInt(numValues);
+                rest /= numValues;
+            }
+            values[numAttributes] = 0;
+            queries.add(new DenseInstance(1.0, values));
+        }
+        return queries;
+    }
+
+    private static void assertVotes(String message, CandidateElimination model, Instances queries) throws Exception {
+        double[][] batch = model.distributionsForInstances(queries);
+        assertEquals(message, queries.numInstances(), batch.length);
+        for (int q = 0; q < queries.numInstances(); q++) {
+            double[] expected = expectedVote(model.getVersionSpace(), queries, queries.instance(q));
+            double[] single = model.distributionForInstance(queries.instance(q));
+            for (int c = 0; c < expected.length; c++) {
+                assertEquals(message + ", consulta " + q, expected[c], single[c], 1e-12);
+                assertEquals(message + ", consulta " + q + " (lote)", single[c], batch[q][c], 0);
+            }
+        }
+    }
+
+    /**
+     * La votación compilada coincide con contar a mano las hipótesis de S ∪ G
+     * que cubren cada instancia, y el lote coincide con las llamadas sueltas,
+     * con los dos motores y tras cada instancia de entrenamiento.
+     */
+    public void testVotingMatchesBoundaries() throws Exception {
+        List<Instances> datasets = new ArrayList<>();
+        for (String path : FILES) {
+            datasets.add(load(path));
+        }
+        datasets.add(randomData(10, 3, 10, 3));
+        for (Instances data : datasets) {
+            Instances queries = queries(data, 7);
+            for (int engine : new int[] {CandidateElimination.ENGINE_STRING, CandidateElimination.ENGINE_BITSET}) {
+                CandidateElimination model = train(new Instances(data, 0), engine, 1);
+                assertVotes(data.relationName() + ", inicial", model, queries);
+                for (int r = 0; r < data.numInstances(); r++) {
+                    model.updateClassifier(data.instance(r));
+                    assertVotes(data.relationName() + ", motor " + engine + ", fila " + r, model, queries);
+                }
+            }
+        }
+    }
+}
@@ -1,30 +1,42 @@
 package aprendizaje.automatico;
 
-import weka.clusterers.SimpleKMeans;
 import weka.core.Instances;
-import we.core.converters.ConverterUtils.DataSource;
+import weka.core.Utils;
+import weka.core.converters.ConverterUtils.DataSource;
+
+import java.util.Arrays;
 
 public class App {
     public static void main(String[] args) {
         try {
-            // Load the dataset
-            DataSource source = new DataSource("../../ev/data/weather.nominal.arff");
-            Instances data = source.getDataSet();
+            // Cargar el conjunto de datos (el mismo que usan los demás módulos)
+            String dataPath = args.length > 0 && !args[0].startsWith("-") ? args[0] : "../../ev/data/weather.nominal.arff";
+            DataSource source = new DataSource(dataPath);
 
-            // Create a new k-means clusterer
-            SimpleKMeans kMeans = new SimpleKMeans();
+            // Opciones de Weka desde la línea de comandos (p. ej. "-N 3 -A ELKAN -num-slots 0")
+            String[] options = args.length > 0 && !args[0].startsWith("-")
+                    ? Arrays.copyOfRange(args, 1, args.length) : args.clone();
 
-            // Set the number of clusters
-            kMeans.setNumClusters(2);
+            // Con -stream, k-medias por minilotes leyendo el fichero instancia a instancia (p. ej. "-stream -N 3 -B 500")
+            if (Utils.getFlag("stream", options)) {
+                MiniBatchKMeans miniBatch = new MiniBatchKMeans();
+                miniBatch.setOptions(options);
+                miniBatch.cluster(source);
+                System.out.println(miniBatch);
+                return;
+            }
+            Instances data = source.getDataSet();
 
-            // Build the clusterer
+            // Crear el k-medias (2 grupos si no se indica -N) y construirlo
+            KMeans kMeans = new KMeans();
+            kMeans.setOptions(options);
             kMeans.buildClusterer(data);
 
-            // Print the cluster assignments
+            // Mostrar los grupos y sus centroides
             System.out.println(kMeans);
 
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+}
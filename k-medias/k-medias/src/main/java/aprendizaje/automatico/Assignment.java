@@ -0,0 +1,440 @@
+package aprendizaje.automatico;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import static aprendizaje.automatico.KMeans.ELKAN;
+import static aprendizaje.automatico.KMeans.HAMERLY;
+
+/**
+ * Iteraciones de k-medias: el grupo de cada punto, los centroides y las sumas
+ * con que se recalculan.
+ *
+ * Con LLOYD se calculan en cada pasada las k distancias de cada punto. HAMERLY
+ * y ELKAN mantienen cotas de la distancia, que se corrigen con lo que se ha
+ * movido cada centroide, y por la desigualdad triangular se saltan las
+ * distancias que no pueden cambiar el grupo:
+ * <ul>
+ * <li>HAMERLY: una cota superior de la distancia al centroide propio y una
+ * inferior de la distancia al segundo más cercano. Si la superior no pasa de
+ * la inferior ni de la mitad de la distancia del centroide propio al más
+ * cercano, el punto no cambia de grupo sin calcular nada.</li>
+ * <li>ELKAN: además, una cota inferior por punto y centroide (n * k double),
+ * que descarta cada centroide por separado; calcula menos distancias, sobre
+ * todo con k grande, a cambio de memoria.</li>
+ * </ul>
+ * Las tres dan los mismos grupos salvo empates exactos de distancia.
+ *
+ * Los puntos se reparten en bloques fijos (su número depende solo de n), que
+ * se procesan en paralelo si hay pool. Cada bloque acumula en sus propios
+ * arrays lo que suman y restan a cada grupo los puntos que cambian, y al final
+ * de la pasada se suman los bloques en orden: no hace falta sincronizar y el
+ * resultado no depende del número de hilos.
+ */
+final class Assignment {
+
+    /** Puntos mínimos por bloque. */
+    static final int MIN_BLOCK = 1024;
+
+    /** Bloques máximos, de los que cada uno tiene sus acumuladores. */
+    static final int MAX_BLOCKS = 64;
+
+    private final Points points;
+    private final int k;
+    private final int dimension;
+    private final int algorithm;
+    private final ForkJoinPool pool;
+    private final double[] values;
+
+    private final double[] centroids;      // Centroide c en [c * dimension, (c + 1) * dimension)
+    private final double[] drift;          // Lo que se ha movido cada centroide en la última actualización
+    private final double[] half;           // Mitad de la distancia del centroide al más cercano
+    private final double[] halfBetween;    // Con ELKAN, mitad de la distancia entre cada par de centroides
+
+    private final int[] cluster;
+    private final double[] upper;          // Cota superior de la distancia al centroide propio
+    private final double[] lower;          // Cota inferior: al segundo (HAMERLY) o a cada centroide (ELKAN)
+
+    private final double[] sums;           // Suma de las coordenadas numéricas de cada grupo
+    private final int[] counts;
+    private final int[] valueCounts;       // Veces que aparece cada valor nominal en cada grupo
+
+    private final int numBlocks;
+    private final Block[] blocks;
+
+    /**
+     * Asigna cada punto a su centroide inicial más cercano.
+     */
+    Assignment(Points points, double[] initial, int algorithm, ForkJoinPool pool) {
+        this.points = points;
+        dimension = points.dimension();
+        k = initial.length / dimension;
+        this.algorithm = algorithm;
+        this.pool = pool;
+        values = points.values();
+        int n = points.numPoints();
+        centroids = initial.clone();
+        drift = new double[k];
+        half = new double[k];
+        halfBetween = new double[algorithm == ELKAN ? k * k : 0];
+        cluster = new int[n];
+        Arrays.fill(cluster, -1);
+        upper = new double[algorithm == HAMERLY || algorithm == ELKAN ? n : 0];
+        lower = new double[algorithm == HAMERLY ? n : algorithm == ELKAN ? n * k : 0];
+        sums = new double[k * dimension];
+        counts = new int[k];
+        valueCounts = new int[k * points.numValues()];
+        numBlocks = numBlocks(n);
+        blocks = new Block[numBlocks];
+        for (int b = 0; b < numBlocks; b++) {
+            blocks[b] = new Block(k, dimension, points.numValues());
+        }
+        forEachBlock(pool, numBlocks, b -> assignAll(blocks[b], blockStart(b, n, numBlocks), blockStart(b + 1, n, numBlocks)));
+        merge();
+    }
+
+    /**
+     * Mueve cada centroide a la media de sus puntos (la moda en los atributos
+     * nominales). Un grupo vacío conserva su centroide.
+     */
+    void moveCentroids() {
+        for (int c = 0; c < k; c++) {
+            drift[c] = 0;
+            if (counts[c] == 0) {
+                continue;
+            }
+            double squares = 0;
+            for (int i = 0; i < dimension; i++) {
+                double value;
+                if (points.isNominal(i)) {
+                    int first = c * points.numValues() + points.valueIndex(i, 0);
+                    int numValues = points.header().attribute(i).numValues();
+                    int best = 0;
+                    for (int v = 1; v < numValues; v++) {
+                        if (valueCounts[first + v] > valueCounts[first + best]) {
+                            best = v;
+                        }
+                    }
+                    value = best;
+                    squares += value == centroids[c * dimension + i] ? 0 : 1;
+                } else {
+                    value = sums[c * dimension + i] / counts[c];
+                    double diff = value - centroids[c * dimension + i];
+                    squares += diff * diff;
+                }
+                centroids[c * dimension + i] = value;
+            }
+            drift[c] = Math.sqrt(squares);
+        }
+    }
+
+    /**
+     * Pasa cada punto al centroide más cercano.
+     *
+     * @return cuántos han cambiado de grupo
+     */
+    int reassign() {
+        if (algorithm != KMeans.LLOYD) {
+            computeHalfDistances();
+        }
+        int n = points.numPoints();
+        forEachBlock(pool, numBlocks, b -> {
+            int from = blockStart(b, n, numBlocks);
+            int to = blockStart(b + 1, n, numBlocks);
+            switch (algorithm) {
+                case HAMERLY:
+                    hamerly(blocks[b], from, to);
+                    break;
+                case ELKAN:
+                    elkan(blocks[b], from, to);
+                    break;
+                default:
+                    assignAll(blocks[b], from, to);
+            }
+        });
+        return merge();
+    }
+
+    private void computeHalfDistances() {
+        Arrays.fill(half, Double.POSITIVE_INFINITY);
+        for (int a = 0; a < k; a++) {
+            for (int c = a + 1; c < k; c++) {
+                double d = points.distance(centroids, a * dimension, centroids, c * dimension) / 2;
+                half[a] = Math.min(half[a], d);
+                half[c] = Math.min(half[c], d);
+                if (algorithm == ELKAN) {
+                    halfBetween[a * k + c] = d;
+                    halfBetween[c * k + a] = d;
+                }
+            }
+        }
+    }
+
+    /**
+     * Calcula las k distancias de cada punto y deja las cotas exactas.
+     */
+    private void assignAll(Block block, int from, int to) {
+        for (int p = from; p < to; p++) {
+            int base = p * dimension;
+            double best = Double.POSITIVE_INFINITY;
+            double second = Double.POSITIVE_INFINITY;
+            int bestCluster = 0;
+            for (int c = 0; c < k; c++) {
+                double d = points.distance(values, base, centroids, c * dimension);
+                if (algorithm == ELKAN) {
+                    lower[p * k + c] = d;
+                }
+                if (d < best) {
+                    second = best;
+                    best = d;
+                    bestCluster = c;
+                } else if (d < second) {
+                    second = d;
+                }
+            }
+            block.distances += k;
+            if (algorithm == HAMERLY) {
+                lower[p] = second;
+            }
+            if (upper.length > 0) {
+                upper[p] = best;
+            }
+            move(block, p, bestCluster);
+        }
+    }
+
+    private void hamerly(Block block, int from, int to) {
+        // Distancia al segundo más cercano: baja como mucho lo que se ha movido
+        // el centroide que más se ha movido (o el segundo, si aquel es el propio)
+        int fastest = 0;
+        for (int c = 1; c < k; c++) {
+            if (drift[c] > drift[fastest]) {
+                fastest = c;
+            }
+        }
+        double maxDrift = drift[fastest];
+        double secondDrift = 0;
+        for (int c = 0; c < k; c++) {
+            if (c != fastest) {
+                secondDrift = Math.max(secondDrift, drift[c]);
+            }
+        }
+        for (int p = from; p < to; p++) {
+            int a = cluster[p];
+            double u = upper[p] + drift[a];
+            double l = lower[p] - (a == fastest ? secondDrift : maxDrift);
+            double bound = Math.max(half[a], l);
+            if (u > bound) {
+                int base = p * dimension;
+                u = points.distance(values, base, centroids, a * dimension);
+                block.distances++;
+                if (u > bound) {
+                    double best = Double.POSITIVE_INFINITY;
+                    double second = Double.POSITIVE_INFINITY;
+                    int bestCluster = 0;
+                    for (int c = 0; c < k; c++) {
+                        double d = c == a ? u : points.distance(values, base, centroids, c * dimension);
+                        if (d < best) {
+                            second = best;
+                            best = d;
+                            bestCluster = c;
+                        } else if (d < second) {
+                            second = d;
+                        }
+                    }
+                    block.distances += k - 1;
+                    a = bestCluster;
+                    u = best;
+                    l = second;
+                }
+            }
+            upper[p] = u;
+            lower[p] = l;
+            move(block, p, a);
+        }
+    }
+
+    private void elkan(Block block, int from, int to) {
+        for (int p = from; p < to; p++) {
+            int a = cluster[p];
+            int bounds = p * k;
+            for (int c = 0; c < k; c++) {
+                lower[bounds + c] = Math.max(0, lower[bounds + c] - drift[c]);
+            }
+            double u = upper[p] + drift[a];
+            if (u > half[a]) {
+                int base = p * dimension;
+                boolean tight = false;
+                for (int c = 0; c < k; c++) {
+                    if (c == a || u <= lower[bounds + c] || u <= halfBetween[a * k + c]) {
+                        continue;
+                    }
+                    if (!tight) {
+                        u = points.distance(values, base, centroids, a * dimension);
+                        lower[bounds + a] = u;
+                        block.distances++;
+                        tight = true;
+                        if (u <= lower[bounds + c] || u <= halfBetween[a * k + c]) {
+                            continue;
+                        }
+                    }
+                    double d = points.distance(values, base, centroids, c * dimension);
+                    lower[bounds + c] = d;
+                    block.distances++;
+                    if (d < u) {
+                        a = c;
+                        u = d;
+                    }
+                }
+            }
+            upper[p] = u;
+            move(block, p, a);
+        }
+    }
+
+    /**
+     * Pasa el punto al grupo target y anota en el bloque lo que cambia en las
+     * sumas de los dos grupos.
+     */
+    private void move(Block block, int p, int target) {
+        int source = cluster[p];
+        if (source == target) {
+            return;
+        }
+        cluster[p] = target;
+        block.changed++;
+        int base = p * dimension;
+        int numValues = points.numValues();
+        for (int i = 0; i < dimension; i++) {
+            double value = values[base + i];
+            if (points.isNominal(i)) {
+                int v = points.valueIndex(i, (int) value);
+                if (source >= 0) {
+                    block.valueCounts[source * numValues + v]--;
+                }
+                block.valueCounts[target * numValues + v]++;
+            } else {
+                if (source >= 0) {
+                    block.sums[source * dimension + i] -= value;
+                }
+                block.sums[target * dimension + i] += value;
+            }
+        }
+        if (source >= 0) {
+            block.counts[source]--;
+        }
+        block.counts[target]++;
+    }
+
+    /**
+     * Suma a las del grupo lo que han acumulado los bloques, en orden.
+     *
+     * @return cuántos puntos han cambiado de grupo en la pasada
+     */
+    private int merge() {
+        int changed = 0;
+        for (Block block : blocks) {
+            if (block.changed == 0) {
+                continue;
+            }
+            changed += block.changed;
+            block.changed = 0;
+            for (int j = 0; j < sums.length; j++) {
+                sums[j] += block.sums[j];
+            }
+            for (int j = 0; j < valueCounts.length; j++) {
+                valueCounts[j] += block.valueCounts[j];
+            }
+            for (int c = 0; c < k; c++) {
+                counts[c] += block.counts[c];
+            }
+            Arrays.fill(block.sums, 0);
+            Arrays.fill(block.valueCounts, 0);
+            Arrays.fill(block.counts, 0);
+        }
+        return changed;
+    }
+
+    double[] centroids() {
+        return centroids;
+    }
+
+    int[] counts() {
+        return counts;
+    }
+
+    /**
+     * @return distancias entre un punto y un centroide calculadas hasta ahora
+     */
+    long distances() {
+        long total = 0;
+        for (Block block : blocks) {
+            total += block.distances;
+        }
+        return total;
+    }
+
+    /**
+     * @return suma de los cuadrados de la distancia de cada punto a su centroide
+     */
+    double squaredError() {
+        int n = points.numPoints();
+        double[] errors = new double[numBlocks];
+        forEachBlock(pool, numBlocks, b -> {
+            double error = 0;
+            for (int p = blockStart(b, n, numBlocks); p < blockStart(b + 1, n, numBlocks); p++) {
+                error += points.squaredDistance(values, p * dimension, centroids, cluster[p] * dimension);
+            }
+            errors[b] = error;
+        });
+        double total = 0;
+        for (double error : errors) {
+            total += error;
+        }
+        return total;
+    }
+
+    /**
+     * Acumuladores de un bloque de puntos para una pasada.
+     */
+    private static final class Block {
+        final double[] sums;
+        final int[] counts;
+        final int[] valueCounts;
+        int changed;
+        long distances;
+
+        Block(int k, int dimension, int numValues) {
+            sums = new double[k * dimension];
+            counts = new int[k];
+            valueCounts = new int[k * numValues];
+        }
+    }
+
+    /**
+     * Número de bloques en que se reparten n puntos: depende solo de n.
+     */
+    static int numBlocks(int n) {
+        return Math.max(1, Math.min(MAX_BLOCKS, n / MIN_BLOCK));
+    }
+
+    static int blockStart(int b, int n, int numBlocks) {
+        return (int) ((long) b * n / numBlocks);
+    }
+
+    /**
+     * Ejecuta task con cada bloque: en orden en el hilo que llama si pool es
+     * null y repartidos entre los hilos del pool si no.
+     */
+    static void forEachBlock(ForkJoinPool pool, int numBlocks, IntConsumer task) {
+        if (pool == null || numBlocks == 1) {
+            for (int b = 0; b < numBlocks; b++) {
+                task.accept(b);
+            }
+        } else {
+            pool.submit(() -> IntStream.range(0, numBlocks).parallel().forEach(task)).join();
+        }
+    }
+}
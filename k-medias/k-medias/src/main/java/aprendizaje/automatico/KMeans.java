@@ -0,0 +1,295 @@
+package aprendizaje.automatico;
+
+import weka.clusterers.NumberOfClustersRequestable;
+import weka.clusterers.RandomizableClusterer;
+import weka.core.Attribute;
+import weka.core.Capabilities;
+import weka.core.Capabilities.Capability;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.SelectedTag;
+import weka.core.Tag;
+import weka.core.Utils;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Random;
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * k-medias con las instancias en un double[] fila a fila.
+ *
+ * Los datos se preparan como en {@code weka.clusterers.SimpleKMeans}:
+ * atributos numéricos normalizados a [0, 1], nominales con distancia 0 si
+ * coinciden y 1 si no, y ausentes sustituidos por la media o la moda. El
+ * centroide de cada grupo es la media de sus instancias en los numéricos y la
+ * moda en los nominales.
+ *
+ * Los centroides iniciales se eligen con k-means++ ({@link KMeansPlusPlus}) y
+ * las iteraciones ({@link Assignment}) pueden saltarse la mayoría de las
+ * distancias con las cotas de Hamerly (por defecto) o de Elkan, o calcularlas
+ * todas como en el algoritmo de Lloyd. Con -num-slots distinto de 1, la
+ * elección de centroides y las asignaciones se reparten entre varios hilos;
+ * el resultado es el mismo con cualquier número de hilos.
+ */
+public class KMeans extends RandomizableClusterer implements NumberOfClustersRequestable {
+
+    public static final int LLOYD = 0;
+    public static final int HAMERLY = 1;
+    public static final int ELKAN = 2;
+
+    public static final Tag[] TAGS_ALGORITHM = {
+            new Tag(LLOYD, "LLOYD", "Lloyd (todas las distancias)"),
+            new Tag(HAMERLY, "HAMERLY", "Cotas de Hamerly"),
+            new Tag(ELKAN, "ELKAN", "Cotas de Elkan")
+    };
+
+    private int m_numClusters = 2;
+    private int m_algorithm = HAMERLY;
+    private int m_maxIterations = 500;
+
+    private int m_numExecutionSlots = 1;
+    private transient ForkJoinPool m_pool;
+
+    private Points m_points;
+    private double[] m_centroids;
+    private int[] m_clusterSizes;
+    private int m_iterations;
+    private long m_distances;          // Distancias entre instancia y centroide calculadas
+    private double m_squaredError;
+
+    @Override
+    public void buildClusterer(Instances data) throws Exception {
+        getCapabilities().testWithFail(data);
+        m_points = new Points(data);
+        int n = m_points.numPoints();
+        int k = Math.min(m_numClusters, n);
+        ForkJoinPool pool = getPool();
+
+        double[] initial = KMeansPlusPlus.seed(m_points, k, new Random(getSeed()), pool);
+        Assignment assignment = new Assignment(m_points, initial, m_algorithm, pool);
+        m_iterations = 0;
+        int changed;
+        do {
+            assignment.moveCentroids();
+            changed = assignment.reassign();
+            m_iterations++;
+        } while (changed > 0 && m_iterations < m_maxIterations);
+
+        m_centroids = assignment.centroids();
+        m_clusterSizes = assignment.counts();
+        m_distances = assignment.distances();
+        m_squaredError = assignment.squaredError();
+    }
+
+    private ForkJoinPool getPool() {
+        m_pool = ExecutionSlots.pool(m_pool, m_numExecutionSlots);
+        return m_pool;
+    }
+
+
+    @Override
+    public int clusterInstance(Instance instance) throws Exception {
+        int dimension = m_points.dimension();
+        double[] x = new double[dimension];
+        m_points.encode(instance, x, 0);
+        int best = 0;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int c = 0; c < m_clusterSizes.length; c++) {
+            double d = m_points.squaredDistance(x, 0, m_centroids, c * dimension);
+            if (d < bestDistance) {
+                bestDistance = d;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public int numberOfClusters() throws Exception {
+        return m_clusterSizes.length;
+    }
+
+    /**
+     * @return centroides en las unidades originales, uno por instancia
+     */
+    public Instances getClusterCentroids() {
+        Instances centroids = new Instances(m_points.header(), m_clusterSizes.length);
+        int dimension = m_points.dimension();
+        for (int c = 0; c < m_clusterSizes.length; c++) {
+            double[] values = new double[dimension];
+            for (int i = 0; i < dimension; i++) {
+                values[i] = m_points.decode(i, m_centroids[c * dimension + i]);
+            }
+            centroids.add(new DenseInstance(1, values));
+        }
+        return centroids;
+    }
+
+    /**
+     * @return suma de los cuadrados de la distancia de cada instancia a su centroide
+     */
+    public double getSquaredError() {
+        return m_squaredError;
+    }
+
+    @Override
+    public Capabilities getCapabilities() {
+        Capabilities result = super.getCapabilities();
+        result.disableAll();
+        result.enable(Capability.NO_CLASS);
+        result.enable(Capability.NOMINAL_ATTRIBUTES);
+        result.enable(Capability.NUMERIC_ATTRIBUTES);
+        result.enable(Capability.DATE_ATTRIBUTES);
+        result.enable(Capability.MISSING_VALUES);
+        return result;
+    }
+
+    /**
+     * @return una descripción de este clusterer
+     */
+    public String globalInfo() {
+        return "k-medias con inicialización k-means++ y cotas de Hamerly o de Elkan para saltarse "
+                + "distancias, con asignación en paralelo.";
+    }
+
+    @Override
+    public Enumeration<Option> listOptions() {
+        Vector<Option> newVector = new Vector<>();
+        newVector.addElement(new Option("\tNúmero de grupos.\n"
+                + "\t(por defecto 2)", "N", 1, "-N <num>"));
+        newVector.addElement(new Option("\tAlgoritmo: LLOYD, HAMERLY o ELKAN.\n"
+                + "\t(por defecto HAMERLY)", "A", 1, "-A <algoritmo>"));
+        newVector.addElement(new Option("\tNúmero máximo de iteraciones.\n"
+                + "\t(por defecto 500)", "I", 1, "-I <num>"));
+        newVector.addElement(new Option("\tNúmero de hilos para elegir los centroides iniciales y asignar.\n"
+                + "\t(por defecto 1 - sin paralelismo)\n"
+                + "\t(0 para usar todos los núcleos)", "num-slots", 1, "-num-slots <num>"));
+        newVector.addAll(Collections.list(super.listOptions()));
+        return newVector.elements();
+    }
+
+    @Override
+    public void setOptions(String[] options) throws Exception {
+        String numClusters = Utils.getOption('N', options);
+        setNumClusters(numClusters.length() != 0 ? Integer.parseInt(numClusters) : 2);
+        String algorithm = Utils.getOption('A', options);
+        setAlgorithm(new SelectedTag(algorithm.length() != 0 ? algorithm.toUpperCase() : "HAMERLY", TAGS_ALGORITHM));
+        String maxIterations = Utils.getOption('I', options);
+        setMaxIterations(maxIterations.length() != 0 ? Integer.parseInt(maxIterations) : 500);
+        String numSlots = Utils.getOption("num-slots", options);
+        setNumExecutionSlots(numSlots.length() != 0 ? Integer.parseInt(numSlots) : 1);
+        super.setOptions(options);
+        Utils.checkForRemainingOptions(options);
+    }
+
+    @Override
+    public String[] getOptions() {
+        Vector<String> options = new Vector<>();
+        options.add("-N");
+        options.add("" + getNumClusters());
+        options.add("-A");
+        options.add(getAlgorithm().getSelectedTag().getIDStr());
+        options.add("-I");
+        options.add("" + getMaxIterations());
+        options.add("-num-slots");
+        options.add("" + getNumExecutionSlots());
+        Collections.addAll(options, super.getOptions());
+        return options.toArray(new String[0]);
+    }
+
+    public String numClustersTipText() {
+        return "Número de grupos.";
+    }
+
+    public int getNumClusters() {
+        return m_numClusters;
+    }
+
+    @Override
+    public void setNumClusters(int numClusters) throws Exception {
+        if (numClusters < 1) {
+            throw new Exception("El número de grupos debe ser al menos 1.");
+        }
+        m_numClusters = numClusters;
+    }
+
+    public String algorithmTipText() {
+        return "Todas las distancias en cada iteración (LLOYD) o cotas para saltarse las que no cambian "
+                + "el grupo: una inferior por instancia (HAMERLY) o una por instancia y grupo (ELKAN).";
+    }
+
+    public SelectedTag getAlgorithm() {
+        return new SelectedTag(m_algorithm, TAGS_ALGORITHM);
+    }
+
+    public void setAlgorithm(SelectedTag algorithm) {
+        if (algorithm.getTags() == TAGS_ALGORITHM) {
+            m_algorithm = algorithm.getSelectedTag().getID();
+        }
+    }
+
+    public String maxIterationsTipText() {
+        return "Número máximo de iteraciones.";
+    }
+
+    public int getMaxIterations() {
+        return m_maxIterations;
+    }
+
+    public void setMaxIterations(int maxIterations) throws Exception {
+        if (maxIterations < 1) {
+            throw new Exception("El número de iteraciones debe ser al menos 1.");
+        }
+        m_maxIterations = maxIterations;
+    }
+
+    public String numExecutionSlotsTipText() {
+        return "Número de hilos para elegir los centroides iniciales y asignar las instancias "
+                + "(1 = secuencial, 0 = todos los núcleos).";
+    }
+
+    public int getNumExecutionSlots() {
+        return m_numExecutionSlots;
+    }
+
+    public void setNumExecutionSlots(int numSlots) {
+        m_numExecutionSlots = numSlots;
+    }
+
+    @Override
+    public String toString() {
+        if (m_centroids == null) {
+            return "k-medias: sin entrenar.";
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("k-medias (").append(TAGS_ALGORITHM[m_algorithm].getIDStr()).append(")\n");
+        sb.append("------------------\n");
+        int n = m_points.numPoints();
+        long allDistances = (long) n * m_clusterSizes.length * (m_iterations + 1);
+        sb.append("Iteraciones: ").append(m_iterations).append("\n");
+        sb.append("Distancias calculadas: ").append(m_distances).append(" de ").append(allDistances)
+                .append(" (").append(Math.round(100.0 * m_distances / Math.max(1, allDistances))).append("%)\n");
+        sb.append("Suma de cuadrados dentro de los grupos: ").append(Utils.doubleToString(m_squaredError, 4))
+                .append("\n\n");
+        Instances centroids = getClusterCentroids();
+        for (int c = 0; c < m_clusterSizes.length; c++) {
+            sb.append("Grupo ").append(c).append(": ").append(m_clusterSizes[c]).append(" instancias (")
+                    .append(Math.round(100.0 * m_clusterSizes[c] / n)).append("%)\n");
+            for (int i = 0; i < centroids.numAttributes(); i++) {
+                Attribute attribute = centroids.attribute(i);
+                sb.append("  ").append(attribute.name()).append(" = ");
+                if (attribute.isNominal()) {
+                    sb.append(attribute.value((int) centroids.instance(c).value(i)));
+                } else {
+                    sb.append(Utils.doubleToString(centroids.instance(c).value(i), 4));
+                }
+                sb.append("\n");
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,86 @@
+package aprendizaje.automatico;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Centroides iniciales de k-means++ (Arthur y Vassilvitskii): el primero es
+ * un punto al azar y cada uno de los siguientes es un punto elegido con
+ * probabilidad proporcional al cuadrado de su distancia al centroide más
+ * cercano de los ya elegidos.
+ *
+ * Tras elegir cada centroide, los bloques de {@link Assignment} actualizan en
+ * paralelo la distancia mínima de sus puntos y su suma. El sorteo solo
+ * recorre las sumas de los bloques y después los puntos del bloque que toca,
+ * siempre en el mismo orden, así que los centroides no dependen del número de
+ * hilos.
+ */
+final class KMeansPlusPlus {
+
+    private KMeansPlusPlus() {
+    }
+
+    /**
+     * @return k centroides, el c en [c * dimension, (c + 1) * dimension)
+     */
+    static double[] seed(Points points, int k, Random random, ForkJoinPool pool) {
+        int n = points.numPoints();
+        int dimension = points.dimension();
+        double[] values = points.values();
+        double[] centroids = new double[k * dimension];
+        double[] nearest = new double[n];            // Cuadrado de la distancia al centroide más cercano
+        Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+        int numBlocks = Assignment.numBlocks(n);
+        double[] blockSums = new double[numBlocks];
+
+        int chosen = random.nextInt(n);
+        for (int c = 0; c < k; c++) {
+            System.arraycopy(values, chosen * dimension, centroids, c * dimension, dimension);
+            if (c == k - 1) {
+                break;
+            }
+            int centroid = c * dimension;
+            Assignment.forEachBlock(pool, numBlocks, b -> {
+                double sum = 0;
+                for (int p = Assignment.blockStart(b, n, numBlocks); p < Assignment.blockStart(b + 1, n, numBlocks); p++) {
+                    double d = points.squaredDistance(values, p * dimension, centroids, centroid);
+                    if (d < nearest[p]) {
+                        nearest[p] = d;
+                    }
+                    sum += nearest[p];
+                }
+                blockSums[b] = sum;
+            });
+            double total = 0;
+            for (double sum : blockSums) {
+                total += sum;
+            }
+            if (total == 0) {
+                // Todos los puntos coinciden con algún centroide: cualquiera vale
+                chosen = random.nextInt(n);
+                continue;
+            }
+            double target = random.nextDouble() * total;
+            int b = 0;
+            while (b < numBlocks - 1 && target >= blockSums[b]) {
+                target -= blockSums[b++];
+            }
+            int from = Assignment.blockStart(b, n, numBlocks);
+            int to = Assignment.blockStart(b + 1, n, numBlocks);
+            chosen = to - 1;
+            for (int p = from; p < to; p++) {
+                target -= nearest[p];
+                if (target < 0 && nearest[p] > 0) {
+                    chosen = p;
+                    break;
+                }
+            }
+            while (nearest[chosen] == 0 && chosen > from) {
+                // Por redondeo se ha pasado del final sin elegir: el último con peso
+                chosen--;
+            }
+        }
+        return centroids;
+    }
+}
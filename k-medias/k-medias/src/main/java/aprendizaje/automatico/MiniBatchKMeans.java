@@ -0,0 +1,419 @@
+package aprendizaje.automatico;
+
+import weka.clusterers.NumberOfClustersRequestable;
+import weka.clusterers.RandomizableClusterer;
+import weka.clusterers.UpdateableClusterer;
+import weka.core.Attribute;
+import weka.core.Capabilities;
+import weka.core.Capabilities.Capability;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.Utils;
+import weka.core.converters.ConverterUtils.DataSource;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Random;
+import java.util.Vector;
+
+/**
+ * k-medias por minilotes (Sculley) para datos que no caben en memoria: las
+ * instancias llegan de una en una con {@link #updateClusterer}, se guardan en
+ * un lote de -B instancias y, cuando está lleno, se asignan todas al
+ * centroide más cercano y después cada una acerca su centroide con paso
+ * 1 / (valores que ha recibido el grupo en ese atributo). Así cada coordenada
+ * del centroide es la media de los valores no ausentes que se le han
+ * asignado, y la memoria no depende de cuántas instancias lleguen: k
+ * centroides, un lote y las cuentas por grupo y atributo. {@link #cluster(DataSource)} recorre un fichero (p. ej. un ARFF
+ * con {@code ArffLoader.getNextInstance}) sin cargarlo.
+ *
+ * En los atributos nominales el centroide es la moda de los valores que ha
+ * recibido el grupo y la distancia es 0 si coinciden y 1 si no, así que con
+ * datos solo nominales, como weather.nominal, el algoritmo es k-modas (Huang)
+ * y con datos mezclados, k-prototipos. Los numéricos se escalan con el mínimo
+ * y el máximo vistos hasta el momento; los centroides se guardan en las
+ * unidades originales para que no haya que corregirlos cuando crece el rango.
+ * Un valor ausente no cuenta en la distancia ni mueve el centroide.
+ *
+ * Los centroides iniciales salen de k-means++ y unas iteraciones de
+ * {@link KMeans} sobre el primer lote. El resultado
+ * depende del orden de llegada: conviene que las instancias estén mezcladas.
+ */
+public class MiniBatchKMeans extends RandomizableClusterer
+        implements UpdateableClusterer, NumberOfClustersRequestable {
+
+    /** Iteraciones máximas de k-medias sobre el primer lote para situar los centroides iniciales. */
+    static final int INITIAL_ITERATIONS = 100;
+
+    private int m_numClusters = 2;
+    private int m_batchSize = 1000;
+
+    private Instances m_header;
+    private boolean[] m_nominal;
+    private int[] m_valueOffset;          // Con nominales, posición de su primer valor entre todos los valores
+    private int m_numValues;
+    private double[] m_minimum;
+    private double[] m_maximum;
+    private double[] m_scale;             // 1 / (máximo - mínimo), o 0 si aún es constante
+
+    private double[] m_centroids;         // Centroide c en [c * dimension, (c + 1) * dimension), sin normalizar
+    private long[] m_counts;              // Instancias que ha recibido cada grupo
+    private long[] m_valueCounts;         // Veces que ha recibido cada grupo cada valor nominal
+    private long[] m_numericCounts;       // Valores no ausentes de cada grupo en cada atributo numérico
+    private double[] m_batchValues;       // Lote actual, fila a fila, sin normalizar
+    private int m_batchCount;
+    private int[] m_batchClusters;
+    private long m_numInstances;
+    private double m_squaredError;        // Suma de los cuadrados de la distancia al asignar
+
+    @Override
+    public void buildClusterer(Instances data) throws Exception {
+        getCapabilities().testWithFail(data);
+        start(data);
+        for (Instance instance : data) {
+            updateClusterer(instance);
+        }
+        updateFinished();
+    }
+
+    /**
+     * Agrupa las instancias de source leyéndolas de una en una si el
+     * cargador lo permite (ARFF, CSV...), con lo que el fichero no se carga
+     * entero en memoria.
+     */
+    public void cluster(DataSource source) throws Exception {
+        Instances structure = source.getStructure();
+        getCapabilities().testWithFail(structure);
+        start(structure);
+        while (source.hasMoreElements(structure)) {
+            updateClusterer(source.nextElement(structure));
+        }
+        updateFinished();
+    }
+
+    /**
+     * Prepara un clustering vacío con los atributos de header.
+     */
+    private void start(Instances header) {
+        m_header = new Instances(header, 0);
+        int dimension = header.numAttributes();
+        m_nominal = new boolean[dimension];
+        m_valueOffset = new int[dimension];
+        int offset = 0;
+        for (int i = 0; i < dimension; i++) {
+            m_nominal[i] = header.attribute(i).isNominal();
+            if (m_nominal[i]) {
+                m_valueOffset[i] = offset;
+                offset += header.attribute(i).numValues();
+            }
+        }
+        m_numValues = offset;
+        m_minimum = new double[dimension];
+        m_maximum = new double[dimension];
+        Arrays.fill(m_minimum, Double.POSITIVE_INFINITY);
+        Arrays.fill(m_maximum, Double.NEGATIVE_INFINITY);
+        m_scale = new double[dimension];
+        int batchSize = Math.max(m_batchSize, m_numClusters);
+        m_batchCount = 0;
+        m_batchValues = new double[batchSize * dimension];
+        m_batchClusters = new int[batchSize];
+        m_centroids = null;
+        m_counts = null;
+        m_valueCounts = null;
+        m_numericCounts = null;
+        m_numInstances = 0;
+        m_squaredError = 0;
+    }
+
+    @Override
+    public void updateClusterer(Instance instance) throws Exception {
+        if (m_header == null) {
+            start(instance.dataset());
+        }
+        int dimension = m_header.numAttributes();
+        int offset = m_batchCount * dimension;
+        for (int i = 0; i < dimension; i++) {
+            double value = instance.value(i);
+            m_batchValues[offset + i] = value;
+            if (!m_nominal[i] && !Double.isNaN(value)) {
+                m_minimum[i] = Math.min(m_minimum[i], value);
+                m_maximum[i] = Math.max(m_maximum[i], value);
+            }
+        }
+        if (++m_batchCount == m_batchClusters.length) {
+            processBatch();
+        }
+    }
+
+    /**
+     * Procesa el lote incompleto que pueda quedar.
+     */
+    @Override
+    public void updateFinished() {
+        if (m_batchCount > 0) {
+            processBatch();
+        }
+    }
+
+    private void processBatch() {
+        int n = m_batchCount;
+        int dimension = m_header.numAttributes();
+        for (int i = 0; i < dimension; i++) {
+            m_scale[i] = m_maximum[i] > m_minimum[i] ? 1 / (m_maximum[i] - m_minimum[i]) : 0;
+        }
+        if (m_centroids == null) {
+            initialize();
+        }
+
+        // Primero se asigna todo el lote con los centroides de antes ...
+        for (int r = 0; r < n; r++) {
+            double best = Double.POSITIVE_INFINITY;
+            for (int c = 0; c < m_counts.length; c++) {
+                double d = squaredDistance(m_batchValues, r * dimension, c);
+                if (d < best) {
+                    best = d;
+                    m_batchClusters[r] = c;
+                }
+            }
+            m_squaredError += best;
+        }
+        // ... y después cada instancia mueve el suyo hacia ella
+        for (int r = 0; r < n; r++) {
+            int c = m_batchClusters[r];
+            m_counts[c]++;
+            int centroid = c * dimension;
+            for (int i = 0; i < dimension; i++) {
+                double value = m_batchValues[r * dimension + i];
+                if (Double.isNaN(value)) {
+                    continue;
+                }
+                if (m_nominal[i]) {
+                    int first = c * m_numValues + m_valueOffset[i];
+                    long count = ++m_valueCounts[first + (int) value];
+                    if (count > m_valueCounts[first + (int) m_centroids[centroid + i]]) {
+                        m_centroids[centroid + i] = value;
+                    }
+                } else {
+                    m_centroids[centroid + i] += (value - m_centroids[centroid + i]) / ++m_numericCounts[centroid + i];
+                }
+            }
+        }
+        m_numInstances += n;
+        m_batchCount = 0;
+    }
+
+    /**
+     * Elige los centroides iniciales entre las instancias del primer lote con
+     * k-means++ y los afina con k-medias sobre ese lote.
+     */
+    private void initialize() {
+        int dimension = m_header.numAttributes();
+        Instances batch = new Instances(m_header, m_batchCount);
+        for (int r = 0; r < m_batchCount; r++) {
+            batch.add(new DenseInstance(1, Arrays.copyOfRange(m_batchValues, r * dimension, (r + 1) * dimension)));
+        }
+        Points points = new Points(batch);
+        int k = Math.min(m_numClusters, points.numPoints());
+        Assignment assignment = new Assignment(points, KMeansPlusPlus.seed(points, k, new Random(getSeed()), null),
+                KMeans.HAMERLY, null);
+        for (int iteration = 0; iteration < INITIAL_ITERATIONS; iteration++) {
+            assignment.moveCentroids();
+            if (assignment.reassign() == 0) {
+                break;
+            }
+        }
+        double[] seeds = assignment.centroids();
+        m_centroids = new double[k * dimension];
+        for (int j = 0; j < seeds.length; j++) {
+            m_centroids[j] = points.decode(j % dimension, seeds[j]);
+        }
+        m_counts = new long[k];
+        m_valueCounts = new long[k * m_numValues];
+        m_numericCounts = new long[k * dimension];
+    }
+
+    /**
+     * Cuadrado de la distancia de x[offset, ...), sin normalizar, al
+     * centroide c con la escala actual.
+     */
+    private double squaredDistance(double[] x, int offset, int c) {
+        int dimension = m_header.numAttributes();
+        int centroid = c * dimension;
+        double sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            double value = x[offset + i];
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            if (m_nominal[i]) {
+                sum += value == m_centroids[centroid + i] ? 0 : 1;
+            } else {
+                double diff = (value - m_centroids[centroid + i]) * m_scale[i];
+                sum += diff * diff;
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public int clusterInstance(Instance instance) throws Exception {
+        if (m_centroids == null) {
+            throw new Exception("El clustering no ha recibido instancias.");
+        }
+        double[] x = instance.toDoubleArray();
+        int best = 0;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int c = 0; c < m_counts.length; c++) {
+            double d = squaredDistance(x, 0, c);
+            if (d < bestDistance) {
+                bestDistance = d;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Instancias asignadas a algún grupo (no cuenta las del lote pendiente).
+     */
+    long numInstances() {
+        return m_numInstances;
+    }
+
+    /**
+     * Veces que el grupo c ha recibido el valor v del atributo nominal i.
+     */
+    long valueCount(int c, int i, int v) {
+        return m_valueCounts[c * m_numValues + m_valueOffset[i] + v];
+    }
+
+    @Override
+    public int numberOfClusters() throws Exception {
+        return m_counts == null ? 0 : m_counts.length;
+    }
+
+    /**
+     * @return centroides en las unidades originales, uno por instancia
+     */
+    public Instances getClusterCentroids() {
+        int dimension = m_header.numAttributes();
+        Instances centroids = new Instances(m_header, m_counts.length);
+        for (int c = 0; c < m_counts.length; c++) {
+            centroids.add(new DenseInstance(1,
+                    Arrays.copyOfRange(m_centroids, c * dimension, (c + 1) * dimension)));
+        }
+        return centroids;
+    }
+
+    @Override
+    public Capabilities getCapabilities() {
+        Capabilities result = super.getCapabilities();
+        result.disableAll();
+        result.enable(Capability.NO_CLASS);
+        result.enable(Capability.NOMINAL_ATTRIBUTES);
+        result.enable(Capability.NUMERIC_ATTRIBUTES);
+        result.enable(Capability.DATE_ATTRIBUTES);
+        result.enable(Capability.MISSING_VALUES);
+        result.setMinimumNumberInstances(0);
+        return result;
+    }
+
+    /**
+     * @return una descripción de este clusterer
+     */
+    public String globalInfo() {
+        return "k-medias por minilotes, incremental y con memoria fija; con atributos nominales usa "
+                + "modas (k-modas).";
+    }
+
+    @Override
+    public Enumeration<Option> listOptions() {
+        Vector<Option> newVector = new Vector<>();
+        newVector.addElement(new Option("\tNúmero de grupos.\n"
+                + "\t(por defecto 2)", "N", 1, "-N <num>"));
+        newVector.addElement(new Option("\tInstancias por lote.\n"
+                + "\t(por defecto 1000)", "B", 1, "-B <num>"));
+        newVector.addAll(Collections.list(super.listOptions()));
+        return newVector.elements();
+    }
+
+    @Override
+    public void setOptions(String[] options) throws Exception {
+        String numClusters = Utils.getOption('N', options);
+        setNumClusters(numClusters.length() != 0 ? Integer.parseInt(numClusters) : 2);
+        String batchSize = Utils.getOption('B', options);
+        setBatchSize(batchSize.length() != 0 ? Integer.parseInt(batchSize) : 1000);
+        super.setOptions(options);
+        Utils.checkForRemainingOptions(options);
+    }
+
+    @Override
+    public String[] getOptions() {
+        Vector<String> options = new Vector<>();
+        options.add("-N");
+        options.add("" + getNumClusters());
+        options.add("-B");
+        options.add("" + getBatchSize());
+        Collections.addAll(options, super.getOptions());
+        return options.toArray(new String[0]);
+    }
+
+    public String numClustersTipText() {
+        return "Número de grupos.";
+    }
+
+    public int getNumClusters() {
+        return m_numClusters;
+    }
+
+    @Override
+    public void setNumClusters(int numClusters) throws Exception {
+        if (numClusters < 1) {
+            throw new Exception("El número de grupos debe ser al menos 1.");
+        }
+        m_numClusters = numClusters;
+    }
+
+    public String batchSizeTipText() {
+        return "Instancias que se asignan antes de mover los centroides (al menos el número de grupos).";
+    }
+
+    public int getBatchSize() {
+        return m_batchSize;
+    }
+
+    public void setBatchSize(int batchSize) throws Exception {
+        if (batchSize < 1) {
+            throw new Exception("El tamaño del lote debe ser al menos 1.");
+        }
+        m_batchSize = batchSize;
+    }
+
+    @Override
+    public String toString() {
+        if (m_centroids == null) {
+            return "k-medias por minilotes: sin entrenar.";
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("k-medias por minilotes (lotes de ").append(m_batchSize).append(")\n");
+        sb.append("-----------------------------------\n");
+        sb.append("Instancias: ").append(m_numInstances).append("\n");
+        sb.append("Suma de cuadrados dentro de los grupos (al asignar): ")
+                .append(Utils.doubleToString(m_squaredError, 4)).append("\n\n");
+        for (int c = 0; c < m_counts.length; c++) {
+            sb.append("Grupo ").append(c).append(": ").append(m_counts[c]).append(" instancias (")
+                    .append(Math.round(100.0 * m_counts[c] / Math.max(1, m_numInstances))).append("%)\n");
+            for (int i = 0; i < m_header.numAttributes(); i++) {
+                Attribute attribute = m_header.attribute(i);
+                double value = m_centroids[c * m_header.numAttributes() + i];
+                sb.append("  ").append(attribute.name()).append(" = ")
+                        .append(attribute.isNominal() ? attribute.value((int) value) : Utils.doubleToString(value, 4))
+                        .append("\n");
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,174 @@
+package aprendizaje.automatico;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.io.Serializable;
+
+/**
+ * Instancias copiadas a un único double[] fila a fila, para calcular
+ * distancias sin pasar por {@link Instance}.
+ *
+ * Como en {@code weka.clusterers.SimpleKMeans}, los atributos numéricos se
+ * normalizan a [0, 1] con el mínimo y el máximo de los datos, los nominales se
+ * guardan como índice del valor y los valores ausentes se sustituyen por la
+ * media o la moda del atributo. La distancia es la euclídea con los nominales
+ * aportando 0 si coinciden y 1 si no; al no quedar ausentes, es una métrica y
+ * cumple la desigualdad triangular en que se basan las cotas de
+ * {@link Assignment}.
+ *
+ * Las coordenadas no se serializan: el modelo solo necesita la codificación
+ * para asignar instancias nuevas.
+ */
+class Points implements Serializable {
+
+    private final int numPoints;
+    private final int dimension;
+    private final Instances header;
+    private final boolean[] nominal;
+    private final int[] valueOffset;     // Con nominales, posición de su primer valor entre todos los valores
+    private final int numValues;         // Valores de todos los atributos nominales
+    private final double[] minimum;
+    private final double[] range;        // 0 si el atributo es constante
+    private final double[] replacement;  // Media (normalizada) o moda de cada atributo
+    private transient double[] values;   // Punto p en [p * dimension, (p + 1) * dimension)
+
+    Points(Instances data) {
+        numPoints = data.numInstances();
+        dimension = data.numAttributes();
+        header = new Instances(data, 0);
+        nominal = new boolean[dimension];
+        valueOffset = new int[dimension];
+        minimum = new double[dimension];
+        range = new double[dimension];
+        replacement = new double[dimension];
+        int offset = 0;
+        for (int i = 0; i < dimension; i++) {
+            Attribute attribute = data.attribute(i);
+            nominal[i] = attribute.isNominal();
+            if (nominal[i]) {
+                valueOffset[i] = offset;
+                offset += attribute.numValues();
+                double[] counts = new double[attribute.numValues()];
+                for (int p = 0; p < numPoints; p++) {
+                    if (!data.instance(p).isMissing(i)) {
+                        counts[(int) data.instance(p).value(i)]++;
+                    }
+                }
+                replacement[i] = counts.length > 0 ? Utils.maxIndex(counts) : 0;
+            } else {
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                double sum = 0;
+                int count = 0;
+                for (int p = 0; p < numPoints; p++) {
+                    Instance instance = data.instance(p);
+                    if (!instance.isMissing(i)) {
+                        min = Math.min(min, instance.value(i));
+                        max = Math.max(max, instance.value(i));
+                        sum += instance.value(i);
+                        count++;
+                    }
+                }
+                minimum[i] = min <= max ? min : 0;
+                range[i] = min < max ? max - min : 0;
+                replacement[i] = count == 0 || range[i] == 0 ? 0 : (sum / count - minimum[i]) / range[i];
+            }
+        }
+        numValues = offset;
+        values = new double[numPoints * dimension];
+        for (int p = 0; p < numPoints; p++) {
+            encode(data.instance(p), values, p * dimension);
+        }
+    }
+
+    /**
+     * Copia la instancia a to[offset, offset + dimension) normalizada igual
+     * que los puntos y con los ausentes sustituidos.
+     */
+    void encode(Instance instance, double[] to, int offset) {
+        for (int i = 0; i < dimension; i++) {
+            double value = instance.value(i);
+            if (Double.isNaN(value)) {
+                to[offset + i] = replacement[i];
+            } else if (nominal[i]) {
+                to[offset + i] = value;
+            } else {
+                to[offset + i] = range[i] == 0 ? 0 : (value - minimum[i]) / range[i];
+            }
+        }
+    }
+
+    int numPoints() {
+        return numPoints;
+    }
+
+    int dimension() {
+        return dimension;
+    }
+
+    /**
+     * Coordenadas de todos los puntos, fila a fila; null en un modelo
+     * deserializado. No hay que modificarlas.
+     */
+    double[] values() {
+        return values;
+    }
+
+    /**
+     * Cabecera de los datos, sin instancias.
+     */
+    Instances header() {
+        return header;
+    }
+
+    boolean isNominal(int attribute) {
+        return nominal[attribute];
+    }
+
+    /**
+     * Número total de valores de los atributos nominales.
+     */
+    int numValues() {
+        return numValues;
+    }
+
+    /**
+     * Posición del valor v del atributo nominal entre los valores de todos
+     * los nominales.
+     */
+    int valueIndex(int attribute, int v) {
+        return valueOffset[attribute] + v;
+    }
+
+    /**
+     * Valor del atributo en las unidades originales (o índice del valor si
+     * es nominal).
+     */
+    double decode(int attribute, double value) {
+        return nominal[attribute] ? value : minimum[attribute] + value * range[attribute];
+    }
+
+    /**
+     * Cuadrado de la distancia entre x[xOffset, ...) e y[yOffset, ...).
+     */
+    double squaredDistance(double[] x, int xOffset, double[] y, int yOffset) {
+        double sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            double diff = x[xOffset + i] - y[yOffset + i];
+            if (nominal[i]) {
+                // Índices de valores distintos difieren al menos en 1: sin saltos que predecir
+                sum += Math.min(Math.abs(diff), 1);
+            } else {
+                sum += diff * diff;
+            }
+        }
+        return sum;
+    }
+
+    double distance(double[] x, int xOffset, double[] y, int yOffset) {
+        return Math.sqrt(squaredDistance(x, xOffset, y, yOffset));
+    }
+}
@@ -0,0 +1,104 @@
+package aprendizaje.automatico;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.SelectedTag;
+import weka.core.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * {@link KMeans} da las mismas asignaciones y centroides con los tres
+ * algoritmos y con cualquier número de hilos.
+ */
+public class KMeansTest extends TestCase {
+
+    public KMeansTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(KMeansTest.class);
+    }
+
+    /**
+     * Grupos gaussianos en cuatro atributos numéricos más uno nominal, con
+     * algunos valores ausentes. Con más de 2 * {@link Assignment#MIN_BLOCK}
+     * instancias el trabajo se reparte en varios bloques.
+     */
+    private static Instances randomData(int numInstances, int numGroups, long seed) {
+        Random random = new Random(seed);
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            attributes.add(new Attribute("x" + i));
+        }
+        List<String> values = Arrays.asList("a", "b", "c");
+        attributes.add(new Attribute("color", values));
+        Instances data = new Instances("aleatorio", attributes, numInstances);
+        double[][] centers = new double[numGroups][4];
+        for (double[] center : centers) {
+            for (int i = 0; i < center.length; i++) {
+                center[i] = random.nextDouble() * 10;
+            }
+        }
+        for (int r = 0; r < numInstances; r++) {
+            int group = random.nextInt(numGroups);
+            double[] row = new double[5];
+            for (int i = 0; i < 4; i++) {
+                row[i] = centers[group][i] + random.nextGaussian();
+            }
+            row[4] = random.nextInt(4) == 0 ? random.nextInt(3) : group % 3;
+            for (int i = 0; i < row.length; i++) {
+                if (random.nextInt(100) == 0) {
+                    row[i] = Utils.missingValue();
+                }
+            }
+            data.add(new DenseInstance(1.0, row));
+        }
+        return data;
+    }
+
+    private static KMeans train(Instances data, int algorithm, int numSlots) throws Exception {
+        KMeans model = new KMeans();
+        model.setNumClusters(8);
+        model.setAlgorithm(new SelectedTag(algorithm, KMeans.TAGS_ALGORITHM));
+        model.setNumExecutionSlots(numSlots);
+        model.setSeed(3);
+        model.buildClusterer(data);
+        return model;
+    }
+
+    private static void assertSameModel(String message, KMeans expected, KMeans actual, Instances data)
+            throws Exception {
+        Instances expectedCentroids = expected.getClusterCentroids();
+        Instances actualCentroids = actual.getClusterCentroids();
+        assertEquals(message, expectedCentroids.numInstances(), actualCentroids.numInstances());
+        for (int c = 0; c < expectedCentroids.numInstances(); c++) {
+            assertTrue(message + ", centroide " + c, Arrays.equals(expectedCentroids.instance(c).toDoubleArray(),
+                    actualCentroids.instance(c).toDoubleArray()));
+        }
+        for (int r = 0; r < data.numInstances(); r++) {
+            assertEquals(message + ", fila " + r, expected.clusterInstance(data.instance(r)),
+                    actual.clusterInstance(data.instance(r)));
+        }
+        assertEquals(message, expected.getSquaredError(), actual.getSquaredError(), 0);
+    }
+
+    public void testAlgorithmsAndThreadsAgree() throws Exception {
+        Instances data = randomData(5000, 10, 1);
+        KMeans lloyd = train(data, KMeans.LLOYD, 1);
+        for (int algorithm : new int[] {KMeans.LLOYD, KMeans.HAMERLY, KMeans.ELKAN}) {
+            for (int numSlots : new int[] {1, 3}) {
+                assertSameModel(KMeans.TAGS_ALGORITHM[algorithm].getIDStr() + ", " + numSlots + " hilos", lloyd,
+                        train(data, algorithm, numSlots), data);
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package aprendizaje.automatico;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.Utils;
+import weka.core.converters.ArffSaver;
+import weka.core.converters.ConverterUtils.DataSource;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Cada coordenada numérica de un centroide de {@link MiniBatchKMeans} es la
+ * media de los valores no ausentes que ha recibido el grupo, y cada nominal su
+ * moda; leer de un fichero da el mismo resultado que cargarlo antes.
+ */
+public class MiniBatchKMeansTest extends TestCase {
+
+    public MiniBatchKMeansTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(MiniBatchKMeansTest.class);
+    }
+
+    public void testCentroidIsMeanOfPresentValues() throws Exception {
+        Random random = new Random(1);
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("x"));
+        attributes.add(new Attribute("y"));
+        Instances data = new Instances("aleatorio", attributes, 0);
+        double[] sum = new double[2];
+        int[] count = new int[2];
+        for (int r = 0; r < 1000; r++) {
+            double[] row = new double[2];
+            for (int i = 0; i < 2; i++) {
+                // El atributo y falta en la mitad de las instancias
+                if (i == 1 && random.nextBoolean()) {
+                    row[i] = Utils.missingValue();
+                } else {
+                    row[i] = 10 * random.nextDouble();
+                    sum[i] += row[i];
+                    count[i]++;
+                }
+            }
+            data.add(new DenseInstance(1.0, row));
+        }
+
+        MiniBatchKMeans clusterer = new MiniBatchKMeans();
+        clusterer.setNumClusters(1);
+        clusterer.setBatchSize(100);
+        clusterer.buildClusterer(data);
+        for (int i = 0; i < 2; i++) {
+            assertEquals("atributo " + i, sum[i] / count[i],
+                    clusterer.getClusterCentroids().instance(0).value(i), 1e-9);
+        }
+    }
+
+    private static final String WEATHER = "../../ev/data/weather.nominal.arff";
+
+    /**
+     * En weather.nominal (solo nominales) el algoritmo es k-modas: el valor de
+     * cada centroide es el más frecuente entre las instancias del grupo.
+     */
+    public void testNominalCentroidsAreModes() throws Exception {
+        Instances data = new DataSource(WEATHER).getDataSet();
+        for (int batchSize : new int[] {1000, 4}) {
+            MiniBatchKMeans clusterer = new MiniBatchKMeans();
+            clusterer.setNumClusters(3);
+            clusterer.setBatchSize(batchSize);
+            clusterer.buildClusterer(data);
+            Instances centroids = clusterer.getClusterCentroids();
+            assertEquals(data.numInstances(), clusterer.numInstances());
+            for (int i = 0; i < data.numAttributes(); i++) {
+                long[] total = new long[data.attribute(i).numValues()];
+                for (int c = 0; c < centroids.numInstances(); c++) {
+                    int mode = (int) centroids.instance(c).value(i);
+                    long members = 0;
+                    for (int v = 0; v < total.length; v++) {
+                        long count = clusterer.valueCount(c, i, v);
+                        members += count;
+                        total[v] += count;
+                        assertTrue("lote " + batchSize + ", grupo " + c + ", atributo " + i,
+                                count <= clusterer.valueCount(c, i, mode));
+                    }
+                    assertTrue("grupo " + c + " vacío", members > 0);
+                }
+                // Las cuentas de los grupos son un reparto de las instancias
+                long[] expected = new long[total.length];
+                for (int r = 0; r < data.numInstances(); r++) {
+                    expected[(int) data.instance(r).value(i)]++;
+                }
+                assertTrue("atributo " + i, Arrays.equals(expected, total));
+            }
+        }
+    }
+
+    /**
+     * Datos mezclados (numéricos y nominales) con algunos valores ausentes.
+     */
+    private static Instances mixedData(int numInstances, long seed) {
+        Random random = new Random(seed);
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("x"));
+        attributes.add(new Attribute("y"));
+        List<String> colors = Arrays.asList("rojo", "verde", "azul");
+        attributes.add(new Attribute("color", colors));
+        Instances data = new Instances("mezclado", attributes, numInstances);
+        for (int r = 0; r < numInstances; r++) {
+            int group = random.nextInt(3);
+            double[] row = {
+                    10 * group + random.nextGaussian(),
+                    random.nextInt(20) == 0 ? Utils.missingValue() : -5 * group + random.nextGaussian(),
+                    random.nextInt(4) == 0 ? random.nextInt(3) : group
+            };
+            data.add(new DenseInstance(1.0, row));
+        }
+        return data;
+    }
+
+    private static MiniBatchKMeans newClusterer(int batchSize) throws Exception {
+        MiniBatchKMeans clusterer = new MiniBatchKMeans();
+        clusterer.setNumClusters(3);
+        clusterer.setBatchSize(batchSize);
+        clusterer.setSeed(5);
+        return clusterer;
+    }
+
+    /**
+     * cluster(DataSource) lee el ARFF de una en una y llega a los mismos
+     * centroides que buildClusterer con las instancias cargadas.
+     */
+    public void testStreamingMatchesLoadedData() throws Exception {
+        File file = File.createTempFile("minilotes", ".arff");
+        try {
+            ArffSaver saver = new ArffSaver();
+            saver.setInstances(mixedData(2500, 2));
+            saver.setFile(file);
+            saver.writeBatch();
+
+            for (String path : new String[] {WEATHER, file.getPath()}) {
+                for (int batchSize : new int[] {5, 1000}) {
+                    MiniBatchKMeans loaded = newClusterer(batchSize);
+                    Instances data = new DataSource(path).getDataSet();
+                    loaded.buildClusterer(data);
+                    MiniBatchKMeans streamed = newClusterer(batchSize);
+                    streamed.cluster(new DataSource(path));
+                    String message = path + ", lote " + batchSize;
+                    assertEquals(message, loaded.toString(), streamed.toString());
+                    assertEquals(message, loaded.getClusterCentroids().toString(),
+                            streamed.getClusterCentroids().toString());
+                    for (int r = 0; r < data.numInstances(); r++) {
+                        assertEquals(message, loaded.clusterInstance(data.instance(r)),
+                                streamed.clusterInstance(data.instance(r)));
+                    }
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Las instancias de un último lote incompleto solo cuentan tras
+     * updateFinished, y llamarlo otra vez no cambia nada.
+     */
+    public void testUpdateFinishedProcessesPartialBatch() throws Exception {
+        int batchSize = 100;
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("x"));
+        Instances data = new Instances("lineal", attributes, 0);
+        for (int r = 0; r < 2 * batchSize + 7; r++) {
+            data.add(new DenseInstance(1.0, new double[] {r}));
+        }
+
+        MiniBatchKMeans clusterer = new MiniBatchKMeans();
+        clusterer.setNumClusters(1);
+        clusterer.setBatchSize(batchSize);
+        for (int r = 0; r < data.numInstances(); r++) {
+            clusterer.updateClusterer(data.instance(r));
+        }
+        // Los dos lotes completos: media de 0 .. 199
+        assertEquals(2 * batchSize, clusterer.numInstances());
+        assertEquals((2 * batchSize - 1) / 2.0, clusterer.getClusterCentroids().instance(0).value(0), 1e-9);
+
+        clusterer.updateFinished();
+        assertEquals(data.numInstances(), clusterer.numInstances());
+        double mean = (data.numInstances() - 1) / 2.0;
+        assertEquals(mean, clusterer.getClusterCentroids().instance(0).value(0), 1e-9);
+
+        clusterer.updateFinished();
+        assertEquals(data.numInstances(), clusterer.numInstances());
+        assertEquals(mean, clusterer.getClusterCentroids().instance(0).value(0), 1e-9);
+    }
+}
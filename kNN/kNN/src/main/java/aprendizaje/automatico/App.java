@@ -1,33 +1,46 @@
 package aprendizaje.automatico;
 
-import weka.classifiers.lazy.IBk;
+import weka.classifiers.Evaluation;
 import weka.core.Instances;
+import weka.core.Utils;
 import weka.core.converters.ConverterUtils.DataSource;
 
+import java.util.Arrays;
+import java.util.Random;
+
 public class App {
     public static void main(String[] args) {
         try {
-            // Load the dataset
-            DataSource source = new DataSource("../../ev/data/weather.nominal.arff");
+            // Cargar el conjunto de datos (el mismo que usan los demás módulos)
+            String dataPath = args.length > 0 && !args[0].startsWith("-") ? args[0] : "../../ev/data/weather.nominal.arff";
+            DataSource source = new DataSource(dataPath);
             Instances data = source.getDataSet();
 
-            // Set the class index
+            // La clase es el último atributo
             if (data.classIndex() == -1) {
                 data.setClassIndex(data.numAttributes() - 1);
             }
 
-            // Create a new IBk classifier
-            IBk knn = new IBk();
-            knn.setKNN(3); // Set k to 3
+            // Opciones de Weka desde la línea de comandos (p. ej. "-K 5 -index BRUTE"); k = 3 si no se indica
+            String[] options = args.length > 0 && !args[0].startsWith("-")
+                    ? Arrays.copyOfRange(args, 1, args.length) : args.clone();
+            boolean defaultK = Utils.getOptionPos('K', options) < 0;
+            Knn knn = new Knn();
+            knn.setOptions(options);
+            if (defaultK) {
+                knn.setKNN(3);
+            }
 
-            // Build the classifier
             knn.buildClassifier(data);
-
-            // Print the classifier
             System.out.println(knn);
 
+            // Validación cruzada con 10 particiones
+            Evaluation evaluation = new Evaluation(data);
+            evaluation.crossValidateModel(knn, data, 10, new Random(1));
+            System.out.println(evaluation.toSummaryString("Validación cruzada (10 particiones)", false));
+
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+}
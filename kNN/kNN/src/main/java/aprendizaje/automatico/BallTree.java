@@ -0,0 +1,154 @@
+package aprendizaje.automatico;
+
+import java.util.Arrays;
+
+/**
+ * Árbol de bolas sobre arrays primitivos, para atributos numéricos sin valores
+ * ausentes. Con muchas dimensiones poda mejor que el árbol k-d, porque cada
+ * nodo se acota con una esfera y no con planos alineados con los ejes.
+ *
+ * Cada nodo guarda el centroide de sus puntos (en un único double[] para todo
+ * el árbol) y el radio que los contiene. Para partirlo se toma el punto más
+ * alejado del centroide, a, y el más alejado de a, b, y los puntos se reparten
+ * por la mediana de su proyección sobre b - a. La búsqueda visita primero el
+ * hijo cuyo centro está más cerca y descarta un nodo si la distancia de la
+ * consulta a su esfera supera la del peor vecino.
+ */
+class BallTree extends SpatialIndex {
+
+    /** Margen relativo de las podas, que usan raíces cuadradas con redondeo. */
+    private static final double SLACK = 1e-9;
+
+    private final int dimension;
+    private final double[] values;    // Coordenadas en el orden de ids
+    private final int[] ids;
+
+    private int numNodes;
+    private double[] centers;
+    private double[] radius = new double[16];
+    private int[] left = new int[16];     // -1 en las hojas
+    private int[] right = new int[16];
+    private int[] start = new int[16];
+    private int[] end = new int[16];
+
+    BallTree(Points points) {
+        dimension = points.dimension();
+        centers = new double[16 * dimension];
+        int n = points.numPoints();
+        int[] order = identity(n);
+        if (n > 0) {
+            build(points.values(), order, new double[n], 0, n);
+        }
+        ids = order;
+        values = reorder(points, order);
+    }
+
+    private int build(double[] coordinates, int[] order, double[] keys, int lo, int hi) {
+        int node = newNode(lo, hi);
+        int center = node * dimension;
+        for (int pos = lo; pos < hi; pos++) {
+            int base = order[pos] * dimension;
+            for (int d = 0; d < dimension; d++) {
+                centers[center + d] += coordinates[base + d];
+            }
+        }
+        for (int d = 0; d < dimension; d++) {
+            centers[center + d] /= hi - lo;
+        }
+        int a = -1;
+        double max = -1;
+        for (int pos = lo; pos < hi; pos++) {
+            double key = Points.squaredEuclidean(coordinates, order[pos] * dimension, centers, center, dimension);
+            if (key > max) {
+                max = key;
+                a = order[pos];
+            }
+        }
+        radius[node] = Math.sqrt(max);
+        if (hi - lo <= LEAF_SIZE || max == 0) {
+            return node;
+        }
+
+        int b = a;
+        max = -1;
+        for (int pos = lo; pos < hi; pos++) {
+            double key = Points.squaredEuclidean(coordinates, order[pos] * dimension, coordinates, a * dimension, dimension);
+            if (key > max) {
+                max = key;
+                b = order[pos];
+            }
+        }
+        // Proyección sobre b - a
+        for (int pos = lo; pos < hi; pos++) {
+            int base = order[pos] * dimension;
+            double projection = 0;
+            for (int d = 0; d < dimension; d++) {
+                projection += (coordinates[base + d] - coordinates[a * dimension + d])
+                        * (coordinates[b * dimension + d] - coordinates[a * dimension + d]);
+            }
+            keys[pos] = projection;
+        }
+        int mid = (lo + hi) >>> 1;
+        select(order, keys, lo, hi, mid);
+        int leftChild = build(coordinates, order, keys, lo, mid);
+        int rightChild = build(coordinates, order, keys, mid, hi);
+        left[node] = leftChild;
+        right[node] = rightChild;
+        return node;
+    }
+
+    private int newNode(int lo, int hi) {
+        if (numNodes == radius.length) {
+            int capacity = 2 * numNodes;
+            centers = Arrays.copyOf(centers, Math.multiplyExact(capacity, dimension));
+            radius = Arrays.copyOf(radius, capacity);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            start = Arrays.copyOf(start, capacity);
+            end = Arrays.copyOf(end, capacity);
+        }
+        left[numNodes] = -1;
+        start[numNodes] = lo;
+        end[numNodes] = hi;
+        return numNodes++;
+    }
+
+    @Override
+    void search(double[] query, Neighbours neighbours) {
+        if (numNodes > 0) {
+            search(0, distanceToCenter(query, 0), query, neighbours);
+        }
+    }
+
+    private double distanceToCenter(double[] query, int node) {
+        return Math.sqrt(Points.squaredEuclidean(query, 0, centers, node * dimension, dimension));
+    }
+
+    /**
+     * @param toCenter distancia de la consulta al centro del nodo, ya calculada por el padre
+     */
+    private void search(int node, double toCenter, double[] query, Neighbours neighbours) {
+        double lower = toCenter - radius[node];
+        if (lower > 0 && lower * lower > neighbours.worst() * (1 + SLACK)) {
+            return;
+        }
+        if (left[node] < 0) {
+            for (int pos = start[node]; pos < end[node]; pos++) {
+                double key = Points.squaredEuclidean(query, 0, values, pos * dimension, dimension);
+                if (key <= neighbours.worst()) {
+                    neighbours.offer(key, ids[pos]);
+                }
+            }
+            return;
+        }
+        double toLeft = distanceToCenter(query, left[node]);
+        double toRight = distanceToCenter(query, right[node]);
+        if (toLeft <= toRight) {
+            search(left[node], toLeft, query, neighbours);
+            search(right[node], toRight, query, neighbours);
+        } else {
+            search(right[node], toRight, query, neighbours);
+            search(left[node], toLeft, query, neighbours);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package aprendizaje.automatico;
+
+/**
+ * Búsqueda exhaustiva sobre el double[] de {@link Points}, fila a fila. Sirve
+ * para cualquier combinación de atributos y valores ausentes.
+ *
+ * Si todos los atributos son numéricos y no hay ausentes (ni en los puntos ni
+ * en la consulta), calcula las distancias de cuatro filas a la vez con cuatro
+ * acumuladores independientes, un bucle sin ramas que el compilador JIT puede
+ * encadenar sin esperar a cada suma.
+ */
+class BruteForceIndex extends SpatialIndex {
+
+    private final Points points;
+
+    BruteForceIndex(Points points) {
+        this.points = points;
+    }
+
+    @Override
+    void search(double[] query, Neighbours neighbours) {
+        int n = points.numPoints();
+        int dimension = points.dimension();
+        double[] values = points.values();
+        if (points.hasMissing() || hasMissing(query, dimension)) {
+            for (int p = 0, base = 0; p < n; p++, base += dimension) {
+                double key = points.squaredDistance(query, 0, values, base);
+                if (key <= neighbours.worst()) {
+                    neighbours.offer(key, p);
+                }
+            }
+            return;
+        }
+        if (points.hasNominal()) {
+            for (int p = 0, base = 0; p < n; p++, base += dimension) {
+                double key = points.squaredDistanceComplete(query, 0, values, base);
+                if (key <= neighbours.worst()) {
+                    neighbours.offer(key, p);
+                }
+            }
+            return;
+        }
+
+        int p = 0;
+        for (int base = 0; p + 4 <= n; p += 4, base += 4 * dimension) {
+            double s0 = 0;
+            double s1 = 0;
+            double s2 = 0;
+            double s3 = 0;
+            for (int d = 0; d < dimension; d++) {
+                double q = query[d];
+                double d0 = values[base + d] - q;
+                double d1 = values[base + dimension + d] - q;
+                double d2 = values[base + 2 * dimension + d] - q;
+                double d3 = values[base + 3 * dimension + d] - q;
+                s0 += d0 * d0;
+                s1 += d1 * d1;
+                s2 += d2 * d2;
+                s3 += d3 * d3;
+            }
+            if (s0 <= neighbours.worst()) {
+                neighbours.offer(s0, p);
+            }
+            if (s1 <= neighbours.worst()) {
+                neighbours.offer(s1, p + 1);
+            }
+            if (s2 <= neighbours.worst()) {
+                neighbours.offer(s2, p + 2);
+            }
+            if (s3 <= neighbours.worst()) {
+                neighbours.offer(s3, p + 3);
+            }
+        }
+        for (; p < n; p++) {
+            double key = Points.squaredEuclidean(query, 0, values, p * dimension, dimension);
+            if (key <= neighbours.worst()) {
+                neighbours.offer(key, p);
+            }
+        }
+    }
+
+    private static boolean hasMissing(double[] query, int dimension) {
+        for (int d = 0; d < dimension; d++) {
+            if (Double.isNaN(query[d])) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
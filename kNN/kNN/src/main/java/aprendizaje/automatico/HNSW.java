@@ -0,0 +1,492 @@
+package aprendizaje.automatico;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Grafo de mundo pequeño navegable jerárquico (HNSW, Malkov y Yashunin). A
+ * diferencia de los demás índices es aproximado: puede devolver vecinos que no
+ * son los k más cercanos, a cambio de calcular muy pocas distancias incluso
+ * con muchos puntos y muchas dimensiones.
+ *
+ * Cada punto está en la capa 0 y, con probabilidad que decrece
+ * exponencialmente, en algunas capas superiores; en cada capa se enlaza con
+ * hasta m vecinos (2m en la capa 0), elegidos con la heurística que descarta
+ * un candidato si está más cerca de un vecino ya elegido que del propio punto.
+ * Una búsqueda baja de forma voraz desde el punto de entrada de la capa más
+ * alta y en la capa 0 explora el grafo manteniendo los ef mejores candidatos:
+ * ef es el parámetro que cambia exactitud por tiempo y se puede ajustar
+ * después de construir el índice.
+ *
+ * Solo usa la distancia entre pares, así que sirve para atributos nominales
+ * (distancia de Hamming), numéricos o mezclados, con valores ausentes o sin
+ * ellos. Los puntos del entrenamiento se leen de {@link Points} sin
+ * copiarlos; solo los que se añaden con {@link #insert} van a un array propio
+ * que crece, de modo que se pueden añadir instancias sin reconstruir nada.
+ * Las búsquedas pueden ir en paralelo, pero no con una inserción.
+ */
+class HNSW extends SpatialIndex {
+
+    private final Points points;
+    private final int dimension;
+    private final int m;                 // Vecinos por punto en las capas superiores
+    private final int m0;                // En la capa 0
+    private final int efConstruction;
+    private final double levelFactor;    // 1 / ln(m)
+    private final Random random = new Random(1);
+    private final boolean numeric;
+    private int ef;
+
+    private int size;
+    private final double[] initial;      // Punto p < numInitial en [p * dimension, (p + 1) * dimension), de Points
+    private final int numInitial;
+    private double[] inserted;           // Punto p >= numInitial en [(p - numInitial) * dimension, ...)
+    private boolean hasMissing;
+    private int[] links0;                // Capa 0 del punto p en p * (m0 + 1): número de vecinos y vecinos
+    private int[][] upperLinks;          // Capa c > 0 del punto p en upperLinks[p][(c - 1) * (m + 1)]
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    private transient volatile ThreadLocal<Scratch> scratchLocal;
+
+    /**
+     * Índice con todos los puntos, insertados en orden.
+     *
+     * @param m vecinos por punto en las capas superiores (al menos 2)
+     * @param efConstruction candidatos que se exploran al insertar
+     * @param ef candidatos que se exploran al buscar (al menos k)
+     */
+    HNSW(Points points, int m, int efConstruction, int ef) {
+        this(points, m, efConstruction, ef, points.numPoints());
+    }
+
+    /**
+     * Índice con los count primeros puntos; los demás se pueden añadir con
+     * {@link #insert}.
+     */
+    HNSW(Points points, int m, int efConstruction, int ef, int count) {
+        this.points = points;
+        dimension = points.dimension();
+        this.m = m;
+        m0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, 1);
+        this.ef = ef;
+        levelFactor = 1 / Math.log(m);
+        numeric = !points.hasNominal();
+        initial = points.values();
+        numInitial = count;
+        inserted = new double[0];
+        int capacity = Math.max(count, 16);
+        links0 = new int[Math.multiplyExact(capacity, m0 + 1)];
+        upperLinks = new int[capacity][];
+        for (int p = 0; p < count; p++) {
+            insert(initial, p * dimension, hasMissing(initial, p * dimension));
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getEf() {
+        return ef;
+    }
+
+    void setEf(int ef) {
+        this.ef = ef;
+    }
+
+    /**
+     * Añade el punto x[offset, offset + dimension), codificado con
+     * {@link Points#encode}. Se copia salvo que sea uno de los count primeros
+     * puntos de Points, que se insertan al construir el índice.
+     *
+     * @return su índice, que es el número de puntos que había
+     */
+    int insert(double[] x, int offset, boolean missing) {
+        int node = size;
+        ensureCapacity(node + 1);
+        if (node >= numInitial) {
+            int numInserted = node - numInitial;
+            if ((numInserted + 1) * dimension > inserted.length) {
+                // Crece con los puntos añadidos, no con todo el índice
+                int grown = Math.max(16, numInserted + (numInserted >> 1));
+                inserted = Arrays.copyOf(inserted, Math.multiplyExact(grown, dimension));
+            }
+            System.arraycopy(x, offset, inserted, numInserted * dimension, dimension);
+        }
+        hasMissing |= missing;
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelFactor);
+        links0[node * (m0 + 1)] = 0;
+        upperLinks[node] = level > 0 ? new int[level * (m + 1)] : null;
+        size++;
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return node;
+        }
+
+        Scratch scratch = scratch();
+        double[] values = coordinates(node);
+        int base = start(node);
+        int entry = entryPoint;
+        double entryKey = key(values, base, entry, hasMissing);
+        for (int c = maxLevel; c > level; c--) {
+            entry = greedy(values, base, hasMissing, entry, entryKey, c, scratch);
+            entryKey = scratch.greedyKey;
+        }
+        Neighbours results = scratch.results(efConstruction);
+        for (int c = Math.min(level, maxLevel); c >= 0; c--) {
+            searchLayer(values, base, hasMissing, entry, entryKey, c, results, scratch);
+            int count = scratch.sort(results);
+            entry = scratch.ids[0];
+            entryKey = scratch.keys[0];
+            int max = c == 0 ? m0 : m;
+            int[] links = links(node, c);
+            int at = offset(node, c);
+            select(scratch, count, max, links, at);
+            for (int i = 1; i <= links[at]; i++) {
+                connect(links[at + i], node, c, max, scratch);
+            }
+        }
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+        return node;
+    }
+
+    @Override
+    void search(double[] query, Neighbours neighbours) {
+        if (size == 0) {
+            return;
+        }
+        Scratch scratch = scratch();
+        boolean missing = hasMissing || hasMissing(query, 0);
+        int entry = entryPoint;
+        double entryKey = key(query, 0, entry, missing);
+        for (int c = maxLevel; c > 0; c--) {
+            entry = greedy(query, 0, missing, entry, entryKey, c, scratch);
+            entryKey = scratch.greedyKey;
+        }
+        Neighbours results = scratch.results(Math.max(ef, neighbours.capacity()));
+        searchLayer(query, 0, missing, entry, entryKey, 0, results, scratch);
+        for (int i = 0; i < results.size(); i++) {
+            neighbours.offer(results.key(i), results.id(i));
+        }
+    }
+
+    /**
+     * Baja por la capa mientras algún vecino esté más cerca que el actual.
+     * Deja la distancia del punto devuelto en scratch.greedyKey.
+     */
+    private int greedy(double[] q, int qOffset, boolean missing, int entry, double entryKey, int level, Scratch scratch) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] links = links(entry, level);
+            int at = offset(entry, level);
+            for (int i = 1; i <= links[at]; i++) {
+                int candidate = links[at + i];
+                double key = key(q, qOffset, candidate, missing);
+                if (key < entryKey) {
+                    entryKey = key;
+                    entry = candidate;
+                    changed = true;
+                }
+            }
+        }
+        scratch.greedyKey = entryKey;
+        return entry;
+    }
+
+    /**
+     * Deja en results los results.capacity() puntos más cercanos a q que
+     * encuentra la exploración de la capa desde entry.
+     */
+    private void searchLayer(double[] q, int qOffset, boolean missing, int entry, double entryKey, int level,
+                             Neighbours results, Scratch scratch) {
+        results.clear();
+        MinHeap candidates = scratch.candidates;
+        candidates.clear();
+        int[] visited = scratch.visited(size);
+        int mark = scratch.mark;
+        visited[entry] = mark;
+        results.offer(entryKey, entry);
+        candidates.push(entryKey, entry);
+        while (candidates.size() > 0) {
+            if (candidates.minKey() > results.worst()) {
+                break;
+            }
+            int current = candidates.pop();
+            int[] links = links(current, level);
+            int at = offset(current, level);
+            for (int i = 1; i <= links[at]; i++) {
+                int neighbour = links[at + i];
+                if (visited[neighbour] == mark) {
+                    continue;
+                }
+                visited[neighbour] = mark;
+                double key = key(q, qOffset, neighbour, missing);
+                if (key <= results.worst()) {
+                    candidates.push(key, neighbour);
+                    results.offer(key, neighbour);
+                }
+            }
+        }
+    }
+
+    /**
+     * Heurística de selección: recorre los candidatos de scratch por distancia
+     * creciente y se queda con uno si está más cerca del punto que de todos
+     * los ya elegidos, hasta max. Así los vecinos apuntan en direcciones
+     * distintas y el grafo sigue conectado entre grupos de puntos.
+     */
+    private void select(Scratch scratch, int count, int max, int[] links, int at) {
+        int selected = 0;
+        for (int i = 0; i < count && selected < max; i++) {
+            int candidate = scratch.ids[i];
+            double key = scratch.keys[i];
+            boolean keep = true;
+            for (int j = 1; j <= selected && keep; j++) {
+                keep = key(coordinates(candidate), start(candidate), links[at + j], hasMissing) >= key;
+            }
+            if (keep) {
+                links[at + ++selected] = candidate;
+            }
+        }
+        links[at] = selected;
+    }
+
+    /**
+     * Enlaza node desde neighbour; si neighbour ya tiene max vecinos, vuelve a
+     * elegirlos entre los que tenía y node.
+     */
+    private void connect(int neighbour, int node, int level, int max, Scratch scratch) {
+        int[] links = links(neighbour, level);
+        int at = offset(neighbour, level);
+        int count = links[at];
+        if (count < max) {
+            links[at + count + 1] = node;
+            links[at] = count + 1;
+            return;
+        }
+        double[] values = coordinates(neighbour);
+        int base = start(neighbour);
+        for (int i = 0; i < count; i++) {
+            int other = links[at + 1 + i];
+            scratch.ids[i] = other;
+            scratch.keys[i] = key(values, base, other, hasMissing);
+        }
+        scratch.ids[count] = node;
+        scratch.keys[count] = key(values, base, node, hasMissing);
+        scratch.sort(count + 1);
+        select(scratch, count + 1, max, links, at);
+    }
+
+    private int[] links(int node, int level) {
+        return level == 0 ? links0 : upperLinks[node];
+    }
+
+    private int offset(int node, int level) {
+        return level == 0 ? node * (m0 + 1) : (level - 1) * (m + 1);
+    }
+
+    /**
+     * Array con las coordenadas del punto; empiezan en {@link #start}.
+     */
+    private double[] coordinates(int node) {
+        return node < numInitial ? initial : inserted;
+    }
+
+    private int start(int node) {
+        return (node < numInitial ? node : node - numInitial) * dimension;
+    }
+
+    private double key(double[] q, int qOffset, int node, boolean missing) {
+        double[] values = coordinates(node);
+        int base = start(node);
+        if (missing) {
+            return points.squaredDistance(q, qOffset, values, base);
+        }
+        if (numeric) {
+            return Points.squaredEuclidean(q, qOffset, values, base, dimension);
+        }
+        return points.squaredDistanceComplete(q, qOffset, values, base);
+    }
+
+    private boolean hasMissing(double[] x, int offset) {
+        for (int d = 0; d < dimension; d++) {
+            if (Double.isNaN(x[offset + d])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= upperLinks.length) {
+            return;
+        }
+        int grown = Math.max(capacity, upperLinks.length + (upperLinks.length >> 1));
+        links0 = Arrays.copyOf(links0, Math.multiplyExact(grown, m0 + 1));
+        upperLinks = Arrays.copyOf(upperLinks, grown);
+    }
+
+    /**
+     * Espacio de trabajo del hilo actual.
+     */
+    private Scratch scratch() {
+        ThreadLocal<Scratch> local = scratchLocal;
+        if (local == null) {
+            synchronized (this) {
+                if (scratchLocal == null) {
+                    scratchLocal = ThreadLocal.withInitial(() -> new Scratch(Math.max(efConstruction, m0) + 1));
+                }
+                local = scratchLocal;
+            }
+        }
+        return local.get();
+    }
+
+    /**
+     * Lo que cada hilo reutiliza de una búsqueda a otra: las marcas de
+     * visitado (un número por búsqueda, para no tener que borrarlas), los
+     * montículos de candidatos y resultados y los arrays para ordenarlos.
+     */
+    private static final class Scratch {
+        final MinHeap candidates = new MinHeap();
+        int[] ids;
+        double[] keys;
+        int[] visited = new int[0];
+        int mark;
+        double greedyKey;
+        private Neighbours results;
+
+        Scratch(int capacity) {
+            ids = new int[capacity];
+            keys = new double[capacity];
+        }
+
+        int[] visited(int size) {
+            if (visited.length < size) {
+                visited = Arrays.copyOf(visited, Math.max(size, visited.length + (visited.length >> 1)));
+            }
+            if (++mark == 0) {
+                Arrays.fill(visited, 0);
+                mark = 1;
+            }
+            return visited;
+        }
+
+        Neighbours results(int capacity) {
+            if (results == null || results.capacity() != capacity) {
+                results = new Neighbours(capacity);
+            }
+            return results;
+        }
+
+        /**
+         * Copia los resultados a ids y keys ordenados por distancia.
+         *
+         * @return cuántos hay
+         */
+        int sort(Neighbours results) {
+            int count = results.size();
+            if (ids.length < count) {
+                ids = new int[count];
+                keys = new double[count];
+            }
+            for (int i = 0; i < count; i++) {
+                ids[i] = results.id(i);
+                keys[i] = results.key(i);
+            }
+            sort(count);
+            return count;
+        }
+
+        /**
+         * Ordena ids[0, count) y keys[0, count) por distancia (y por índice si
+         * empatan). Son pocos, así que basta con inserción.
+         */
+        void sort(int count) {
+            for (int i = 1; i < count; i++) {
+                int id = ids[i];
+                double key = keys[i];
+                int j = i - 1;
+                while (j >= 0 && (keys[j] > key || (keys[j] == key && ids[j] > id))) {
+                    ids[j + 1] = ids[j];
+                    keys[j + 1] = keys[j];
+                    j--;
+                }
+                ids[j + 1] = id;
+                keys[j + 1] = key;
+            }
+        }
+    }
+
+    /**
+     * Montículo de mínimos sobre arrays primitivos que crecen según haga falta.
+     */
+    private static final class MinHeap {
+        private double[] keys = new double[64];
+        private int[] ids = new int[64];
+        private int size;
+
+        void clear() {
+            size = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        double minKey() {
+            return keys[0];
+        }
+
+        void push(double key, int id) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, 2 * size);
+                ids = Arrays.copyOf(ids, 2 * size);
+            }
+            int child = size++;
+            while (child > 0) {
+                int parent = (child - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                keys[child] = keys[parent];
+                ids[child] = ids[parent];
+                child = parent;
+            }
+            keys[child] = key;
+            ids[child] = id;
+        }
+
+        int pop() {
+            int top = ids[0];
+            double key = keys[--size];
+            int id = ids[size];
+            int parent = 0;
+            while (true) {
+                int child = 2 * parent + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (keys[child] >= key) {
+                    break;
+                }
+                keys[parent] = keys[child];
+                ids[parent] = ids[child];
+                parent = child;
+            }
+            keys[parent] = key;
+            ids[parent] = id;
+            return top;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package aprendizaje.automatico;
+
+import java.util.Arrays;
+
+/**
+ * Árbol k-d sobre arrays primitivos, para atributos numéricos sin valores
+ * ausentes.
+ *
+ * Cada nodo interno parte sus puntos por la mediana de la coordenada con más
+ * dispersión; las hojas tienen hasta {@link #LEAF_SIZE} puntos, guardados
+ * seguidos en una copia reordenada de las coordenadas. Los nodos son
+ * posiciones en arrays paralelos (coordenada de corte, valor, hijos y rango de
+ * puntos), sin objetos por nodo. La búsqueda baja primero por el lado de la
+ * consulta y solo visita el otro si el plano de corte está a una distancia no
+ * mayor que la del peor vecino encontrado.
+ */
+class KDTree extends SpatialIndex {
+
+    private final int dimension;
+    private final double[] values;    // Coordenadas en el orden de ids
+    private final int[] ids;          // Punto original de cada posición
+
+    private int numNodes;
+    private int[] splitDimension = new int[16];   // -1 en las hojas
+    private double[] splitValue = new double[16];
+    private int[] left = new int[16];
+    private int[] right = new int[16];
+    private int[] start = new int[16];
+    private int[] end = new int[16];
+
+    KDTree(Points points) {
+        dimension = points.dimension();
+        int n = points.numPoints();
+        int[] order = identity(n);
+        double[] keys = new double[n];
+        if (n > 0) {
+            build(points.values(), order, keys, 0, n);
+        }
+        ids = order;
+        values = reorder(points, order);
+    }
+
+    private int build(double[] coordinates, int[] order, double[] keys, int lo, int hi) {
+        int node = newNode(lo, hi);
+        if (hi - lo <= LEAF_SIZE) {
+            return node;
+        }
+        // Coordenada con más dispersión
+        int bestDimension = -1;
+        double bestSpread = 0;
+        for (int d = 0; d < dimension; d++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int pos = lo; pos < hi; pos++) {
+                double value = coordinates[order[pos] * dimension + d];
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            if (max - min > bestSpread) {
+                bestSpread = max - min;
+                bestDimension = d;
+            }
+        }
+        if (bestDimension < 0) {
+            return node;                  // Todos los puntos son iguales: se queda como hoja
+        }
+        for (int pos = lo; pos < hi; pos++) {
+            keys[pos] = coordinates[order[pos] * dimension + bestDimension];
+        }
+        int mid = (lo + hi) >>> 1;
+        select(order, keys, lo, hi, mid);
+        splitDimension[node] = bestDimension;
+        splitValue[node] = keys[mid];
+        int leftChild = build(coordinates, order, keys, lo, mid);
+        int rightChild = build(coordinates, order, keys, mid, hi);
+        left[node] = leftChild;
+        right[node] = rightChild;
+        return node;
+    }
+
+    private int newNode(int lo, int hi) {
+        if (numNodes == splitDimension.length) {
+            int capacity = 2 * numNodes;
+            splitDimension = Arrays.copyOf(splitDimension, capacity);
+            splitValue = Arrays.copyOf(splitValue, capacity);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            start = Arrays.copyOf(start, capacity);
+            end = Arrays.copyOf(end, capacity);
+        }
+        splitDimension[numNodes] = -1;
+        start[numNodes] = lo;
+        end[numNodes] = hi;
+        return numNodes++;
+    }
+
+    @Override
+    void search(double[] query, Neighbours neighbours) {
+        if (numNodes > 0) {
+            search(0, query, neighbours);
+        }
+    }
+
+    private void search(int node, double[] query, Neighbours neighbours) {
+        int d = splitDimension[node];
+        if (d < 0) {
+            for (int pos = start[node]; pos < end[node]; pos++) {
+                double key = Points.squaredEuclidean(query, 0, values, pos * dimension, dimension);
+                if (key <= neighbours.worst()) {
+                    neighbours.offer(key, ids[pos]);
+                }
+            }
+            return;
+        }
+        double diff = query[d] - splitValue[node];
+        int near = diff < 0 ? left[node] : right[node];
+        int far = diff < 0 ? right[node] : left[node];
+        search(near, query, neighbours);
+        if (diff * diff <= neighbours.worst()) {
+            search(far, query, neighbours);
+        }
+    }
+}
@@ -0,0 +1,477 @@
+package aprendizaje.automatico;
+
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.UpdateableClassifier;
+import weka.core.Capabilities;
+import weka.core.Capabilities.Capability;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.SelectedTag;
+import weka.core.Tag;
+import weka.core.Utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Clasificador de los k vecinos más cercanos con un índice espacial.
+ *
+ * La distancia es la de {@code weka.core.EuclideanDistance}: atributos
+ * numéricos normalizados a [0, 1] y nominales 0 si coinciden y 1 si no. Los
+ * rangos de normalización se fijan con el entrenamiento y no cambian, mientras
+ * que {@code weka.classifiers.lazy.IBk} los amplía con cada instancia que
+ * clasifica; así que las distancias solo coinciden con las de IBk mientras las
+ * consultas no se salgan de esos rangos (fuera de ellos aquí un atributo puede
+ * aportar más de 1). La distribución es la de IBk sin ponderar: cada vecino
+ * suma 1 a su clase sobre un valor inicial de 1 / n, o se promedia la clase
+ * si es numérica. A diferencia de IBk, se toman exactamente k vecinos y los
+ * empates de distancia se deshacen por el orden de las instancias de
+ * entrenamiento.
+ *
+ * Índices (-index):
+ * <ul>
+ * <li>KDTREE: árbol k-d, para atributos numéricos con pocas dimensiones.</li>
+ * <li>BALLTREE: árbol de bolas, para atributos numéricos con muchas dimensiones.</li>
+ * <li>VPTREE: árbol de puntos de referencia, para atributos nominales
+ * (distancia de Hamming) o mezclados.</li>
+ * <li>BRUTE: recorrido de todas las instancias sobre un double[] fila a fila.</li>
+ * <li>AUTO (por defecto): el árbol adecuado según los atributos, o BRUTE si
+ * hay valores ausentes en el entrenamiento.</li>
+ * <li>HNSW: grafo jerárquico de mundo pequeño, aproximado. Sirve para
+ * cualquier combinación de atributos; -ef cambia exactitud por tiempo.</li>
+ * </ul>
+ * Los árboles no admiten valores ausentes; una consulta con alguno se resuelve
+ * recorriendo todas las instancias.
+ *
+ * Con HNSW el clasificador es actualizable: {@link #updateClassifier} inserta
+ * la instancia en el grafo. Se normaliza con los rangos del entrenamiento
+ * inicial, que no cambian, y no debe llamarse mientras se predice.
+ *
+ * {@link #distributionsForInstances} responde un lote entero: con -num-slots
+ * distinto de 1 reparte las consultas entre varios hilos. Cada hilo reutiliza
+ * su propio montículo de vecinos y su array para la consulta codificada, así
+ * que por consulta solo se crea el array de la distribución que se devuelve.
+ */
+public class Knn extends AbstractClassifier implements UpdateableClassifier {
+
+    public static final int AUTO = 0;
+    public static final int BRUTE = 1;
+    public static final int KDTREE = 2;
+    public static final int BALLTREE = 3;
+    public static final int VPTREE = 4;
+    public static final int HNSW = 5;
+
+    public static final Tag[] TAGS_INDEX = {
+            new Tag(AUTO, "AUTO", "Según los atributos"),
+            new Tag(BRUTE, "BRUTE", "Fuerza bruta"),
+            new Tag(KDTREE, "KDTREE", "Árbol k-d"),
+            new Tag(BALLTREE, "BALLTREE", "Árbol de bolas"),
+            new Tag(VPTREE, "VPTREE", "Árbol de puntos de referencia"),
+            new Tag(HNSW, "HNSW", "Grafo HNSW (aproximado)")
+    };
+
+    /** Con AUTO, dimensiones a partir de las que se usa el árbol de bolas en lugar del k-d. */
+    static final int KDTREE_MAX_DIMENSION = 16;
+
+    /** Consultas que resuelve cada tarea en las predicciones en paralelo. */
+    static final int PARALLEL_CHUNK = 256;
+
+    private int m_k = 1;
+    private int m_indexType = AUTO;
+    private int m_hnswM = 16;
+    private int m_efConstruction = 100;
+    private int m_ef = 50;
+
+    private Points m_points;
+    private SpatialIndex m_index;
+    private BruteForceIndex m_bruteForce;  // Para las consultas con valores ausentes
+    private int m_builtIndex;
+    private double[] m_classValues;
+    private int m_numInstances;
+    private int m_numClasses;              // 1 si la clase es numérica
+
+    private int m_numExecutionSlots = 1;
+    private transient ForkJoinPool m_pool;
+    private transient volatile ThreadLocal<Workspace> m_workspace;
+
+    @Override
+    public void buildClassifier(Instances data) throws Exception {
+        getCapabilities().testWithFail(data);
+        data = new Instances(data);
+        data.deleteWithMissingClass();
+
+        m_points = new Points(data);
+        m_numClasses = data.classAttribute().isNominal() ? data.numClasses() : 1;
+        m_numInstances = data.numInstances();
+        m_classValues = new double[m_numInstances];
+        for (int p = 0; p < m_numInstances; p++) {
+            m_classValues[p] = data.instance(p).classValue();
+        }
+
+        m_builtIndex = m_indexType;
+        if (m_builtIndex == AUTO) {
+            if (m_points.hasMissing()) {
+                m_builtIndex = BRUTE;
+            } else if (m_points.hasNominal()) {
+                m_builtIndex = VPTREE;
+            } else {
+                m_builtIndex = m_points.dimension() <= KDTREE_MAX_DIMENSION ? KDTREE : BALLTREE;
+            }
+        }
+        if (m_builtIndex != BRUTE && m_builtIndex != HNSW && m_points.hasMissing()) {
+            throw new Exception("El índice " + TAGS_INDEX[m_builtIndex].getIDStr()
+                    + " no admite valores ausentes en el entrenamiento; use BRUTE o AUTO.");
+        }
+        if ((m_builtIndex == KDTREE || m_builtIndex == BALLTREE) && m_points.hasNominal()) {
+            throw new Exception("El índice " + TAGS_INDEX[m_builtIndex].getIDStr()
+                    + " solo admite atributos numéricos; use VPTREE, BRUTE o AUTO.");
+        }
+        m_bruteForce = new BruteForceIndex(m_points);
+        switch (m_builtIndex) {
+            case KDTREE:
+                m_index = new KDTree(m_points);
+                break;
+            case BALLTREE:
+                m_index = new BallTree(m_points);
+                break;
+            case VPTREE:
+                m_index = new VPTree(m_points);
+                break;
+            case HNSW:
+                m_index = new HNSW(m_points, m_hnswM, m_efConstruction, m_ef);
+                break;
+            default:
+                m_index = m_bruteForce;
+        }
+    }
+
+    /**
+     * Añade la instancia al grafo HNSW. Los demás índices se construyen de una
+     * vez y no admiten inserciones.
+     */
+    @Override
+    public void updateClassifier(Instance instance) throws Exception {
+        if (m_builtIndex != HNSW) {
+            throw new Exception("Solo se pueden añadir instancias con el índice HNSW; "
+                    + "los demás se construyen de una vez.");
+        }
+        if (instance.classIsMissing()) {
+            return;
+        }
+        double[] coordinates = new double[m_points.dimension()];
+        boolean missing = m_points.encode(instance, coordinates, 0);
+        ((HNSW) m_index).insert(coordinates, 0, missing);
+        if (m_numInstances == m_classValues.length) {
+            m_classValues = Arrays.copyOf(m_classValues, Math.max(16, m_numInstances + (m_numInstances >> 1)));
+        }
+        m_classValues[m_numInstances++] = instance.classValue();
+    }
+
+    @Override
+    public double[] distributionForInstance(Instance instance) throws Exception {
+        double[] dist = new double[m_numClasses];
+        predict(instance, workspace(), dist);
+        return dist;
+    }
+
+    /**
+     * Distribuciones de todo el lote. Sin pool se resuelven en orden en el
+     * hilo que llama; con pool, en bloques de {@link #PARALLEL_CHUNK} consultas.
+     * El resultado no depende del reparto.
+     */
+    @Override
+    public double[][] distributionsForInstances(Instances instances) throws Exception {
+        int n = instances.numInstances();
+        double[][] dist = new double[n][m_numClasses];
+        ForkJoinPool pool = getPool();
+        if (pool == null || n < 2 * PARALLEL_CHUNK) {
+            Workspace workspace = workspace();
+            for (int r = 0; r < n; r++) {
+                predict(instances.instance(r), workspace, dist[r]);
+            }
+        } else {
+            int numChunks = (n + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+            pool.submit(() -> IntStream.range(0, numChunks).parallel().forEach(c -> {
+                Workspace workspace = workspace();
+                for (int r = c * PARALLEL_CHUNK; r < Math.min(n, (c + 1) * PARALLEL_CHUNK); r++) {
+                    predict(instances.instance(r), workspace, dist[r]);
+                }
+            })).join();
+        }
+        return dist;
+    }
+
+    @Override
+    public boolean implementsMoreEfficientBatchPrediction() {
+        return true;
+    }
+
+    /**
+     * Lo que cada hilo reutiliza de una consulta a otra.
+     */
+    private static final class Workspace {
+        final double[] query;
+        final Neighbours neighbours;
+
+        Workspace(int dimension, int k) {
+            query = new double[dimension];
+            neighbours = new Neighbours(k);
+        }
+    }
+
+    /**
+     * Espacio de trabajo del hilo actual; se rehace si han cambiado k o los atributos.
+     */
+    private Workspace workspace() {
+        ThreadLocal<Workspace> local = m_workspace;
+        if (local == null) {
+            synchronized (this) {
+                if (m_workspace == null) {
+                    m_workspace = new ThreadLocal<>();
+                }
+                local = m_workspace;
+            }
+        }
+        int k = Math.max(1, Math.min(m_k, m_numInstances));
+        Workspace workspace = local.get();
+        if (workspace == null || workspace.neighbours.capacity() != k
+                || workspace.query.length != m_points.dimension()) {
+            workspace = new Workspace(m_points.dimension(), k);
+            local.set(workspace);
+        }
+        return workspace;
+    }
+
+    private void predict(Instance instance, Workspace workspace, double[] dist) {
+        Neighbours neighbours = workspace.neighbours;
+        neighbours.clear();
+        boolean missing = m_points.encode(instance, workspace.query, 0);
+        (missing && m_builtIndex != HNSW ? m_bruteForce : m_index).search(workspace.query, neighbours);
+        distribution(neighbours, dist);
+    }
+
+    /**
+     * Distribución de IBk sin ponderar a partir de los vecinos.
+     */
+    private void distribution(Neighbours neighbours, double[] dist) {
+        int n = m_numInstances;
+        if (m_numClasses == 1) {
+            dist[0] = 0;
+            if (neighbours.size() == 0) {
+                return;
+            }
+            for (int i = 0; i < neighbours.size(); i++) {
+                dist[0] += m_classValues[neighbours.id(i)];
+            }
+            dist[0] /= neighbours.size();
+            return;
+        }
+        for (int c = 0; c < m_numClasses; c++) {
+            dist[c] = 1.0 / Math.max(1, n);
+        }
+        double total = m_numClasses * (1.0 / Math.max(1, n));
+        for (int i = 0; i < neighbours.size(); i++) {
+            dist[(int) m_classValues[neighbours.id(i)]] += 1;
+            total += 1;
+        }
+        for (int c = 0; c < m_numClasses; c++) {
+            dist[c] /= total;
+        }
+    }
+
+    private ForkJoinPool getPool() {
+        m_pool = ExecutionSlots.pool(m_pool, m_numExecutionSlots);
+        return m_pool;
+    }
+
+
+    @Override
+    public Capabilities getCapabilities() {
+        Capabilities result = super.getCapabilities();
+        result.disableAll();
+        result.enable(Capability.NOMINAL_ATTRIBUTES);
+        result.enable(Capability.NUMERIC_ATTRIBUTES);
+        result.enable(Capability.DATE_ATTRIBUTES);
+        result.enable(Capability.MISSING_VALUES);
+        result.enable(Capability.NOMINAL_CLASS);
+        result.enable(Capability.NUMERIC_CLASS);
+        result.enable(Capability.DATE_CLASS);
+        result.enable(Capability.MISSING_CLASS_VALUES);
+        result.setMinimumNumberInstances(0);
+        return result;
+    }
+
+    /**
+     * @return una descripción de este clasificador
+     */
+    public String globalInfo() {
+        return "k vecinos más cercanos con árbol k-d, árbol de bolas, árbol de puntos de referencia, "
+                + "búsqueda exhaustiva o, de forma aproximada y actualizable, grafo HNSW.";
+    }
+
+    @Override
+    public Enumeration<Option> listOptions() {
+        Vector<Option> newVector = new Vector<>();
+        newVector.addElement(new Option("\tNúmero de vecinos.\n"
+                + "\t(por defecto 1)", "K", 1, "-K <num>"));
+        newVector.addElement(new Option("\tÍndice: AUTO, BRUTE, KDTREE, BALLTREE, VPTREE o HNSW.\n"
+                + "\t(por defecto AUTO)", "index", 1, "-index <índice>"));
+        newVector.addElement(new Option("\tCon HNSW, vecinos por punto en el grafo (el doble en la capa 0).\n"
+                + "\t(por defecto 16)", "M", 1, "-M <num>"));
+        newVector.addElement(new Option("\tCon HNSW, candidatos que se exploran al insertar.\n"
+                + "\t(por defecto 100)", "ef-construction", 1, "-ef-construction <num>"));
+        newVector.addElement(new Option("\tCon HNSW, candidatos que se exploran al buscar: más, más exacto y más lento.\n"
+                + "\t(por defecto 50)", "ef", 1, "-ef <num>"));
+        newVector.addElement(new Option("\tNúmero de hilos para predecir lotes de instancias.\n"
+                + "\t(por defecto 1 - sin paralelismo)\n"
+                + "\t(0 para usar todos los núcleos)", "num-slots", 1, "-num-slots <num>"));
+        newVector.addAll(Collections.list(super.listOptions()));
+        return newVector.elements();
+    }
+
+    @Override
+    public void setOptions(String[] options) throws Exception {
+        String k = Utils.getOption('K', options);
+        setKNN(k.length() != 0 ? Integer.parseInt(k) : 1);
+        String indexType = Utils.getOption("index", options);
+        setIndexType(new SelectedTag(indexType.length() != 0 ? indexType.toUpperCase() : "AUTO", TAGS_INDEX));
+        String hnswM = Utils.getOption("M", options);
+        setHnswM(hnswM.length() != 0 ? Integer.parseInt(hnswM) : 16);
+        String efConstruction = Utils.getOption("ef-construction", options);
+        setEfConstruction(efConstruction.length() != 0 ? Integer.parseInt(efConstruction) : 100);
+        String ef = Utils.getOption("ef", options);
+        setEf(ef.length() != 0 ? Integer.parseInt(ef) : 50);
+        String numSlots = Utils.getOption("num-slots", options);
+        setNumExecutionSlots(numSlots.length() != 0 ? Integer.parseInt(numSlots) : 1);
+        super.setOptions(options);
+        Utils.checkForRemainingOptions(options);
+    }
+
+    @Override
+    public String[] getOptions() {
+        Vector<String> options = new Vector<>();
+        options.add("-K");
+        options.add("" + getKNN());
+        options.add("-index");
+        options.add(getIndexType().getSelectedTag().getIDStr());
+        options.add("-M");
+        options.add("" + getHnswM());
+        options.add("-ef-construction");
+        options.add("" + getEfConstruction());
+        options.add("-ef");
+        options.add("" + getEf());
+        options.add("-num-slots");
+        options.add("" + getNumExecutionSlots());
+        Collections.addAll(options, super.getOptions());
+        return options.toArray(new String[0]);
+    }
+
+    public String KNNTipText() {
+        return "Número de vecinos que votan.";
+    }
+
+    public int getKNN() {
+        return m_k;
+    }
+
+    public void setKNN(int k) throws Exception {
+        if (k < 1) {
+            throw new Exception("k debe ser al menos 1.");
+        }
+        m_k = k;
+    }
+
+    public String indexTypeTipText() {
+        return "Índice para buscar los vecinos (AUTO elige según los atributos).";
+    }
+
+    public SelectedTag getIndexType() {
+        return new SelectedTag(m_indexType, TAGS_INDEX);
+    }
+
+    public void setIndexType(SelectedTag indexType) {
+        if (indexType.getTags() == TAGS_INDEX) {
+            m_indexType = indexType.getSelectedTag().getID();
+        }
+    }
+
+    public String hnswMTipText() {
+        return "Con HNSW, vecinos por punto en las capas superiores del grafo (el doble en la capa 0).";
+    }
+
+    public int getHnswM() {
+        return m_hnswM;
+    }
+
+    public void setHnswM(int m) throws Exception {
+        if (m < 2) {
+            throw new Exception("M debe ser al menos 2.");
+        }
+        m_hnswM = m;
+    }
+
+    public String efConstructionTipText() {
+        return "Con HNSW, candidatos que se exploran al insertar cada instancia: más, mejor grafo y "
+                + "construcción más lenta.";
+    }
+
+    public int getEfConstruction() {
+        return m_efConstruction;
+    }
+
+    public void setEfConstruction(int efConstruction) throws Exception {
+        if (efConstruction < 1) {
+            throw new Exception("ef-construction debe ser al menos 1.");
+        }
+        m_efConstruction = efConstruction;
+    }
+
+    public String efTipText() {
+        return "Con HNSW, candidatos que se exploran en cada consulta (al menos k): más, más exacto y "
+                + "más lento. Se puede cambiar sin volver a entrenar.";
+    }
+
+    public int getEf() {
+        return m_ef;
+    }
+
+    public void setEf(int ef) throws Exception {
+        if (ef < 1) {
+            throw new Exception("ef debe ser al menos 1.");
+        }
+        m_ef = ef;
+        if (m_index instanceof HNSW) {
+            ((HNSW) m_index).setEf(ef);
+        }
+    }
+
+    public String numExecutionSlotsTipText() {
+        return "Número de hilos para predecir lotes de instancias (1 = secuencial, 0 = todos los núcleos).";
+    }
+
+    public int getNumExecutionSlots() {
+        return m_numExecutionSlots;
+    }
+
+    public void setNumExecutionSlots(int numSlots) {
+        m_numExecutionSlots = numSlots;
+    }
+
+    @Override
+    public String toString() {
+        if (m_index == null) {
+            return "kNN: sin entrenar.";
+        }
+        String index = TAGS_INDEX[m_builtIndex].getIDStr();
+        if (m_builtIndex == HNSW) {
+            index += " con M = " + m_hnswM + ", ef = " + m_ef;
+        }
+        return "kNN (k = " + m_k + ", índice " + index + ", "
+                + m_numInstances + " instancias, " + m_points.dimension() + " atributos)\n";
+    }
+}
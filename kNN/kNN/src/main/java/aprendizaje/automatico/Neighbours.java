@@ -0,0 +1,100 @@
+package aprendizaje.automatico;
+
+/**
+ * Los k vecinos más cercanos encontrados hasta el momento, en un montículo de
+ * máximos sobre arrays primitivos: la raíz es el peor, así que decidir si un
+ * candidato entra es una comparación. Los empates de distancia se deshacen por
+ * el índice del punto (gana el menor), de modo que todos los índices devuelven
+ * exactamente los mismos vecinos.
+ *
+ * Se puede reutilizar entre consultas con {@link #clear}.
+ */
+final class Neighbours {
+
+    private final int k;
+    private final double[] keys;   // Cuadrado de la distancia
+    private final int[] ids;
+    private int size;
+
+    Neighbours(int k) {
+        this.k = k;
+        keys = new double[k];
+        ids = new int[k];
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    int capacity() {
+        return k;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Cuadrado de la distancia del peor vecino, o infinito si aún no hay k.
+     * Un subárbol cuya cota inferior sea mayor no puede aportar vecinos.
+     */
+    double worst() {
+        return size < k ? Double.POSITIVE_INFINITY : keys[0];
+    }
+
+    /**
+     * Añade el punto si está entre los k más cercanos hasta ahora.
+     */
+    void offer(double key, int id) {
+        if (size < k) {
+            // Sube el nuevo desde la última hoja
+            int child = size++;
+            while (child > 0) {
+                int parent = (child - 1) >>> 1;
+                if (!worse(key, id, keys[parent], ids[parent])) {
+                    break;
+                }
+                keys[child] = keys[parent];
+                ids[child] = ids[parent];
+                child = parent;
+            }
+            keys[child] = key;
+            ids[child] = id;
+        } else if (worse(keys[0], ids[0], key, id)) {
+            // Sustituye a la raíz y la hunde
+            int parent = 0;
+            while (true) {
+                int child = 2 * parent + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && worse(keys[child + 1], ids[child + 1], keys[child], ids[child])) {
+                    child++;
+                }
+                if (!worse(keys[child], ids[child], key, id)) {
+                    break;
+                }
+                keys[parent] = keys[child];
+                ids[parent] = ids[child];
+                parent = child;
+            }
+            keys[parent] = key;
+            ids[parent] = id;
+        }
+    }
+
+    private static boolean worse(double key, int id, double otherKey, int otherId) {
+        return key > otherKey || (key == otherKey && id > otherId);
+    }
+
+    /**
+     * Índice del i-ésimo vecino guardado (en el orden del montículo, no por distancia).
+     */
+    int id(int i) {
+        return ids[i];
+    }
+
+    double key(int i) {
+        return keys[i];
+    }
+}
@@ -0,0 +1,181 @@
+package aprendizaje.automatico;
+
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.io.Serializable;
+
+/**
+ * Instancias de entrenamiento copiadas, sin la clase, a un único double[]
+ * fila a fila, para calcular distancias sin pasar por {@link Instance}.
+ *
+ * Los atributos numéricos se normalizan a [0, 1] con el mínimo y el máximo del
+ * entrenamiento, que no se actualizan con las consultas como hace
+ * {@code EuclideanDistance} en IBk, y los nominales se guardan como índice del
+ * valor; los ausentes son NaN. La distancia es la de {@code weka.core.EuclideanDistance}: un
+ * atributo nominal aporta 0 si los valores coinciden y 1 si no, y con valores
+ * ausentes se supone la mayor diferencia posible. Para comparar se usa su
+ * cuadrado, que con atributos solo nominales es la distancia de Hamming.
+ */
+class Points implements Serializable {
+
+    /** Longitud máxima de un array en la JVM. */
+    static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    private final int numPoints;
+    private final int dimension;
+    private final int[] attributes;   // Atributo de cada coordenada (todos menos la clase)
+    private final boolean[] nominal;
+    private final double[] minimum;
+    private final double[] range;     // 0 si el atributo es constante
+    private final double[] values;    // Punto p en [p * dimension, (p + 1) * dimension)
+    private final boolean hasNominal;
+    private final boolean hasMissing;
+
+    Points(Instances data) {
+        numPoints = data.numInstances();
+        dimension = data.numAttributes() - (data.classIndex() >= 0 ? 1 : 0);
+        attributes = new int[dimension];
+        for (int i = 0, d = 0; i < data.numAttributes(); i++) {
+            if (i != data.classIndex()) {
+                attributes[d++] = i;
+            }
+        }
+        nominal = new boolean[dimension];
+        minimum = new double[dimension];
+        range = new double[dimension];
+        boolean anyNominal = false;
+        for (int d = 0; d < dimension; d++) {
+            nominal[d] = data.attribute(attributes[d]).isNominal();
+            anyNominal |= nominal[d];
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            if (!nominal[d]) {
+                for (int p = 0; p < numPoints; p++) {
+                    Instance instance = data.instance(p);
+                    if (!instance.isMissing(attributes[d])) {
+                        min = Math.min(min, instance.value(attributes[d]));
+                        max = Math.max(max, instance.value(attributes[d]));
+                    }
+                }
+            }
+            minimum[d] = min <= max ? min : 0;
+            range[d] = min < max ? max - min : 0;
+        }
+        hasNominal = anyNominal;
+        // Los índices calculan posiciones p * dimension con int
+        if ((long) numPoints * dimension > MAX_ARRAY_LENGTH) {
+            throw new IllegalArgumentException(numPoints + " instancias de " + dimension
+                    + " atributos no caben en un único array (máximo " + MAX_ARRAY_LENGTH + " valores).");
+        }
+        values = new double[numPoints * dimension];
+        boolean anyMissing = false;
+        for (int p = 0; p < numPoints; p++) {
+            anyMissing |= encode(data.instance(p), values, p * dimension);
+        }
+        hasMissing = anyMissing;
+    }
+
+    /**
+     * Copia la instancia a to[offset, offset + dimension) normalizada igual que
+     * los puntos, con los rangos del entrenamiento: un valor fuera de ellos
+     * queda fuera de [0, 1].
+     *
+     * @return true si tiene algún valor ausente
+     */
+    boolean encode(Instance instance, double[] to, int offset) {
+        boolean missing = false;
+        for (int d = 0; d < dimension; d++) {
+            double value = instance.value(attributes[d]);
+            if (Double.isNaN(value)) {
+                missing = true;
+                to[offset + d] = value;
+            } else if (nominal[d]) {
+                to[offset + d] = value;
+            } else {
+                to[offset + d] = range[d] == 0 ? 0 : (value - minimum[d]) / range[d];
+            }
+        }
+        return missing;
+    }
+
+    int numPoints() {
+        return numPoints;
+    }
+
+    int dimension() {
+        return dimension;
+    }
+
+    /**
+     * Coordenadas de todos los puntos, fila a fila. No hay que modificarlas.
+     */
+    double[] values() {
+        return values;
+    }
+
+    boolean hasNominal() {
+        return hasNominal;
+    }
+
+    boolean hasMissing() {
+        return hasMissing;
+    }
+
+    /**
+     * Cuadrado de la distancia entre x[xOffset, ...) e y[yOffset, ...), ambos
+     * codificados con {@link #encode}.
+     */
+    double squaredDistance(double[] x, int xOffset, double[] y, int yOffset) {
+        double sum = 0;
+        for (int d = 0; d < dimension; d++) {
+            double a = x[xOffset + d];
+            double b = y[yOffset + d];
+            double diff;
+            if (nominal[d]) {
+                diff = a == b ? 0 : 1;         // NaN nunca es igual: ausente cuenta como distinto
+            } else if (Double.isNaN(a) || Double.isNaN(b)) {
+                if (Double.isNaN(a) && Double.isNaN(b)) {
+                    diff = 1;
+                } else {
+                    double known = Double.isNaN(a) ? b : a;
+                    diff = Math.max(known, 1 - known);
+                }
+            } else {
+                diff = a - b;
+            }
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    /**
+     * Cuadrado de la distancia cuando ni x ni y tienen valores ausentes.
+     */
+    double squaredDistanceComplete(double[] x, int xOffset, double[] y, int yOffset) {
+        double sum = 0;
+        for (int d = 0; d < dimension; d++) {
+            double diff = x[xOffset + d] - y[yOffset + d];
+            if (nominal[d]) {
+                // Índices de valores distintos difieren al menos en 1: sin saltos que predecir
+                sum += Math.min(Math.abs(diff), 1);
+            } else {
+                sum += diff * diff;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Cuadrado de la distancia cuando todos los atributos son numéricos y no
+     * hay valores ausentes.
+     */
+    static double squaredEuclidean(double[] x, int xOffset, double[] y, int yOffset, int dimension) {
+        double sum = 0;
+        for (int d = 0; d < dimension; d++) {
+            double diff = x[xOffset + d] - y[yOffset + d];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,185 @@
+package aprendizaje.automatico;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.Utils;
+import weka.core.converters.ConverterUtils.DataSource;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Compara el índice HNSW con la búsqueda exacta: para cada valor de ef
+ * muestra el recall@k (fracción de los k vecinos exactos que encuentra) y el
+ * tiempo por consulta, y el tiempo de insertar instancias una a una en un
+ * grafo ya construido.
+ *
+ * Con un ARFF (-t) se usan sus atributos sin la clase (la última) y las
+ * consultas son las últimas -queries instancias; sin él, se generan puntos
+ * alrededor de 50 centros, numéricos o, con -nominal, nominales (distancia
+ * de Hamming). Como en Hamming hay muchos empates, un vecino aproximado
+ * cuenta como acierto si está a la distancia del k-ésimo exacto o menos.
+ *
+ * <pre>
+ * mvn compile exec:java -Dexec.mainClass="aprendizaje.automatico.RecallBenchmark" \
+ *     -Dexec.args="-n 100000 -d 16 -K 10 -ef 10,20,50,100,200"
+ * </pre>
+ */
+public class RecallBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String file = Utils.getOption('t', args);
+        String n = Utils.getOption('n', args);
+        String d = Utils.getOption('d', args);
+        String nominal = Utils.getOption("nominal", args);
+        String queries = Utils.getOption("queries", args);
+        String k = Utils.getOption('K', args);
+        String m = Utils.getOption('M', args);
+        String efConstruction = Utils.getOption("ef-construction", args);
+        String efs = Utils.getOption("ef", args);
+        Utils.checkForRemainingOptions(args);
+
+        int numQueries = queries.length() != 0 ? Integer.parseInt(queries) : 1000;
+        Instances data;
+        if (file.length() != 0) {
+            data = new DataSource(file).getDataSet();
+            data.setClassIndex(data.numAttributes() - 1);
+        } else {
+            data = generate(n.length() != 0 ? Integer.parseInt(n) + numQueries : 100000 + numQueries,
+                    d.length() != 0 ? Integer.parseInt(d) : 16,
+                    nominal.length() != 0 ? Integer.parseInt(nominal) : 0, new Random(1));
+        }
+        numQueries = Math.min(numQueries, data.numInstances() / 2);
+        Instances training = new Instances(data, 0, data.numInstances() - numQueries);
+        Instances test = new Instances(data, data.numInstances() - numQueries, numQueries);
+        run(training, test,
+                k.length() != 0 ? Integer.parseInt(k) : 10,
+                m.length() != 0 ? Integer.parseInt(m) : 16,
+                efConstruction.length() != 0 ? Integer.parseInt(efConstruction) : 100,
+                efs.length() != 0 ? efs : "10,20,50,100,200");
+    }
+
+    private static void run(Instances training, Instances test, int k, int m, int efConstruction, String efs) {
+        Points points = new Points(training);
+        int dimension = points.dimension();
+        double[][] queries = new double[test.numInstances()][dimension];
+        for (int q = 0; q < queries.length; q++) {
+            points.encode(test.instance(q), queries[q], 0);
+        }
+        System.out.println(points.numPoints() + " puntos, " + dimension + " atributos"
+                + (points.hasNominal() ? " (con nominales)" : "") + ", " + queries.length + " consultas, k = " + k);
+
+        // Vecinos exactos con el índice que elegiría AUTO
+        SpatialIndex exact;
+        String exactName;
+        if (points.hasMissing()) {
+            exact = new BruteForceIndex(points);
+            exactName = "BRUTE";
+        } else if (points.hasNominal()) {
+            exact = new VPTree(points);
+            exactName = "VPTREE";
+        } else if (dimension <= Knn.KDTREE_MAX_DIMENSION) {
+            exact = new KDTree(points);
+            exactName = "KDTREE";
+        } else {
+            exact = new BallTree(points);
+            exactName = "BALLTREE";
+        }
+        Neighbours neighbours = new Neighbours(k);
+        double[] threshold = new double[queries.length];   // Distancia del k-ésimo exacto
+        long start = System.nanoTime();
+        for (int q = 0; q < queries.length; q++) {
+            neighbours.clear();
+            exact.search(queries[q], neighbours);
+            threshold[q] = neighbours.worst();
+        }
+        System.out.printf("Exacto (%s): %.1f µs/consulta%n", exactName, micros(start, queries.length));
+
+        start = System.nanoTime();
+        HNSW graph = new HNSW(points, m, efConstruction, k);
+        System.out.printf("HNSW (M = %d, ef-construction = %d): construido en %.1f s%n",
+                m, efConstruction, (System.nanoTime() - start) / 1e9);
+        System.out.println("     ef   recall@" + k + "   µs/consulta");
+        for (String ef : efs.split(",")) {
+            graph.setEf(Integer.parseInt(ef.trim()));
+            report(graph, queries, threshold, neighbours);
+        }
+
+        // La mitad al construir y el resto insertado como con updateClassifier. Los
+        // niveles salen de la misma secuencia aleatoria, así que el grafo final es
+        // el mismo que construyéndolo de una vez y solo interesa el tiempo
+        int half = points.numPoints() / 2;
+        HNSW incremental = new HNSW(points, m, efConstruction, k, half);
+        double[] values = points.values();
+        start = System.nanoTime();
+        for (int p = half; p < points.numPoints(); p++) {
+            incremental.insert(values, p * dimension, false);
+        }
+        System.out.printf("Inserción incremental: %.1f µs/instancia%n", micros(start, points.numPoints() - half));
+    }
+
+    private static void report(HNSW graph, double[][] queries, double[] threshold, Neighbours neighbours) {
+        long hits = 0;
+        long start = System.nanoTime();
+        for (int q = 0; q < queries.length; q++) {
+            neighbours.clear();
+            graph.search(queries[q], neighbours);
+            for (int i = 0; i < neighbours.size(); i++) {
+                if (neighbours.key(i) <= threshold[q]) {
+                    hits++;
+                }
+            }
+        }
+        double time = micros(start, queries.length);
+        System.out.printf("%7d   %8.4f   %11.1f%n", graph.getEf(),
+                (double) hits / ((long) queries.length * neighbours.capacity()), time);
+    }
+
+    private static double micros(long start, int count) {
+        return (System.nanoTime() - start) / 1e3 / count;
+    }
+
+    /**
+     * Puntos alrededor de 50 centros: gaussianos con desviación 0,05 si son
+     * numéricos; si son nominales, cada atributo copia el del centro con
+     * probabilidad 0,7 y toma un valor al azar en otro caso.
+     */
+    private static Instances generate(int n, int dimension, int numValues, Random random) {
+        ArrayList<String> values = new ArrayList<>();
+        for (int v = 0; v < numValues; v++) {
+            values.add("v" + v);
+        }
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        for (int d = 0; d < dimension; d++) {
+            attributes.add(numValues > 0 ? new Attribute("a" + d, values) : new Attribute("a" + d));
+        }
+        ArrayList<String> classes = new ArrayList<>();
+        classes.add("c0");
+        classes.add("c1");
+        attributes.add(new Attribute("clase", classes));
+        Instances data = new Instances("sintetico", attributes, n);
+        data.setClassIndex(dimension);
+
+        double[][] centres = new double[50][dimension];
+        for (double[] centre : centres) {
+            for (int d = 0; d < dimension; d++) {
+                centre[d] = numValues > 0 ? random.nextInt(numValues) : random.nextDouble();
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            int c = random.nextInt(centres.length);
+            double[] row = new double[dimension + 1];
+            for (int d = 0; d < dimension; d++) {
+                if (numValues == 0) {
+                    row[d] = centres[c][d] + 0.05 * random.nextGaussian();
+                } else {
+                    row[d] = random.nextDouble() < 0.7 ? centres[c][d] : random.nextInt(numValues);
+                }
+            }
+            row[dimension] = c % 2;
+            data.add(new DenseInstance(1, row));
+        }
+        return data;
+    }
+}
@@ -0,0 +1,82 @@
+package aprendizaje.automatico;
+
+import java.io.Serializable;
+
+/**
+ * Índice sobre los puntos de entrenamiento para buscar los k más cercanos a
+ * una consulta. Todas las implementaciones son exactas y devuelven los mismos
+ * vecinos (con los empates deshechos por el índice del punto); solo cambia
+ * cuántas distancias calculan.
+ */
+abstract class SpatialIndex implements Serializable {
+
+    /** Puntos por hoja en los árboles. */
+    static final int LEAF_SIZE = 16;
+
+    /**
+     * Añade a neighbours los puntos más cercanos a query, codificada con
+     * {@link Points#encode} y sin valores ausentes salvo en {@link BruteForceIndex}.
+     */
+    abstract void search(double[] query, Neighbours neighbours);
+
+    /**
+     * Selección rápida: reordena ids[lo, hi) y keys[lo, hi) a la vez de modo
+     * que en kth quede el elemento que iría ahí si se ordenara por keys, con
+     * los menores o iguales antes y los mayores o iguales después.
+     */
+    static void select(int[] ids, double[] keys, int lo, int hi, int kth) {
+        hi--;
+        while (lo < hi) {
+            double pivot = keys[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i++;
+                }
+                while (keys[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    double key = keys[i];
+                    keys[i] = keys[j];
+                    keys[j] = key;
+                    int id = ids[i];
+                    ids[i] = ids[j];
+                    ids[j] = id;
+                    i++;
+                    j--;
+                }
+            }
+            if (kth <= j) {
+                hi = j;
+            } else if (kth >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Copia las coordenadas de los puntos en el orden de ids, para que los de
+     * una misma hoja estén seguidos en memoria.
+     */
+    static double[] reorder(Points points, int[] ids) {
+        int dimension = points.dimension();
+        double[] values = points.values();
+        double[] reordered = new double[ids.length * dimension];
+        for (int pos = 0; pos < ids.length; pos++) {
+            System.arraycopy(values, ids[pos] * dimension, reordered, pos * dimension, dimension);
+        }
+        return reordered;
+    }
+
+    static int[] identity(int n) {
+        int[] ids = new int[n];
+        for (int p = 0; p < n; p++) {
+            ids[p] = p;
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,132 @@
+package aprendizaje.automatico;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Árbol de puntos de referencia (vantage-point tree). Solo usa la desigualdad
+ * triangular, así que sirve para cualquier combinación de atributos sin
+ * valores ausentes y, en particular, para datos nominales, donde el cuadrado
+ * de la distancia es la distancia de Hamming.
+ *
+ * Cada nodo interno elige un punto de referencia y reparte los demás por la
+ * mediana mu de su distancia a él: dentro (distancia hasta mu) y fuera (desde
+ * mu). Si la consulta está a distancia d del punto de referencia y el peor
+ * vecino a tau, los de dentro están al menos a d - mu y los de fuera al menos
+ * a mu - d, lo que permite descartar una de las dos mitades.
+ */
+class VPTree extends SpatialIndex {
+
+    /** Margen relativo de las podas, que usan raíces cuadradas con redondeo. */
+    private static final double SLACK = 1e-9;
+
+    private final Points points;
+    private final int dimension;
+    private final double[] values;    // Coordenadas en el orden de ids
+    private final int[] ids;
+
+    private int numNodes;
+    private int[] vantage = new int[16];     // Posición del punto de referencia; -1 en las hojas
+    private double[] median = new double[16];
+    private int[] inside = new int[16];
+    private int[] outside = new int[16];
+    private int[] start = new int[16];
+    private int[] end = new int[16];
+
+    VPTree(Points points) {
+        this.points = points;
+        dimension = points.dimension();
+        int n = points.numPoints();
+        int[] order = identity(n);
+        if (n > 0) {
+            build(points.values(), order, new double[n], 0, n, new Random(1));
+        }
+        ids = order;
+        values = reorder(points, order);
+    }
+
+    private int build(double[] coordinates, int[] order, double[] keys, int lo, int hi, Random random) {
+        int node = newNode(lo, hi);
+        if (hi - lo <= LEAF_SIZE) {
+            return node;
+        }
+        // El punto de referencia se coloca en lo; el resto se reparte en (lo, hi)
+        int pick = lo + random.nextInt(hi - lo);
+        int swap = order[lo];
+        order[lo] = order[pick];
+        order[pick] = swap;
+        int vp = order[lo] * dimension;
+        for (int pos = lo + 1; pos < hi; pos++) {
+            keys[pos] = Math.sqrt(points.squaredDistanceComplete(coordinates, order[pos] * dimension, coordinates, vp));
+        }
+        int mid = (lo + 1 + hi) >>> 1;
+        select(order, keys, lo + 1, hi, mid);
+        vantage[node] = lo;
+        median[node] = keys[mid];
+        int insideChild = build(coordinates, order, keys, lo + 1, mid, random);
+        int outsideChild = build(coordinates, order, keys, mid, hi, random);
+        inside[node] = insideChild;
+        outside[node] = outsideChild;
+        return node;
+    }
+
+    private int newNode(int lo, int hi) {
+        if (numNodes == vantage.length) {
+            int capacity = 2 * numNodes;
+            vantage = Arrays.copyOf(vantage, capacity);
+            median = Arrays.copyOf(median, capacity);
+            inside = Arrays.copyOf(inside, capacity);
+            outside = Arrays.copyOf(outside, capacity);
+            start = Arrays.copyOf(start, capacity);
+            end = Arrays.copyOf(end, capacity);
+        }
+        vantage[numNodes] = -1;
+        start[numNodes] = lo;
+        end[numNodes] = hi;
+        return numNodes++;
+    }
+
+    @Override
+    void search(double[] query, Neighbours neighbours) {
+        if (numNodes > 0) {
+            search(0, query, neighbours);
+        }
+    }
+
+    private void search(int node, double[] query, Neighbours neighbours) {
+        if (vantage[node] < 0) {
+            for (int pos = start[node]; pos < end[node]; pos++) {
+                double key = points.squaredDistanceComplete(query, 0, values, pos * dimension);
+                if (key <= neighbours.worst()) {
+                    neighbours.offer(key, ids[pos]);
+                }
+            }
+            return;
+        }
+        int pos = vantage[node];
+        double key = points.squaredDistanceComplete(query, 0, values, pos * dimension);
+        if (key <= neighbours.worst()) {
+            neighbours.offer(key, ids[pos]);
+        }
+        double d = Math.sqrt(key);
+        double mu = median[node];
+        if (d < mu) {
+            search(inside[node], query, neighbours);
+            if (mu - d <= tau(neighbours)) {
+                search(outside[node], query, neighbours);
+            }
+        } else {
+            search(outside[node], query, neighbours);
+            if (d - mu <= tau(neighbours)) {
+                search(inside[node], query, neighbours);
+            }
+        }
+    }
+
+    /**
+     * Distancia del peor vecino, con un pequeño margen por el redondeo de la raíz.
+     */
+    private static double tau(Neighbours neighbours) {
+        return Math.sqrt(neighbours.worst()) * (1 + SLACK);
+    }
+}
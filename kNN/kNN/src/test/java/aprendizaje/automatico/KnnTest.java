@@ -0,0 +1,209 @@
+package aprendizaje.automatico;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SelectedTag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Los índices exactos de {@link Knn} (KDTREE, BALLTREE y VPTREE) dan las
+ * mismas distribuciones que el recorrido de todas las instancias (BRUTE),
+ * también con empates de distancia. HNSW es exacto si explora todos los
+ * puntos y, construido poco a poco con updateClassifier, encuentra casi
+ * siempre el vecino más cercano.
+ */
+public class KnnTest extends TestCase {
+
+    public KnnTest(String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(KnnTest.class);
+    }
+
+    /**
+     * Datos con numNumeric atributos numéricos enteros en [0, 4] y
+     * numNominal nominales de tres valores, así que muchas distancias
+     * coinciden. La clase tiene tres valores.
+     */
+    private static Instances randomData(int numInstances, int numNumeric, int numNominal, long seed) {
+        Random random = new Random(seed);
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        for (int i = 0; i < numNumeric; i++) {
+            attributes.add(new Attribute("x" + i));
+        }
+        List<String> values = Arrays.asList("a", "b", "c");
+        for (int i = 0; i < numNominal; i++) {
+            attributes.add(new Attribute("n" + i, values));
+        }
+        attributes.add(new Attribute("clase", Arrays.asList("c0", "c1", "c2")));
+        int numAttributes = numNumeric + numNominal;
+        Instances data = new Instances("aleatorio", attributes, numInstances);
+        data.setClassIndex(numAttributes);
+        for (int r = 0; r < numInstances; r++) {
+            double[] row = new double[numAttributes + 1];
+            for (int i = 0; i < numNumeric; i++) {
+                row[i] = random.nextInt(5);
+            }
+            for (int i = numNumeric; i < numAttributes; i++) {
+                row[i] = random.nextInt(3);
+            }
+            row[numAttributes] = random.nextInt(3);
+            data.add(new DenseInstance(1.0, row));
+        }
+        return data;
+    }
+
+    private static Knn train(Instances data, int index, int k) throws Exception {
+        Knn model = new Knn();
+        model.setIndexType(new SelectedTag(index, Knn.TAGS_INDEX));
+        model.setKNN(k);
+        model.buildClassifier(data);
+        return model;
+    }
+
+    private static void assertSameDistributions(String message, Instances train, Instances test, int index)
+            throws Exception {
+        for (int k : new int[] {1, 5, 20}) {
+            double[][] expected = train(train, Knn.BRUTE, k).distributionsForInstances(test);
+            double[][] actual = train(train, index, k).distributionsForInstances(test);
+            for (int r = 0; r < test.numInstances(); r++) {
+                assertTrue(message + ", " + Knn.TAGS_INDEX[index].getIDStr() + ", k = " + k + ", fila " + r,
+                        Arrays.equals(expected[r], actual[r]));
+            }
+        }
+    }
+
+    public void testNumericIndexesMatchBruteForce() throws Exception {
+        Instances train = randomData(2000, 3, 0, 1);
+        Instances test = randomData(300, 3, 0, 2);
+        // Las consultas también son instancias del entrenamiento (distancia 0)
+        test.addAll(new Instances(train, 0, 100));
+        for (int index : new int[] {Knn.KDTREE, Knn.BALLTREE, Knn.VPTREE}) {
+            assertSameDistributions("numéricos", train, test, index);
+        }
+    }
+
+    public void testNominalIndexMatchesBruteForce() throws Exception {
+        Instances train = randomData(2000, 0, 6, 3);
+        Instances test = randomData(300, 0, 6, 4);
+        test.addAll(new Instances(train, 0, 100));
+        assertSameDistributions("nominales", train, test, Knn.VPTREE);
+
+        train = randomData(2000, 2, 3, 5);
+        test = randomData(300, 2, 3, 6);
+        assertSameDistributions("mezclados", train, test, Knn.VPTREE);
+    }
+
+    public void testHnswWithLargeEfMatchesBruteForce() throws Exception {
+        Instances train = randomData(600, 2, 3, 7);
+        Instances test = randomData(200, 2, 3, 8);
+        test.addAll(new Instances(train, 0, 50));
+        for (int k : new int[] {1, 5, 20}) {
+            double[][] expected = train(train, Knn.BRUTE, k).distributionsForInstances(test);
+            Knn hnsw = new Knn();
+            hnsw.setIndexType(new SelectedTag(Knn.HNSW, Knn.TAGS_INDEX));
+            hnsw.setKNN(k);
+            hnsw.setEf(train.numInstances());
+            hnsw.buildClassifier(train);
+            double[][] actual = hnsw.distributionsForInstances(test);
+            for (int r = 0; r < test.numInstances(); r++) {
+                assertTrue("k = " + k + ", fila " + r, Arrays.equals(expected[r], actual[r]));
+            }
+        }
+    }
+
+    /**
+     * Puntos uniformes en [0, 1]^dimension; la clase, numérica, es el número de
+     * la fila, así que con k = 1 la predicción dice qué instancia es el vecino
+     * más cercano. Las dos primeras filas son las esquinas 0 y 1, para que
+     * cualquier prefijo que las incluya tenga los rangos de todo el conjunto.
+     */
+    private static Instances numberedData(int numInstances, int dimension, long seed) {
+        Random random = new Random(seed);
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        for (int i = 0; i < dimension; i++) {
+            attributes.add(new Attribute("x" + i));
+        }
+        attributes.add(new Attribute("fila"));
+        Instances data = new Instances("numerado", attributes, numInstances);
+        data.setClassIndex(dimension);
+        for (int r = 0; r < numInstances; r++) {
+            double[] row = new double[dimension + 1];
+            for (int i = 0; i < dimension; i++) {
+                row[i] = r < 2 ? r : random.nextDouble();
+            }
+            row[dimension] = r;
+            data.add(new DenseInstance(1.0, row));
+        }
+        return data;
+    }
+
+    public void testHnswUpdateKeepsRecall() throws Exception {
+        Instances train = numberedData(4000, 8, 9);
+        Instances test = numberedData(500, 8, 10);
+        double[][] expected = train(train, Knn.BRUTE, 1).distributionsForInstances(test);
+
+        Knn hnsw = new Knn();
+        hnsw.setIndexType(new SelectedTag(Knn.HNSW, Knn.TAGS_INDEX));
+        hnsw.setKNN(1);
+        // Las instancias añadidas se normalizan con los rangos del prefijo, que son los de todo train
+        hnsw.buildClassifier(new Instances(train, 0, 500));
+        for (int r = 500; r < train.numInstances(); r++) {
+            hnsw.updateClassifier(train.instance(r));
+        }
+        double[][] actual = hnsw.distributionsForInstances(test);
+        int hits = 0;
+        for (int r = 0; r < test.numInstances(); r++) {
+            if (expected[r][0] == actual[r][0]) {
+                hits++;
+            }
+        }
+        double recall = hits / (double) test.numInstances();
+        assertTrue("recall@1 = " + recall, recall >= 0.95);
+    }
+
+    public void testUpdateRejectedByExactIndexes() throws Exception {
+        Instances train = randomData(100, 3, 0, 11);
+        Instance extra = randomData(1, 3, 0, 12).instance(0);
+        for (int index : new int[] {Knn.BRUTE, Knn.KDTREE, Knn.BALLTREE, Knn.VPTREE}) {
+            Knn model = train(train, index, 3);
+            try {
+                model.updateClassifier(extra);
+                fail(Knn.TAGS_INDEX[index].getIDStr() + " ha aceptado una instancia nueva");
+            } catch (Exception e) {
+                // Esperado: solo HNSW admite inserciones
+            }
+        }
+    }
+
+    /**
+     * Con más de 2 * {@link Knn#PARALLEL_CHUNK} consultas el lote se reparte
+     * entre hilos; cada fila debe coincidir con su predicción por separado.
+     */
+    public void testParallelBatchMatchesSingleQueries() throws Exception {
+        Instances train = randomData(2000, 2, 2, 13);
+        Instances test = randomData(3 * Knn.PARALLEL_CHUNK + 17, 2, 2, 14);
+        for (int index : new int[] {Knn.BRUTE, Knn.VPTREE, Knn.HNSW}) {
+            Knn model = train(train, index, 5);
+            for (int numSlots : new int[] {3, 0}) {
+                model.setNumExecutionSlots(numSlots);
+                double[][] batch = model.distributionsForInstances(test);
+                for (int r = 0; r < test.numInstances(); r++) {
+                    assertTrue(Knn.TAGS_INDEX[index].getIDStr() + ", -num-slots " + numSlots + ", fila " + r,
+                            Arrays.equals(model.distributionForInstance(test.instance(r)), batch[r]));
+                }
+            }
+        }
+    }
+}